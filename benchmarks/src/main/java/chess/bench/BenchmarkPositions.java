@@ -0,0 +1,67 @@
+package chess.bench;
+
+import java.util.Arrays;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+
+public class BenchmarkPositions {
+
+	/*
+	 * The fixed corpus every benchmark runs over, so results from different commits are comparable.
+	 * It mixes the perft reference positions (lots of castling, en passant and promotion edge cases)
+	 * with a few ordinary middlegame and endgame positions. Don't change it without expecting every
+	 * number to move.
+	 */
+
+	public static final String[] FENS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+			"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 8",
+			"2rq1rk1/pb1nbppp/1p2pn2/2pp4/3P4/1P1BPN2/PBPN1PPP/2RQ1RK1 w - - 0 11",
+			"8/5pk1/6p1/3R4/7P/6P1/r4PK1/8 b - - 3 41",
+			"6k1/5p2/4p1p1/3pP3/p2P2P1/P4K2/8/8 w - - 0 45"
+	};
+
+	/**
+	 * Returns a new Board for every position in the corpus.
+	 */
+	public static Board[] boards() {
+		Board[] boards = new Board[FENS.length];
+		for(int i = 0; i < FENS.length; i++) {
+			boards[i] = new Board(FENS[i]);
+		}
+		return boards;
+	}
+
+	/**
+	 * Returns the pseudo-legal moves of every board, one array per board.
+	 */
+	public static int[][] pseudoLegalMoves(Board[] boards) {
+		int[][] moves = new int[boards.length][];
+		int[] buffer = new int[MoveGenerator.MAX_MOVES];
+		for(int i = 0; i < boards.length; i++) {
+			int count = MoveGenerator.generateMoves(boards[i], buffer, 0);
+			moves[i] = Arrays.copyOf(buffer, count);
+		}
+		return moves;
+	}
+
+	/**
+	 * Returns the legal moves of every board, one array per board.
+	 */
+	public static int[][] legalMoves(Board[] boards) {
+		int[][] pseudoLegal = pseudoLegalMoves(boards);
+		int[][] moves = new int[boards.length][];
+		for(int i = 0; i < boards.length; i++) {
+			Board board = boards[i];
+			moves[i] = Arrays.stream(pseudoLegal[i]).filter(board::isLegal).toArray();
+		}
+		return moves;
+	}
+
+}
@@ -0,0 +1,50 @@
+package chess.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+	/*
+	 * The main class of benchmarks.jar. It takes the same arguments as the normal JMH launcher, but
+	 * unless told otherwise it also
+	 * 		- writes the results as JSON to jmh-result.json, so they can be diffed and graphed, and
+	 * 		- runs the gc profiler, so every benchmark reports gc.alloc.rate and bytes/op
+	 *
+	 * 	java -jar benchmarks/target/benchmarks.jar					runs everything
+	 * 	java -jar benchmarks/target/benchmarks.jar BoardBenchmark.isLegal	runs one benchmark
+	 * 	java -jar benchmarks/target/benchmarks.jar -rf csv -rff out.csv	CSV instead
+	 */
+
+	private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+
+		CommandLineOptions cli = new CommandLineOptions(args);
+		if(cli.shouldHelp()) {
+			cli.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+		if(!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+		if(!cli.getResult().hasValue()) options.result(DEFAULT_RESULT_FILE);
+		if(cli.getProfilers().isEmpty()) options.addProfiler(GCProfiler.class);
+
+		Runner runner = new Runner(options.build());
+		if(cli.shouldList()) {
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+
+}
@@ -0,0 +1,194 @@
+package chess.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.eval.Evaluator;
+import chess.eval.PawnHashTable;
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.util.Move;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	/*
+	 * The board hot paths, each measured over the whole corpus in BenchmarkPositions, so one op is
+	 * one pass over every position (and every move, for the per-move benchmarks). Every benchmark
+	 * returns something that depends on all of its work so the JIT can't throw any of it away.
+	 *
+	 * Apart from toFen, which builds Strings on purpose, none of these should allocate: with the gc
+	 * profiler on, gc.alloc.rate.norm should stay at (close to) 0 bytes/op, and anything else is a
+	 * regression.
+	 */
+
+	private Board[] boards;
+	private int[][] pseudoLegalMoves;
+	private int[][] legalMoves;
+
+	private final Board scratch = new Board();
+	private final PawnHashTable pawnTable = new PawnHashTable(PawnHashTable.DEFAULT_KILOBYTES);
+	private final int[] buffer = new int[MoveGenerator.MAX_MOVES];
+
+	@Setup
+	public void setup() {
+		boards = BenchmarkPositions.boards();
+		pseudoLegalMoves = BenchmarkPositions.pseudoLegalMoves(boards);
+		legalMoves = BenchmarkPositions.legalMoves(boards);
+	}
+
+	@Benchmark
+	public int generateMoves() {
+		int total = 0;
+		for(Board board : boards) {
+			total += MoveGenerator.generateMoves(board, buffer, 0);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int generateCaptures() {
+		int total = 0;
+		for(Board board : boards) {
+			total += MoveGenerator.generateCaptures(board, buffer, 0);
+		}
+		return total;
+	}
+
+	// the board only works out checks and pins once per position, so every position is copied first to
+	// make each call pay for them like a fresh position in a search would. The copy is measured too.
+	@Benchmark
+	public int generateLegalMoves() {
+		int total = 0;
+		for(Board board : boards) {
+			scratch.copyFrom(board);
+			total += MoveGenerator.generateLegalMoves(scratch, buffer, 0);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public long makeUnmake() {
+		long keys = 0;
+		for(int i = 0; i < boards.length; i++) {
+			Board board = boards[i];
+			for(int move : legalMoves[i]) {
+				board.makeMove(move);
+				keys ^= board.getZobristKey();
+				board.unmakeMove(move);
+			}
+		}
+		return keys;
+	}
+
+	// isLegal on every pseudo-legal move, so the illegal ones are included
+	@Benchmark
+	public int isLegal() {
+		int legal = 0;
+		for(int i = 0; i < boards.length; i++) {
+			Board board = boards[i];
+			for(int move : pseudoLegalMoves[i]) {
+				if(board.isLegal(move)) legal++;
+			}
+		}
+		return legal;
+	}
+
+	// the static exchange on the square of every legal capture
+	@Benchmark
+	public int see() {
+		int sum = 0;
+		for(int i = 0; i < boards.length; i++) {
+			Board board = boards[i];
+			for(int move : legalMoves[i]) {
+				if(Move.isCapture(move)) sum += board.see(move);
+			}
+		}
+		return sum;
+	}
+
+	// Board.move validates and then plays the move for good, so every move starts from a copy of the
+	// position. The copy is part of what gets measured.
+	@Benchmark
+	public long move() {
+		long keys = 0;
+		for(int i = 0; i < boards.length; i++) {
+			for(int move : legalMoves[i]) {
+				scratch.copyFrom(boards[i]);
+				if(scratch.move(move)) keys ^= scratch.getZobristKey();
+			}
+		}
+		return keys;
+	}
+
+	// the incremental key is already measured as part of makeUnmake, this is the full recompute
+	@Benchmark
+	public long zobristFromScratch() {
+		long keys = 0;
+		for(Board board : boards) {
+			keys ^= board.computeZobristKey();
+		}
+		return keys;
+	}
+
+	// the running sums the board keeps, plus the pawn structure worked out from scratch
+	@Benchmark
+	public int evaluate() {
+		int total = 0;
+		for(Board board : boards) {
+			total += Evaluator.evaluate(board);
+		}
+		return total;
+	}
+
+	// what the search calls at every leaf: after the first round every pawn structure is in the table
+	@Benchmark
+	public int evaluateWithPawnHash() {
+		int total = 0;
+		for(Board board : boards) {
+			total += Evaluator.evaluate(board, pawnTable);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int evaluateFromScratch() {
+		int total = 0;
+		for(Board board : boards) {
+			total += Evaluator.evaluateFromScratch(board);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public void setFen() {
+		for(String fen : BenchmarkPositions.FENS) {
+			scratch.setFen(fen);
+		}
+	}
+
+	@Benchmark
+	public int toFen() {
+		int length = 0;
+		for(Board board : boards) {
+			length += board.toFen().length();
+		}
+		return length;
+	}
+
+}
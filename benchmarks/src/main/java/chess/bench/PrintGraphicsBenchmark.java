@@ -0,0 +1,58 @@
+package chess.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.game.Board;
+import chess.graphics.PrintGraphics;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrintGraphicsBenchmark {
+
+	/*
+	 * printBoard writes straight to System.out, so for the duration of the benchmark System.out is
+	 * swapped for a stream that throws everything away. What's left is the cost of building the
+	 * text, plus whatever PrintStream does with it.
+	 */
+
+	private Board[] boards;
+	private PrintStream originalOut;
+
+	@Setup
+	public void setup() {
+		boards = BenchmarkPositions.boards();
+		originalOut = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(originalOut);
+	}
+
+	@Benchmark
+	public void printBoard() {
+		for(Board board : boards) {
+			PrintGraphics.printBoard(board.getBitBoards());
+		}
+	}
+
+}
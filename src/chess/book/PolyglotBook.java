@@ -0,0 +1,302 @@
+package chess.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class PolyglotBook {
+
+	/*
+	 * 	Polyglot opening books
+	 * 	----------------------
+	 * 	A .bin book is nothing but 16 byte entries sorted by position key, all numbers big endian:
+	 *
+	 * 		key		8 bytes		the Polyglot key of the position (see PolyglotKeys)
+	 * 		move	2 bytes		to file (bits 0-2), to row (3-5), from file (6-8), from row (9-11)
+	 * 							and promotion piece (12-14: knight 1, bishop 2, rook 3, queen 4)
+	 * 		weight	2 bytes		how good or how often played the move is
+	 * 		learn	4 bytes		not used here
+	 *
+	 * 	A position with several book moves has one entry per move, next to each other. Castling is
+	 * 	written as the king taking its own rook (e1h1 for e1g1), the way Chess960 does it.
+	 *
+	 * Since the entries are sorted, there is no reason to load them: the file is memory mapped once
+	 * and every probe is a binary search right over the mapped bytes, so opening a book of any size
+	 * takes the same few microseconds and the operating system only ever pages in the handful of
+	 * pages a game actually touches. Nothing about a probe changes the book (all reads use absolute
+	 * offsets, never the buffer's position), so one PolyglotBook can be shared by any number of games
+	 * on any number of threads, and open() hands out the same one for the same file.
+	 */
+
+	public static final int ENTRY_SIZE = 16;
+
+	// the most entries a single position can have that we bother looking at
+	public static final int MAX_ENTRIES = 256;
+
+	// promotion piece types by Polyglot's promotion number
+	private static final int[] PROMOTIONS = {Constants.EMPTY, Constants.KNIGHT, Constants.BISHOP, Constants.ROOK, Constants.QUEEN};
+
+	private static final Map<Path, PolyglotBook> OPEN_BOOKS = new ConcurrentHashMap<>();
+
+	private final ByteBuffer entries;
+	private final int size;
+	private final PolyglotKeys keys;
+
+	/**
+	 * Maps a book file, using the given key table.
+	 * @throws IllegalArgumentException if the file isn't a whole number of entries, or is over 2 GB
+	 */
+	public PolyglotBook(Path path, PolyglotKeys keys) throws IOException {
+		this.keys = keys;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long bytes = channel.size();
+			if(bytes % ENTRY_SIZE != 0) throw new IllegalArgumentException(path + " isn't a Polyglot book: its size isn't a multiple of " + ENTRY_SIZE);
+			if(bytes > Integer.MAX_VALUE) throw new IllegalArgumentException(path + " is too big to map in one piece");
+
+			// the mapping stays valid after the channel is closed, and is unmapped when it is garbage collected
+			entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+			size = (int)(bytes / ENTRY_SIZE);
+		}
+	}
+
+	/**
+	 * Returns the book for a file using the default key table (PolyglotKeys.getDefault()), mapping it
+	 * the first time it is asked for and sharing that mapping with everyone who asks afterwards.
+	 */
+	public static PolyglotBook open(Path path) throws IOException {
+		Path real = path.toRealPath();
+		PolyglotBook book = OPEN_BOOKS.get(real);
+		if(book != null) return book;
+
+		book = new PolyglotBook(real, PolyglotKeys.getDefault());
+		PolyglotBook other = OPEN_BOOKS.putIfAbsent(real, book);
+		return other != null ? other : book;
+	}
+
+	/**
+	 * Finds the book moves for a position. Entries whose moves aren't legal here (which happens
+	 * with key collisions and broken books) are left out.
+	 * @param moves receives the packed moves, and should be MAX_ENTRIES long
+	 * @param weights receives the weight of each move
+	 * @return the number of moves found
+	 */
+	public int getMoves(Board board, int[] moves, int[] weights) {
+		return getMoves(board, moves, weights, null);
+	}
+
+	/**
+	 * The same as getMoves(board, moves, weights), with a buffer (at least MoveGenerator.MAX_MOVES
+	 * long) that the caller owns for the legal moves, so that nothing is allocated. The legal moves
+	 * are only generated once the position has turned out to be in the book.
+	 */
+	public int getMoves(Board board, int[] moves, int[] weights, int[] legal) {
+
+		long key = keys.computeKey(board);
+		int index = findFirst(key);
+		if(index < 0) return 0;
+
+		if(legal == null) legal = new int[MoveGenerator.MAX_MOVES];
+		int legalCount = MoveGenerator.generateLegalMoves(board, legal, 0);
+
+		int count = 0;
+		for(; index < size && count < moves.length && getKey(index) == key; index++) {
+			int offset = index * ENTRY_SIZE;
+			int move = toMove(board, entries.getShort(offset + 8) & 0xFFFF, legal, legalCount);
+			if(move == Move.NONE) continue;
+			moves[count] = move;
+			weights[count] = entries.getShort(offset + 10) & 0xFFFF;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Picks one of the book moves at random, each with a chance proportional to its weight.
+	 * @return the move, or Move.NONE if the position isn't in the book
+	 */
+	public int pickMove(Board board, Random random) {
+		return pickMove(board, random, new int[MAX_ENTRIES], new int[MAX_ENTRIES], null);
+	}
+
+	/**
+	 * The same as pickMove(board, random) using the calling thread's own random generator.
+	 */
+	public int pickMove(Board board) {
+		return pickMove(board, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * The same as pickMove(board, random), with buffers the caller owns (see getMoves) so that
+	 * nothing is allocated.
+	 */
+	public int pickMove(Board board, Random random, int[] moves, int[] weights, int[] legal) {
+		int count = getMoves(board, moves, weights, legal);
+		if(count == 0) return Move.NONE;
+
+		long total = 0;
+		for(int i = 0; i < count; i++) total += weights[i];
+
+		// a book where every weight is 0 still has moves in it, so let's treat them all the same
+		if(total == 0) return moves[random.nextInt(count)];
+
+		long pick = (long)(random.nextDouble() * total);
+		for(int i = 0; i < count; i++) {
+			pick -= weights[i];
+			if(pick < 0) return moves[i];
+		}
+		return moves[count - 1];
+	}
+
+	/**
+	 * Returns the book move with the highest weight, or Move.NONE if the position isn't in the book.
+	 */
+	public int getBestMove(Board board) {
+		return getBestMove(board, new int[MAX_ENTRIES], new int[MAX_ENTRIES], null);
+	}
+
+	/**
+	 * The same as getBestMove(board), with buffers the caller owns (see getMoves) so that nothing is
+	 * allocated.
+	 */
+	public int getBestMove(Board board, int[] moves, int[] weights, int[] legal) {
+		int count = getMoves(board, moves, weights, legal);
+
+		int best = Move.NONE;
+		int bestWeight = -1;
+		for(int i = 0; i < count; i++) {
+			if(weights[i] > bestWeight) {
+				best = moves[i];
+				bestWeight = weights[i];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns true if the book has any entry for this position.
+	 */
+	public boolean contains(Board board) {
+		return findFirst(keys.computeKey(board)) >= 0;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the number of entries in the book
+	public int getSize() {
+		return size;
+	}
+
+	public PolyglotKeys getKeys() {
+		return keys;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the index of the first entry with this key, or -1. The keys are sorted as unsigned numbers.
+	private int findFirst(long key) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(Long.compareUnsigned(getKey(middle), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low < size && getKey(low) == key ? low : -1;
+	}
+
+	private long getKey(int index) {
+		return entries.getLong(index * ENTRY_SIZE);
+	}
+
+	// turns a Polyglot move into the matching legal packed move, or Move.NONE if there isn't one
+	private static int toMove(Board board, int bookMove, int[] legal, int legalCount) {
+
+		// our squares count the files from h to a, Polyglot's from a to h
+		int to = (bookMove & 63) ^ 7;
+		int from = ((bookMove >>> 6) & 63) ^ 7;
+		int promotionIndex = (bookMove >>> 12) & 7;
+		if(promotionIndex >= PROMOTIONS.length) return Move.NONE;
+		int promotion = PROMOTIONS[promotionIndex];
+
+		// the king "taking" its own rook is castling, and the king really ends up next to the rook
+		int piece = board.pieceAt(from);
+		if(piece != Constants.EMPTY && piece % Constants.BLACK_OFFSET == Constants.KING && board.pieceAt(to) == piece - Constants.KING + Constants.ROOK) {
+			if(to == from - 3) to = from - 2;
+			else if(to == from + 4) to = from + 2;
+		}
+
+		for(int i = 0; i < legalCount; i++) {
+			int move = legal[i];
+			if(Move.getFrom(move) != from || Move.getTo(move) != to) continue;
+			if(Move.isPromotion(move) ? Move.getPromotionType(move) != promotion : promotion != Constants.EMPTY) continue;
+			return move;
+		}
+		return Move.NONE;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PROBE BENCHMARK									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Opens a book, prints the book moves for the start position (or a FEN) and times how fast the
+	 * position can be probed.
+	 * Arguments: book [fen]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 1) {
+			System.out.println("usage: PolyglotBook <book.bin> [fen]");
+			return;
+		}
+
+		long start = System.nanoTime();
+		PolyglotBook book = open(Paths.get(args[0]));
+		System.out.printf("opened %,d entries in %.3f ms%n", book.getSize(), (System.nanoTime() - start) / 1e6);
+
+		Board board = args.length > 1 ? new Board(String.join(" ", Arrays.copyOfRange(args, 1, args.length))) : new Board();
+		int[] moves = new int[MAX_ENTRIES];
+		int[] weights = new int[MAX_ENTRIES];
+		int count = book.getMoves(board, moves, weights);
+		System.out.printf("key %016x: %d book moves%n", book.getKeys().computeKey(board), count);
+		for(int i = 0; i < count; i++) {
+			System.out.println("  " + Move.toString(moves[i]) + " " + weights[i]);
+		}
+
+		int probes = 1_000_000;
+		long found = 0;
+		start = System.nanoTime();
+		for(int i = 0; i < probes; i++) {
+			if(book.contains(board)) found++;
+		}
+		double nanos = (System.nanoTime() - start) / (double)probes;
+		System.out.printf("%,.0f ns per probe (%d found)%n", nanos, found);
+	}
+
+}
@@ -0,0 +1,400 @@
+package chess.eval;
+
+import chess.game.Board;
+import chess.util.Attacks;
+import chess.util.Constants;
+
+public class Evaluator {
+
+	/*
+	 * The static evaluation guesses how good a position is without searching any moves. Scores are in
+	 * centipawns (a pawn is worth 100) and are always from the point of view of the side to move, which
+	 * is what negamax expects: a positive score means the side to move is better.
+	 *
+	 * 	Tapered piece-square evaluation
+	 * 	-------------------------------
+	 * 	Every piece is worth its material plus a bonus (or penalty) for the square it stands on, and
+	 * 	both come in two flavours: one for the middlegame and one for the endgame (a king wants to hide
+	 * 	in the corner while the queens are on, and walk to the center once they are gone). The final
+	 * 	score blends the two by the game phase, which counts the knights, bishops, rooks and queens
+	 * 	left on the board.
+	 *
+	 * 	Because every term belongs to exactly one piece on one square, the totals never have to be
+	 * 	recomputed: the Board adds and subtracts the entries of MIDDLEGAME, ENDGAME and PHASE as pieces
+	 * 	are added, removed and moved during make/unmake, so evaluate() is just a blend of three numbers
+	 * 	it already has. The tables are folded together with the material values and signed (white
+	 * 	positive, black negative) ahead of time to keep that update down to a couple of array reads.
+	 *
+	 * 	The numbers are the well known PeSTO tables.
+	 *
+	 * 	Pawn structure
+	 * 	--------------
+	 * 	On top of that come the terms that depend on how the pawns stand together: doubled, isolated
+	 * 	and backward pawns, passed pawns (by how far they've come) and the pawns sheltering each king.
+	 * 	They need the whole pawn structure, so they can't be kept up to date move by move like the
+	 * 	piece-square sums. But apart from the king shelter they only depend on the pawns, which hardly
+	 * 	ever move compared to everything else, so the search keeps them in a PawnHashTable and only
+	 * 	works them out again for pawn structures it hasn't seen yet. The shelter is just a couple of
+	 * 	lookups, so it's added on every time instead of making the king squares part of the key.
+	 */
+
+	// piece values indexed by piece type (Constants.PAWN..Constants.KING), used for move ordering
+	public static final int[] PIECE_VALUES = {100, 500, 320, 330, 900, 0};
+
+	// how much each piece type counts towards the game phase, and the phase of the starting position
+	public static final int[] PHASE_WEIGHTS = {0, 2, 1, 1, 4, 0};
+	public static final int MAX_PHASE = 24;
+
+	// material plus piece-square bonus for every piece index and square, white positive and black negative
+	public static final int[][] MIDDLEGAME = new int[12][64];
+	public static final int[][] ENDGAME = new int[12][64];
+
+	// PHASE_WEIGHTS by piece index instead of type, so the Board doesn't have to work out the type
+	public static final int[] PHASE = new int[12];
+
+	// pawn structure terms, middlegame and endgame
+	private static final int DOUBLED_MIDDLEGAME = -10, DOUBLED_ENDGAME = -20;
+	private static final int ISOLATED_MIDDLEGAME = -10, ISOLATED_ENDGAME = -15;
+	private static final int BACKWARD_MIDDLEGAME = -8, BACKWARD_ENDGAME = -10;
+	private static final int SHIELD_MIDDLEGAME = 12;
+
+	// passed pawn bonus by rank, counted from the pawn's own side (the second rank is 1)
+	private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 45, 70, 0};
+	private static final int[] PASSED_ENDGAME = {0, 10, 15, 30, 50, 90, 140, 0};
+
+	// by color and square: the squares in front of a pawn on its own and both neighbouring files (no
+	// enemy pawns there means it's passed), the squares beside and behind it on the neighbouring files
+	// (no pawns of our own there means it's backward if it can't safely step forward), and the
+	// squares in front of a king where its shelter stands
+	private static final long[][] PASSED_MASKS = new long[2][64];
+	private static final long[][] SUPPORT_MASKS = new long[2][64];
+	private static final long[][] SHIELD_MASKS = new long[2][64];
+
+	// the files on either side of each file (file 0 is the h file, like the squares)
+	private static final long[] NEIGHBOUR_FILES = new long[8];
+
+	// material by piece type
+	private static final int[] MIDDLEGAME_VALUES = {82, 477, 337, 365, 1025, 0};
+	private static final int[] ENDGAME_VALUES = {94, 512, 281, 297, 936, 0};
+
+	/*
+	 * The tables below are written the way the board looks from white's side: the first row is the
+	 * eighth rank, and each row goes from the a file to the h file. Black uses the same tables
+	 * flipped upside down.
+	 */
+
+	private static final int[][] MIDDLEGAME_TABLES = {
+			{	// pawn
+				  0,   0,   0,   0,   0,   0,   0,   0,
+				 98, 134,  61,  95,  68, 126,  34, -11,
+				 -6,   7,  26,  31,  65,  56,  25, -20,
+				-14,  13,   6,  21,  23,  12,  17, -23,
+				-27,  -2,  -5,  12,  17,   6,  10, -25,
+				-26,  -4,  -4, -10,   3,   3,  33, -12,
+				-35,  -1, -20, -23, -15,  24,  38, -22,
+				  0,   0,   0,   0,   0,   0,   0,   0
+			},
+			{	// rook
+				 32,  42,  32,  51,  63,   9,  31,  43,
+				 27,  32,  58,  62,  80,  67,  26,  44,
+				 -5,  19,  26,  36,  17,  45,  61,  16,
+				-24, -11,   7,  26,  24,  35,  -8, -20,
+				-36, -26, -12,  -1,   9,  -7,   6, -23,
+				-45, -25, -16, -17,   3,   0,  -5, -33,
+				-44, -16, -20,  -9,  -1,  11,  -6, -71,
+				-19, -13,   1,  17,  16,   7, -37, -26
+			},
+			{	// knight
+				-167, -89, -34, -49,  61, -97, -15, -107,
+				 -73, -41,  72,  36,  23,  62,   7,  -17,
+				 -47,  60,  37,  65,  84, 129,  73,   44,
+				  -9,  17,  19,  53,  37,  69,  18,   22,
+				 -13,   4,  16,  13,  28,  19,  21,   -8,
+				 -23,  -9,  12,  10,  19,  17,  25,  -16,
+				 -29, -53, -12,  -3,  -1,  18, -14,  -19,
+				-105, -21, -58, -33, -17, -28, -19,  -23
+			},
+			{	// bishop
+				-29,   4, -82, -37, -25, -42,   7,  -8,
+				-26,  16, -18, -13,  30,  59,  18, -47,
+				-16,  37,  43,  40,  35,  50,  37,  -2,
+				 -4,   5,  19,  50,  37,  37,   7,  -2,
+				 -6,  13,  13,  26,  34,  12,  10,   4,
+				  0,  15,  15,  15,  14,  27,  18,  10,
+				  4,  15,  16,   0,   7,  21,  33,   1,
+				-33,  -3, -14, -21, -13, -12, -39, -21
+			},
+			{	// queen
+				-28,   0,  29,  12,  59,  44,  43,  45,
+				-24, -39,  -5,   1, -16,  57,  28,  54,
+				-13, -17,   7,   8,  29,  56,  47,  57,
+				-27, -27, -16, -16,  -1,  17,  -2,   1,
+				 -9, -26,  -9, -10,  -2,  -4,   3,  -3,
+				-14,   2, -11,  -2,  -5,   2,  14,   5,
+				-35,  -8,  11,   2,   8,  15,  -3,   1,
+				 -1, -18,  -9,  10, -15, -25, -31, -50
+			},
+			{	// king
+				-65,  23,  16, -15, -56, -34,   2,  13,
+				 29,  -1, -20,  -7,  -8,  -4, -38, -29,
+				 -9,  24,   2, -16, -20,   6,  22, -22,
+				-17, -20, -12, -27, -30, -25, -14, -36,
+				-49,  -1, -27, -39, -46, -44, -33, -51,
+				-14, -14, -22, -46, -44, -30, -15, -27,
+				  1,   7,  -8, -64, -43, -16,   9,   8,
+				-15,  36,  12, -54,   8, -28,  24,  14
+			}
+	};
+
+	private static final int[][] ENDGAME_TABLES = {
+			{	// pawn
+				  0,   0,   0,   0,   0,   0,   0,   0,
+				178, 173, 158, 134, 147, 132, 165, 187,
+				 94, 100,  85,  67,  56,  53,  82,  84,
+				 32,  24,  13,   5,  -2,   4,  17,  17,
+				 13,   9,  -3,  -7,  -7,  -8,   3,  -1,
+				  4,   7,  -6,   1,   0,  -5,  -1,  -8,
+				 13,   8,   8,  10,  13,   0,   2,  -7,
+				  0,   0,   0,   0,   0,   0,   0,   0
+			},
+			{	// rook
+				 13,  10,  18,  15,  12,  12,   8,   5,
+				 11,  13,  13,  11,  -3,   3,   8,   3,
+				  7,   7,   7,   5,   4,  -3,  -5,  -3,
+				  4,   3,  13,   1,   2,   1,  -1,   2,
+				  3,   5,   8,   4,  -5,  -6,  -8, -11,
+				 -4,   0,  -5,  -1,  -7, -12,  -8, -16,
+				 -6,  -6,   0,   2,  -9,  -9, -11,  -3,
+				 -9,   2,   3,  -1,  -5, -13,   4, -20
+			},
+			{	// knight
+				-58, -38, -13, -28, -31, -27, -63, -99,
+				-25,  -8, -25,  -2,  -9, -25, -24, -52,
+				-24, -20,  10,   9,  -1,  -9, -19, -41,
+				-17,   3,  22,  22,  22,  11,   8, -18,
+				-18,  -6,  16,  25,  16,  17,   4, -18,
+				-23,  -3,  -1,  15,  10,  -3, -20, -22,
+				-42, -20, -10,  -5,  -2, -20, -23, -44,
+				-29, -51, -23, -15, -22, -18, -50, -64
+			},
+			{	// bishop
+				-14, -21, -11,  -8,  -7,  -9, -17, -24,
+				 -8,  -4,   7, -12,  -3, -13,  -4, -14,
+				  2,  -8,   0,  -1,  -2,   6,   0,   4,
+				 -3,   9,  12,   9,  14,  10,   3,   2,
+				 -6,   3,  13,  19,   7,  10,  -3,  -9,
+				-12,  -3,   8,  10,  13,   3,  -7, -15,
+				-14, -18,  -7,  -1,   4,  -9, -15, -27,
+				-23,  -9, -23,  -5,  -9, -16,  -5, -17
+			},
+			{	// queen
+				 -9,  22,  22,  27,  27,  19,  10,  20,
+				-17,  20,  32,  41,  58,  25,  30,   0,
+				-20,   6,   9,  49,  47,  35,  19,   9,
+				  3,  22,  24,  45,  57,  40,  57,  36,
+				-18,  28,  19,  47,  31,  34,  39,  23,
+				-16, -27,  15,   6,   9,  17,  10,   5,
+				-22, -23, -30, -16, -16, -23, -36, -32,
+				-33, -28, -22, -43,  -5, -32, -20, -41
+			},
+			{	// king
+				-74, -35, -18, -18, -11,  15,   4, -17,
+				-12,  17,  14,  17,  17,  38,  23,  11,
+				 10,  17,  23,  15,  20,  45,  44,  13,
+				 -8,  22,  24,  27,  26,  33,  26,   3,
+				-18,  -4,  21,  24,  27,  23,   9, -11,
+				-19,  -3,  11,  21,  23,  16,   7,  -9,
+				-27, -11,   4,  13,  14,   4,  -5, -17,
+				-53, -34, -21, -11, -28, -14, -24, -43
+			}
+	};
+
+	static {
+		for(int type = Constants.PAWN; type <= Constants.KING; type++) {
+			PHASE[type] = PHASE_WEIGHTS[type];
+			PHASE[type + Constants.BLACK_OFFSET] = PHASE_WEIGHTS[type];
+
+			for(int i = 0; i < 64; i++) {
+				// row 0 of the tables is the eighth rank, and column 0 is the a file
+				int row = i >>> 3;
+				int column = i & 7;
+				int whiteSquare = (7 - row) * 8 + 7 - column;
+				int blackSquare = row * 8 + 7 - column;
+
+				int middlegame = MIDDLEGAME_VALUES[type] + MIDDLEGAME_TABLES[type][i];
+				int endgame = ENDGAME_VALUES[type] + ENDGAME_TABLES[type][i];
+				MIDDLEGAME[type][whiteSquare] = middlegame;
+				ENDGAME[type][whiteSquare] = endgame;
+				MIDDLEGAME[type + Constants.BLACK_OFFSET][blackSquare] = -middlegame;
+				ENDGAME[type + Constants.BLACK_OFFSET][blackSquare] = -endgame;
+			}
+		}
+	}
+
+	static {
+		for(int file = 0; file < 8; file++) {
+			if(file > 0) NEIGHBOUR_FILES[file] |= Attacks.FILE_H << (file - 1);
+			if(file < 7) NEIGHBOUR_FILES[file] |= Attacks.FILE_H << (file + 1);
+		}
+		for(int square = 0; square < 64; square++) {
+			int file = square & 7;
+			int rank = square >>> 3;
+			long files = NEIGHBOUR_FILES[file] | Attacks.FILE_H << file;
+			for(int other = 0; other < 64; other++) {
+				long bit = 1L << other;
+				int otherRank = other >>> 3;
+				if((files & bit) != 0 && otherRank > rank) PASSED_MASKS[Constants.WHITE][square] |= bit;
+				if((files & bit) != 0 && otherRank < rank) PASSED_MASKS[Constants.BLACK][square] |= bit;
+				if((NEIGHBOUR_FILES[file] & bit) != 0 && otherRank <= rank) SUPPORT_MASKS[Constants.WHITE][square] |= bit;
+				if((NEIGHBOUR_FILES[file] & bit) != 0 && otherRank >= rank) SUPPORT_MASKS[Constants.BLACK][square] |= bit;
+				if((files & bit) != 0 && otherRank > rank && otherRank <= rank + 2) SHIELD_MASKS[Constants.WHITE][square] |= bit;
+				if((files & bit) != 0 && otherRank < rank && otherRank >= rank - 2) SHIELD_MASKS[Constants.BLACK][square] |= bit;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates a position from the running sums the board keeps plus the pawn structure, which is
+	 * worked out from scratch every time. The search uses the version with a PawnHashTable instead.
+	 */
+	public static int evaluate(Board board) {
+		return evaluate(board, null);
+	}
+
+	/**
+	 * Evaluates a position from the running sums the board keeps, taking the pawn structure terms
+	 * from a pawn hash table when they're there (or working them out when pawns is null).
+	 */
+	public static int evaluate(Board board, PawnHashTable pawns) {
+		long whitePawns = board.getBitBoard(Constants.WHITE_PAWNS);
+		long blackPawns = board.getBitBoard(Constants.BLACK_PAWNS);
+		int pawnScore = pawns != null ? pawns.evaluate(whitePawns, blackPawns) : evaluatePawns(whitePawns, blackPawns);
+		pawnScore += evaluateShelter(board);
+
+		int score = taper(board.getMiddlegameScore() + middlegameOf(pawnScore), board.getEndgameScore() + endgameOf(pawnScore), board.getPhase());
+		return board.getSideToMove() == Constants.WHITE ? score : -score;
+	}
+
+	/**
+	 * Evaluates a position by going over every piece, without using the board's running sums. This
+	 * gives exactly the same result as evaluate and is only here to check it.
+	 */
+	public static int evaluateFromScratch(Board board) {
+		int middlegame = 0;
+		int endgame = 0;
+		int phase = 0;
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			long bitboard = board.getBitBoard(piece);
+			while(bitboard != 0) {
+				int square = Long.numberOfTrailingZeros(bitboard);
+				middlegame += MIDDLEGAME[piece][square];
+				endgame += ENDGAME[piece][square];
+				phase += PHASE[piece];
+				bitboard &= bitboard - 1;
+			}
+		}
+		int pawnScore = evaluatePawns(board.getBitBoard(Constants.WHITE_PAWNS), board.getBitBoard(Constants.BLACK_PAWNS)) + evaluateShelter(board);
+		middlegame += middlegameOf(pawnScore);
+		endgame += endgameOf(pawnScore);
+		int score = taper(middlegame, endgame, phase);
+		return board.getSideToMove() == Constants.WHITE ? score : -score;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PAWN STRUCTURE									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Works out the pawn structure terms, white positive, from nothing but the pawns. Both scores
+	 * come back in one int (see packScore).
+	 */
+	public static int evaluatePawns(long whitePawns, long blackPawns) {
+		return evaluatePawns(Constants.WHITE, whitePawns, blackPawns) - evaluatePawns(Constants.BLACK, blackPawns, whitePawns);
+	}
+
+	/**
+	 * Works out the king shelter, white positive and packed like evaluatePawns: a king still on its
+	 * first two ranks wants its own pawns right in front of it.
+	 */
+	public static int evaluateShelter(Board board) {
+		return shelter(Constants.WHITE, board.getBitBoard(Constants.WHITE_KING), board.getBitBoard(Constants.WHITE_PAWNS))
+				- shelter(Constants.BLACK, board.getBitBoard(Constants.BLACK_KING), board.getBitBoard(Constants.BLACK_PAWNS));
+	}
+
+	/**
+	 * Packs a middlegame and an endgame score into one int, so that adding two packed scores adds
+	 * both halves. The endgame score is the low 16 bits.
+	 */
+	public static int packScore(int middlegame, int endgame) {
+		return (middlegame << 16) + endgame;
+	}
+
+	public static int middlegameOf(int packed) {
+		return (packed + 0x8000) >> 16;
+	}
+
+	public static int endgameOf(int packed) {
+		return (short)packed;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// one side's pawn structure, good for that side
+	private static int evaluatePawns(int us, long pawns, long enemyPawns) {
+
+		int middlegame = 0;
+		int endgame = 0;
+
+		for(long remaining = pawns; remaining != 0; remaining &= remaining - 1) {
+			int square = Long.numberOfTrailingZeros(remaining);
+			int file = square & 7;
+			long fileMask = Attacks.FILE_H << file;
+
+			// count a doubled pawn once for every pawn behind another on its file
+			if((pawns & fileMask & PASSED_MASKS[us][square]) != 0) {
+				middlegame += DOUBLED_MIDDLEGAME;
+				endgame += DOUBLED_ENDGAME;
+			}
+
+			if((pawns & NEIGHBOUR_FILES[file]) == 0) {
+				middlegame += ISOLATED_MIDDLEGAME;
+				endgame += ISOLATED_ENDGAME;
+			} else if((pawns & SUPPORT_MASKS[us][square]) == 0) {
+				// nothing beside or behind it can ever defend it, so it's backward if an enemy pawn
+				// guards the square in front of it
+				int stop = us == Constants.WHITE ? square + 8 : square - 8;
+				if((Attacks.PAWN_ATTACKS[us][stop] & enemyPawns) != 0) {
+					middlegame += BACKWARD_MIDDLEGAME;
+					endgame += BACKWARD_ENDGAME;
+				}
+			}
+
+			// passed, unless one of our own pawns is in front of it on the same file
+			if((enemyPawns & PASSED_MASKS[us][square]) == 0 && (pawns & fileMask & PASSED_MASKS[us][square]) == 0) {
+				int rank = us == Constants.WHITE ? square >>> 3 : 7 - (square >>> 3);
+				middlegame += PASSED_MIDDLEGAME[rank];
+				endgame += PASSED_ENDGAME[rank];
+			}
+		}
+		return packScore(middlegame, endgame);
+	}
+
+	private static int shelter(int us, long kingBitboard, long pawns) {
+		if((kingBitboard & (us == Constants.WHITE ? Attacks.RANK_1 | Attacks.RANK_2 : Attacks.RANK_7 | Attacks.RANK_8)) == 0) return 0;
+		return packScore(SHIELD_MIDDLEGAME * Long.bitCount(pawns & SHIELD_MASKS[us][Long.numberOfTrailingZeros(kingBitboard)]), 0);
+	}
+
+	// blends the middlegame and endgame scores, all middlegame at MAX_PHASE and all endgame at 0.
+	// Promotions can push the phase past MAX_PHASE, so it is capped.
+	private static int taper(int middlegame, int endgame, int phase) {
+		phase = Math.min(phase, MAX_PHASE);
+		return (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+	}
+
+}
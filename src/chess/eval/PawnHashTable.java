@@ -0,0 +1,118 @@
+package chess.eval;
+
+import java.util.Arrays;
+
+public class PawnHashTable {
+
+	/*
+	 * A cache of the pawn structure terms (see Evaluator.evaluatePawns), keyed on nothing but the two
+	 * pawn bitboards. The pawns only change on a pawn move or a capture of a pawn, so almost every
+	 * node of a search finds its pawn structure already worked out by a sibling or an earlier
+	 * iteration. (The king shelter depends on the kings too, and is cheap enough to leave out.)
+	 *
+	 * Each entry is three longs in one array: both pawn bitboards and then the packed score. The
+	 * pawns are stored whole instead of a key made from them, so a hit is always the right entry and
+	 * never a collision. The slot is picked by hashing them, and a new entry always replaces whatever
+	 * was there, which is the right call when the latest pawn structures are the ones most likely to
+	 * come up again.
+	 *
+	 * A table belongs to one search thread. It isn't thread safe, and it's small enough (a megabyte
+	 * by default) that every thread can have its own.
+	 */
+
+	public static final int DEFAULT_KILOBYTES = 1024;
+
+	private static final int ENTRY_LONGS = 3;
+	private static final int ENTRY_BYTES = ENTRY_LONGS * Long.BYTES;
+
+	// marks a used slot, since an empty one is all zeros and no pawns at all is a pawn structure too
+	private static final long USED = 1L << 32;
+
+	private final long[] entries;
+	private final int shift;
+
+	private long probes;
+	private long hits;
+
+	/**
+	 * Creates a table of at most the given size. The number of entries is rounded down to a power of two.
+	 */
+	public PawnHashTable(int kilobytes) {
+		if(kilobytes < 1) throw new IllegalArgumentException("A pawn hash table needs at least 1 KB");
+		int bits = 63 - Long.numberOfLeadingZeros(kilobytes * 1024L / ENTRY_BYTES);
+		entries = new long[(1 << bits) * ENTRY_LONGS];
+		shift = 64 - bits;
+	}
+
+	/**
+	 * Returns the pawn structure terms for these pawns, packed as Evaluator.evaluatePawns returns
+	 * them, working them out and keeping them if they aren't in the table.
+	 */
+	public int evaluate(long whitePawns, long blackPawns) {
+
+		probes++;
+		int index = index(whitePawns, blackPawns);
+		long info = entries[index + 2];
+		if(entries[index] == whitePawns && entries[index + 1] == blackPawns && info != 0) {
+			hits++;
+			return (int)info;
+		}
+
+		int score = Evaluator.evaluatePawns(whitePawns, blackPawns);
+		entries[index] = whitePawns;
+		entries[index + 1] = blackPawns;
+		entries[index + 2] = (score & 0xFFFFFFFFL) | USED;
+		return score;
+	}
+
+	public void clear() {
+		Arrays.fill(entries, 0L);
+		resetStatistics();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							STATISTICS										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public void resetStatistics() {
+		probes = 0;
+		hits = 0;
+	}
+
+	public long getProbes() {
+		return probes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the fraction of lookups that found their pawn structure, between 0 and 1.
+	 */
+	public double getHitRate() {
+		return probes == 0 ? 0 : (double)hits / probes;
+	}
+
+	public int getEntries() {
+		return entries.length / ENTRY_LONGS;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// mixes everything together with multiplications by odd constants and keeps the top bits, which
+	// depend on all of the input bits
+	private int index(long whitePawns, long blackPawns) {
+		long hash = whitePawns * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(blackPawns * 0xC2B2AE3D27D4EB4FL, 29);
+		hash ^= hash >>> 31;
+		hash *= 0xBF58476D1CE4E5B9L;
+		return (int)(hash >>> shift) * ENTRY_LONGS;
+	}
+
+}
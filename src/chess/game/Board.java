@@ -1,11 +1,13 @@
 package chess.game;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Arrays;
 
+import chess.eval.Evaluator;
+import chess.nnue.Accumulator;
+import chess.util.Attacks;
 import chess.util.Constants;
-import chess.util.EnPassantBitboard;
+import chess.util.Move;
+import chess.util.Zobrist;
 
 public class Board {
 
@@ -15,7 +17,7 @@ public class Board {
 
 	/*
 	 * 		Board as indices of bitboard:
-	 * 
+	 *
 	 * 		8.	63	62	61	60	59	58	57	56
 	 * 		7.	55	54	53	52	51	50	49	48
 	 * 		6.	47	46	45	44	43	42	41	40
@@ -25,389 +27,834 @@ public class Board {
 	 * 		2.	15	14	13	12	11	10	9	8
 	 * 		1.	7	6	5	4	3	2	1	0
 	 * 			a	b	c	d	e	f	g	h
-	 * 
+	 *
 	 */
 
 	/*
-	 * 	AtomicLong vs. Long vs. long
-	 * 	----------------------------
-	 * 	I wanted a way to hold a long value in an Object and be able to update the values
-	 * 	as moves are made in the game. long doesn't allow this because it is a primitive type.
-	 * 	While Long (java.util.Long) is an Object that holds a long value, the long value is
-	 * 	immutable and can't be updated. This is why I chose to use the AtomicLong class, which
-	 * 	holds a long value as a field which can be modified and updated within the same object
-	 * 	reference.
-	 */
-	
-	// white piece bitboards
-	private AtomicLong whitePawns;
-	private AtomicLong whiteRooks;
-	private AtomicLong whiteKnights;
-	private AtomicLong whiteBishops;
-	private AtomicLong whiteQueens;
-	private AtomicLong whiteKing;
-
-	// black piece bitboards
-	private AtomicLong blackPawns;
-	private AtomicLong blackRooks;
-	private AtomicLong blackKnights;
-	private AtomicLong blackBishops;
-	private AtomicLong blackQueens;
-	private AtomicLong blackKing;
-	
-	// multi-piece bitboards
-	private AtomicLong whitePieces;
-	private AtomicLong blackPieces;
-	private AtomicLong allPieces;
-
-	// special bitboards
-	private EnPassantBitboard pawnsHaveMovedTwo;	// [15..8] = black pawns, [7..0] = white pawns
-	
-	private List<AtomicLong> bitboards;
+	 * 	long[] vs. AtomicLong
+	 * 	---------------------
+	 * 	The board used to hold every bitboard in its own AtomicLong inside of a List, so that the
+	 * 	values could be updated through a shared object reference. That works, but every read and
+	 * 	write goes through a volatile field on a separate heap object, and finding a piece meant
+	 * 	looping through the list. Now all 15 bitboards live next to each other in one primitive
+	 * 	long[] indexed by the values in Constants, which is about as cache friendly as it gets.
+	 *
+	 * 	To answer "what piece is on this square?" without looping through the bitboards at all,
+	 * 	we also keep a mailbox: a 64 entry int array holding the piece index on each square (or
+	 * 	Constants.EMPTY). The bitboards and the mailbox are always updated together.
+	 */
+
+	// castling rights that survive a piece moving from or to each square. Moving the king or a
+	// rook (or capturing a rook on its home square) clears the matching rights.
+	private static final int[] CASTLING_MASK = new int[64];
+
+	static {
+		for(int i = 0; i < 64; i++) {
+			CASTLING_MASK[i] = Constants.ALL_CASTLING;
+		}
+		CASTLING_MASK[0] &= ~Constants.WHITE_KINGSIDE;	// h1
+		CASTLING_MASK[7] &= ~Constants.WHITE_QUEENSIDE;	// a1
+		CASTLING_MASK[3] &= ~(Constants.WHITE_KINGSIDE | Constants.WHITE_QUEENSIDE);	// e1
+		CASTLING_MASK[56] &= ~Constants.BLACK_KINGSIDE;	// h8
+		CASTLING_MASK[63] &= ~Constants.BLACK_QUEENSIDE;	// a8
+		CASTLING_MASK[59] &= ~(Constants.BLACK_KINGSIDE | Constants.BLACK_QUEENSIDE);	// e8
+	}
+
+	// piece values for the static exchange evaluation, by type. The king's only has to be more than
+	// everything else put together, since it can never really be captured.
+	private static final int[] SEE_VALUES = new int[6];
+
+	// piece types from the least valuable to the most, the order attackers join an exchange in
+	private static final int[] SEE_ORDER = { Constants.PAWN, Constants.KNIGHT, Constants.BISHOP, Constants.ROOK, Constants.QUEEN, Constants.KING };
+
+	static {
+		for(int type = Constants.PAWN; type < Constants.KING; type++) {
+			SEE_VALUES[type] = Evaluator.PIECE_VALUES[type];
+		}
+		SEE_VALUES[Constants.KING] = 20000;
+	}
+
+	// FEN letter for each piece index
+	private static final String PIECE_CHARS = "PRNBQKprnbqk";
+
+	// room for this many moves of history to begin with, which covers a long game plus a full depth
+	// search on top of it. Anything longer doubles the arrays.
+	private static final int INITIAL_HISTORY = 1024;
+
+	// all the bitboards, indexed by Constants.WHITE_PAWNS..Constants.ALL_PIECES
+	private final long[] bitboards;
+
+	// piece index on each square, or Constants.EMPTY
+	private final int[] mailbox;
 
 	private int moveNum;
 
+	// irreversible state, which makeMove pushes onto the history below so unmakeMove can put it back
+	private int castlingRights;
+	private int enPassantSquare;	// the square a pawn can capture onto en passant, or Constants.NO_SQUARE
+	private int halfmoveClock;		// moves since the last capture or pawn move, for the fifty move rule
+
+	// Zobrist hash of the position, kept up to date by every change to the board (see chess.util.Zobrist)
+	private long zobristKey;
+
+	// running sums for the evaluation (see chess.eval.Evaluator), kept up to date the same way as the
+	// hash: the material and piece-square scores from white's point of view, and the game phase
+	private int middlegameScore;
+	private int endgameScore;
+	private int phase;
+
+	// the feature layer of a neural network evaluation (see chess.nnue.Network), if the search is
+	// using one. It's updated along with the sums above, so it always matches the position.
+	private Accumulator accumulator;
+
+	// the enemy pieces giving check to the side to move, and the side to move's own pieces that are
+	// pinned against its king. They're only worked out when someone asks, once per position, since
+	// plenty of positions (quiescence leaves, hash cutoffs) never need them.
+	private long checkers;
+	private long pinned;
+	private boolean checkInfoValid;
+
+	// a move buffer for hasLegalMoves, only allocated if it's ever used
+	private int[] legalMoves;
+
+	// the gains at each step of a static exchange (see see()). There can't be more captures on one
+	// square than there are pieces.
+	private final int[] seeGains = new int[32];
+
+	// the history: one packed state word (see MAKE / UNMAKE) and one Zobrist key for every move
+	// played on this board, oldest first
+	private long[] states = new long[INITIAL_HISTORY];
+	private long[] keys = new long[INITIAL_HISTORY];
+	private int historySize;
+
 	// default constructor: generates a board with standard starting position
 	public Board() {
 
+		bitboards = new long[Constants.NUM_BITBOARDS];
+		mailbox = new int[64];
+
 		moveNum = 0;
+		castlingRights = Constants.ALL_CASTLING;
+		enPassantSquare = Constants.NO_SQUARE;
+		halfmoveClock = 0;
+
+		bitboards[Constants.WHITE_PAWNS] = 0x000000000000FF00L;
+		bitboards[Constants.WHITE_ROOKS] = 0x0000000000000081L;
+		bitboards[Constants.WHITE_KNIGHTS] = 0x0000000000000042L;
+		bitboards[Constants.WHITE_BISHOPS] = 0x0000000000000024L;
+		bitboards[Constants.WHITE_QUEENS] = 0x0000000000000010L;
+		bitboards[Constants.WHITE_KING] = 0x0000000000000008L;
+
+		bitboards[Constants.BLACK_PAWNS] = 0x00FF000000000000L;
+		bitboards[Constants.BLACK_ROOKS] = 0x8100000000000000L;
+		bitboards[Constants.BLACK_KNIGHTS] = 0x4200000000000000L;
+		bitboards[Constants.BLACK_BISHOPS] = 0x2400000000000000L;
+		bitboards[Constants.BLACK_QUEENS] = 0x1000000000000000L;
+		bitboards[Constants.BLACK_KING] = 0x0800000000000000L;
+
+		refreshDerivedState();
+	}
 
-		whitePawns = new AtomicLong(0x000000000000FF00L);
-		whiteRooks = new AtomicLong(0x0000000000000081L);
-		whiteKnights = new AtomicLong(0x0000000000000042L);
-		whiteBishops = new AtomicLong(0x0000000000000024L);
-		whiteQueens = new AtomicLong(0x0000000000000010L);
-		whiteKing = new AtomicLong(0x0000000000000008L);
-
-		blackPawns = new AtomicLong(0x00FF000000000000L);
-		blackRooks = new AtomicLong(0x8100000000000000L);
-		blackKnights = new AtomicLong(0x4200000000000000L);
-		blackBishops = new AtomicLong(0x2400000000000000L);
-		blackQueens = new AtomicLong(0x1000000000000000L);
-		blackKing = new AtomicLong(0x0800000000000000L);
-
-		whitePieces = new AtomicLong(whitePawns.get() | whiteRooks.get() | whiteKnights.get() | whiteBishops.get() | whiteQueens.get() | whiteKing.get());
-		blackPieces = new AtomicLong(blackPawns.get() | blackRooks.get() | blackKnights.get() | blackBishops.get() | blackQueens.get() | blackKing.get());
-		allPieces = new AtomicLong(whitePieces.get() | blackPieces.get());
-		
-		pawnsHaveMovedTwo = new EnPassantBitboard();
-
-		bitboards = new ArrayList<>();
-		bitboards.add(whitePawns);
-		bitboards.add(whiteRooks);
-		bitboards.add(whiteKnights);
-		bitboards.add(whiteBishops);
-		bitboards.add(whiteQueens);
-		bitboards.add(whiteKing);
-
-		bitboards.add(blackPawns);
-		bitboards.add(blackRooks);
-		bitboards.add(blackKnights);
-		bitboards.add(blackBishops);
-		bitboards.add(blackQueens);
-		bitboards.add(blackKing);
-
-		bitboards.add(whitePieces);
-		bitboards.add(blackPieces);
-		bitboards.add(allPieces);
-	}
-
-	public boolean isLegal(String move, List<AtomicLong> bitboards, AtomicLong startingPieceBitboard, AtomicLong endingPieceBitboard, boolean isCapture) {
+	// generates a board from a position in Forsyth-Edwards Notation
+	public Board(String fen) {
+		bitboards = new long[Constants.NUM_BITBOARDS];
+		mailbox = new int[64];
+		setFen(fen);
+	}
 
-		// When determining whether or not a move is legal in a game of chess, there are many, many things that need
-		// to be checked. Things like if pieces are in the way, whether the move puts your king in check, or even
-		// just moving a piece in a way that it is not allowed to be moved. Before we check these things though, we
-		// need to determine what type of piece is moving. For this, we can use the indexOf method on bitboards
-		// to find the position of the startingPieceBitboard
-
-		int pieceType = bitboards.indexOf(startingPieceBitboard);
-
-		// There's a lot of work ahead of us, but we have to choose somewhere to start, so let's just start
-		// with the simple pawn.
-
-		// oh, and before I forget, let's make a boolean to determine if the moving piece is white or black.
-		
-		long startSquare = getStartingSquareBitboard(move);
-		boolean isWhite = (startSquare & whitePieces.get()) == startSquare? true : false;
-
-		// white moves on even moveNum, black moves on odd
-
-		if(isWhite && moveNum % 2 != 0) return false;
-		if(!isWhite && moveNum % 2 == 0) return false;
-
-		// our first legal check is done! Only everything left to go...
-		// let's move on with the pawns.
-
-		if(pieceType == Constants.WHITE_PAWNS || pieceType == Constants.BLACK_PAWNS) {
-			// The first thing we should do for the pawn is find a way to determine whether this is the pawn's first
-			// move or not. This determines if the pawn can move 2 squares or just one square.
-			// This is easy, because we can just check if the rank of the first square is a 2 or not
-			// since that is where pawns start on the board (rank 7 if black pawn)
-
-			boolean firstMove = (isWhite && move.charAt(1) == '2' || !isWhite && move.charAt(1) == '7')? true : false;
-
-			// next, an easy check is if the ending file of the move is more than 1 away from the starting file.
-			// a pawn can never move in this way, so if it is true than the move is illegal.
-
-			if(Math.abs(move.charAt(0) - move.charAt(2)) > 1) return false;
-
-			// going along with that rule, we can also check if the file changes and the move isn't a capture,
-			// because pawns can only change files if the move is a capture.
-			// NOPE!!!! WHAT ABOUT EN PASSANT? relax bro, we can just move the en passant check up here.
-
-			// en passant time.
-			// for en passant, we should be able to check if the pawn has an opposite color pawn immediately
-			// to the left or right of it. If so, we can then check if the moving pawn is in the rank that
-			// allows for en passant(in fact, we should actually check this first). 
-			// The last thing we need to know is where the pawn under attack was on it's previous move.
-			// unless...what if we make a new bitboard? A pawnsHaveMovedTwo bitboard! Using a short, we can create
-			// a bitboard with a width of 16 and update it with pawns that have moved two squares on their first move! 
-			// Then, we can check if the pawn has just moved 2 or not and we can accurately determine whether 
-			// en passant is a legal move. We also need to keep track of whether this is the pawn's first move,
-			// because that is the only time that en passant is allowed.
-			// Ok, turns out AtomicShort doesn't exist alongside AtomicLong for some reason. This should not be a big
-			// deal, because we can simply create our own EnPassantBitboard class. A bonus of making our own class
-			// is we can add a history component to keep track of the previous configuration of the board!
-
-			// now, using all of this information, we can create an algorithm to detect en passant:
-
-			// let's start with white's turn
-			if(move.charAt(1) == '5' && move.charAt(3) == '6' && isWhite && (Math.abs(move.charAt(0) - move.charAt(2)) == 1)) {
-				long rightSquareBitboard = startSquare >>> 1; // technically never need unsigned shift here but will use anyway because it's rare lol
-				long leftSquareBitboard = startSquare << 1;
-				if(this.hasBlackPiece(rightSquareBitboard) && move.charAt(2) - move.charAt(0) == 1) {
-					short rightPawnBitboard = (short)(1 << (move.charAt(2) - 97 + 7));
-					if((rightPawnBitboard & pawnsHaveMovedTwo.get()) != 0 
-							&& (rightPawnBitboard & pawnsHaveMovedTwo.getPrevious()) == 0) {
-						// since the move method won't pick up this capture
-						return true;
-					} else {
-						return false;
-					}
-				} else if(this.hasBlackPiece(leftSquareBitboard) && move.charAt(2) - move.charAt(0) == -1) {
-					short leftPawnBitboard = (short)(1 << (move.charAt(2) - 97 + 9));
-					if((leftPawnBitboard & pawnsHaveMovedTwo.get()) != 0
-							&& (leftPawnBitboard & pawnsHaveMovedTwo.getPrevious()) == 0) {
-						return true;
-					} else {
-						return false;
-					}
-				}
+	// copy constructor: generates an independent board in the same position as other
+	public Board(Board other) {
+		bitboards = new long[Constants.NUM_BITBOARDS];
+		mailbox = new int[64];
+		copyFrom(other);
+	}
+
+	/**
+	 * Overwrites this board with the position of another board, without allocating anything.
+	 */
+	public void copyFrom(Board other) {
+		System.arraycopy(other.bitboards, 0, bitboards, 0, Constants.NUM_BITBOARDS);
+		System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+		moveNum = other.moveNum;
+		castlingRights = other.castlingRights;
+		enPassantSquare = other.enPassantSquare;
+		halfmoveClock = other.halfmoveClock;
+		zobristKey = other.zobristKey;
+		middlegameScore = other.middlegameScore;
+		endgameScore = other.endgameScore;
+		phase = other.phase;
+		checkInfoValid = false;
+		if(accumulator != null) accumulator.refresh(this);
+
+		// only the part of the history since the last capture or pawn move can ever repeat, but the
+		// whole thing is copied so that the copy can be taken back just as far as the original
+		ensureHistory(other.historySize);
+		System.arraycopy(other.states, 0, states, 0, other.historySize);
+		System.arraycopy(other.keys, 0, keys, 0, other.historySize);
+		historySize = other.historySize;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							FEN												 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Sets up the board from a FEN string, for example the starting position is
+	 * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". The halfmove clock and
+	 * fullmove number are optional so that EPD positions (which have operations like "bm e4;"
+	 * in their place) can be read too. Anything after the fields we need is ignored.
+	 *
+	 * This takes a CharSequence rather than a String so that positions can be read straight out of
+	 * a buffer without copying them first (see chess.io.PositionFile).
+	 * @throws IllegalArgumentException if the FEN is malformed. The board is left in an undefined
+	 * state when that happens, so set it up again before using it.
+	 */
+	public void setFen(CharSequence fen) {
+
+		for(int i = 0; i < Constants.NUM_BITBOARDS; i++) {
+			bitboards[i] = 0;
+		}
+
+		// piece placement goes from a8 to h1, which is square 63 counting down to square 0. Every rank
+		// has to add up to exactly 8 squares, so we check that at each '/' and at the end.
+		int length = fen.length();
+		int index = skipSpaces(fen, 0);
+		int square = 63;
+		int rankEnd = 55;
+		while(index < length && fen.charAt(index) != ' ') {
+			char c = fen.charAt(index++);
+			if(c == '/') {
+				if(square != rankEnd || rankEnd < 0) throw new IllegalArgumentException("Bad rank in FEN: " + fen);
+				rankEnd -= 8;
+				continue;
 			}
-			if(move.charAt(1) == '4' && move.charAt(3) == '3' && !isWhite && (Math.abs(move.charAt(0) - move.charAt(2)) == 1)) {
-				long rightSquareBitboard = startingPieceBitboard.get() >>> 1; // technically never need unsigned shift here but will use anyway
-					long leftSquareBitboard = startingPieceBitboard.get() << 1;
-					if(this.hasWhitePiece(rightSquareBitboard) && move.charAt(2) - move.charAt(0) == 1) {
-						short rightPawnBitboard = (short)(1 << (move.charAt(2) - 97 - 1));
-						if((rightPawnBitboard & pawnsHaveMovedTwo.get()) != 0 
-								&& (rightPawnBitboard & pawnsHaveMovedTwo.getPrevious()) == 0) {
-							return true;
-						} else {
-							return false;
-						}
-					} else if(this.hasWhitePiece(leftSquareBitboard) && move.charAt(2) - move.charAt(0) == -1) {
-						short leftPawnBitboard = (short)(1 << (move.charAt(2) - 97 + 1));
-						if((leftPawnBitboard & pawnsHaveMovedTwo.get()) != 0
-								&& (leftPawnBitboard & pawnsHaveMovedTwo.getPrevious()) == 0) {
-							return true;
-						} else {
-							return false;
-						}
-					}
+			if(c >= '1' && c <= '8') {
+				square -= c - '0';
+			} else {
+				int piece = PIECE_CHARS.indexOf(c);
+				if(piece < 0) throw new IllegalArgumentException("Bad piece in FEN: " + fen);
+				if(square < 0) throw new IllegalArgumentException("Bad rank in FEN: " + fen);
+				bitboards[piece] |= 1L << square--;
 			}
+			if(square < rankEnd) throw new IllegalArgumentException("Bad rank in FEN: " + fen);
+		}
+		if(square != -1 || rankEnd != -1) throw new IllegalArgumentException("Piece placement doesn't cover 64 squares: " + fen);
 
-			// ok, now that we have checked for en passant we can continue with these checks
+		if(Long.bitCount(bitboards[Constants.WHITE_KING]) != 1 || Long.bitCount(bitboards[Constants.BLACK_KING]) != 1) {
+			throw new IllegalArgumentException("Each side needs exactly one king: " + fen);
+		}
+		if(((bitboards[Constants.WHITE_PAWNS] | bitboards[Constants.BLACK_PAWNS]) & (Attacks.RANK_1 | Attacks.RANK_8)) != 0) {
+			throw new IllegalArgumentException("Pawns can't be on the first or last rank: " + fen);
+		}
 
-			if(move.charAt(0) != move.charAt(2) && !isCapture) return false;
+		// side to move
+		index = skipSpaces(fen, index);
+		if(index >= length) throw new IllegalArgumentException("Missing side to move in FEN: " + fen);
+		int side;
+		switch(fen.charAt(index++)) {
+		case 'w': side = Constants.WHITE; break;
+		case 'b': side = Constants.BLACK; break;
+		default: throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+		}
 
-			// we can also check the inverse of this, to ensure that the pawn cannot make a capture on the same file
+		// castling rights
+		index = skipSpaces(fen, index);
+		castlingRights = 0;
+		while(index < length && fen.charAt(index) != ' ') {
+			switch(fen.charAt(index++)) {
+			case 'K': castlingRights |= Constants.WHITE_KINGSIDE; break;
+			case 'Q': castlingRights |= Constants.WHITE_QUEENSIDE; break;
+			case 'k': castlingRights |= Constants.BLACK_KINGSIDE; break;
+			case 'q': castlingRights |= Constants.BLACK_QUEENSIDE; break;
+			case '-': break;
+			default: throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+			}
+		}
 
-			if(move.charAt(0) == move.charAt(2) && isCapture) return false;
+		// a right is only kept if its king and rook are still on their starting squares, since castling
+		// without them would move a piece that isn't there
+		if((bitboards[Constants.WHITE_KING] & 1L << 3) == 0) castlingRights &= ~(Constants.WHITE_KINGSIDE | Constants.WHITE_QUEENSIDE);
+		if((bitboards[Constants.WHITE_ROOKS] & 1L) == 0) castlingRights &= ~Constants.WHITE_KINGSIDE;
+		if((bitboards[Constants.WHITE_ROOKS] & 1L << 7) == 0) castlingRights &= ~Constants.WHITE_QUEENSIDE;
+		if((bitboards[Constants.BLACK_KING] & 1L << 59) == 0) castlingRights &= ~(Constants.BLACK_KINGSIDE | Constants.BLACK_QUEENSIDE);
+		if((bitboards[Constants.BLACK_ROOKS] & 1L << 56) == 0) castlingRights &= ~Constants.BLACK_KINGSIDE;
+		if((bitboards[Constants.BLACK_ROOKS] & 1L << 63) == 0) castlingRights &= ~Constants.BLACK_QUEENSIDE;
+
+		// en passant square, which has to be on the sixth rank from the mover's point of view
+		index = skipSpaces(fen, index);
+		enPassantSquare = Constants.NO_SQUARE;
+		if(index < length && fen.charAt(index) != '-') {
+			enPassantSquare = Notation.parseSquare(fen, index);
+			int rank = side == Constants.WHITE ? 5 : 2;
+			if(enPassantSquare == Constants.NO_SQUARE || enPassantSquare >>> 3 != rank) {
+				throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+			}
+			index += 2;
+		} else {
+			index++;
+		}
 
-			// next, we can use our firstMove boolean to check if the pawn tries to move 2 squares later
-			// than its first move
+		// halfmove clock and fullmove number, if they're there
+		index = skipSpaces(fen, index);
+		int halfmoves = 0;
+		int fullMoves = 1;
+		int end = skipDigits(fen, index);
+		if(end > index) {
+			halfmoves = parseNumber(fen, index, end);
+			index = skipSpaces(fen, end);
+			end = skipDigits(fen, index);
+			if(end > index) fullMoves = Math.max(parseNumber(fen, index, end), 1);
+		}
+		halfmoveClock = halfmoves;
+		moveNum = 2 * (fullMoves - 1) + side;
 
-			if(Math.abs(move.charAt(1) - move.charAt(3)) == 2 && !firstMove) return false;
+		refreshDerivedState();
+	}
 
-			// while we are at it, let's check to make sure that pawns are never moving more than 2 squares
+	/**
+	 * Sets up a position straight from the 12 piece bitboards (indexed Constants.WHITE_PAWNS to
+	 * Constants.BLACK_KING), with no castling rights and no en passant square. This is a lot quicker
+	 * than going through a FEN when positions are built by the million, like the tablebase generator
+	 * does, and just like setFen it doesn't allocate anything. The pieces aren't checked at all.
+	 */
+	public void setPieces(long[] pieces, int sideToMove) {
+		setPieces(pieces, sideToMove, 0, Constants.NO_SQUARE, 0, 1);
+	}
 
-			if(Math.abs(move.charAt(1) - move.charAt(3)) > 2) return false;
-			
-			// and let's also make sure pawns can't move backwards
-			
-			if(move.charAt(3) - move.charAt(1) < 1 && isWhite || move.charAt(3) - move.charAt(1) > -1 && !isWhite) return false;
+	/**
+	 * The same as setPieces(pieces, sideToMove), with the rest of what a FEN holds, for reading
+	 * positions back out of a binary format (see chess.training.TrainingRecord). None of it is checked.
+	 */
+	public void setPieces(long[] pieces, int sideToMove, int castlingRights, int enPassantSquare, int halfmoveClock, int fullMoves) {
+		System.arraycopy(pieces, 0, bitboards, 0, 12);
+		this.castlingRights = castlingRights;
+		this.enPassantSquare = enPassantSquare;
+		this.halfmoveClock = halfmoveClock;
+		moveNum = 2 * (Math.max(fullMoves, 1) - 1) + sideToMove;
+		refreshDerivedState();
+	}
 
-			// the last thing that we need to check is whether or not the pawn is trying to
-			// move to a square that is already occupied by its own piece
+	/**
+	 * Writes the position as a FEN string.
+	 */
+	public String toFen() {
+		return appendFen(new StringBuilder(90)).toString();
+	}
 
-			if(isCapture) {
-				if(bitboards.indexOf(endingPieceBitboard) <= Constants.WHITE_KING && isWhite) {
-					return false;
-				} else if(bitboards.indexOf(endingPieceBitboard) > Constants.WHITE_KING && !isWhite) {
-					return false;
+	/**
+	 * Appends the position as FEN to a builder the caller owns, which is handy when writing a lot of
+	 * positions out without creating a String for each one.
+	 */
+	public StringBuilder appendFen(StringBuilder builder) {
+
+		for(int rank = 7; rank >= 0; rank--) {
+			int empty = 0;
+			for(int square = rank * 8 + 7; square >= rank * 8; square--) {
+				int piece = mailbox[square];
+				if(piece == Constants.EMPTY) {
+					empty++;
+					continue;
 				}
+				if(empty > 0) builder.append((char)('0' + empty));
+				empty = 0;
+				builder.append(PIECE_CHARS.charAt(piece));
 			}
-			
-			
-			
-			// Now we know that the move is definitely legal, but there's still some bookkeeping left to do:
-			
-			// let's set our pawnsMovedTwo bitboard to an accurate state:
-			int pawnMoveIndexTwo = 0;
-			if(move.charAt(1) == '2' && move.charAt(3) == '4' && isWhite 
-			|| move.charAt(1) == '7' && move.charAt(3) == '5' && !isWhite) {	
-				pawnMoveIndexTwo = 1 << (7 - (move.charAt(0) - 97) + (isWhite? 0 : 8));
-				pawnsHaveMovedTwo.setBitboard((short)(pawnsHaveMovedTwo.get() | pawnMoveIndexTwo));
-			}
-			
-			
-			return true;
+			if(empty > 0) builder.append((char)('0' + empty));
+			if(rank > 0) builder.append('/');
 		}
 
+		builder.append(getSideToMove() == Constants.WHITE ? " w " : " b ");
 
+		if(castlingRights == 0) builder.append('-');
+		if((castlingRights & Constants.WHITE_KINGSIDE) != 0) builder.append('K');
+		if((castlingRights & Constants.WHITE_QUEENSIDE) != 0) builder.append('Q');
+		if((castlingRights & Constants.BLACK_KINGSIDE) != 0) builder.append('k');
+		if((castlingRights & Constants.BLACK_QUEENSIDE) != 0) builder.append('q');
 
-		
-		
-
+		builder.append(' ');
+		if(enPassantSquare == Constants.NO_SQUARE) {
+			builder.append('-');
+		} else {
+			builder.append((char)('h' - (enPassantSquare & 7))).append((char)('1' + (enPassantSquare >>> 3)));
+		}
 
-		return false;
+		return builder.append(' ').append(halfmoveClock).append(' ').append(moveNum / 2 + 1);
 	}
 
-	public void move(String move, List<AtomicLong> bitboards) {
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MAKE / UNMAKE									 |
+	 * -------------------------------------------------------------------------------
+	 */
 
-		/*
-		 * NOTES ABOUT MOVEMENT:
-		 * 
-		 * 		- moving up a rank = 8 bit shift to the left, down a rank = 8 bit shift to the right
-		 * 		- moving files is a simple shift left/right
-		 * 		- To move then, we can create a bitboard of the piece to be moved, OR it with
-		 * 		  itself shifted to the corresponding move, then XOR it with the corresponding piece bitboard
-		 */
+	/*
+	 * 	The history stack
+	 * 	-----------------
+	 * 	Everything a move can't give back by itself (what it captured, the castling rights, the en
+	 * 	passant square and the halfmove clock) goes into one long per move, and the Zobrist key from
+	 * 	before the move goes next to it. Both live in preallocated primitive arrays that makeMove
+	 * 	pushes onto and unmakeMove pops off, so the caller doesn't have to keep anything and a search
+	 * 	can go as deep as it likes without allocating:
+	 *
+	 * 		bits  0..3	-> captured piece index + 1 (0 means nothing was captured)
+	 * 		bits  4..7	-> castling rights before the move
+	 * 		bits  8..14	-> en passant square before the move + 1 (0 means there wasn't one)
+	 * 		bits 16..31	-> halfmove clock before the move
+	 *
+	 * 	The keys are also what repetitions are found with. A position can only repeat one that came
+	 * 	after the last capture or pawn move, since those can't be undone, and that is exactly what the
+	 * 	halfmove clock counts, so isRepetition only looks that far back (and only at every other key,
+	 * 	the ones with the same side to move).
+	 */
 
-		// let's start with pawns, and let's not worry about parsing a move from a string. For now, we will just
-		// assume that our input string will be in the correct format.
+	/**
+	 * Plays a move that is already known to be at least pseudo-legal (for example one that came
+	 * from the move generator). unmakeMove takes it back.
+	 * @param move a move packed with chess.util.Move
+	 */
+	public void makeMove(int move) {
+
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		int flag = Move.getFlag(move);
+
+		int piece = mailbox[from];
+		int color = piece / Constants.BLACK_OFFSET;
+		int captured = mailbox[to];
+
+		long undo = (captured + 1) | (castlingRights << 4) | ((enPassantSquare + 1) << 8) | ((long)halfmoveClock << 16);
+		long key = zobristKey;
+
+		// take the captured piece off the board first. For en passant the captured pawn isn't on the
+		// ending square, it's one rank behind it.
+		if(flag == Move.EN_PASSANT) {
+			int capturedSquare = color == Constants.WHITE ? to - 8 : to + 8;
+			captured = mailbox[capturedSquare];
+			removePiece(captured, capturedSquare);
+			undo = (undo & ~0xFL) | (captured + 1);
+		} else if(captured != Constants.EMPTY) {
+			removePiece(captured, to);
+		}
+		push(undo, key);
 
-		// example move: e2e4 aka kings pawn
-		// the first square's file (e) is the same as the second square's file (e) so we know this is a rankwise move
-		// to determine the number of ranks, we can subtract the second square's rank from the first square's rank
-		// when a move changes files as well as ranks, we can shift by 1 for each file instead of by 8
+		if(Move.isPromotion(move)) {
+			removePiece(piece, from);
+			addPiece(Move.getPromotionType(move) + color * Constants.BLACK_OFFSET, to);
+		} else {
+			movePiece(piece, from, to);
+		}
 
-		// another method will make sure that the move is legal before it is passed to this method, so we
-		// just have to manipulate the bitboards with the given move
+		// castling is encoded as a king move, so the rook still needs to jump over
+		if(flag == Move.KING_CASTLE) {
+			movePiece(mailbox[from - 3], from - 3, from - 1);
+		} else if(flag == Move.QUEEN_CASTLE) {
+			movePiece(mailbox[from + 4], from + 4, from + 1);
+		}
 
-		// first we need to find out which piece type is moving
+		// the piece moves have already been hashed by the helpers, so all that is left is the
+		// castling rights, the en passant file and the side to move
+		zobristKey ^= Zobrist.CASTLING[castlingRights];
+		castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		zobristKey ^= Zobrist.CASTLING[castlingRights];
 
-		// so, lets start by finding the index of the starting square. A helper method
-		// was written because this function will be useful in multiple places.
+		if(enPassantSquare != Constants.NO_SQUARE) zobristKey ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+		enPassantSquare = flag == Move.DOUBLE_PAWN_PUSH ? (from + to) >>> 1 : Constants.NO_SQUARE;
+		if(enPassantSquare != Constants.NO_SQUARE) zobristKey ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
 
-		long startingPiece = getStartingSquareBitboard(move);
+		zobristKey ^= Zobrist.SIDE;
 
-		// now to find the piece type we can loop through the bitboards and see which type it is:
+		// captures and pawn moves reset the fifty move counter
+		if(captured != Constants.EMPTY || piece % Constants.BLACK_OFFSET == Constants.PAWN) {
+			halfmoveClock = 0;
+		} else {
+			halfmoveClock++;
+		}
 
-		AtomicLong startingPieceBitboard = null;
-		String binaryStarting = Long.toBinaryString(startingPiece);
+		bitboards[Constants.ALL_PIECES] = bitboards[Constants.WHITE_PIECES] | bitboards[Constants.BLACK_PIECES];
+		moveNum++;
+		checkInfoValid = false;
+	}
 
-		for(AtomicLong bitboard : bitboards) {
-			if((bitboard.get() & startingPiece) != 0) {
-				startingPieceBitboard = bitboard;
-				break;
-			}
+	/**
+	 * Takes back the last move played with makeMove, restoring the board exactly as it was.
+	 * @param move the same move that was passed to makeMove
+	 */
+	public void unmakeMove(int move) {
+
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		int flag = Move.getFlag(move);
+
+		int piece = mailbox[to];
+		int color = piece / Constants.BLACK_OFFSET;
+		long undo = states[--historySize];
+		int captured = (int)(undo & 0xF) - 1;
+
+		moveNum--;
+		castlingRights = (int)(undo >>> 4) & 0xF;
+		enPassantSquare = (int)(undo >>> 8 & 0x7F) - 1;
+		halfmoveClock = (int)(undo >>> 16) & 0xFFFF;
+
+		if(flag == Move.KING_CASTLE) {
+			movePiece(mailbox[from - 1], from - 1, from - 3);
+		} else if(flag == Move.QUEEN_CASTLE) {
+			movePiece(mailbox[from + 1], from + 1, from + 4);
 		}
-		// now, we can create an ending piece long by shifting the right amount of bits for the given move
 
-		int deltaRank = move.charAt(3) - move.charAt(1);
-		int deltaFile = move.charAt(2) - move.charAt(0);
+		if(Move.isPromotion(move)) {
+			removePiece(piece, to);
+			addPiece(color * Constants.BLACK_OFFSET + Constants.PAWN, from);
+		} else {
+			movePiece(piece, to, from);
+		}
 
-		// '>>>' vs '>>': '>>' is a signed shift, so if the most significant bit of the long is
-		// 1, each bit that gets shifted in will be an additional 1. We want 0s to be shifted in,
-		// so we use '>>>' when shifting right. Shifting left does not matter, in fact '<<<' is 
-		// not valid syntax, because 0s are always concatenated when shifting left
+		if(flag == Move.EN_PASSANT) {
+			addPiece(captured, color == Constants.WHITE ? to - 8 : to + 8);
+		} else if(captured != Constants.EMPTY) {
+			addPiece(captured, to);
+		}
 
-		long endingPiece = deltaRank >= 0 ? startingPiece << (8 * deltaRank) : startingPiece >>> (-8 * deltaRank);
-		endingPiece = deltaFile >= 0 ? endingPiece >>> deltaFile : endingPiece << (-1 * deltaFile);
+		// the piece helpers have been hashing the pieces back, but the key from the stack is the
+		// whole answer, castling and en passant included
+		zobristKey = keys[historySize];
+		bitboards[Constants.ALL_PIECES] = bitboards[Constants.WHITE_PIECES] | bitboards[Constants.BLACK_PIECES];
+		checkInfoValid = false;
+	}
 
-		// next, we should make a move bitboard that can be used to execute the move:
+	/**
+	 * Passes the turn without moving anything, which the search uses for null move pruning. The
+	 * only things that change besides the side to move are that en passant is no longer possible,
+	 * and that the halfmove clock starts over: a position after a pass can't really repeat one from
+	 * before it, so that keeps isRepetition from looking past the null move.
+	 */
+	public void makeNullMove() {
+		push(((enPassantSquare + 1) << 8) | ((long)halfmoveClock << 16), zobristKey);
+		if(enPassantSquare != Constants.NO_SQUARE) zobristKey ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+		enPassantSquare = Constants.NO_SQUARE;
+		halfmoveClock = 0;
+		zobristKey ^= Zobrist.SIDE;
+		moveNum++;
+		checkInfoValid = false;
+	}
 
-		long moveBitboard = startingPiece | endingPiece;
+	public void unmakeNullMove() {
+		long undo = states[--historySize];
+		moveNum--;
+		enPassantSquare = (int)(undo >>> 8 & 0x7F) - 1;
+		halfmoveClock = (int)(undo >>> 16) & 0xFFFF;
+		zobristKey = keys[historySize];
+		checkInfoValid = false;
+	}
 
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							DRAWS											 |
+	 * -------------------------------------------------------------------------------
+	 */
 
-		/*
-		 * example: startingPieceBitboard = 0b0000100
-		 * 					 moveBitboard = 0b0100100
-		 * 					   XOR result = 0b0100000
-		 */
+	/**
+	 * Returns true if the position has been on the board before since the last capture or pawn
+	 * move. The search treats that as a draw, since whatever was good enough to come back to the
+	 * position once will be good enough to come back again.
+	 */
+	public boolean isRepetition() {
+		int oldest = Math.max(historySize - halfmoveClock, 0);
+		for(int i = historySize - 4; i >= oldest; i -= 2) {
+			if(keys[i] == zobristKey) return true;
+		}
+		return false;
+	}
 
-		// now, we aren't quite finished yet. What if the move results in a capture?
-		// we must also update the bitboard of the captured piece
+	/**
+	 * Returns true if the position is on the board for the third time, which is a draw by the rules.
+	 */
+	public boolean isThreefoldRepetition() {
+		int oldest = Math.max(historySize - halfmoveClock, 0);
+		int seen = 0;
+		for(int i = historySize - 4; i >= oldest; i -= 2) {
+			if(keys[i] == zobristKey && ++seen == 2) return true;
+		}
+		return false;
+	}
 
-		AtomicLong endingPieceBitboard = null;
-		boolean isCapture = false;
+	/**
+	 * Returns true if there have been 50 moves by each side without a capture or a pawn move, which
+	 * is a draw by the rules unless the last of them was checkmate.
+	 */
+	public boolean isFiftyMoveDraw() {
+		return halfmoveClock >= 100 && !isCheckmate();
+	}
 
-		for(AtomicLong bitboard : bitboards) {
-			if((bitboard.get() & endingPiece) != 0) {
-				endingPieceBitboard = bitboard;
-				break;
-			}
-		}
+	/**
+	 * Returns true if the game is drawn by the rules: stalemate, the fifty move rule or threefold
+	 * repetition. (Insufficient material isn't counted.)
+	 */
+	public boolean isDraw() {
+		return isThreefoldRepetition() || isFiftyMoveDraw() || isStalemate();
+	}
 
-		// if the move results in a capture, the endingPieceBitboard will not be null.
+	/**
+	 * Returns the number of moves in the history, which is how many can be taken back.
+	 */
+	public int getHistorySize() {
+		return historySize;
+	}
 
-		if(endingPieceBitboard != null) {
-			isCapture = true;
-		}
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							ATTACKS											 |
+	 * -------------------------------------------------------------------------------
+	 */
 
-		// now that we have all the data about the move though, we need to check if the
-		// move is legal before we actually manipulate any bitboards:
+	/**
+	 * Checks whether any piece of the given color attacks a square. This works backwards from the
+	 * square: a knight on the square would attack exactly the squares that a knight could attack it
+	 * from, and the same goes for every other piece (pawns just use the opposite color's table).
+	 */
+	public boolean isSquareAttacked(int square, int byColor) {
+		return isSquareAttacked(square, byColor, bitboards[Constants.ALL_PIECES]);
+	}
 
-		if(!isLegal(move, bitboards, startingPieceBitboard, endingPieceBitboard, isCapture)) {
-			System.out.println("Move " + move + " is illegal!");
-			return;
-		}
+	/**
+	 * The same as isSquareAttacked(square, byColor), but with the sliding pieces looking through a
+	 * different occupancy. Taking our own king out of it shows where the king can't step back to
+	 * along the line of a check.
+	 */
+	public boolean isSquareAttacked(int square, int byColor, long occupied) {
+		int offset = byColor * Constants.BLACK_OFFSET;
 
-		// if we make it to here, we know that the move is legal. So, we can pick up where we
-		// left off.
+		if((Attacks.PAWN_ATTACKS[byColor ^ 1][square] & bitboards[offset + Constants.PAWN]) != 0) return true;
+		if((Attacks.KNIGHT_ATTACKS[square] & bitboards[offset + Constants.KNIGHT]) != 0) return true;
+		if((Attacks.KING_ATTACKS[square] & bitboards[offset + Constants.KING]) != 0) return true;
 
-		// in order to remove the captured piece from its bitboard, we can use a bitwise
-		// and with the complement of the endPiece position bitboard
+		long queens = bitboards[offset + Constants.QUEEN];
+		if((Attacks.bishopAttacks(square, occupied) & (bitboards[offset + Constants.BISHOP] | queens)) != 0) return true;
+		return (Attacks.rookAttacks(square, occupied) & (bitboards[offset + Constants.ROOK] | queens)) != 0;
+	}
+
+	/**
+	 * Returns true if the king of the given color is attacked.
+	 */
+	public boolean isKingAttacked(int color) {
+		long king = bitboards[color * Constants.BLACK_OFFSET + Constants.KING];
+		return king != 0 && isSquareAttacked(Long.numberOfTrailingZeros(king), color ^ 1);
+	}
+
+	/**
+	 * Returns the enemy pieces that are giving check to the side to move.
+	 */
+	public long getCheckers() {
+		if(!checkInfoValid) computeCheckInfo();
+		return checkers;
+	}
+
+	/**
+	 * Returns the side to move's pieces that are pinned to its own king, meaning they can only move
+	 * along the line between the king and the piece pinning them (see Attacks.LINE).
+	 */
+	public long getPinned() {
+		if(!checkInfoValid) computeCheckInfo();
+		return pinned;
+	}
+
+	/**
+	 * Returns true if the side to move is in check.
+	 */
+	public boolean isInCheck() {
+		return getCheckers() != 0;
+	}
+
+	/**
+	 * Returns true if the side to move has at least one legal move.
+	 */
+	public boolean hasLegalMoves() {
+		if(legalMoves == null) legalMoves = new int[MoveGenerator.MAX_MOVES];
+		return MoveGenerator.generateLegalMoves(this, legalMoves, 0) > 0;
+	}
+
+	public boolean isCheckmate() {
+		return isInCheck() && !hasLegalMoves();
+	}
+
+	public boolean isStalemate() {
+		return !isInCheck() && !hasLegalMoves();
+	}
 
-		if(endingPieceBitboard != null) {
-			endingPieceBitboard.set(~endingPiece & endingPieceBitboard.get());
+	// both are found from the king's square: the checkers are the enemy pieces the king could "see"
+	// if it were each kind of piece, and a pin is an enemy slider that would see the king if exactly
+	// one of our pieces weren't in the way
+	private void computeCheckInfo() {
+		int us = getSideToMove();
+		int them = us ^ 1;
+		int offset = them * Constants.BLACK_OFFSET;
+		long kingBitboard = bitboards[us * Constants.BLACK_OFFSET + Constants.KING];
+		checkers = 0;
+		pinned = 0;
+		checkInfoValid = true;
+		if(kingBitboard == 0) return;
+
+		int king = Long.numberOfTrailingZeros(kingBitboard);
+		long occupied = bitboards[Constants.ALL_PIECES];
+		long diagonal = bitboards[offset + Constants.BISHOP] | bitboards[offset + Constants.QUEEN];
+		long straight = bitboards[offset + Constants.ROOK] | bitboards[offset + Constants.QUEEN];
+
+		checkers = (Attacks.PAWN_ATTACKS[us][king] & bitboards[offset + Constants.PAWN])
+				| (Attacks.KNIGHT_ATTACKS[king] & bitboards[offset + Constants.KNIGHT])
+				| (Attacks.bishopAttacks(king, occupied) & diagonal)
+				| (Attacks.rookAttacks(king, occupied) & straight);
+
+		long snipers = (Attacks.bishopAttacks(king, 0) & diagonal) | (Attacks.rookAttacks(king, 0) & straight);
+		long ours = bitboards[Constants.WHITE_PIECES + us];
+		while(snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = Attacks.BETWEEN[king][sniper] & occupied;
+			if((blockers & (blockers - 1)) == 0 && (blockers & ours) != 0) pinned |= blockers;
 		}
+	}
 
-		// now we can finally use the moveBitboard that we made earlier. We do this
-		// now so that the code doesn't interpret the moved piece as a piece to be
-		// captured.
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							STATIC EXCHANGE									 |
+	 * -------------------------------------------------------------------------------
+	 */
 
-		startingPieceBitboard.set(moveBitboard ^ startingPieceBitboard.get());
+	/**
+	 * Returns every piece, of both colors, that attacks a square, with the sliding pieces looking
+	 * through the given occupancy.
+	 */
+	public long getAttackers(int square, long occupied) {
+		return getAttackers(square, occupied, getDiagonalSliders(), getStraightSliders());
+	}
 
-		// now that our piece has officially moved, we can increment the move counter
-		moveNum++;
+	private long getAttackers(int square, long occupied, long bishops, long rooks) {
+		return (Attacks.PAWN_ATTACKS[Constants.BLACK][square] & bitboards[Constants.WHITE_PAWNS])
+				| (Attacks.PAWN_ATTACKS[Constants.WHITE][square] & bitboards[Constants.BLACK_PAWNS])
+				| (Attacks.KNIGHT_ATTACKS[square] & (bitboards[Constants.WHITE_KNIGHTS] | bitboards[Constants.BLACK_KNIGHTS]))
+				| (Attacks.KING_ATTACKS[square] & (bitboards[Constants.WHITE_KING] | bitboards[Constants.BLACK_KING]))
+				| (Attacks.bishopAttacks(square, occupied) & bishops)
+				| (Attacks.rookAttacks(square, occupied) & rooks);
+	}
+
+	/**
+	 * Static exchange evaluation: plays out every capture on the square a move goes to, each side
+	 * always taking with its least valuable piece and stopping as soon as going on would lose more,
+	 * and returns what the side to move wins (or loses, if it's negative) in centipawns. A quiet move
+	 * scores what the opponent can win by taking the piece, or 0 if it's safe.
+	 *
+	 * Nothing is actually played. The captures happen on a copy of the occupancy: taking a piece out
+	 * of it is enough for the sliders behind it (a rook behind a rook, a bishop behind a pawn) to
+	 * show up in the next lookup, which is how the x-rays get into the exchange. Pins are ignored, and
+	 * the king only joins in when the other side has nothing left to take back with.
+	 */
+	public int see(int move) {
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		int flag = Move.getFlag(move);
+		long occupied = bitboards[Constants.ALL_PIECES] ^ (1L << from);
+
+		// what the move itself wins, and the value of the piece left standing on the square
+		int gain = 0;
+		int onSquare = SEE_VALUES[mailbox[from] % Constants.BLACK_OFFSET];
+		if(flag == Move.EN_PASSANT) {
+			gain = SEE_VALUES[Constants.PAWN];
+			occupied ^= 1L << (to ^ 8);
+		} else if(Move.isCapture(move)) {
+			gain = SEE_VALUES[mailbox[to] % Constants.BLACK_OFFSET];
+		}
+		if(Move.isPromotion(move)) {
+			onSquare = SEE_VALUES[Move.getPromotionType(move)];
+			gain += onSquare - SEE_VALUES[Constants.PAWN];
+		}
 
-		// the last things we need to do to complete the move is to update the encompassing
-		// bitboards. This can be done with the bitwise OR operation
+		int[] gains = seeGains;
+		gains[0] = gain;
+		int depth = 0;
+		long diagonal = getDiagonalSliders();
+		long straight = getStraightSliders();
+		long attackers = getAttackers(to, occupied, diagonal, straight) & occupied;
+		int side = getSideToMove() ^ 1;
+
+		while(true) {
+			long ours = attackers & bitboards[Constants.WHITE_PIECES + side];
+			if(ours == 0) break;
+
+			// the least valuable attacker
+			int type = Constants.KING;
+			long attacker = 0;
+			for(int i = 0; i < SEE_ORDER.length; i++) {
+				attacker = ours & bitboards[side * Constants.BLACK_OFFSET + SEE_ORDER[i]];
+				if(attacker != 0) {
+					type = SEE_ORDER[i];
+					break;
+				}
+			}
+			// the king can't take a piece that's still defended
+			if(type == Constants.KING && (attackers & bitboards[Constants.WHITE_PIECES + (side ^ 1)]) != 0) break;
+
+			// what this side is up if it takes and nothing takes back
+			depth++;
+			gains[depth] = onSquare - gains[depth - 1];
+
+			occupied ^= attacker & -attacker;
+			if(type == Constants.PAWN || type == Constants.BISHOP || type == Constants.QUEEN) attackers |= Attacks.bishopAttacks(to, occupied) & diagonal;
+			if(type == Constants.ROOK || type == Constants.QUEEN) attackers |= Attacks.rookAttacks(to, occupied) & straight;
+			attackers &= occupied;
+			onSquare = SEE_VALUES[type];
+			side ^= 1;
+		}
 
-		whitePieces.set(whitePawns.get() | whiteRooks.get() | whiteKnights.get() | whiteBishops.get() | whiteQueens.get() | whiteKing.get());
-		blackPieces.set(blackPawns.get() | blackRooks.get() | blackKnights.get() | blackBishops.get() | blackQueens.get() | blackKing.get());
-		allPieces.set(whitePieces.get() | blackPieces.get());
+		// every side stops or takes, whichever is better for it, from the last capture back
+		while(depth > 0) {
+			gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+			depth--;
+		}
+		return gains[0];
+	}
 
+	// bishops and queens of both colors
+	private long getDiagonalSliders() {
+		return bitboards[Constants.WHITE_BISHOPS] | bitboards[Constants.BLACK_BISHOPS]
+				| bitboards[Constants.WHITE_QUEENS] | bitboards[Constants.BLACK_QUEENS];
+	}
 
-		// POSSIBLE IMPROVEMENTS:
-		// 1. instead of using AtomicLong we could technically do an array of primitive longs, but I think that
-		// AtomicLongs are easier and we should just stick with them until(if) it becomes a problem
+	// rooks and queens of both colors
+	private long getStraightSliders() {
+		return bitboards[Constants.WHITE_ROOKS] | bitboards[Constants.BLACK_ROOKS]
+				| bitboards[Constants.WHITE_QUEENS] | bitboards[Constants.BLACK_QUEENS];
 	}
 
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							LEGALITY										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Checks whether a packed move is legal in this position: the piece has to be able to move
+	 * that way (MoveGenerator.isPseudoLegal), and the move can't leave our own king in check.
+	 */
+	public boolean isLegal(int move) {
+
+		// When determining whether or not a move is legal in a game of chess, there are many, many things that need
+		// to be checked. The move generator already knows how every piece moves, so the first half of the job is
+		// handing it the move. The only thing left is whether the move puts (or leaves) our king in check, which
+		// the checkers and pins of the position answer without having to play the move and look.
 
-	// commented out bc dont need this yet
-	//	private String parseMove(String move) {
-	//		int strlen = move.length();
-	//		
-	//		if(strlen < 3) return null;
-	//		else if(strlen > 4) return null;
-	//		
-	//		char first = move.charAt(0);
-	//		if("abcdefgh".indexOf(first) < 0 && "RKNQB".indexOf(first) < 0) return null;
-	//		
-	//	}
+		return MoveGenerator.isPseudoLegal(this, move) && MoveGenerator.isLegal(this, move);
+	}
+
+	/**
+	 * Plays a move if it is legal.
+	 * @return false (and leaves the board alone) if the move is illegal
+	 */
+	public boolean move(int move) {
+		if(!isLegal(move)) return false;
+		makeMove(move);
+		return true;
+	}
 
 	/*
 	 * -------------------------------------------------------------------------------
@@ -415,44 +862,193 @@ public class Board {
 	 * -------------------------------------------------------------------------------
 	 */
 
-	private static long getStartingSquareBitboard(String move) {
-		// To find the starting square bitboard, we can start by multiplying the letter
-		// index alphabet value by the rank number:
+	private void push(long state, long key) {
+		if(historySize == states.length) ensureHistory(historySize * 2);
+		states[historySize] = state;
+		keys[historySize] = key;
+		historySize++;
+	}
 
-		int startIndex = Integer.parseInt("" + move.charAt(1)) * 8 - (move.charAt(0) - 97) - 1;
+	// grows the history arrays to hold at least size moves, which only happens in very long games
+	private void ensureHistory(int size) {
+		if(size <= states.length) return;
+		states = Arrays.copyOf(states, size);
+		keys = Arrays.copyOf(keys, size);
+	}
 
-		// now that we have our starting index, let's create a long with a 1 at that index
+	private static int skipSpaces(CharSequence s, int index) {
+		while(index < s.length() && s.charAt(index) == ' ') index++;
+		return index;
+	}
 
-		long startingPiece = 1L << startIndex;
-		return startingPiece;
+	private static int skipDigits(CharSequence s, int index) {
+		while(index < s.length() && s.charAt(index) >= '0' && s.charAt(index) <= '9') index++;
+		return index;
 	}
-	
-	private boolean hasBlackPiece(long bitboard) {
-		for(int i = Constants.BLACK_PAWNS; i <= Constants.BLACK_KING; i++) {
-			if((bitboard & this.bitboards.get(i).get()) != 0) return true;
+
+	private static int parseNumber(CharSequence s, int start, int end) {
+		int value = 0;
+		for(int i = start; i < end; i++) {
+			value = Math.min(value * 10 + s.charAt(i) - '0', 0xFFFF);
 		}
-		return false;
+		return value;
+	}
+
+	private void addPiece(int piece, int square) {
+		long bit = 1L << square;
+		bitboards[piece] |= bit;
+		bitboards[Constants.WHITE_PIECES + piece / Constants.BLACK_OFFSET] |= bit;
+		mailbox[square] = piece;
+		zobristKey ^= Zobrist.PIECE_SQUARE[piece][square];
+		middlegameScore += Evaluator.MIDDLEGAME[piece][square];
+		endgameScore += Evaluator.ENDGAME[piece][square];
+		phase += Evaluator.PHASE[piece];
+		if(accumulator != null) accumulator.addFeature(piece, square);
+	}
+
+	private void removePiece(int piece, int square) {
+		long bit = 1L << square;
+		bitboards[piece] &= ~bit;
+		bitboards[Constants.WHITE_PIECES + piece / Constants.BLACK_OFFSET] &= ~bit;
+		mailbox[square] = Constants.EMPTY;
+		zobristKey ^= Zobrist.PIECE_SQUARE[piece][square];
+		middlegameScore -= Evaluator.MIDDLEGAME[piece][square];
+		endgameScore -= Evaluator.ENDGAME[piece][square];
+		phase -= Evaluator.PHASE[piece];
+		if(accumulator != null) accumulator.removeFeature(piece, square);
 	}
-	
-	private boolean hasWhitePiece(long bitboard) {
-		for(int i = 0; i <= Constants.WHITE_KING; i++) {
-			if((bitboard & this.bitboards.get(i).get()) != 0) return true;
+
+	private void movePiece(int piece, int from, int to) {
+		long fromTo = (1L << from) | (1L << to);
+		bitboards[piece] ^= fromTo;
+		bitboards[Constants.WHITE_PIECES + piece / Constants.BLACK_OFFSET] ^= fromTo;
+		mailbox[from] = Constants.EMPTY;
+		mailbox[to] = piece;
+		zobristKey ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+		middlegameScore += Evaluator.MIDDLEGAME[piece][to] - Evaluator.MIDDLEGAME[piece][from];
+		endgameScore += Evaluator.ENDGAME[piece][to] - Evaluator.ENDGAME[piece][from];
+		if(accumulator != null) accumulator.moveFeature(piece, from, to);
+	}
+
+	// rebuilds the occupancy bitboards, the mailbox, the hash and the evaluation sums (and the accumulator,
+	// if there is one) from the 12 piece bitboards
+	private void refreshDerivedState() {
+		bitboards[Constants.WHITE_PIECES] = 0;
+		bitboards[Constants.BLACK_PIECES] = 0;
+		for(int i = 0; i < 64; i++) {
+			mailbox[i] = Constants.EMPTY;
 		}
-		return false;
+		zobristKey = 0;
+		middlegameScore = 0;
+		endgameScore = 0;
+		phase = 0;
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			long bitboard = bitboards[piece];
+			bitboards[Constants.WHITE_PIECES + piece / Constants.BLACK_OFFSET] |= bitboard;
+			while(bitboard != 0) {
+				int square = Long.numberOfTrailingZeros(bitboard);
+				mailbox[square] = piece;
+				zobristKey ^= Zobrist.PIECE_SQUARE[piece][square];
+				middlegameScore += Evaluator.MIDDLEGAME[piece][square];
+				endgameScore += Evaluator.ENDGAME[piece][square];
+				phase += Evaluator.PHASE[piece];
+				bitboard &= bitboard - 1;
+			}
+		}
+		bitboards[Constants.ALL_PIECES] = bitboards[Constants.WHITE_PIECES] | bitboards[Constants.BLACK_PIECES];
+
+		zobristKey ^= Zobrist.CASTLING[castlingRights];
+		if(enPassantSquare != Constants.NO_SQUARE) zobristKey ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+		if(getSideToMove() == Constants.BLACK) zobristKey ^= Zobrist.SIDE;
+		checkInfoValid = false;
+		historySize = 0;
+		if(accumulator != null) accumulator.refresh(this);
 	}
-	
+
 	/*
 	 * -------------------------------------------------------------------------------
 	 * |							GETTERS AND SETTERS								 |
 	 * -------------------------------------------------------------------------------
 	 */
-	
-	public List<AtomicLong>	getBitBoards() {
+
+	public long[] getBitBoards() {
 		return bitboards;
 	}
-	
+
+	public long getBitBoard(int index) {
+		return bitboards[index];
+	}
+
+	/**
+	 * Returns the piece index (Constants.WHITE_PAWNS..Constants.BLACK_KING) on a square, or
+	 * Constants.EMPTY if there is nothing there.
+	 */
+	public int pieceAt(int square) {
+		return mailbox[square];
+	}
+
 	public int getMoveNum() {
 		return moveNum;
 	}
 
+	public int getSideToMove() {
+		return moveNum & 1;
+	}
+
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+	public long getZobristKey() {
+		return zobristKey;
+	}
+
+	public int getMiddlegameScore() {
+		return middlegameScore;
+	}
+
+	public int getEndgameScore() {
+		return endgameScore;
+	}
+
+	public int getPhase() {
+		return phase;
+	}
+
+	public Accumulator getAccumulator() {
+		return accumulator;
+	}
+
+	/**
+	 * Attaches an accumulator that follows every change to this board from now on, or detaches the
+	 * current one with null. It's brought up to date with the position right away.
+	 */
+	public void setAccumulator(Accumulator accumulator) {
+		this.accumulator = accumulator;
+		if(accumulator != null) accumulator.refresh(this);
+	}
+
+	/**
+	 * Computes the Zobrist key from scratch rather than incrementally. This is only useful for
+	 * checking that getZobristKey is right, and for seeing how much the incremental update saves.
+	 */
+	public long computeZobristKey() {
+		long key = 0;
+		for(int square = 0; square < 64; square++) {
+			if(mailbox[square] != Constants.EMPTY) key ^= Zobrist.PIECE_SQUARE[mailbox[square]][square];
+		}
+		key ^= Zobrist.CASTLING[castlingRights];
+		if(enPassantSquare != Constants.NO_SQUARE) key ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+		if(getSideToMove() == Constants.BLACK) key ^= Zobrist.SIDE;
+		return key;
+	}
+
 }
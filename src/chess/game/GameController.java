@@ -1,37 +1,51 @@
 package chess.game;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 
 import chess.graphics.PrintGraphics;
+import chess.uci.UciEngine;
+import chess.util.Move;
 
 public class GameController {
 
 	
 	
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 
 		Board game = new Board();
 		
-		List<AtomicLong> bitboards = game.getBitBoards();
+		long[] bitboards = game.getBitBoards();
 
 		PrintGraphics.printBoard(bitboards);
 		
 		String userInput = "";
-		Scanner scnr = new Scanner(System.in);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 		
 		while(!userInput.equals("end")) {
 			
 			System.out.println((game.getMoveNum() % 2 == 0? "White's" : "Black's") + " Move.");
 			System.out.println("Enter move:");
-			userInput = scnr.nextLine();
+			userInput = reader.readLine();
+			if(userInput == null) break;
 			if(userInput.equals("end")) continue;
+
+			// a GUI talking to us over UCI starts with "uci", so from then on the UCI engine takes over
+			if(userInput.trim().equals("uci")) {
+				new UciEngine(reader, System.out).run(userInput.trim());
+				return;
+			}
 			
 			
-			game.move(userInput, bitboards);
+			// text only exists out here, the board itself only ever sees packed moves
+			int move = Notation.parseMove(game, userInput.trim());
+			if(move == Move.NONE || !game.move(move)) {
+				System.out.println("Move " + userInput + " is illegal!");
+			}
 			PrintGraphics.printBoard(bitboards);
+			if(game.isCheckmate()) System.out.println("Checkmate!");
+			else if(game.isDraw()) System.out.println("Draw.");
 			System.out.println();
 			
 		}
@@ -0,0 +1,492 @@
+package chess.game;
+
+import chess.util.Attacks;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class MoveGenerator {
+
+	/*
+	 * This class enumerates the pseudo-legal moves of a position, meaning every move that follows the
+	 * movement rules of the pieces but might still leave the mover's own king in check. All of the
+	 * methods write packed moves (see chess.util.Move) into an int array that the caller owns,
+	 * starting at index count, and return the new count. That way a search can keep one big buffer
+	 * and hand each ply its own slice of it, and nothing ever gets allocated.
+	 *
+	 * The moves are split into two groups so that callers can ask for just the ones they need:
+	 * 		- captures: every capture (including en passant) and every promotion
+	 * 		- quiets: everything else, including castling
+	 * generateMoves simply generates both.
+	 *
+	 * Each of them also has a legal version (generateLegalMoves and so on) that leaves out the moves
+	 * which would put or leave our own king in check, so that nobody has to play a move just to find
+	 * out it was illegal. See the LEGAL MOVES section.
+	 *
+	 * The buffer must have room for the worst case, MAX_MOVES per position.
+	 */
+
+	// no legal chess position has more than 218 moves, so this is a safe size per ply
+	public static final int MAX_MOVES = 256;
+
+	public static int generateMoves(Board board, int[] moves, int count) {
+		count = generateCaptures(board, moves, count);
+		return generateQuiets(board, moves, count);
+	}
+
+	public static int generateCaptures(Board board, int[] moves, int count) {
+
+		int us = board.getSideToMove();
+		int them = us ^ 1;
+		int offset = us * Constants.BLACK_OFFSET;
+		long enemies = board.getBitBoard(Constants.WHITE_PIECES + them);
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+
+		long pawns = board.getBitBoard(offset + Constants.PAWN);
+		count = generatePawnCaptures(us, pawns, enemies, ~occupied, moves, count);
+		count = generateEnPassant(board, us, pawns, moves, count);
+
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.KNIGHT), Constants.KNIGHT, us, occupied, enemies, Move.CAPTURE, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.BISHOP), Constants.BISHOP, us, occupied, enemies, Move.CAPTURE, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.ROOK), Constants.ROOK, us, occupied, enemies, Move.CAPTURE, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.QUEEN), Constants.QUEEN, us, occupied, enemies, Move.CAPTURE, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.KING), Constants.KING, us, occupied, enemies, Move.CAPTURE, moves, count);
+
+		return count;
+	}
+
+	public static int generateQuiets(Board board, int[] moves, int count) {
+
+		int us = board.getSideToMove();
+		int offset = us * Constants.BLACK_OFFSET;
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+		long empty = ~occupied;
+
+		count = generatePawnPushes(us, board.getBitBoard(offset + Constants.PAWN), empty, empty, moves, count);
+
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.KNIGHT), Constants.KNIGHT, us, occupied, empty, Move.QUIET, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.BISHOP), Constants.BISHOP, us, occupied, empty, Move.QUIET, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.ROOK), Constants.ROOK, us, occupied, empty, Move.QUIET, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.QUEEN), Constants.QUEEN, us, occupied, empty, Move.QUIET, moves, count);
+		count = generatePieceMoves(board.getBitBoard(offset + Constants.KING), Constants.KING, us, occupied, empty, Move.QUIET, moves, count);
+
+		return generateCastling(board, us, occupied, moves, count);
+	}
+
+	/**
+	 * Checks whether a packed move is one that generateMoves could have produced in this position,
+	 * without generating anything. This is how a move from somewhere else (the user, the hash table,
+	 * another position) gets validated before it is played.
+	 */
+	public static boolean isPseudoLegal(Board board, int move) {
+
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		int flag = Move.getFlag(move);
+		int us = board.getSideToMove();
+
+		int piece = board.pieceAt(from);
+		if(piece == Constants.EMPTY || piece / Constants.BLACK_OFFSET != us || from == to) return false;
+
+		int target = board.pieceAt(to);
+		if(target != Constants.EMPTY && target / Constants.BLACK_OFFSET == us) return false;
+
+		int type = piece % Constants.BLACK_OFFSET;
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+		long toBit = 1L << to;
+
+		if(flag == Move.KING_CASTLE || flag == Move.QUEEN_CASTLE) {
+			int king = us == Constants.WHITE ? 3 : 59;
+			return type == Constants.KING && from == king && to == (flag == Move.KING_CASTLE ? king - 2 : king + 2)
+					&& canCastle(board, us, flag, occupied);
+		}
+
+		if(flag == Move.EN_PASSANT) {
+			return type == Constants.PAWN && to == board.getEnPassantSquare() && (Attacks.PAWN_ATTACKS[us][from] & toBit) != 0;
+		}
+
+		// flags 6 and 7 are never used, and the capture bit has to match what is actually on the ending square
+		if(flag == Move.EN_PASSANT + 1 || flag == Move.EN_PASSANT + 2) return false;
+		if(Move.isCapture(move) != (target != Constants.EMPTY)) return false;
+
+		if(type == Constants.PAWN) {
+			boolean lastRank = (toBit & (Attacks.RANK_1 | Attacks.RANK_8)) != 0;
+			if(Move.isPromotion(move) != lastRank) return false;
+
+			if(Move.isCapture(move)) return (Attacks.PAWN_ATTACKS[us][from] & toBit) != 0;
+
+			int forward = us == Constants.WHITE ? 8 : -8;
+			if(flag == Move.DOUBLE_PAWN_PUSH) {
+				long startRank = us == Constants.WHITE ? Attacks.RANK_2 : Attacks.RANK_7;
+				return ((1L << from) & startRank) != 0 && to == from + 2 * forward && ((1L << (from + forward)) & occupied) == 0;
+			}
+			return to == from + forward;
+		}
+
+		// every other piece only ever has a plain quiet or capture flag
+		if(flag != Move.QUIET && flag != Move.CAPTURE) return false;
+		return (Attacks.attacks(type, us, from, occupied) & toBit) != 0;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							LEGAL MOVES										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/*
+	 * The legal generators work from the checkers and pinned pieces that the board keeps for the
+	 * position (see Board.getCheckers and Board.getPinned):
+	 *
+	 * 		- the king can go to any square the enemy doesn't attack. The attacks are worked out with
+	 * 		  the king taken off the board, otherwise it could step back along the line of a check
+	 * 		- in double check nothing but the king can move
+	 * 		- in single check every other move has to capture the checking piece or step in between it
+	 * 		  and the king
+	 * 		- a pinned piece can only move along the line through its king and the piece pinning it
+	 * 		- en passant takes two pawns off the same rank at once, which can uncover a check that no
+	 * 		  pin shows (king and rook on the fifth rank with both pawns in between), so those moves are
+	 * 		  checked by looking at the king's rays without the two pawns
+	 *
+	 * Everything except the king and en passant comes down to a mask of allowed ending squares, so
+	 * these reuse the pseudo-legal helpers with narrower target bitboards.
+	 */
+
+	public static int generateLegalMoves(Board board, int[] moves, int count) {
+		count = generateLegalCaptures(board, moves, count);
+		return generateLegalQuiets(board, moves, count);
+	}
+
+	public static int generateLegalCaptures(Board board, int[] moves, int count) {
+
+		int us = board.getSideToMove();
+		int them = us ^ 1;
+		int offset = us * Constants.BLACK_OFFSET;
+		long kingBitboard = board.getBitBoard(offset + Constants.KING);
+		if(kingBitboard == 0) return generateCaptures(board, moves, count);
+
+		int king = Long.numberOfTrailingZeros(kingBitboard);
+		long enemies = board.getBitBoard(Constants.WHITE_PIECES + them);
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+
+		count = generateKingMoves(board, us, king, enemies, Move.CAPTURE, moves, count);
+
+		long checkers = board.getCheckers();
+		if((checkers & (checkers - 1)) != 0) return count;
+
+		long evasions = evasionMask(king, checkers);
+		long pinned = board.getPinned();
+		long targets = enemies & evasions;
+		long empty = ~occupied & evasions;
+
+		long pawns = board.getBitBoard(offset + Constants.PAWN);
+		count = generatePawnCaptures(us, pawns & ~pinned, targets, empty, moves, count);
+		for(long pinnedPawns = pawns & pinned; pinnedPawns != 0; pinnedPawns &= pinnedPawns - 1) {
+			int from = Long.numberOfTrailingZeros(pinnedPawns);
+			long line = Attacks.LINE[king][from];
+			count = generatePawnCaptures(us, 1L << from, targets & line, empty & line, moves, count);
+		}
+		count = generateLegalEnPassant(board, us, pawns, king, evasions, moves, count);
+
+		for(int type = Constants.ROOK; type <= Constants.QUEEN; type++) {
+			count = generateLegalPieceMoves(board.getBitBoard(offset + type), type, us, occupied, targets, pinned, king, Move.CAPTURE, moves, count);
+		}
+		return count;
+	}
+
+	public static int generateLegalQuiets(Board board, int[] moves, int count) {
+
+		int us = board.getSideToMove();
+		int offset = us * Constants.BLACK_OFFSET;
+		long kingBitboard = board.getBitBoard(offset + Constants.KING);
+		if(kingBitboard == 0) return generateQuiets(board, moves, count);
+
+		int king = Long.numberOfTrailingZeros(kingBitboard);
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+		long empty = ~occupied;
+
+		count = generateKingMoves(board, us, king, empty, Move.QUIET, moves, count);
+
+		long checkers = board.getCheckers();
+		if((checkers & (checkers - 1)) != 0) return count;
+
+		long targets = empty & evasionMask(king, checkers);
+		long pinned = board.getPinned();
+
+		long pawns = board.getBitBoard(offset + Constants.PAWN);
+		count = generatePawnPushes(us, pawns & ~pinned, empty, targets, moves, count);
+		for(long pinnedPawns = pawns & pinned; pinnedPawns != 0; pinnedPawns &= pinnedPawns - 1) {
+			int from = Long.numberOfTrailingZeros(pinnedPawns);
+			count = generatePawnPushes(us, 1L << from, empty, targets & Attacks.LINE[king][from], moves, count);
+		}
+
+		for(int type = Constants.ROOK; type <= Constants.QUEEN; type++) {
+			count = generateLegalPieceMoves(board.getBitBoard(offset + type), type, us, occupied, targets, pinned, king, Move.QUIET, moves, count);
+		}
+
+		// castling already makes sure the king doesn't start on, cross or land on an attacked square
+		if(checkers == 0) count = generateCastling(board, us, occupied, moves, count);
+		return count;
+	}
+
+	/**
+	 * Checks whether a move that is already known to be pseudo-legal (see isPseudoLegal) keeps our
+	 * own king out of check, without playing it.
+	 */
+	public static boolean isLegal(Board board, int move) {
+
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		int us = board.getSideToMove();
+		long kingBitboard = board.getBitBoard(us * Constants.BLACK_OFFSET + Constants.KING);
+		if(kingBitboard == 0) return true;
+		int king = Long.numberOfTrailingZeros(kingBitboard);
+
+		if(from == king) {
+			int flag = Move.getFlag(move);
+			if(flag == Move.KING_CASTLE || flag == Move.QUEEN_CASTLE) return true;
+			return !board.isSquareAttacked(to, us ^ 1, board.getBitBoard(Constants.ALL_PIECES) ^ kingBitboard);
+		}
+
+		long checkers = board.getCheckers();
+		if((checkers & (checkers - 1)) != 0) return false;
+
+		if(Move.getFlag(move) == Move.EN_PASSANT) {
+			return isLegalEnPassant(board, us, from, king, evasionMask(king, checkers));
+		}
+		if((evasionMask(king, checkers) & (1L << to)) == 0) return false;
+		return (board.getPinned() & (1L << from)) == 0 || (Attacks.LINE[king][from] & (1L << to)) != 0;
+	}
+
+	// the squares a move other than a king move has to end on: anywhere when we aren't in check,
+	// otherwise the checking piece or a square in between it and the king
+	private static long evasionMask(int king, long checkers) {
+		if(checkers == 0) return -1L;
+		return checkers | Attacks.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+	}
+
+	private static int generateKingMoves(Board board, int us, int king, long targets, int flag, int[] moves, int count) {
+		long occupied = board.getBitBoard(Constants.ALL_PIECES) ^ (1L << king);
+		long attacks = Attacks.KING_ATTACKS[king] & targets;
+		while(attacks != 0) {
+			int to = Long.numberOfTrailingZeros(attacks);
+			attacks &= attacks - 1;
+			if(!board.isSquareAttacked(to, us ^ 1, occupied)) moves[count++] = Move.encode(king, to, flag);
+		}
+		return count;
+	}
+
+	// unpinned pieces all share the same targets, and each pinned piece gets them cut down to its line
+	private static int generateLegalPieceMoves(long pieces, int pieceType, int color, long occupied, long targets, long pinned, int king, int flag, int[] moves, int count) {
+		count = generatePieceMoves(pieces & ~pinned, pieceType, color, occupied, targets, flag, moves, count);
+		for(long pinnedPieces = pieces & pinned; pinnedPieces != 0; pinnedPieces &= pinnedPieces - 1) {
+			int from = Long.numberOfTrailingZeros(pinnedPieces);
+			count = generatePieceMoves(1L << from, pieceType, color, occupied, targets & Attacks.LINE[king][from], flag, moves, count);
+		}
+		return count;
+	}
+
+	private static int generateLegalEnPassant(Board board, int us, long pawns, int king, long evasions, int[] moves, int count) {
+		int enPassantSquare = board.getEnPassantSquare();
+		if(enPassantSquare == Constants.NO_SQUARE) return count;
+
+		long attackers = Attacks.PAWN_ATTACKS[us ^ 1][enPassantSquare] & pawns;
+		while(attackers != 0) {
+			int from = Long.numberOfTrailingZeros(attackers);
+			attackers &= attackers - 1;
+			if(isLegalEnPassant(board, us, from, king, evasions)) {
+				moves[count++] = Move.encode(from, enPassantSquare, Move.EN_PASSANT);
+			}
+		}
+		return count;
+	}
+
+	// an en passant capture gets us out of check by taking the pawn that gave it or by landing in
+	// the way of a slider. Either way, the king mustn't be on a slider's line once both pawns are gone.
+	private static boolean isLegalEnPassant(Board board, int us, int from, int king, long evasions) {
+		int to = board.getEnPassantSquare();
+		int captured = us == Constants.WHITE ? to - 8 : to + 8;
+		if((evasions & ((1L << to) | (1L << captured))) == 0) return false;
+
+		int offset = (us ^ 1) * Constants.BLACK_OFFSET;
+		long queens = board.getBitBoard(offset + Constants.QUEEN);
+		long occupied = (board.getBitBoard(Constants.ALL_PIECES) ^ (1L << from) ^ (1L << captured)) | (1L << to);
+		return (Attacks.bishopAttacks(king, occupied) & (board.getBitBoard(offset + Constants.BISHOP) | queens)) == 0
+				&& (Attacks.rookAttacks(king, occupied) & (board.getBitBoard(offset + Constants.ROOK) | queens)) == 0;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PIECES											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// knights, bishops, rooks, queens and kings all work the same way: look up the attack set for each
+	// piece and keep the squares in targets
+	private static int generatePieceMoves(long pieces, int pieceType, int color, long occupied, long targets, int flag, int[] moves, int count) {
+		while(pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+
+			long attacks = Attacks.attacks(pieceType, color, from, occupied) & targets;
+			while(attacks != 0) {
+				moves[count++] = Move.encode(from, Long.numberOfTrailingZeros(attacks), flag);
+				attacks &= attacks - 1;
+			}
+		}
+		return count;
+	}
+
+	private static int generateCastling(Board board, int us, long occupied, int[] moves, int count) {
+		int king = us == Constants.WHITE ? 3 : 59;
+		if(canCastle(board, us, Move.KING_CASTLE, occupied)) {
+			moves[count++] = Move.encode(king, king - 2, Move.KING_CASTLE);
+		}
+		if(canCastle(board, us, Move.QUEEN_CASTLE, occupied)) {
+			moves[count++] = Move.encode(king, king + 2, Move.QUEEN_CASTLE);
+		}
+		return count;
+	}
+
+	// castling needs the right, the king and rook on their starting squares (setFen drops rights that
+	// don't have them, but setPieces takes whatever it's given), empty squares between the king and
+	// rook, and the king can't start on, pass through or land on an attacked square. The squares are
+	// e1/e8 plus the two (kingside) or two of the three (queenside) squares the king walks over.
+	private static boolean canCastle(Board board, int us, int flag, long occupied) {
+		int them = us ^ 1;
+		int king = us == Constants.WHITE ? 3 : 59;
+		boolean kingside = flag == Move.KING_CASTLE;
+		int right = kingside ? Constants.WHITE_KINGSIDE : Constants.WHITE_QUEENSIDE;
+		long between = kingside ? 0x6L : 0x70L;
+		long rook = kingside ? 0x1L : 0x80L;
+		int step = kingside ? -1 : 1;
+
+		if(us == Constants.BLACK) {
+			right <<= 2;
+			between <<= 56;
+			rook <<= 56;
+		}
+
+		int offset = us * Constants.BLACK_OFFSET;
+		return (board.getCastlingRights() & right) != 0 && (occupied & between) == 0
+				&& (board.getBitBoard(offset + Constants.KING) & 1L << king) != 0
+				&& (board.getBitBoard(offset + Constants.ROOK) & rook) != 0
+				&& !board.isSquareAttacked(king, them) && !board.isSquareAttacked(king + step, them)
+				&& !board.isSquareAttacked(king + 2 * step, them);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PAWNS											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/*
+	 * Pawns are done a whole bitboard at a time instead of one pawn at a time. Shifting the pawn
+	 * bitboard by 8 pushes every pawn forward one rank, and shifting by 7 or 9 moves them diagonally.
+	 * A diagonal shift would wrap pawns on the edge files around to the other side of the board, so we
+	 * mask those off. Once we have the bitboard of ending squares, the starting square of each move is
+	 * just the ending square minus the shift.
+	 */
+
+	// pushes of the given pawns. empty is the empty squares, and targets the squares the pushes are
+	// allowed to end on (which is just the empty squares again for pseudo-legal moves)
+	private static int generatePawnPushes(int us, long pawns, long empty, long targets, int[] moves, int count) {
+
+		long singles, doubles;
+		int forward;
+
+		if(us == Constants.WHITE) {
+			singles = (pawns << 8) & targets & ~Attacks.RANK_8;
+			doubles = ((((pawns & Attacks.RANK_2) << 8) & empty) << 8) & targets;
+			forward = 8;
+		} else {
+			singles = (pawns >>> 8) & targets & ~Attacks.RANK_1;
+			doubles = ((((pawns & Attacks.RANK_7) >>> 8) & empty) >>> 8) & targets;
+			forward = -8;
+		}
+
+		while(singles != 0) {
+			int to = Long.numberOfTrailingZeros(singles);
+			moves[count++] = Move.encode(to - forward, to, Move.QUIET);
+			singles &= singles - 1;
+		}
+		while(doubles != 0) {
+			int to = Long.numberOfTrailingZeros(doubles);
+			moves[count++] = Move.encode(to - 2 * forward, to, Move.DOUBLE_PAWN_PUSH);
+			doubles &= doubles - 1;
+		}
+		return count;
+	}
+
+	// captures and promotions of the given pawns: captures onto enemies, and promotion pushes onto
+	// empty. En passant is done on its own.
+	private static int generatePawnCaptures(int us, long pawns, long enemies, long empty, int[] moves, int count) {
+
+		long promotionRank = us == Constants.WHITE ? Attacks.RANK_8 : Attacks.RANK_1;
+		long pushes, eastCaptures, westCaptures;
+		int forward, east, west;
+
+		// east is toward the h file (a lower square index), west is toward the a file
+		if(us == Constants.WHITE) {
+			pushes = (pawns << 8) & empty & promotionRank;
+			eastCaptures = (pawns << 7) & ~Attacks.FILE_A & enemies;
+			westCaptures = (pawns << 9) & ~Attacks.FILE_H & enemies;
+			forward = 8;
+			east = 7;
+			west = 9;
+		} else {
+			pushes = (pawns >>> 8) & empty & promotionRank;
+			eastCaptures = (pawns >>> 9) & ~Attacks.FILE_A & enemies;
+			westCaptures = (pawns >>> 7) & ~Attacks.FILE_H & enemies;
+			forward = -8;
+			east = -9;
+			west = -7;
+		}
+
+		// pushes onto the last rank are promotions, so they belong with the captures
+		while(pushes != 0) {
+			int to = Long.numberOfTrailingZeros(pushes);
+			count = addPromotions(to - forward, to, Move.KNIGHT_PROMOTION, moves, count);
+			pushes &= pushes - 1;
+		}
+
+		count = addPawnCaptures(eastCaptures, east, promotionRank, moves, count);
+		return addPawnCaptures(westCaptures, west, promotionRank, moves, count);
+	}
+
+	// en passant: any of our pawns that attack the en passant square can take
+	private static int generateEnPassant(Board board, int us, long pawns, int[] moves, int count) {
+		int enPassantSquare = board.getEnPassantSquare();
+		if(enPassantSquare != Constants.NO_SQUARE) {
+			long attackers = Attacks.PAWN_ATTACKS[us ^ 1][enPassantSquare] & pawns;
+			while(attackers != 0) {
+				moves[count++] = Move.encode(Long.numberOfTrailingZeros(attackers), enPassantSquare, Move.EN_PASSANT);
+				attackers &= attackers - 1;
+			}
+		}
+		return count;
+	}
+
+	private static int addPawnCaptures(long targets, int shift, long promotionRank, int[] moves, int count) {
+		while(targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			if(((1L << to) & promotionRank) != 0) {
+				count = addPromotions(to - shift, to, Move.KNIGHT_PROMOTION_CAPTURE, moves, count);
+			} else {
+				moves[count++] = Move.encode(to - shift, to, Move.CAPTURE);
+			}
+			targets &= targets - 1;
+		}
+		return count;
+	}
+
+	// adds all four promotions, starting from the knight promotion flag (plain or capture)
+	private static int addPromotions(int from, int to, int knightFlag, int[] moves, int count) {
+		moves[count++] = Move.encode(from, to, knightFlag + 3);
+		moves[count++] = Move.encode(from, to, knightFlag);
+		moves[count++] = Move.encode(from, to, knightFlag + 2);
+		moves[count++] = Move.encode(from, to, knightFlag + 1);
+		return count;
+	}
+
+}
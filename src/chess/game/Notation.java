@@ -0,0 +1,228 @@
+package chess.game;
+
+import chess.util.Constants;
+import chess.util.Move;
+
+public class Notation {
+
+	/*
+	 * Everything inside the engine works with packed int moves (see chess.util.Move), and text only
+	 * shows up at the edges: moves typed by the user, sent by a GUI, or read from a file. This class
+	 * turns that text back into packed moves. Going the other way is just Move.toString for long
+	 * algebraic notation, or toSan for the standard algebraic notation (SAN) used in PGN files.
+	 *
+	 * Parsing works by generating the moves of the position and picking the one that matches, so the
+	 * flags (capture, castling, en passant, double push) always come out exactly the way the move
+	 * generator would have set them, and anything that isn't legal is rejected.
+	 */
+
+	// SAN piece letters by piece type, with a space for the pawn which doesn't have one
+	private static final String PIECE_LETTERS = " RNBQK";
+
+	/**
+	 * Parses a move in long algebraic (UCI) notation, such as "e2e4", "e1g1" or "e7e8q", and returns
+	 * the packed move, or Move.NONE if the text isn't a legal move in this position.
+	 */
+	public static int parseMove(Board board, CharSequence text) {
+
+		if(text.length() < 4 || text.length() > 5) return Move.NONE;
+
+		int from = parseSquare(text, 0);
+		int to = parseSquare(text, 2);
+		if(from == Constants.NO_SQUARE || to == Constants.NO_SQUARE) return Move.NONE;
+
+		int promotion = Constants.EMPTY;
+		if(text.length() == 5) {
+			promotion = parsePromotion(text.charAt(4));
+			if(promotion == Constants.EMPTY) return Move.NONE;
+		}
+
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(board, moves, 0);
+		for(int i = 0; i < count; i++) {
+			int move = moves[i];
+			if(Move.getFrom(move) != from || Move.getTo(move) != to) continue;
+			if(Move.isPromotion(move) ? Move.getPromotionType(move) != promotion : promotion != Constants.EMPTY) continue;
+			return board.isLegal(move) ? move : Move.NONE;
+		}
+		return Move.NONE;
+	}
+
+	/**
+	 * Parses a move in standard algebraic notation, such as "e4", "Nbd7", "exd8=Q+" or "O-O", and
+	 * returns the packed move, or Move.NONE if it isn't exactly one legal move in this position.
+	 * Check and annotation marks at the end (+ # ! ?) are ignored, and castling may be written with
+	 * zeros as well as with O's.
+	 */
+	public static int parseSan(Board board, CharSequence san) {
+		return parseSan(board, san, new int[MoveGenerator.MAX_MOVES]);
+	}
+
+	/**
+	 * The same as parseSan(board, san), but generates the moves into a buffer the caller owns (at
+	 * least MoveGenerator.MAX_MOVES long), so that replaying lots of games doesn't allocate.
+	 */
+	public static int parseSan(Board board, CharSequence san, int[] moves) {
+
+		int length = san.length();
+		while(length > 0 && "+#!?".indexOf(san.charAt(length - 1)) >= 0) length--;
+		if(length < 2) return Move.NONE;
+
+		int count = MoveGenerator.generateMoves(board, moves, 0);
+
+		if(isCastling(san, length)) {
+			int flag = length == 3 ? Move.KING_CASTLE : Move.QUEEN_CASTLE;
+			for(int i = 0; i < count; i++) {
+				if(Move.getFlag(moves[i]) == flag) return board.isLegal(moves[i]) ? moves[i] : Move.NONE;
+			}
+			return Move.NONE;
+		}
+
+		// the promotion piece comes last, usually after an '=' but sometimes without one
+		int promotion = Constants.EMPTY;
+		if(length >= 4 && san.charAt(length - 2) == '=') {
+			promotion = parsePromotion(san.charAt(length - 1));
+			if(promotion == Constants.EMPTY) return Move.NONE;
+			length -= 2;
+		} else if(length >= 3 && "NBRQ".indexOf(san.charAt(length - 1)) >= 0) {
+			promotion = parsePromotion(san.charAt(length - 1));
+			length--;
+		}
+
+		int to = parseSquare(san, length - 2);
+		if(to == Constants.NO_SQUARE) return Move.NONE;
+
+		// everything before the ending square: an optional piece letter (pawns have none), then an
+		// optional file and/or rank to tell two pieces apart, then an optional 'x' for captures
+		int index = 0;
+		int type = Constants.PAWN;
+		int pieceIndex = PIECE_LETTERS.indexOf(san.charAt(0));
+		if(pieceIndex >= 0) {
+			type = pieceIndex;
+			index++;
+		}
+		int fromFile = -1;
+		int fromRank = -1;
+		for(; index < length - 2; index++) {
+			char c = san.charAt(index);
+			if(c >= 'a' && c <= 'h') {
+				fromFile = c - 'a';
+			} else if(c >= '1' && c <= '8') {
+				fromRank = c - '1';
+			} else if(c != 'x' && c != ':' && c != '-') {
+				return Move.NONE;
+			}
+		}
+
+		int found = Move.NONE;
+		for(int i = 0; i < count; i++) {
+			int move = moves[i];
+			int from = Move.getFrom(move);
+			if(Move.getTo(move) != to || board.pieceAt(from) % Constants.BLACK_OFFSET != type) continue;
+			if(fromFile >= 0 && 7 - (from & 7) != fromFile) continue;
+			if(fromRank >= 0 && from >>> 3 != fromRank) continue;
+			if(Move.isPromotion(move) ? Move.getPromotionType(move) != promotion : promotion != Constants.EMPTY) continue;
+			if(!board.isLegal(move)) continue;
+
+			// two legal moves fit the description, so it's ambiguous
+			if(found != Move.NONE) return Move.NONE;
+			found = move;
+		}
+		return found;
+	}
+
+	/**
+	 * Formats a legal move in standard algebraic notation, including the check or mate mark.
+	 */
+	public static String toSan(Board board, int move) {
+
+		StringBuilder builder = new StringBuilder(8);
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		int flag = Move.getFlag(move);
+		int type = board.pieceAt(from) % Constants.BLACK_OFFSET;
+
+		if(flag == Move.KING_CASTLE) {
+			builder.append("O-O");
+		} else if(flag == Move.QUEEN_CASTLE) {
+			builder.append("O-O-O");
+		} else if(type == Constants.PAWN) {
+			if(Move.isCapture(move)) builder.append((char)('h' - (from & 7))).append('x');
+			appendSquare(builder, to);
+			if(Move.isPromotion(move)) builder.append('=').append(PIECE_LETTERS.charAt(Move.getPromotionType(move)));
+		} else {
+			builder.append(PIECE_LETTERS.charAt(type));
+
+			// if another piece of the same type could also go there, add the file, the rank, or both
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			int count = MoveGenerator.generateMoves(board, moves, 0);
+			boolean ambiguous = false;
+			boolean sameFile = false;
+			boolean sameRank = false;
+			for(int i = 0; i < count; i++) {
+				int other = Move.getFrom(moves[i]);
+				if(other == from || Move.getTo(moves[i]) != to || board.pieceAt(other) != board.pieceAt(from)) continue;
+				if(!board.isLegal(moves[i])) continue;
+				ambiguous = true;
+				if((other & 7) == (from & 7)) sameFile = true;
+				if(other >>> 3 == from >>> 3) sameRank = true;
+			}
+			if(ambiguous && (!sameFile || sameRank)) builder.append((char)('h' - (from & 7)));
+			if(ambiguous && sameFile) builder.append((char)('1' + (from >>> 3)));
+
+			if(Move.isCapture(move)) builder.append('x');
+			appendSquare(builder, to);
+		}
+
+		// play the move to see whether it gives check or mate
+		board.makeMove(move);
+		if(board.isInCheck()) {
+			builder.append(board.hasLegalMoves() ? '+' : '#');
+		}
+		board.unmakeMove(move);
+
+		return builder.toString();
+	}
+
+	/**
+	 * Reads a square like "e4" starting at offset, returning its index or Constants.NO_SQUARE.
+	 */
+	public static int parseSquare(CharSequence text, int offset) {
+		if(offset + 2 > text.length()) return Constants.NO_SQUARE;
+		char file = text.charAt(offset);
+		char rank = text.charAt(offset + 1);
+		if(file < 'a' || file > 'h' || rank < '1' || rank > '8') return Constants.NO_SQUARE;
+		return (rank - '1') * 8 + ('h' - file);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// "O-O" or "O-O-O", allowing zeros for the O's
+	private static boolean isCastling(CharSequence san, int length) {
+		if(length != 3 && length != 5) return false;
+		for(int i = 0; i < length; i++) {
+			char c = san.charAt(i);
+			if(i % 2 == 0 ? c != 'O' && c != '0' : c != '-') return false;
+		}
+		return true;
+	}
+
+	private static void appendSquare(StringBuilder builder, int square) {
+		builder.append((char)('h' - (square & 7))).append((char)('1' + (square >>> 3)));
+	}
+
+	private static int parsePromotion(char c) {
+		switch(Character.toLowerCase(c)) {
+		case 'n': return Constants.KNIGHT;
+		case 'b': return Constants.BISHOP;
+		case 'r': return Constants.ROOK;
+		case 'q': return Constants.QUEEN;
+		default: return Constants.EMPTY;
+		}
+	}
+
+}
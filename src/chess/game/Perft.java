@@ -0,0 +1,150 @@
+package chess.game;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import chess.util.Move;
+
+public class Perft {
+
+	/*
+	 * Perft ("performance test") walks the whole legal move tree down to a fixed depth and counts the
+	 * leaf nodes. The counts for a handful of well known positions have been verified by many other
+	 * engines, so if our numbers match, the move generator and make/unmake are almost certainly right.
+	 * It also makes a nice throughput number, since it's nothing but move generation and make/unmake.
+	 * The moves come straight from the legal move generator, so the last ply doesn't even need to be
+	 * played: the number of legal moves is the number of leaves.
+	 *
+	 * The reference suite itself is PerftTest, which the build runs. This class's main method is for
+	 * looking into a single position: it prints the count below every root move (see divide) and how
+	 * fast the whole count went.
+	 */
+
+	/**
+	 * Arguments: depth [fen], the starting position if there's no FEN.
+	 */
+	public static void main(String[] args) {
+
+		if(args.length < 1) {
+			System.out.println("usage: Perft <depth> [fen]");
+			return;
+		}
+		int depth = Integer.parseInt(args[0]);
+		Board board = new Board();
+		if(args.length > 1) board.setFen(String.join(" ", Arrays.copyOfRange(args, 1, args.length)));
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		long start = System.nanoTime();
+		long nodes = divide(board, depth, pool);
+		long millis = (System.nanoTime() - start) / 1_000_000L;
+		System.out.printf("%,d nodes in %,d ms, %,d nps on %d threads%n", nodes, millis, nodes * 1000 / Math.max(millis, 1), pool.getParallelism());
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree below a position on the calling thread.
+	 */
+	public static long perft(Board board, int depth) {
+		if(depth <= 0) return 1;
+		return perft(board, depth, new int[MoveGenerator.MAX_MOVES * depth], 0);
+	}
+
+	/**
+	 * Counts the leaf nodes below a position, with each root move searched as its own fork-join task
+	 * on its own copy of the board.
+	 */
+	public static long parallelPerft(Board board, int depth, ForkJoinPool pool) {
+		if(depth <= 1) return perft(board, depth);
+
+		int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+		long[] counts = new long[MoveGenerator.MAX_MOVES];
+		int count = splitRoot(board, depth, rootMoves, counts, pool);
+
+		long nodes = 0;
+		for(int i = 0; i < count; i++) {
+			nodes += counts[i];
+		}
+		return nodes;
+	}
+
+	/**
+	 * Prints the node count below each legal root move, which is the quickest way to track down a
+	 * move generation bug when a perft count doesn't match. Returns the total.
+	 */
+	public static long divide(Board board, int depth, ForkJoinPool pool) {
+		int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+		long[] counts = new long[MoveGenerator.MAX_MOVES];
+		int count = splitRoot(board, Math.max(depth, 1), rootMoves, counts, pool);
+
+		long nodes = 0;
+		for(int i = 0; i < count; i++) {
+			System.out.println(Move.toString(rootMoves[i]) + ": " + counts[i]);
+			nodes += counts[i];
+		}
+		System.out.println("Total: " + nodes);
+		return nodes;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// runs every legal root move as a task and fills in the move and its count, returning how many there were
+	private static int splitRoot(Board board, int depth, int[] rootMoves, long[] counts, ForkJoinPool pool) {
+
+		int count = MoveGenerator.generateLegalMoves(board, rootMoves, 0);
+
+		RootTask[] tasks = new RootTask[count];
+		for(int i = 0; i < count; i++) {
+			tasks[i] = new RootTask(board, rootMoves[i], depth - 1);
+		}
+		pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+		for(int i = 0; i < count; i++) {
+			counts[i] = tasks[i].join();
+		}
+		return count;
+	}
+
+	// the recursive count. moves is one big buffer and each ply uses the slice starting at start.
+	private static long perft(Board board, int depth, int[] moves, int start) {
+
+		int end = MoveGenerator.generateLegalMoves(board, moves, start);
+		if(depth == 1) return end - start;
+
+		long nodes = 0;
+		for(int i = start; i < end; i++) {
+			int move = moves[i];
+			board.makeMove(move);
+			nodes += perft(board, depth - 1, moves, end);
+			board.unmakeMove(move);
+		}
+		return nodes;
+	}
+
+	// counts one root move on a private copy of the board, so tasks never share any state
+	private static class RootTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final int move;
+		private final int depth;
+
+		RootTask(Board root, int move, int depth) {
+			this.board = new Board(root);
+			this.move = move;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			board.makeMove(move);
+			return perft(board, depth);
+		}
+	}
+
+}
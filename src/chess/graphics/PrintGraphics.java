@@ -1,8 +1,5 @@
 package chess.graphics;
 
-import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
-
 import chess.util.Constants;
 
 public class PrintGraphics {
@@ -19,7 +16,7 @@ public class PrintGraphics {
 	 * represent the pieces on the board.
 	 * @param bitboards
 	 */
-	public static void printBoard(List<AtomicLong> bitboards) {
+	public static void printBoard(long[] bitboards) {
 		
 		// first we need a way to represent the board, I will choose a char array. This will
 		// allow us to modify individual characters as opposed to a String which is immutable
@@ -30,10 +27,10 @@ public class PrintGraphics {
 		char[] pieceChars = {'P', 'R', 'N', 'B', 'Q', 'K', 'p', 'r', 'n', 'b', 'q', 'k'};
 
 		for(int i = Constants.WHITE_PAWNS; i <= Constants.BLACK_KING; i++) {
-			AtomicLong bitboard = bitboards.get(i);
+			long bitboard = bitboards[i];
 			for(int j = 0; j < 64; j++) {
 				long compare = 1L << (63 - j);
-				if((bitboard.get() & compare) != 0) {
+				if((bitboard & compare) != 0) {
 					board[j] = pieceChars[i];
 				}
 			}
@@ -50,11 +47,11 @@ public class PrintGraphics {
 	}
 	
 	
-	public static void printBitBoard(AtomicLong l) {
-		for(int i = 0; i < Long.numberOfLeadingZeros(l.get()); i++) {
+	public static void printBitBoard(long l) {
+		for(int i = 0; i < Long.numberOfLeadingZeros(l); i++) {
 			System.out.print('0');
 		}
-		System.out.println(Long.toBinaryString(l.get()));
+		System.out.println(Long.toBinaryString(l));
 		System.out.println();
 	}
 
@@ -0,0 +1,47 @@
+package chess.io;
+
+public class ByteSequence implements CharSequence {
+
+	/*
+	 * A CharSequence view of part of a byte array, for handing ASCII text that was read from a file
+	 * to the parsers (Board.setFen, Notation.parseSan) without decoding it into a String first. The
+	 * same object gets pointed at a new piece of text with set(), so nothing is allocated per token.
+	 */
+
+	private byte[] bytes;
+	private int offset;
+	private int length;
+
+	public ByteSequence set(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char)(bytes[offset + index] & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	// copies the text, so only use this when it really needs to be kept
+	@Override
+	public String toString() {
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++) {
+			chars[i] = charAt(i);
+		}
+		return new String(chars);
+	}
+
+}
@@ -0,0 +1,13 @@
+package chess.io;
+
+public interface GameListener {
+
+	/**
+	 * Called once for every game a PgnReplay has replayed, from whichever worker thread replayed it,
+	 * so implementations have to be thread safe. The games of one file can arrive in any order.
+	 * @param game the result. The object (and its board) belongs to the worker and is reused for
+	 * its next game, so copy anything that needs to be kept.
+	 */
+	void gameReplayed(ReplayedGame game);
+
+}
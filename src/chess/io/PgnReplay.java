@@ -0,0 +1,488 @@
+package chess.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.game.Notation;
+import chess.util.Move;
+
+public class PgnReplay {
+
+	/*
+	 * Replays every game of a PGN file: the moves are parsed from SAN, checked for legality and
+	 * played on a Board, and the outcome of every game goes to a GameListener.
+	 *
+	 * 	Pipeline
+	 * 	--------
+	 * 	One reader thread streams the file and cuts it into chunks of whole games (about CHUNK_BYTES
+	 * 	each), and a pool of worker threads replays them. The chunks are recycled: there is a fixed
+	 * 	number of them, the reader fills free chunks and hands them to the workers, and the workers
+	 * 	give them back when they're done. That means memory use is fixed no matter how big the file
+	 * 	is, and when the workers fall behind the reader simply waits for a free chunk (backpressure)
+	 * 	instead of reading the whole file into memory.
+	 *
+	 * 	Every worker owns its Board, its move buffer and its ReplayedGame, and the games are parsed
+	 * 	straight out of the chunk's bytes through a ByteSequence, so replaying a game doesn't
+	 * 	allocate anything unless it turns out to be invalid.
+	 */
+
+	private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	// the reader hands a chunk over once it holds at least this many bytes
+	private static final int CHUNK_BYTES = 1 << 20;
+	private static final int READ_BUFFER_BYTES = 1 << 16;
+
+	// marks the end of the input for the workers
+	private static final Chunk END = new Chunk();
+
+	private final int workers;
+	private final int chunks;
+
+	private final LongAdder games = new LongAdder();
+	private final LongAdder plies = new LongAdder();
+	private final LongAdder invalidGames = new LongAdder();
+	private volatile long startNanos;
+
+	/**
+	 * @param workers the number of threads replaying games
+	 * @param chunks how many chunks can be in flight at once, which bounds the memory used to about
+	 * chunks MB. It is raised to at least workers + 1 so that every worker can be busy.
+	 */
+	public PgnReplay(int workers, int chunks) {
+		this.workers = Math.max(workers, 1);
+		this.chunks = Math.max(chunks, this.workers + 1);
+	}
+
+	/**
+	 * Replays every game in a PGN file and returns the number of games. Blocks until they have all
+	 * been handed to the listener.
+	 * @throws IOException if the file can't be read
+	 * @throws RuntimeException whatever the listener threw first, if it threw. The replay stops
+	 * as soon as it can once that happens.
+	 */
+	public long replay(Path path, GameListener listener) throws IOException {
+
+		games.reset();
+		plies.reset();
+		invalidGames.reset();
+		startNanos = System.nanoTime();
+
+		BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(chunks);
+		BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(chunks + workers);
+		for(int i = 0; i < chunks; i++) {
+			free.add(new Chunk());
+		}
+
+		// the first exception out of the listener. The workers keep handing their chunks back after
+		// that (without replaying them), so the reader never waits on a free chunk forever.
+		AtomicReference<RuntimeException> listenerFailure = new AtomicReference<>();
+
+		Thread[] threads = new Thread[workers];
+		for(int i = 0; i < workers; i++) {
+			threads[i] = new Thread(() -> work(free, full, listener, listenerFailure), "pgn-worker-" + i);
+			threads[i].start();
+		}
+
+		IOException[] failure = new IOException[1];
+		Thread reader = new Thread(() -> {
+			try {
+				read(path, free, full, listenerFailure);
+			} catch(IOException e) {
+				failure[0] = e;
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				for(int i = 0; i < workers; i++) {
+					full.add(END);
+				}
+			}
+		}, "pgn-reader");
+		reader.start();
+
+		try {
+			reader.join();
+			for(Thread thread : threads) {
+				thread.join();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while replaying games", e);
+		}
+
+		if(failure[0] != null) throw failure[0];
+		if(listenerFailure.get() != null) throw listenerFailure.get();
+		return games.sum();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							READER											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// A new game starts at a tag line ("[Event ...") that comes after some movetext, so the reader
+	// only has to look at the first byte of every line to find the boundaries between games. A line
+	// inside a comment isn't a tag line even if it starts with '[', like the "[%clk 0:03:00]" a
+	// wrapped comment often carries on, so the reader also keeps track of { } comments and of ; and
+	// % comments, which run to the end of the line. Tag lines are left alone, since a tag's value can
+	// hold any of those characters.
+	private void read(Path path, BlockingQueue<Chunk> free, BlockingQueue<Chunk> full, AtomicReference<RuntimeException> listenerFailure)
+			throws IOException, InterruptedException {
+
+		try(InputStream in = Files.newInputStream(path)) {
+
+			byte[] buffer = new byte[READ_BUFFER_BYTES];
+			long nextGame = 1;
+			Chunk chunk = free.take().clear(nextGame);
+
+			boolean lineStart = true;
+			boolean inMovetext = false;
+			boolean pending = false;	// anything but whitespace and line comments since the last game ended
+			boolean tagLine = false;
+			boolean inComment = false;	// inside { }
+			boolean inLineComment = false;	// after ; or a % at the start of a line
+
+			int read;
+			while(listenerFailure.get() == null && (read = in.read(buffer)) > 0) {
+				for(int i = 0; i < read; i++) {
+					byte b = buffer[i];
+					if(lineStart) tagLine = b == '[' && !inComment;
+					if(!tagLine) {
+						if(inComment) {
+							if(b == '}') inComment = false;
+						} else if(inLineComment) {
+							if(b == '\n') inLineComment = false;
+						} else if(b == '{') {
+							inComment = true;
+						} else if(b == ';' || (lineStart && b == '%')) {
+							inLineComment = true;
+						}
+					}
+					if(lineStart && tagLine && inMovetext) {
+						chunk.endGame();
+						nextGame++;
+						inMovetext = false;
+						pending = false;
+						if(chunk.length >= CHUNK_BYTES) {
+							full.put(chunk);
+							chunk = free.take().clear(nextGame);
+						}
+					}
+					if(b > ' ' && !inLineComment) {
+						if(!tagLine) inMovetext = true;
+						pending = true;
+					}
+					chunk.append(b);
+					lineStart = b == '\n';
+				}
+			}
+
+			if(pending) chunk.endGame();
+			if(chunk.gameCount > 0) {
+				full.put(chunk);
+			} else {
+				free.put(chunk);
+			}
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							WORKERS											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void work(BlockingQueue<Chunk> free, BlockingQueue<Chunk> full, GameListener listener, AtomicReference<RuntimeException> listenerFailure) {
+
+		ReplayedGame game = new ReplayedGame();
+		ByteSequence text = new ByteSequence();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+		try {
+			while(true) {
+				Chunk chunk = full.take();
+				if(chunk == END) return;
+
+				int start = 0;
+				for(int i = 0; i < chunk.gameCount && listenerFailure.get() == null; i++) {
+					int end = chunk.gameEnds[i];
+					game.reset(chunk.firstGame + i);
+					try {
+						replayGame(chunk.data, start, end, game, text, moves);
+					} catch(RuntimeException e) {
+						// a bug shouldn't take down the whole run, so it counts against the game
+						game.setError("internal error: " + e);
+					}
+					start = end;
+
+					games.increment();
+					plies.add(game.getPlies());
+					if(!game.isValid()) invalidGames.increment();
+					try {
+						listener.gameReplayed(game);
+					} catch(RuntimeException e) {
+						// unlike a bug in replayGame, this is the caller's to see, and it ends the run
+						listenerFailure.compareAndSet(null, e);
+					}
+				}
+
+				free.put(chunk);
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void replayGame(byte[] data, int start, int end, ReplayedGame game, ByteSequence text, int[] moves) {
+
+		Board board = game.getBoard();
+		board.setFen(START_FEN);
+
+		int i = start;
+		while(i < end) {
+			byte c = data[i];
+			if(c <= ' ') {
+				i++;
+			} else if(c == '[') {
+				i = readTag(data, i, end, game, text);
+			} else if(c == '{') {
+				i = skipPast(data, i, end, (byte)'}');
+			} else if(c == ';' || c == '%') {
+				i = skipPast(data, i, end, (byte)'\n');
+			} else if(c == '(') {
+				i = skipVariation(data, i, end);
+			} else {
+				int tokenEnd = i;
+				while(tokenEnd < end && data[tokenEnd] > ' ' && !isDelimiter(data[tokenEnd])) tokenEnd++;
+				if(tokenEnd == i) tokenEnd++;	// a stray ')' or '}'
+				if(game.isValid()) readToken(data, i, tokenEnd, game, text, moves);
+				i = tokenEnd;
+			}
+		}
+	}
+
+	// a move, a move number, a result, or a NAG like $1
+	private static void readToken(byte[] data, int start, int end, ReplayedGame game, ByteSequence text, int[] moves) {
+
+		if(data[start] == '$' || isDelimiter(data[start])) return;
+
+		int result = parseResult(data, start, end);
+		if(result >= 0) {
+			game.setResult(result);
+			return;
+		}
+
+		// move numbers look like "12." or "12...", and sometimes the move follows with no space
+		int digits = start;
+		while(digits < end && data[digits] >= '0' && data[digits] <= '9') digits++;
+		if(digits > start && digits < end && data[digits] == '.') {
+			start = digits;
+			while(start < end && data[start] == '.') start++;
+			if(start == end) return;
+		}
+
+		Board board = game.getBoard();
+		int move = Notation.parseSan(board, text.set(data, start, end - start), moves);
+		if(move == Move.NONE) {
+			game.setError("illegal or ambiguous move " + text + " at ply " + (game.getPlies() + 1) + " in " + board.toFen());
+			return;
+		}
+		board.makeMove(move);
+		game.addPly();
+	}
+
+	// [Name "Value"], of which only FEN and Result matter here
+	private static int readTag(byte[] data, int start, int end, ReplayedGame game, ByteSequence text) {
+
+		int lineEnd = start;
+		while(lineEnd < end && data[lineEnd] != '\n') lineEnd++;
+
+		int nameStart = start + 1;
+		int nameEnd = nameStart;
+		while(nameEnd < lineEnd && data[nameEnd] > ' ') nameEnd++;
+
+		int valueStart = nameEnd;
+		while(valueStart < lineEnd && data[valueStart] != '"') valueStart++;
+		int valueEnd = valueStart + 1;
+		while(valueEnd < lineEnd && data[valueEnd] != '"') valueEnd++;
+		if(valueEnd >= lineEnd) return lineEnd;
+		valueStart++;
+
+		if(matches(data, nameStart, nameEnd, "FEN")) {
+			try {
+				game.getBoard().setFen(text.set(data, valueStart, valueEnd - valueStart));
+			} catch(IllegalArgumentException e) {
+				game.setError("bad FEN tag: " + e.getMessage());
+			}
+		} else if(matches(data, nameStart, nameEnd, "Result")) {
+			int result = parseResult(data, valueStart, valueEnd);
+			if(result >= 0) game.setResult(result);
+		}
+		return lineEnd;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// one of ReplayedGame's RESULT_ constants, or -1 if the text isn't a result
+	private static int parseResult(byte[] data, int start, int end) {
+		if(matches(data, start, end, "1-0")) return ReplayedGame.RESULT_WHITE_WINS;
+		if(matches(data, start, end, "0-1")) return ReplayedGame.RESULT_BLACK_WINS;
+		if(matches(data, start, end, "1/2-1/2")) return ReplayedGame.RESULT_DRAW;
+		if(matches(data, start, end, "*")) return ReplayedGame.RESULT_UNKNOWN;
+		return -1;
+	}
+
+	private static boolean matches(byte[] data, int start, int end, String text) {
+		if(end - start != text.length()) return false;
+		for(int i = 0; i < text.length(); i++) {
+			if(data[start + i] != text.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	private static boolean isDelimiter(byte b) {
+		return b == '{' || b == '}' || b == '(' || b == ')' || b == ';';
+	}
+
+	private static int skipPast(byte[] data, int start, int end, byte stop) {
+		int i = start + 1;
+		while(i < end && data[i] != stop) i++;
+		return i + 1;
+	}
+
+	// variations can be nested, and can contain comments with parentheses in them
+	private static int skipVariation(byte[] data, int start, int end) {
+		int depth = 0;
+		int i = start;
+		while(i < end) {
+			byte c = data[i];
+			if(c == '{') {
+				i = skipPast(data, i, end, (byte)'}');
+				continue;
+			}
+			if(c == '(') depth++;
+			if(c == ')' && --depth == 0) return i + 1;
+			i++;
+		}
+		return end;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// these count the current (or last) replay and can be read from any thread while it runs
+
+	public long getGames() {
+		return games.sum();
+	}
+
+	public long getPlies() {
+		return plies.sum();
+	}
+
+	public long getInvalidGames() {
+		return invalidGames.sum();
+	}
+
+	public double getGamesPerSecond() {
+		return games.sum() / Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							CHUNKS											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// a run of whole games, as raw bytes, plus where each game ends
+	private static class Chunk {
+
+		private byte[] data = new byte[CHUNK_BYTES + READ_BUFFER_BYTES];
+		private int length;
+		private int[] gameEnds = new int[1024];
+		private int gameCount;
+		private long firstGame;
+
+		private Chunk clear(long firstGame) {
+			length = 0;
+			gameCount = 0;
+			this.firstGame = firstGame;
+			return this;
+		}
+
+		private void append(byte b) {
+			// a single enormous game can outgrow the chunk, which is rare enough to just copy
+			if(length == data.length) data = Arrays.copyOf(data, data.length * 2);
+			data[length++] = b;
+		}
+
+		private void endGame() {
+			if(gameCount == gameEnds.length) gameEnds = Arrays.copyOf(gameEnds, gameCount * 2);
+			gameEnds[gameCount++] = length;
+		}
+
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							COMMAND LINE									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Replays a PGN file, printing every invalid game and the throughput once a second.
+	 * Arguments: file [workers] [chunks]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 1) {
+			System.out.println("usage: PgnReplay <file.pgn> [workers] [chunks]");
+			return;
+		}
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int chunks = args.length > 2 ? Integer.parseInt(args[2]) : workers * 4;
+
+		PgnReplay replay = new PgnReplay(workers, chunks);
+
+		Thread progress = new Thread(() -> {
+			try {
+				while(true) {
+					Thread.sleep(1000);
+					System.out.printf("%,d games, %,d invalid, %,.0f games/s%n", replay.getGames(), replay.getInvalidGames(), replay.getGamesPerSecond());
+				}
+			} catch(InterruptedException e) {
+				// finished
+			}
+		}, "pgn-progress");
+		progress.setDaemon(true);
+		progress.start();
+
+		long start = System.nanoTime();
+		long total = replay.replay(Paths.get(args[0]), game -> {
+			if(!game.isValid()) System.out.println("game " + game.getGameNumber() + ": " + game.getError());
+		});
+		double seconds = (System.nanoTime() - start) / 1e9;
+		progress.interrupt();
+
+		System.out.printf("%,d games (%,d invalid), %,d plies in %.2f s on %d workers: %,.0f games/s, %,.0f plies/s%n",
+				total, replay.getInvalidGames(), replay.getPlies(), seconds, workers, total / seconds, replay.getPlies() / seconds);
+	}
+
+}
@@ -0,0 +1,16 @@
+package chess.io;
+
+import chess.game.Board;
+
+public interface PositionConsumer {
+
+	/**
+	 * Called once for every position read from a PositionFile.
+	 * @param board the position, set up on a board that belongs to the calling reader. It gets
+	 * overwritten by the next position, so copy it (new Board(board)) if it needs to be kept.
+	 * @param line the whole line the position came from, including any EPD operations after the
+	 * FEN fields. It is a view into the mapped file and is only valid until this method returns.
+	 */
+	void accept(Board board, CharSequence line);
+
+}
@@ -0,0 +1,152 @@
+package chess.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.game.Board;
+
+public class PositionFile implements Closeable {
+
+	/*
+	 * A file of positions, one FEN or EPD record per line, read through memory mapping. Reading
+	 * tens of millions of positions with a BufferedReader spends most of its time decoding bytes
+	 * into chars and building a String for every line just to throw it away again. Mapping the file
+	 * lets the operating system page it in directly, and PositionReader parses each position right
+	 * out of the mapped bytes into a Board that gets reused for the whole file.
+	 *
+	 * The file can be split into byte ranges that are read independently, so a batch job can give
+	 * each thread its own range, its own reader and its own Board, and they never have to touch each
+	 * other. forEach does exactly that.
+	 */
+
+	private final FileChannel channel;
+	private final long size;
+
+	public PositionFile(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		size = channel.size();
+	}
+
+	/**
+	 * Returns a reader over the whole file.
+	 */
+	public PositionReader reader() {
+		return reader(0, size);
+	}
+
+	/**
+	 * Returns a reader over the lines that start inside the byte range [start, end). The ranges
+	 * don't have to fall on line boundaries.
+	 */
+	public PositionReader reader(long start, long end) {
+		if(start < 0 || end < start) throw new IllegalArgumentException("Bad byte range: " + start + " to " + end);
+		return new PositionReader(channel, size, start, end);
+	}
+
+	/**
+	 * Splits the file into parts of about the same size and returns a reader for each part.
+	 * Between them they read every line exactly once.
+	 */
+	public PositionReader[] split(int parts) {
+		parts = Math.max(parts, 1);
+		PositionReader[] readers = new PositionReader[parts];
+		for(int i = 0; i < parts; i++) {
+			readers[i] = reader(size * i / parts, size * (i + 1) / parts);
+		}
+		return readers;
+	}
+
+	/**
+	 * Reads every position in the file on several threads and hands each one to the consumer.
+	 * Every thread has its own Board, but the consumer is called from all of them at once, so it
+	 * has to be thread safe.
+	 * @return the number of positions read
+	 */
+	public long forEach(int threads, PositionConsumer consumer) {
+
+		PositionReader[] readers = split(threads);
+		Thread[] workers = new Thread[readers.length];
+		AtomicLong positions = new AtomicLong();
+		RuntimeException[] failure = new RuntimeException[1];
+
+		for(int i = 0; i < readers.length; i++) {
+			PositionReader reader = readers[i];
+			workers[i] = new Thread(() -> {
+				Board board = new Board();
+				long count = 0;
+				try {
+					while(reader.next(board)) {
+						consumer.accept(board, reader);
+						count++;
+					}
+				} catch(RuntimeException e) {
+					synchronized(failure) {
+						if(failure[0] == null) failure[0] = e;
+					}
+				}
+				positions.addAndGet(count);
+			}, "position-reader-" + i);
+			workers[i].start();
+		}
+
+		for(Thread worker : workers) {
+			try {
+				worker.join();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while reading positions", e);
+			}
+		}
+
+		if(failure[0] != null) throw failure[0];
+		return positions.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							THROUGHPUT BENCHMARK							 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Reads every position of a FEN/EPD file and prints how fast that went.
+	 * Arguments: file [threads]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 1) {
+			System.out.println("usage: PositionFile <file> [threads]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		try(PositionFile file = new PositionFile(Paths.get(args[0]))) {
+
+			// add the keys up so the parsing can't be optimized away
+			LongAdder checksum = new LongAdder();
+			long start = System.nanoTime();
+			long positions = file.forEach(threads, (board, line) -> checksum.add(board.getZobristKey()));
+			long nanos = System.nanoTime() - start;
+
+			double seconds = nanos / 1e9;
+			System.out.printf("%,d positions from %,d bytes in %.2f s on %d threads: %,.0f positions/s, %.1f MB/s (checksum %016x)%n",
+					positions, file.getSize(), seconds, threads, positions / seconds, file.getSize() / seconds / 1e6, checksum.sum());
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package chess.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import chess.game.Board;
+
+public class PositionReader implements CharSequence {
+
+	/*
+	 * Streams the lines of one byte range of a PositionFile. The file is mapped a window at a time,
+	 * and a line is never copied anywhere: the reader itself is a CharSequence that looks straight
+	 * at the current line's bytes in the mapping, and that is what gets handed to Board.setFen. So
+	 * reading a position costs a scan for the newline plus the FEN parse, and nothing is allocated
+	 * apart from a new window every WINDOW_SIZE bytes.
+	 *
+	 * A reader owns the lines that START inside its range [start, end), so when a file is split at
+	 * arbitrary byte offsets every line still goes to exactly one reader: a reader whose range begins
+	 * in the middle of a line skips ahead to the next one, and the reader before it reads past its
+	 * end to finish that line.
+	 *
+	 * FEN and EPD are plain ASCII, so every byte is one char. Blank lines and lines starting with '#'
+	 * are skipped, and lines that don't parse are counted in getSkipped() instead of stopping a batch
+	 * job that might be hours in.
+	 *
+	 * A reader is meant to be used by one thread.
+	 */
+
+	// how much of the file is mapped at once. A line has to fit in one window.
+	private static final long WINDOW_SIZE = 1L << 28;
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final long end;
+
+	// the current mapping, covering windowStart up to windowStart + window.limit()
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	// where the next line starts in the file
+	private long position;
+
+	// the current line, as an offset and length inside the window
+	private int lineOffset;
+	private int lineLength;
+	private long lineStart;
+
+	private long lines;
+	private long skipped;
+
+	PositionReader(FileChannel channel, long fileSize, long start, long end) {
+		this.channel = channel;
+		this.fileSize = fileSize;
+		this.end = Math.min(end, fileSize);
+		position = start;
+
+		// unless the range starts a line, that line belongs to the reader before us
+		if(start > 0 && start < this.end) {
+			map(start - 1);
+			if(window.get(0) != '\n') {
+				position = start - 1;
+				if(!skipLine()) position = this.end;
+			}
+		}
+	}
+
+	/**
+	 * Sets the board up from the next position in the range, skipping lines that aren't valid FEN.
+	 * @return false once the range has no more positions
+	 */
+	public boolean next(Board board) {
+		while(nextLine()) {
+			try {
+				board.setFen(this);
+				return true;
+			} catch(IllegalArgumentException e) {
+				skipped++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves on to the next non-blank line in the range, which can then be read through this object's
+	 * CharSequence methods.
+	 * @return false once the range has no more lines
+	 */
+	public boolean nextLine() {
+		while(position < end) {
+			if(!findLine()) return false;
+			if(lineLength > 0 && charAt(0) != '#') {
+				lines++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							CHARSEQUENCE									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	@Override
+	public int length() {
+		return lineLength;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char)(window.get(lineOffset + index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	// copies the current line, so only use this when the line really needs to be kept
+	@Override
+	public String toString() {
+		char[] chars = new char[lineLength];
+		for(int i = 0; i < lineLength; i++) {
+			chars[i] = charAt(i);
+		}
+		return new String(chars);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// finds the line starting at position and trims it. Returns false at the end of the file.
+	private boolean findLine() {
+
+		if(position >= fileSize) return false;
+		if(window == null || position < windowStart || position >= windowStart + window.limit()) map(position);
+
+		int offset = (int)(position - windowStart);
+		int limit = window.limit();
+		int newline = offset;
+		while(newline < limit && window.get(newline) != '\n') newline++;
+
+		if(newline == limit && windowStart + limit < fileSize) {
+			// the line runs past the end of the window, so map again starting at the line
+			if(offset == 0) throw new IllegalStateException("Line at byte " + position + " is longer than " + WINDOW_SIZE + " bytes");
+			map(position);
+			return findLine();
+		}
+
+		lineStart = position;
+		position = windowStart + newline + 1;
+
+		// trim spaces, tabs and the '\r' of Windows line endings off both ends
+		int last = newline;
+		while(offset < last && window.get(offset) <= ' ') offset++;
+		while(last > offset && window.get(last - 1) <= ' ') last--;
+		lineOffset = offset;
+		lineLength = last - offset;
+		return true;
+	}
+
+	// moves position just past the next newline. Returns false if the file ends first.
+	private boolean skipLine() {
+		while(position < fileSize) {
+			if(window == null || position < windowStart || position >= windowStart + window.limit()) map(position);
+			int offset = (int)(position - windowStart);
+			int limit = window.limit();
+			while(offset < limit && window.get(offset) != '\n') offset++;
+			position = windowStart + offset;
+			if(offset < limit) {
+				position++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void map(long start) {
+		try {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+			windowStart = start;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the byte offset in the file where the current line starts, which is handy for error messages
+	public long getLineStart() {
+		return lineStart;
+	}
+
+	// the number of non-blank lines read so far, including ones that turned out not to be valid FEN
+	public long getLines() {
+		return lines;
+	}
+
+	public long getSkipped() {
+		return skipped;
+	}
+
+}
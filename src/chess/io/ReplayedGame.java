@@ -0,0 +1,79 @@
+package chess.io;
+
+import chess.game.Board;
+
+public class ReplayedGame {
+
+	/*
+	 * The outcome of replaying one game from a PGN file. Each PgnReplay worker has one of these and
+	 * fills it in again for every game, so the only thing allocated per game is the error message,
+	 * and only for games that fail.
+	 */
+
+	public static final int RESULT_UNKNOWN = 0;
+	public static final int RESULT_WHITE_WINS = 1;
+	public static final int RESULT_BLACK_WINS = 2;
+	public static final int RESULT_DRAW = 3;
+
+	private final Board board = new Board();
+
+	private long gameNumber;
+	private int plies;
+	private int result;
+	private String error;
+
+	void reset(long gameNumber) {
+		this.gameNumber = gameNumber;
+		plies = 0;
+		result = RESULT_UNKNOWN;
+		error = null;
+	}
+
+	void addPly() {
+		plies++;
+	}
+
+	void setResult(int result) {
+		this.result = result;
+	}
+
+	void setError(String error) {
+		this.error = error;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the position after the last move that could be played
+	public Board getBoard() {
+		return board;
+	}
+
+	// the game's position in the file, counting from 1
+	public long getGameNumber() {
+		return gameNumber;
+	}
+
+	// how many moves were played, which is all of them unless there was an error
+	public int getPlies() {
+		return plies;
+	}
+
+	// the result given in the game's Result tag or at the end of its moves, one of the RESULT_ constants
+	public int getResult() {
+		return result;
+	}
+
+	public boolean isValid() {
+		return error == null;
+	}
+
+	// what went wrong, or null if the whole game replayed without problems
+	public String getError() {
+		return error;
+	}
+
+}
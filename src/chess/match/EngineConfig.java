@@ -0,0 +1,138 @@
+package chess.match;
+
+import java.io.IOException;
+
+import chess.search.SearchLimits;
+import chess.tablebase.Tablebases;
+
+public class EngineConfig {
+
+	/*
+	 * How one side of a match is set up: which engine it is and how long it gets to think. It's
+	 * written on the command line as comma separated key=value pairs, for example
+	 *
+	 * 		name=base,nodes=20000,hash=16
+	 * 		name=sf,cmd=/usr/bin/stockfish,tc=10+0.1
+	 *
+	 * 		name		the name in the results
+	 * 		cmd			an external UCI engine to run; without it the engine is the search in this process
+	 * 		hash		the hash table size in MB of the search in this process (default 16)
+	 * 		nodes		a node limit per move
+	 * 		depth		a depth limit per move
+	 * 		movetime	a fixed time per move in milliseconds
+	 * 		tc			a clock per game: seconds for the game + seconds added per move
+	 *
+	 * An engine with no limit at all gets nodes=10000, so that a forgotten limit doesn't run forever.
+	 */
+
+	private static final long DEFAULT_NODES = 10000;
+
+	private String name;
+	private String command;
+	private int hashMb = 16;
+	private long nodes;
+	private int depth;
+	private long moveTime;
+	private long time;
+	private long increment;
+
+	public EngineConfig(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Reads a configuration from its command line form.
+	 * @throws IllegalArgumentException if a key or value isn't understood
+	 */
+	public static EngineConfig parse(String text, String defaultName) {
+		EngineConfig config = new EngineConfig(defaultName);
+		for(String pair : text.split(",")) {
+			int equals = pair.indexOf('=');
+			if(equals < 0) throw new IllegalArgumentException("Expected key=value in engine option: " + pair);
+			String key = pair.substring(0, equals).trim();
+			String value = pair.substring(equals + 1).trim();
+			try {
+				switch(key) {
+				case "name": config.name = value; break;
+				case "cmd": config.command = value; break;
+				case "hash": config.hashMb = Integer.parseInt(value); break;
+				case "nodes": config.nodes = Long.parseLong(value); break;
+				case "depth": config.depth = Integer.parseInt(value); break;
+				case "movetime": config.moveTime = Long.parseLong(value); break;
+				case "tc":
+					int plus = value.indexOf('+');
+					config.time = Math.round(Double.parseDouble(plus < 0 ? value : value.substring(0, plus)) * 1000);
+					config.increment = plus < 0 ? 0 : Math.round(Double.parseDouble(value.substring(plus + 1)) * 1000);
+					break;
+				default: throw new IllegalArgumentException("Unknown engine option: " + key);
+				}
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Bad number in engine option: " + pair);
+			}
+		}
+		if(config.nodes == 0 && config.depth == 0 && config.moveTime == 0 && config.time == 0) {
+			config.nodes = DEFAULT_NODES;
+		}
+		return config;
+	}
+
+	/**
+	 * Creates a player for this engine. Every worker thread gets its own.
+	 */
+	public Player createPlayer(Tablebases tablebases) throws IOException {
+		if(command != null) return new UciPlayer(name, command);
+		return new SearchPlayer(name, hashMb, tablebases);
+	}
+
+	/**
+	 * Sets the limits for one move, apart from the clock, which the game keeps.
+	 */
+	public void applyLimits(SearchLimits limits) {
+		limits.reset();
+		limits.setNodes(nodes);
+		limits.setDepth(depth);
+		limits.setMoveTime(moveTime);
+	}
+
+	public boolean hasClock() {
+		return time > 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(name);
+		if(command != null) builder.append(" (").append(command).append(')');
+		if(nodes > 0) builder.append(" nodes=").append(nodes);
+		if(depth > 0) builder.append(" depth=").append(depth);
+		if(moveTime > 0) builder.append(" movetime=").append(moveTime);
+		if(time > 0) builder.append(" tc=").append(time / 1000.0).append('+').append(increment / 1000.0);
+		return builder.toString();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public String getName() {
+		return name;
+	}
+
+	public String getCommand() {
+		return command;
+	}
+
+	public int getHashMb() {
+		return hashMb;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public long getIncrement() {
+		return increment;
+	}
+
+}
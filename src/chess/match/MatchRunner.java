@@ -0,0 +1,344 @@
+package chess.match;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chess.game.Board;
+import chess.search.SearchLimits;
+import chess.tablebase.Material;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Tablebases;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class MatchRunner {
+
+	/*
+	 * Plays a match between two engines, A and B, to find out which one is stronger and by how much.
+	 *
+	 * The games run on a fixed pool of worker threads, one game per worker at a time. Each worker
+	 * owns a player for each engine (so a hash table or an engine process each) and the boards of
+	 * the game it's playing, and takes the next game number off a shared counter when it's done, so
+	 * the only things the workers share are that counter and the score. Any number of games can be
+	 * queued up this way while only as many searches run at once as there are workers, which should
+	 * be no more than the number of cores, or the engines end up taking turns on a core mid search.
+	 *
+	 * Game n starts from opening n / 2 of the suite, with A playing white in even games and black in
+	 * odd ones. A game ends with checkmate, stalemate, threefold repetition, the 50-move rule or
+	 * material that can't mate. It's also adjudicated as a draw after MAX_PLIES, and by the
+	 * tablebases if there are any. An engine that returns an illegal move or runs out of time loses.
+	 *
+	 * After every game the score is checked against the SPRT (see MatchStatistics), and the match
+	 * stops as soon as the test has decided. Games that are still being played then are finished
+	 * but not counted.
+	 */
+
+	public static final int MAX_PLIES = 600;
+
+	private final EngineConfig[] engines;
+	private final OpeningSuite openings;
+	private final MatchStatistics statistics = new MatchStatistics();
+
+	private int games = 100;
+	private int concurrency = Runtime.getRuntime().availableProcessors();
+	private int reportInterval = 10;
+	private boolean verbose;
+	private Tablebases tablebases;
+
+	private final AtomicInteger nextGame = new AtomicInteger();
+	private final AtomicInteger finishedGames = new AtomicInteger();
+	private volatile boolean stopped;
+	private long startNanos;
+
+	public MatchRunner(EngineConfig a, EngineConfig b, OpeningSuite openings) {
+		engines = new EngineConfig[] { a, b };
+		this.openings = openings;
+	}
+
+	/**
+	 * Plays the match and returns the score. Blocks until every worker is done.
+	 */
+	public MatchStatistics run() throws InterruptedException {
+
+		startNanos = System.nanoTime();
+		System.out.printf("%s vs %s, %d games, %d workers, %d openings%n",
+				engines[0], engines[1], games, concurrency, openings.size());
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency,
+				runnable -> new Thread(runnable, "match-worker-" + threadNumber.incrementAndGet()));
+		for(int i = 0; i < concurrency; i++) {
+			pool.execute(this::work);
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+		System.out.println("Finished: " + statistics);
+		switch(statistics.getSprtResult()) {
+		case MatchStatistics.SPRT_ACCEPT_H1: System.out.println("SPRT: H1 accepted"); break;
+		case MatchStatistics.SPRT_ACCEPT_H0: System.out.println("SPRT: H0 accepted"); break;
+		default: if(statistics.hasSprt()) System.out.println("SPRT: no decision");
+		}
+		return statistics;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PLAYING GAMES									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * One worker's loop: play games until they run out or the match is stopped.
+	 */
+	private void work() {
+		try(Player a = engines[0].createPlayer(tablebases); Player b = engines[1].createPlayer(tablebases)) {
+			Game game = new Game();
+			while(!stopped) {
+				int number = nextGame.getAndIncrement();
+				if(number >= games) break;
+
+				boolean aIsWhite = (number & 1) == 0;
+				String fen = openings.get(number / 2 % openings.size());
+				int result = aIsWhite ? game.play(fen, a, b, engines[0], engines[1]) : game.play(fen, b, a, engines[1], engines[0]);
+				finishGame(number, aIsWhite, result, game.reason);
+			}
+		} catch(IOException | UncheckedIOException e) {
+			// an engine that can't be started or stops answering would lose every game from here on,
+			// which says nothing about its strength, so we give up on the whole match instead
+			System.err.println("Stopping the match: " + e.getMessage());
+			stopped = true;
+		}
+	}
+
+	private void finishGame(int number, boolean aIsWhite, int result, String reason) {
+
+		if(stopped) return;
+		statistics.add(aIsWhite ? result : -result);
+		int finished = finishedGames.incrementAndGet();
+		if(statistics.getSprtResult() != MatchStatistics.SPRT_CONTINUE) stopped = true;
+
+		synchronized(System.out) {
+			if(verbose) {
+				String white = engines[aIsWhite ? 0 : 1].getName();
+				String black = engines[aIsWhite ? 1 : 0].getName();
+				System.out.printf("Game %d: %s vs %s %s (%s)%n", number + 1, white, black,
+						result > 0 ? "1-0" : result < 0 ? "0-1" : "1/2-1/2", reason);
+			}
+			if(finished % reportInterval == 0 || stopped) {
+				double hours = (System.nanoTime() - startNanos) / 3.6e12;
+				System.out.printf("%s, %.0f games/hour%n", statistics, finished / hours);
+			}
+		}
+	}
+
+	/**
+	 * The boards and buffers of one game, reused by a worker for all of its games.
+	 */
+	private class Game {
+
+		private final Board start = new Board();
+		private final Board board = new Board();
+		private final int[] moves = new int[MAX_PLIES];
+		private final SearchLimits limits = new SearchLimits();
+		private final long[] clocks = new long[2];
+		private final long[] increments = new long[2];
+		private final int[] squares = new int[Material.MAX_PIECES];
+		private final int[] scratch = new int[Material.MAX_PIECES];
+		private String reason;
+
+		/**
+		 * Plays one game.
+		 * @return 1 if white wins, -1 if black wins and 0 for a draw
+		 */
+		private int play(String fen, Player white, Player black, EngineConfig whiteConfig, EngineConfig blackConfig) {
+
+			start.setFen(fen);
+			board.copyFrom(start);
+			white.newGame();
+			black.newGame();
+			clocks[Constants.WHITE] = whiteConfig.getTime();
+			clocks[Constants.BLACK] = blackConfig.getTime();
+			increments[Constants.WHITE] = whiteConfig.getIncrement();
+			increments[Constants.BLACK] = blackConfig.getIncrement();
+
+			for(int ply = 0; ; ply++) {
+
+				int side = board.getSideToMove();
+				int loss = side == Constants.WHITE ? -1 : 1;
+				if(!board.hasLegalMoves()) {
+					reason = board.isInCheck() ? "checkmate" : "stalemate";
+					return board.isInCheck() ? loss : 0;
+				}
+				if(board.isThreefoldRepetition()) return draw("threefold repetition");
+				if(board.isFiftyMoveDraw()) return draw("50-move rule");
+				if(isInsufficientMaterial(board)) return draw("insufficient material");
+				if(ply >= MAX_PLIES) return draw("move limit");
+				if(tablebases != null) {
+					int result = tablebases.probe(board, squares, scratch);
+					if(result != Tablebase.UNKNOWN) {
+						reason = "tablebase";
+						return result == Tablebase.DRAW ? 0 : result > 0 ? -loss : loss;
+					}
+				}
+
+				EngineConfig config = side == Constants.WHITE ? whiteConfig : blackConfig;
+				Player player = side == Constants.WHITE ? white : black;
+				config.applyLimits(limits);
+				if(config.hasClock()) {
+					limits.setTime(Constants.WHITE, clocks[Constants.WHITE]).setTime(Constants.BLACK, clocks[Constants.BLACK]);
+					limits.setIncrement(Constants.WHITE, increments[Constants.WHITE]).setIncrement(Constants.BLACK, increments[Constants.BLACK]);
+				}
+
+				long thinkStart = System.nanoTime();
+				int move = player.getMove(start, moves, ply, board, limits);
+				long millis = (System.nanoTime() - thinkStart) / 1000000;
+
+				if(config.hasClock()) {
+					clocks[side] -= millis;
+					if(clocks[side] < 0) {
+						reason = player.getName() + " lost on time";
+						return loss;
+					}
+					clocks[side] += increments[side];
+				}
+				if(move == Move.NONE || !board.isLegal(move)) {
+					reason = player.getName() + " played an illegal move";
+					return loss;
+				}
+				moves[ply] = move;
+				board.makeMove(move);
+			}
+		}
+
+		private int draw(String reason) {
+			this.reason = reason;
+			return 0;
+		}
+
+	}
+
+	/**
+	 * Returns true if neither side can possibly mate: only kings and at most one knight or bishop
+	 * between them.
+	 */
+	public static boolean isInsufficientMaterial(Board board) {
+		long heavy = board.getBitBoard(Constants.WHITE_PAWNS) | board.getBitBoard(Constants.BLACK_PAWNS)
+				| board.getBitBoard(Constants.WHITE_ROOKS) | board.getBitBoard(Constants.BLACK_ROOKS)
+				| board.getBitBoard(Constants.WHITE_QUEENS) | board.getBitBoard(Constants.BLACK_QUEENS);
+		return heavy == 0 && Long.bitCount(board.getBitBoard(Constants.ALL_PIECES)) <= 3;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public MatchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Stops the match early once the SPRT decides (see MatchStatistics.setSprt).
+	 */
+	public void setSprt(double elo0, double elo1, double alpha, double beta) {
+		statistics.setSprt(elo0, elo1, alpha, beta);
+	}
+
+	public void setGames(int games) {
+		if(games < 1) throw new IllegalArgumentException("A match needs at least one game");
+		this.games = games;
+	}
+
+	public void setConcurrency(int concurrency) {
+		if(concurrency < 1) throw new IllegalArgumentException("A match needs at least one worker");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Sets how many games go by between progress reports.
+	 */
+	public void setReportInterval(int reportInterval) {
+		this.reportInterval = Math.max(1, reportInterval);
+	}
+
+	/**
+	 * Prints every game's result as well as the progress reports.
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Sets the tablebases the in-process engines search with, which the games are also adjudicated
+	 * by. Null for none.
+	 */
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MAIN											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		List<EngineConfig> engines = new ArrayList<>();
+		OpeningSuite openings = null;
+		double[] sprt = null;
+		Tablebases tablebases = null;
+		int games = 100;
+		int concurrency = Runtime.getRuntime().availableProcessors();
+		int report = 10;
+		boolean verbose = false;
+
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-engine": engines.add(EngineConfig.parse(args[++i], engines.isEmpty() ? "A" : "B")); break;
+			case "-games": games = Integer.parseInt(args[++i]); break;
+			case "-concurrency": concurrency = Integer.parseInt(args[++i]); break;
+			case "-openings": openings = OpeningSuite.load(Paths.get(args[++i])); break;
+			case "-tb": tablebases = new Tablebases(Paths.get(args[++i])); break;
+			case "-report": report = Integer.parseInt(args[++i]); break;
+			case "-verbose": verbose = true; break;
+			case "-sprt":
+				sprt = new double[4];
+				for(int j = 0; j < sprt.length; j++) {
+					sprt[j] = Double.parseDouble(args[++i]);
+				}
+				break;
+			default:
+				System.out.println("Unknown argument: " + args[i]);
+				engines.clear();
+				i = args.length;
+			}
+		}
+
+		if(engines.size() != 2) {
+			System.out.println("usage: MatchRunner -engine <options> -engine <options> [-games n] [-concurrency n]");
+			System.out.println("                   [-openings file] [-sprt elo0 elo1 alpha beta] [-tb dir] [-report n] [-verbose]");
+			System.out.println("engine options: name=..,cmd=..,hash=..,nodes=..,depth=..,movetime=..,tc=seconds+increment");
+			return;
+		}
+
+		MatchRunner runner = new MatchRunner(engines.get(0), engines.get(1), openings == null ? OpeningSuite.defaultSuite() : openings);
+		runner.setGames(games);
+		runner.setConcurrency(concurrency);
+		runner.setReportInterval(report);
+		runner.setVerbose(verbose);
+		runner.setTablebases(tablebases);
+		if(sprt != null) runner.setSprt(sprt[0], sprt[1], sprt[2], sprt[3]);
+		runner.run();
+	}
+
+}
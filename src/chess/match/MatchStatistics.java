@@ -0,0 +1,236 @@
+package chess.match;
+
+public class MatchStatistics {
+
+	/*
+	 * The running score of a match between two engines, A and B, counted from A's point of view.
+	 * Every worker adds its games here as they finish, so the methods are synchronized; that's one
+	 * lock per game, which costs nothing next to the game.
+	 *
+	 * The Elo difference comes from the score with the usual logistic model, and its confidence
+	 * interval from the spread of the individual game results. The sequential probability ratio test
+	 * (SPRT) decides between two hypotheses, "A is elo0 stronger than B" (H0) and "A is elo1 stronger"
+	 * (H1), after every game: it adds up the evidence as a log-likelihood ratio and stops as soon as
+	 * it crosses one of two bounds set by the error rates alpha (accepting H1 when H0 is true) and
+	 * beta (accepting H0 when H1 is true). On average this needs far fewer games than deciding on a
+	 * fixed number up front. The LLR uses the normal approximation for win/draw/loss results, which
+	 * is what testing frameworks like fishtest and cutechess use too.
+	 */
+
+	public static final int SPRT_CONTINUE = 0;
+	public static final int SPRT_ACCEPT_H0 = -1;
+	public static final int SPRT_ACCEPT_H1 = 1;
+
+	// z for a two-sided 95% confidence interval
+	private static final double Z_95 = 1.959964;
+
+	private int wins;
+	private int draws;
+	private int losses;
+
+	private boolean sprt;
+	private double elo0;
+	private double elo1;
+	private double lowerBound;
+	private double upperBound;
+
+	public MatchStatistics() {
+	}
+
+	/**
+	 * Turns on the SPRT.
+	 * @param elo0 the Elo difference of H0
+	 * @param elo1 the Elo difference of H1, which has to be bigger than elo0
+	 * @param alpha the chance of accepting H1 when H0 is true
+	 * @param beta the chance of accepting H0 when H1 is true
+	 */
+	public synchronized void setSprt(double elo0, double elo1, double alpha, double beta) {
+		if(elo1 <= elo0) throw new IllegalArgumentException("elo1 has to be bigger than elo0");
+		if(alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) throw new IllegalArgumentException("alpha and beta have to be between 0 and 1");
+		sprt = true;
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		lowerBound = Math.log(beta / (1 - alpha));
+		upperBound = Math.log((1 - beta) / alpha);
+	}
+
+	/**
+	 * Adds a finished game.
+	 * @param score A's result: 1 for a win, 0 for a draw, -1 for a loss
+	 */
+	public synchronized void add(int score) {
+		if(score > 0) {
+			wins++;
+		} else if(score < 0) {
+			losses++;
+		} else {
+			draws++;
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							ELO												 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Returns A's average score per game, between 0 and 1.
+	 */
+	public synchronized double getScore() {
+		int games = getGames();
+		return games == 0 ? 0.5 : (wins + draws * 0.5) / games;
+	}
+
+	/**
+	 * Returns how much stronger A looks than B, in Elo. Infinite when one of them hasn't scored at all.
+	 */
+	public synchronized double getElo() {
+		return toElo(getScore());
+	}
+
+	/**
+	 * Returns the half width of the 95% confidence interval of getElo(). It's lopsided when the
+	 * score is far from 50%, so this is the bigger of the two halves.
+	 */
+	public synchronized double getEloError() {
+		int games = getGames();
+		if(games < 2) return Double.POSITIVE_INFINITY;
+		double score = getScore();
+		if(score <= 0 || score >= 1) return Double.POSITIVE_INFINITY;
+		double error = Z_95 * Math.sqrt(getVariance() / games);
+		double elo = toElo(score);
+		return Math.max(toElo(Math.min(1, score + error)) - elo, elo - toElo(Math.max(0, score - error)));
+	}
+
+	/**
+	 * Returns the likelihood of superiority: the chance that A really is stronger than B, going by
+	 * the decisive games.
+	 */
+	public synchronized double getLikelihoodOfSuperiority() {
+		if(wins + losses == 0) return 0.5;
+		return 0.5 * (1 + erf((wins - losses) / Math.sqrt(2.0 * (wins + losses))));
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							SPRT											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Returns the log-likelihood ratio of H1 against H0 for the games so far.
+	 */
+	public synchronized double getLogLikelihoodRatio() {
+		int games = getGames();
+		if(games == 0) return 0;
+
+		// a run of nothing but wins (or draws) has no variance at all, which would make the ratio
+		// infinite, or 0 if we skipped it. So for the variance alone every result counts as if it had
+		// happened half a game more, which hardly matters once there are a few dozen games.
+		double w = wins + 0.5, d = draws + 0.5, l = losses + 0.5, n = w + d + l;
+		double mean = (w + d * 0.5) / n;
+		double variance = (w + d * 0.25) / n - mean * mean;
+		double score0 = toScore(elo0);
+		double score1 = toScore(elo1);
+		return (score1 - score0) * (2 * getScore() - score0 - score1) / (2 * variance / games);
+	}
+
+	/**
+	 * Returns SPRT_ACCEPT_H1 or SPRT_ACCEPT_H0 once the test has decided, and SPRT_CONTINUE until it
+	 * has (or when there is no test).
+	 */
+	public synchronized int getSprtResult() {
+		if(!sprt) return SPRT_CONTINUE;
+		double llr = getLogLikelihoodRatio();
+		if(llr >= upperBound) return SPRT_ACCEPT_H1;
+		if(llr <= lowerBound) return SPRT_ACCEPT_H0;
+		return SPRT_CONTINUE;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder(128);
+		builder.append(String.format("%d games, +%d =%d -%d, score %.1f%%, elo %.1f +/- %.1f, los %.1f%%",
+				getGames(), wins, draws, losses, getScore() * 100, getElo(), getEloError(), getLikelihoodOfSuperiority() * 100));
+		if(sprt) {
+			builder.append(String.format(", llr %.2f (%.2f, %.2f)", getLogLikelihoodRatio(), lowerBound, upperBound));
+		}
+		return builder.toString();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public synchronized int getGames() {
+		return wins + draws + losses;
+	}
+
+	public synchronized int getWins() {
+		return wins;
+	}
+
+	public synchronized int getDraws() {
+		return draws;
+	}
+
+	public synchronized int getLosses() {
+		return losses;
+	}
+
+	public synchronized boolean hasSprt() {
+		return sprt;
+	}
+
+	public synchronized double getLowerBound() {
+		return lowerBound;
+	}
+
+	public synchronized double getUpperBound() {
+		return upperBound;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * The variance of a single game's result (1, 1/2 or 0).
+	 */
+	private double getVariance() {
+		int games = getGames();
+		double score = getScore();
+		return (wins + draws * 0.25) / games - score * score;
+	}
+
+	/**
+	 * The expected score of the stronger side of an Elo difference.
+	 */
+	private static double toScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	private static double toElo(double score) {
+		if(score <= 0) return Double.NEGATIVE_INFINITY;
+		if(score >= 1) return Double.POSITIVE_INFINITY;
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * The error function, to within about 1e-7 (Abramowitz and Stegun 7.1.26 is only good to 1e-5,
+	 * so this is the longer series from Numerical Recipes' erfc).
+	 */
+	private static double erf(double x) {
+		double t = 1 / (1 + 0.5 * Math.abs(x));
+		double y = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+				+ t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+				+ t * (-0.82215223 + t * 0.17087277)))))))));
+		return x >= 0 ? 1 - y : y - 1;
+	}
+
+}
@@ -0,0 +1,117 @@
+package chess.match;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.game.Board;
+import chess.game.Notation;
+import chess.util.Move;
+
+public class OpeningSuite {
+
+	/*
+	 * The positions match games start from. Engines that search the same way every time (a node or
+	 * depth limit) would play the same game over and over from the starting position, so every game
+	 * starts from one of these instead, and each one is played twice with the colors swapped so that
+	 * neither engine gets the better side of an opening more often than the other.
+	 *
+	 * A suite file has one opening per line. A line with a '/' in it is a FEN or EPD position, and
+	 * anything else is a list of moves from the starting position, in UCI or SAN notation
+	 * ("e2e4 c7c5" or "1. e4 c5"). Blank lines and lines starting with '#' are skipped.
+	 */
+
+	private static final String[] DEFAULT_OPENINGS = {
+		"e2e4 e7e5 g1f3 b8c6 f1b5 a7a6",
+		"e2e4 e7e5 g1f3 b8c6 f1c4 f8c5",
+		"e2e4 e7e5 g1f3 g8f6 f3e5 d7d6",
+		"e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6",
+		"e2e4 c7c5 b1c3 b8c6 g2g3",
+		"e2e4 c7c5 c2c3 g8f6 e4e5 f6d5",
+		"e2e4 e7e6 d2d4 d7d5 b1c3 f8b4",
+		"e2e4 e7e6 d2d4 d7d5 e4e5 c7c5",
+		"e2e4 c7c6 d2d4 d7d5 e4e5 c8f5",
+		"e2e4 d7d5 e4d5 d8d5 b1c3 d5a5",
+		"e2e4 g7g6 d2d4 f8g7 b1c3 d7d6",
+		"d2d4 d7d5 c2c4 e7e6 b1c3 g8f6",
+		"d2d4 d7d5 c2c4 c7c6 g1f3 g8f6",
+		"d2d4 d7d5 c2c4 d5c4 g1f3 g8f6",
+		"d2d4 g8f6 c2c4 e7e6 b1c3 f8b4",
+		"d2d4 g8f6 c2c4 g7g6 b1c3 f8g7 e2e4 d7d6",
+		"d2d4 g8f6 c2c4 c7c5 d4d5 e7e6",
+		"d2d4 g8f6 c2c4 e7e6 g1f3 b7b6",
+		"d2d4 f7f5 g2g3 g8f6 f1g2 g7g6",
+		"c2c4 e7e5 b1c3 g8f6 g1f3 b8c6",
+		"c2c4 c7c5 g1f3 g8f6 b1c3 b8c6",
+		"g1f3 d7d5 g2g3 g8f6 f1g2 c7c6",
+		"g1f3 g8f6 c2c4 g7g6 b2b3 f8g7",
+		"e2e4 e7e5 f2f4 e5f4 g1f3 g7g5",
+	};
+
+	private final List<String> positions = new ArrayList<>();
+
+	/**
+	 * Returns the suite that's used when no file is given: two dozen common openings, four to eight
+	 * plies deep.
+	 */
+	public static OpeningSuite defaultSuite() {
+		OpeningSuite suite = new OpeningSuite();
+		for(String line : DEFAULT_OPENINGS) {
+			suite.add(line);
+		}
+		return suite;
+	}
+
+	/**
+	 * Reads a suite file.
+	 * @throws IllegalArgumentException if a line isn't a position or a legal line of moves
+	 */
+	public static OpeningSuite load(Path file) throws IOException {
+		OpeningSuite suite = new OpeningSuite();
+		for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#")) continue;
+			suite.add(line);
+		}
+		if(suite.size() == 0) throw new IllegalArgumentException("No openings in " + file);
+		return suite;
+	}
+
+	/**
+	 * Adds one opening, either a FEN/EPD position or a line of moves from the starting position.
+	 */
+	public void add(String line) {
+
+		if(line.indexOf('/') >= 0) {
+			positions.add(new Board(line).toFen());
+			return;
+		}
+
+		Board board = new Board();
+		for(String token : line.split("\\s+")) {
+			// move numbers ("1." or "1...") can stand on their own or be stuck to the move
+			token = token.substring(token.lastIndexOf('.') + 1);
+			if(token.isEmpty()) continue;
+			int move = Notation.parseMove(board, token);
+			if(move == Move.NONE) move = Notation.parseSan(board, token);
+			if(move == Move.NONE) throw new IllegalArgumentException("Illegal move " + token + " in opening: " + line);
+			board.makeMove(move);
+		}
+		positions.add(board.toFen());
+	}
+
+	/**
+	 * Returns the FEN of an opening.
+	 */
+	public String get(int index) {
+		return positions.get(index);
+	}
+
+	public int size() {
+		return positions.size();
+	}
+
+}
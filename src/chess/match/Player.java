@@ -0,0 +1,36 @@
+package chess.match;
+
+import chess.game.Board;
+import chess.search.SearchLimits;
+
+public interface Player extends AutoCloseable {
+
+	/*
+	 * One side of a match game. A player is only ever used by one game at a time, so it can keep
+	 * whatever state it likes (a hash table, a process) from one move to the next, and the match
+	 * runner hands it to the next game on the same worker thread once a game is over.
+	 */
+
+	String getName();
+
+	/**
+	 * Called before the first move of every game.
+	 */
+	void newGame();
+
+	/**
+	 * Picks a move.
+	 * @param start the position the game started from
+	 * @param moves the moves played since then; only the first moveCount entries are valid
+	 * @param moveCount the number of moves played
+	 * @param position the current position, which is start with the moves played on it. The player
+	 * must leave it the way it found it.
+	 * @param limits how long to think, including the clocks if the match has a time control
+	 * @return the move, or Move.NONE if the player has nothing to say (which loses the game)
+	 */
+	int getMove(Board start, int[] moves, int moveCount, Board position, SearchLimits limits);
+
+	@Override
+	void close();
+
+}
@@ -0,0 +1,47 @@
+package chess.match;
+
+import chess.game.Board;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.TranspositionTable;
+import chess.tablebase.Tablebases;
+
+public class SearchPlayer implements Player {
+
+	/*
+	 * The engine in this process: a single threaded Search with a hash table of its own. It searches
+	 * on whatever thread asks it for a move, which in a match is one of the runner's worker threads,
+	 * so the number of searches running at once is never more than the number of workers.
+	 */
+
+	private final String name;
+	private final TranspositionTable table;
+	private final Search search;
+
+	public SearchPlayer(String name, int hashMb, Tablebases tablebases) {
+		this.name = name;
+		table = new TranspositionTable(hashMb);
+		search = new Search(table);
+		search.setTablebases(tablebases);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void newGame() {
+		table.clear();
+	}
+
+	@Override
+	public int getMove(Board start, int[] moves, int moveCount, Board position, SearchLimits limits) {
+		return search.search(position, limits);
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
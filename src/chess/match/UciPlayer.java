@@ -0,0 +1,142 @@
+package chess.match;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import chess.game.Board;
+import chess.game.Notation;
+import chess.search.SearchLimits;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class UciPlayer implements Player {
+
+	/*
+	 * Any UCI engine in a process of its own, this one included (java -jar ...). The process is
+	 * started once and kept for every game the player plays, and each move sends it the whole game
+	 * ("position fen ... moves ...") the way a GUI would.
+	 *
+	 * The worker thread waits on the engine's output while it thinks, so a UCI player takes up a
+	 * worker just like a search in this process does, and the pool still bounds how many engines are
+	 * thinking at once.
+	 */
+
+	private static final String START_FEN = new Board().toFen();
+
+	private final String name;
+	private final Process process;
+	private final Writer in;
+	private final BufferedReader out;
+	private final StringBuilder command = new StringBuilder(4096);
+
+	public UciPlayer(String name, String commandLine) throws IOException {
+		this.name = name;
+		ProcessBuilder builder = new ProcessBuilder(Arrays.asList(commandLine.trim().split("\\s+")));
+		builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+		process = builder.start();
+		in = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII);
+		out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+
+		send("uci");
+		waitFor("uciok");
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void newGame() {
+		send("ucinewgame");
+		send("isready");
+		waitFor("readyok");
+	}
+
+	@Override
+	public int getMove(Board start, int[] moves, int moveCount, Board position, SearchLimits limits) {
+
+		command.setLength(0);
+		String fen = start.toFen();
+		if(fen.equals(START_FEN)) {
+			command.append("position startpos");
+		} else {
+			command.append("position fen ").append(fen);
+		}
+		if(moveCount > 0) {
+			command.append(" moves");
+			for(int i = 0; i < moveCount; i++) {
+				command.append(' ').append(Move.toString(moves[i]));
+			}
+		}
+		send(command);
+
+		command.setLength(0);
+		command.append("go");
+		if(limits.getTime(Constants.WHITE) > 0 || limits.getTime(Constants.BLACK) > 0) {
+			command.append(" wtime ").append(limits.getTime(Constants.WHITE));
+			command.append(" btime ").append(limits.getTime(Constants.BLACK));
+			command.append(" winc ").append(limits.getIncrement(Constants.WHITE));
+			command.append(" binc ").append(limits.getIncrement(Constants.BLACK));
+		}
+		if(limits.getMoveTime() > 0) command.append(" movetime ").append(limits.getMoveTime());
+		if(limits.getDepth() > 0) command.append(" depth ").append(limits.getDepth());
+		if(limits.getNodes() > 0) command.append(" nodes ").append(limits.getNodes());
+		send(command);
+
+		String line = waitFor("bestmove");
+		String[] tokens = line.split("\\s+");
+		return tokens.length < 2 ? Move.NONE : Notation.parseMove(position, tokens[1]);
+	}
+
+	@Override
+	public void close() {
+		if(process.isAlive()) {
+			try {
+				send("quit");
+			} catch(UncheckedIOException e) {
+				// it's gone already
+			}
+		}
+		process.destroy();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void send(CharSequence line) {
+		try {
+			in.append(line).append('\n');
+			in.flush();
+		} catch(IOException e) {
+			throw new UncheckedIOException(name + " stopped listening", e);
+		}
+	}
+
+	/**
+	 * Reads the engine's output until a line starts with the given word and returns that line.
+	 */
+	private String waitFor(String word) {
+		try {
+			String line;
+			while((line = out.readLine()) != null) {
+				if(line.startsWith(word) && (line.length() == word.length() || line.charAt(word.length()) == ' ')) {
+					return line;
+				}
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(name + " stopped talking", e);
+		}
+		throw new UncheckedIOException(new IOException(name + " exited while we were waiting for " + word));
+	}
+
+}
@@ -0,0 +1,233 @@
+package chess.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.search.ParallelSearch;
+import chess.search.Search;
+
+public class EngineMetrics {
+
+	/*
+	 * Counters for everything the engine's searches have done since the process started, read by
+	 * the metrics endpoint (see MetricsServer) while searches are running on other threads.
+	 *
+	 * Nothing in here is touched per node. Every Search counts its own nodes, cache hits and cutoffs
+	 * in plain fields that only its own thread writes, and adds what it did to these totals once per
+	 * iteration. The totals are LongAdders, which keep one cell per contending thread instead of a
+	 * single value everyone fights over, so even a dozen search threads finishing iterations at the
+	 * same moment don't slow each other down. Reading a total adds the cells up.
+	 *
+	 * The engine's ParallelSearch can also be handed over with setSearch, and then every scrape adds
+	 * a series per thread, labelled with the thread's index, read straight from each worker's own
+	 * counters for the current or last search. Those are written by the search threads while we read
+	 * them, so a scrape in the middle of a search sees each of them a few nodes behind, which is fine
+	 * for watching how evenly the threads share the work.
+	 */
+
+	private static final EngineMetrics GLOBAL = new EngineMetrics();
+
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder iterations = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder qnodes = new LongAdder();
+	private final LongAdder hashProbes = new LongAdder();
+	private final LongAdder hashHits = new LongAdder();
+	private final LongAdder betaCutoffs = new LongAdder();
+	private final LongAdder firstMoveCutoffs = new LongAdder();
+	private final LongAdder tablebaseHits = new LongAdder();
+
+	// completed iterations and the time they took, by depth
+	private final LongAdder[] depthCounts = new LongAdder[Search.MAX_PLY];
+	private final LongAdder[] depthNanos = new LongAdder[Search.MAX_PLY];
+
+	// what the last iteration of a ParallelSearch's main thread looked like. Plain Searches don't
+	// write these, and the engine runs one ParallelSearch at a time, so plain volatile fields are
+	// enough.
+	private volatile int lastDepth;
+	private volatile long lastNodesPerSecond;
+	private volatile double lastBranchingFactor;
+
+	// the search whose threads get a series each, or null
+	private volatile ParallelSearch search;
+
+	public EngineMetrics() {
+		for(int i = 0; i < Search.MAX_PLY; i++) {
+			depthCounts[i] = new LongAdder();
+			depthNanos[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns the metrics every search reports to unless it's given others.
+	 */
+	public static EngineMetrics getGlobal() {
+		return GLOBAL;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							RECORDING										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public void searchStarted() {
+		searches.increment();
+	}
+
+	/**
+	 * Adds what one thread did during one iteration. The counts are for that iteration alone. An
+	 * iteration that was cut off has a depth of -1: what it searched goes into the totals, but it
+	 * isn't counted as an iteration or in the time by depth, which are for completed ones.
+	 */
+	public void iterationComplete(int depth, long nanos, long nodes, long qnodes, long hashProbes, long hashHits,
+			long betaCutoffs, long firstMoveCutoffs, long tablebaseHits) {
+		this.nodes.add(nodes);
+		this.qnodes.add(qnodes);
+		this.hashProbes.add(hashProbes);
+		this.hashHits.add(hashHits);
+		this.betaCutoffs.add(betaCutoffs);
+		this.firstMoveCutoffs.add(firstMoveCutoffs);
+		this.tablebaseHits.add(tablebaseHits);
+		if(depth < 0) return;
+
+		iterations.increment();
+		int index = Math.min(depth, Search.MAX_PLY - 1);
+		depthCounts[index].increment();
+		depthNanos[index].add(nanos);
+	}
+
+	/**
+	 * Records the last iteration of a ParallelSearch's main thread: its depth, the speed of the whole
+	 * search so far (every thread's nodes) and the shape of the iteration.
+	 */
+	public void mainIterationComplete(int depth, long nodesPerSecond, double branchingFactor) {
+		lastDepth = depth;
+		lastNodesPerSecond = nodesPerSecond;
+		lastBranchingFactor = branchingFactor;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PROMETHEUS										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Writes every metric in the Prometheus text exposition format (version 0.0.4).
+	 */
+	public StringBuilder appendPrometheus(StringBuilder builder) {
+		counter(builder, "chess_searches_total", "Searches started.", searches.sum());
+		counter(builder, "chess_search_iterations_total", "Iterative deepening iterations completed, over all threads.", iterations.sum());
+		counter(builder, "chess_search_nodes_total", "Nodes searched, quiescence nodes included.", nodes.sum());
+		counter(builder, "chess_search_qnodes_total", "Quiescence search nodes.", qnodes.sum());
+		counter(builder, "chess_hash_probes_total", "Transposition table probes.", hashProbes.sum());
+		counter(builder, "chess_hash_hits_total", "Transposition table probes that found an entry.", hashHits.sum());
+		counter(builder, "chess_beta_cutoffs_total", "Beta cutoffs in the main search.", betaCutoffs.sum());
+		counter(builder, "chess_first_move_cutoffs_total", "Beta cutoffs caused by the first move searched.", firstMoveCutoffs.sum());
+		counter(builder, "chess_tablebase_hits_total", "Positions answered by an endgame tablebase.", tablebaseHits.sum());
+
+		header(builder, "chess_depth_seconds", "Time spent on completed iterations by depth.", "summary");
+		for(int depth = 0; depth < Search.MAX_PLY; depth++) {
+			long count = depthCounts[depth].sum();
+			if(count == 0) continue;
+			builder.append("chess_depth_seconds_sum{depth=\"").append(depth).append("\"} ").append(depthNanos[depth].sum() / 1e9).append('\n');
+			builder.append("chess_depth_seconds_count{depth=\"").append(depth).append("\"} ").append(count).append('\n');
+		}
+
+		gauge(builder, "chess_last_depth", "Depth of the main thread's last completed iteration.", lastDepth);
+		gauge(builder, "chess_last_nodes_per_second", "Nodes per second of the last search, over all threads.", lastNodesPerSecond);
+		header(builder, "chess_last_branching_factor", "Nodes of the last iteration divided by the nodes of the one before.", "gauge");
+		builder.append("chess_last_branching_factor ").append(lastBranchingFactor).append('\n');
+
+		ParallelSearch current = search;
+		if(current != null) appendThreads(builder, current);
+		return builder;
+	}
+
+	public String toPrometheus() {
+		return appendPrometheus(new StringBuilder(4096)).toString();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	public long getHashHits() {
+		return hashHits.sum();
+	}
+
+	public long getHashProbes() {
+		return hashProbes.sum();
+	}
+
+	/**
+	 * Sets the search whose threads are reported one by one, or null for none.
+	 */
+	public void setSearch(ParallelSearch search) {
+		this.search = search;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the per thread series, all gauges since a worker's counters start over with every search
+	private static void appendThreads(StringBuilder builder, ParallelSearch search) {
+		int threads = search.getThreads();
+
+		header(builder, "chess_thread_nodes", "Nodes searched by each thread in the current or last search.", "gauge");
+		for(int i = 0; i < threads; i++) {
+			threadSample(builder, "chess_thread_nodes", i).append(search.getWorker(i).getNodes()).append('\n');
+		}
+		header(builder, "chess_thread_qnodes", "Quiescence nodes searched by each thread in the current or last search.", "gauge");
+		for(int i = 0; i < threads; i++) {
+			threadSample(builder, "chess_thread_qnodes", i).append(search.getWorker(i).getQuiescenceNodes()).append('\n');
+		}
+		header(builder, "chess_thread_hash_hits", "Transposition table hits of each thread in the current or last search.", "gauge");
+		for(int i = 0; i < threads; i++) {
+			threadSample(builder, "chess_thread_hash_hits", i).append(search.getWorker(i).getHashHits()).append('\n');
+		}
+		header(builder, "chess_thread_hash_hit_rate", "Share of each thread's transposition table probes that found an entry.", "gauge");
+		for(int i = 0; i < threads; i++) {
+			Search worker = search.getWorker(i);
+			threadSample(builder, "chess_thread_hash_hit_rate", i).append(rate(worker.getHashHits(), worker.getHashProbes())).append('\n');
+		}
+		header(builder, "chess_thread_first_move_cutoff_rate", "Share of each thread's beta cutoffs caused by the first move searched.", "gauge");
+		for(int i = 0; i < threads; i++) {
+			Search worker = search.getWorker(i);
+			threadSample(builder, "chess_thread_first_move_cutoff_rate", i).append(rate(worker.getFirstMoveCutoffs(), worker.getBetaCutoffs())).append('\n');
+		}
+	}
+
+	private static StringBuilder threadSample(StringBuilder builder, String name, int thread) {
+		return builder.append(name).append("{thread=\"").append(thread).append("\"} ");
+	}
+
+	private static double rate(long count, long total) {
+		return total > 0 ? (double)count / total : 0;
+	}
+
+	private static void counter(StringBuilder builder, String name, String help, long value) {
+		header(builder, name, help, "counter");
+		builder.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void gauge(StringBuilder builder, String name, String help, long value) {
+		header(builder, name, help, "gauge");
+		builder.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void header(StringBuilder builder, String name, String help, String type) {
+		builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+}
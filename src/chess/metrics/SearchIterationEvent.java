@@ -0,0 +1,64 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for one iteration of iterative deepening on one search thread. The
+ * event's duration is the time the iteration took and its thread is the search thread, so a
+ * recording shows every thread's iterations side by side. Start a recording with
+ * -XX:StartFlightRecording, or jcmd on a running engine, and look for "chess.SearchIteration".
+ *
+ * When no recording is running, or the event is turned off, begin() and commit() cost next to
+ * nothing, and the search only fills in the fields when shouldCommit() says they'll be kept.
+ */
+@Name("chess.SearchIteration")
+@Label("Search Iteration")
+@Category({"Chess", "Search"})
+@Description("One completed iteration of iterative deepening on one search thread")
+@StackTrace(false)
+public class SearchIterationEvent extends Event {
+
+	@Label("Thread Index")
+	@Description("0 for the main search thread, otherwise the helper's number")
+	public int threadIndex;
+
+	@Label("Depth")
+	public int depth;
+
+	@Label("Score")
+	@Description("Centipawns from the side to move's point of view, or a mate score")
+	public int score;
+
+	@Label("Nodes")
+	@Description("Nodes searched during this iteration, quiescence nodes included")
+	public long nodes;
+
+	@Label("Quiescence Nodes")
+	public long qnodes;
+
+	@Label("Hash Probes")
+	public long hashProbes;
+
+	@Label("Hash Hits")
+	public long hashHits;
+
+	@Label("Beta Cutoffs")
+	public long betaCutoffs;
+
+	@Label("First Move Cutoffs")
+	@Description("Beta cutoffs caused by the first move searched, a measure of move ordering")
+	public long firstMoveCutoffs;
+
+	@Label("Branching Factor")
+	@Description("Nodes of this iteration divided by the nodes of the one before")
+	public double branchingFactor;
+
+	@Label("Nodes Per Second")
+	public long nodesPerSecond;
+
+}
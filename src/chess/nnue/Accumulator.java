@@ -0,0 +1,108 @@
+package chess.nnue;
+
+import chess.game.Board;
+import chess.util.Constants;
+
+public class Accumulator {
+
+	/*
+	 * The output of a network's feature layer for one position, from both points of view: HIDDEN
+	 * int16 sums for white's half, then HIDDEN for black's. Each half starts at the layer's biases and
+	 * adds the row of weights for every piece on the board.
+	 *
+	 * A Board that carries an accumulator (see Board.setAccumulator) calls addFeature, removeFeature
+	 * and moveFeature as it adds, removes and moves pieces, the same place it updates its hash and
+	 * piece-square sums, so making a move costs two to four rows of weights per half. Taking a move back
+	 * runs the same calls the other way around, and since int16 additions wrap around exactly, the
+	 * sums come back to exactly what they were; nothing is ever recomputed during a search. refresh
+	 * builds the sums from nothing, and only happens when the board is set up (a new position, a FEN,
+	 * a copy).
+	 *
+	 * An accumulator belongs to one board and isn't thread safe, but the Network it reads is shared.
+	 */
+
+	private final Network network;
+	private final Kernels kernels;
+	private final short[] weights;
+	private final int hidden;
+
+	// white's half, then black's
+	private final short[] values;
+
+	public Accumulator(Network network) {
+		this.network = network;
+		this.kernels = Network.getKernels();
+		this.weights = network.getFeatureWeights();
+		this.hidden = network.getHidden();
+		this.values = new short[2 * hidden];
+	}
+
+	/**
+	 * Sets the sums to the biases plus every piece on the board.
+	 */
+	public void refresh(Board board) {
+		short[] biases = network.getFeatureBiases();
+		System.arraycopy(biases, 0, values, 0, hidden);
+		System.arraycopy(biases, 0, values, hidden, hidden);
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			long bitboard = board.getBitBoard(piece);
+			while(bitboard != 0) {
+				addFeature(piece, Long.numberOfTrailingZeros(bitboard));
+				bitboard &= bitboard - 1;
+			}
+		}
+	}
+
+	/**
+	 * A piece has been put on a square.
+	 */
+	public void addFeature(int piece, int square) {
+		kernels.add(values, 0, weights, whiteRow(piece, square), hidden);
+		kernels.add(values, hidden, weights, blackRow(piece, square), hidden);
+	}
+
+	/**
+	 * A piece has been taken off a square.
+	 */
+	public void removeFeature(int piece, int square) {
+		kernels.subtract(values, 0, weights, whiteRow(piece, square), hidden);
+		kernels.subtract(values, hidden, weights, blackRow(piece, square), hidden);
+	}
+
+	/**
+	 * A piece has moved from one square to another.
+	 */
+	public void moveFeature(int piece, int from, int to) {
+		kernels.addSubtract(values, 0, weights, whiteRow(piece, to), whiteRow(piece, from), hidden);
+		kernels.addSubtract(values, hidden, weights, blackRow(piece, to), blackRow(piece, from), hidden);
+	}
+
+	/**
+	 * Returns the sums, white's half first.
+	 */
+	public short[] getValues() {
+		return values;
+	}
+
+	public Network getNetwork() {
+		return network;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the input for a piece on a square from white's point of view is just piece * 64 + square
+	private int whiteRow(int piece, int square) {
+		return (piece * 64 + square) * hidden;
+	}
+
+	// and from black's, the colors are swapped and the board flipped top to bottom, so a black pawn
+	// on e7 is the same input for black as a white pawn on e2 is for white
+	private int blackRow(int piece, int square) {
+		return (((piece + Constants.BLACK_OFFSET) % 12) * 64 + (square ^ 56)) * hidden;
+	}
+
+}
@@ -0,0 +1,36 @@
+package chess.nnue;
+
+interface Kernels {
+
+	/*
+	 * The arithmetic the network spends its time on, behind an interface so that it can run on the
+	 * Vector API when the jdk.incubator.vector module is there and on plain loops when it isn't (see
+	 * Network.kernels). Every length is a multiple of 16, which Network checks when it loads a file.
+	 * The int16 sums wrap around on overflow like Java shorts always do, which is what keeps adding
+	 * and then subtracting the same weights exact.
+	 */
+
+	/**
+	 * values[valuesOffset + i] += weights[weightsOffset + i] for i below length.
+	 */
+	void add(short[] values, int valuesOffset, short[] weights, int weightsOffset, int length);
+
+	/**
+	 * values[valuesOffset + i] -= weights[weightsOffset + i] for i below length.
+	 */
+	void subtract(short[] values, int valuesOffset, short[] weights, int weightsOffset, int length);
+
+	/**
+	 * values[valuesOffset + i] += weights[addOffset + i] - weights[subtractOffset + i], which is a
+	 * piece moving from one square to another in a single pass.
+	 */
+	void addSubtract(short[] values, int valuesOffset, short[] weights, int addOffset, int subtractOffset, int length);
+
+	/**
+	 * Returns the sum of clamp(values[valuesOffset + i], 0, max) * weights[weightsOffset + i] for i
+	 * below length, the clipped ReLU and the dense layer after it in one go. max is at most 127, so
+	 * every product fits in a short.
+	 */
+	int clampedDot(short[] values, int valuesOffset, byte[] weights, int weightsOffset, int length, int max);
+
+}
@@ -0,0 +1,252 @@
+package chess.nnue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+
+public class Network {
+
+	/*
+	 * An efficiently updatable neural network (NNUE) evaluation: 768 inputs, one for every piece on
+	 * every square, a hidden layer of HIDDEN neurons for each side's point of view, and one output.
+	 *
+	 * 		inputs			768 per point of view: piece index (from that side's point of view, so
+	 * 						"our pawn" rather than "white pawn") * 64 + square (flipped for black)
+	 * 		feature layer	int16 weights, 768 x HIDDEN, and HIDDEN int16 biases. Its output is the
+	 * 						accumulator (see Accumulator), which is only ever updated, never recomputed
+	 * 		activation		clipped ReLU, clamp(x, 0, ACTIVATION_MAX)
+	 * 		output layer	int8 weights, 2 x HIDDEN (the side to move's half first), and an int32 bias
+	 *
+	 * and the score in centipawns is (output layer sum + bias) * SCALE / (ACTIVATION_MAX * WEIGHT_SCALE).
+	 *
+	 * Almost all the work of a full evaluation would be the feature layer: HIDDEN additions for every
+	 * piece on the board. But a move only turns two to four inputs on or off, so the accumulator
+	 * just adds and subtracts those rows of weights as the Board moves pieces, and evaluating a
+	 * position is only the output layer, a dot product of 2 x HIDDEN. Both run on SIMD lanes through
+	 * the Vector API when it's available (see VectorKernels).
+	 *
+	 * 	File format
+	 * 	-----------
+	 * 	Little endian, a 32 byte header and then the layers in the order above:
+	 *
+	 * 		magic			4 bytes		"BBNN"
+	 * 		version			4 bytes		1
+	 * 		hidden			4 bytes		HIDDEN, a multiple of 16
+	 * 		activation max	4 bytes		at most 127
+	 * 		weight scale	4 bytes		what the output weights were multiplied by
+	 * 		scale			4 bytes		centipawns per unit of output
+	 * 		reserved		8 bytes
+	 *
+	 * The file is memory mapped and its layers copied out into arrays once, which the JIT (and the
+	 * Vector API, which on Java 17 can't read from a mapping as fast as from an array) handles best.
+	 * A Network never changes after it's loaded, so any number of search threads can share one.
+	 */
+
+	public static final int MAGIC = 0x4E4E4242;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int INPUTS = 768;
+
+	// the Vector API, or plain loops if the module isn't there
+	private static final Kernels KERNELS = kernels();
+
+	private final int hidden;
+	private final int activationMax;
+	private final int weightScale;
+	private final int scale;
+
+	private final short[] featureWeights;
+	private final short[] featureBiases;
+	private final byte[] outputWeights;
+	private final int outputBias;
+
+	/**
+	 * Loads a network file.
+	 * @throws IllegalArgumentException if the file isn't a network, or is the wrong size
+	 */
+	public Network(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			if(buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a network file: " + path);
+			if(buffer.getInt(4) != VERSION) throw new IllegalArgumentException("Unsupported network version " + buffer.getInt(4) + ": " + path);
+			hidden = buffer.getInt(8);
+			activationMax = buffer.getInt(12);
+			weightScale = buffer.getInt(16);
+			scale = buffer.getInt(20);
+			if(hidden <= 0 || hidden % 16 != 0) throw new IllegalArgumentException("The hidden layer has to be a multiple of 16: " + hidden);
+			if(activationMax <= 0 || activationMax > 127 || weightScale <= 0) throw new IllegalArgumentException("Bad quantization in " + path);
+
+			long expected = HEADER_SIZE + 2L * INPUTS * hidden + 2L * hidden + 2L * hidden + 4;
+			if(channel.size() != expected) throw new IllegalArgumentException("A network with " + hidden + " hidden neurons is " + expected + " bytes: " + path);
+
+			buffer.position(HEADER_SIZE);
+			featureWeights = new short[INPUTS * hidden];
+			buffer.asShortBuffer().get(featureWeights);
+			buffer.position(buffer.position() + featureWeights.length * 2);
+			featureBiases = new short[hidden];
+			buffer.asShortBuffer().get(featureBiases);
+			buffer.position(buffer.position() + hidden * 2);
+			outputWeights = new byte[2 * hidden];
+			buffer.get(outputWeights);
+			outputBias = buffer.getInt();
+		}
+	}
+
+	/**
+	 * Creates a network straight from its layers, for writing one (see write) or for tests.
+	 */
+	public Network(int hidden, int activationMax, int weightScale, int scale, short[] featureWeights, short[] featureBiases, byte[] outputWeights, int outputBias) {
+		if(hidden <= 0 || hidden % 16 != 0) throw new IllegalArgumentException("The hidden layer has to be a multiple of 16: " + hidden);
+		if(featureWeights.length != INPUTS * hidden || featureBiases.length != hidden || outputWeights.length != 2 * hidden) {
+			throw new IllegalArgumentException("The layers don't match a hidden layer of " + hidden);
+		}
+		this.hidden = hidden;
+		this.activationMax = activationMax;
+		this.weightScale = weightScale;
+		this.scale = scale;
+		this.featureWeights = featureWeights;
+		this.featureBiases = featureBiases;
+		this.outputWeights = outputWeights;
+		this.outputBias = outputBias;
+	}
+
+	/**
+	 * Evaluates the position an accumulator is following, in centipawns from the side to move's
+	 * point of view.
+	 */
+	public int evaluate(Accumulator accumulator, int sideToMove) {
+		short[] values = accumulator.getValues();
+		int us = sideToMove * hidden;
+		int them = (sideToMove ^ 1) * hidden;
+		long sum = (long)KERNELS.clampedDot(values, us, outputWeights, 0, hidden, activationMax)
+				+ KERNELS.clampedDot(values, them, outputWeights, hidden, hidden, activationMax) + outputBias;
+		return (int)(sum * scale / ((long)activationMax * weightScale));
+	}
+
+	/**
+	 * Writes the network in the file format above.
+	 */
+	public void write(Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * featureWeights.length + 2 * hidden + 2 * hidden + 4).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(hidden).putInt(activationMax).putInt(weightScale).putInt(scale).putLong(0);
+		buffer.asShortBuffer().put(featureWeights);
+		buffer.position(buffer.position() + featureWeights.length * 2);
+		buffer.asShortBuffer().put(featureBiases);
+		buffer.position(buffer.position() + hidden * 2);
+		buffer.put(outputWeights).putInt(outputBias).flip();
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the network runs on the Vector API, false if it runs on plain loops.
+	 */
+	public static boolean isVectorized() {
+		return KERNELS instanceof VectorKernels;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public int getHidden() {
+		return hidden;
+	}
+
+	short[] getFeatureWeights() {
+		return featureWeights;
+	}
+
+	short[] getFeatureBiases() {
+		return featureBiases;
+	}
+
+	static Kernels getKernels() {
+		return KERNELS;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the Vector API is an incubator module, so it's only there when the JVM was started with
+	// --add-modules jdk.incubator.vector. VectorKernels is loaded by name so that nothing touches it
+	// (and fails to load it) otherwise.
+	private static Kernels kernels() {
+		if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && !Boolean.getBoolean("chess.nnue.scalar")) {
+			try {
+				return (Kernels)Class.forName("chess.nnue.VectorKernels").getDeclaredConstructor().newInstance();
+			} catch(ReflectiveOperationException | LinkageError e) {
+				// fall back to the loops below
+			}
+		}
+		return new ScalarKernels();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							BENCHMARK										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Plays random moves on a board that carries an accumulator and prints how fast the updates and
+	 * evaluations go. That the updates are exact is checked by NetworkTest. Arguments: network file [plies]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 1) {
+			System.out.println("usage: Network <file> [plies]");
+			return;
+		}
+		Network network = new Network(Paths.get(args[0]));
+		int plies = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+		System.out.printf("%d hidden neurons, %s%n", network.getHidden(), isVectorized() ? "Vector API" : "scalar loops");
+
+		Board board = new Board();
+		Accumulator accumulator = new Accumulator(network);
+		board.setAccumulator(accumulator);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		Random random = new Random(1);
+
+		long sum = 0;
+		long start = System.nanoTime();
+		board.setFen(new Board().toFen());
+		for(int ply = 0, depth = 0; ply < plies; ply++) {
+			int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+			if(count == 0 || depth == 40) {
+				board.setFen(new Board().toFen());
+				depth = 0;
+				continue;
+			}
+			int move = moves[random.nextInt(count)];
+			board.makeMove(move);
+			sum += network.evaluate(accumulator, board.getSideToMove());
+			board.unmakeMove(move);
+			sum += network.evaluate(accumulator, board.getSideToMove());
+			board.makeMove(move);
+			depth++;
+		}
+		double nanos = System.nanoTime() - start;
+		System.out.printf("%.0f ns per ply (three updates, two evaluations and a move generation), checksum %d%n", nanos / plies, sum);
+	}
+
+}
@@ -0,0 +1,41 @@
+package chess.nnue;
+
+class ScalarKernels implements Kernels {
+
+	/*
+	 * Plain loops, for when the Vector API isn't available. They give exactly the same results as
+	 * VectorKernels, only several times slower: HotSpot doesn't vectorize these loops on its own.
+	 */
+
+	@Override
+	public void add(short[] values, int valuesOffset, short[] weights, int weightsOffset, int length) {
+		for(int i = 0; i < length; i++) {
+			values[valuesOffset + i] += weights[weightsOffset + i];
+		}
+	}
+
+	@Override
+	public void subtract(short[] values, int valuesOffset, short[] weights, int weightsOffset, int length) {
+		for(int i = 0; i < length; i++) {
+			values[valuesOffset + i] -= weights[weightsOffset + i];
+		}
+	}
+
+	@Override
+	public void addSubtract(short[] values, int valuesOffset, short[] weights, int addOffset, int subtractOffset, int length) {
+		for(int i = 0; i < length; i++) {
+			values[valuesOffset + i] += weights[addOffset + i] - weights[subtractOffset + i];
+		}
+	}
+
+	@Override
+	public int clampedDot(short[] values, int valuesOffset, byte[] weights, int weightsOffset, int length, int max) {
+		int sum = 0;
+		for(int i = 0; i < length; i++) {
+			int value = Math.max(0, Math.min(values[valuesOffset + i], max));
+			sum += value * weights[weightsOffset + i];
+		}
+		return sum;
+	}
+
+}
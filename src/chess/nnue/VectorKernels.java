@@ -0,0 +1,87 @@
+package chess.nnue;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorKernels implements Kernels {
+
+	/*
+	 * The same arithmetic as ScalarKernels on the Vector API, as wide as the CPU allows (16 shorts at
+	 * a time with AVX2, 32 with AVX-512). Only ever loaded when the jdk.incubator.vector module has
+	 * been added to the JVM (java --add-modules jdk.incubator.vector), see Network.kernels.
+	 *
+	 * The dot product clamps a vector of int16 sums to [0, max], multiplies it lane by lane with the
+	 * int8 weights widened to int16 (the products fit, since max is at most 127), and widens the
+	 * products to two int vectors to add them up without overflowing.
+	 */
+
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED.withShape(SHORTS.vectorShape());
+	private static final int LANES = SHORTS.length();
+
+	@Override
+	public void add(short[] values, int valuesOffset, short[] weights, int weightsOffset, int length) {
+		int i = 0;
+		for(; i <= length - LANES; i += LANES) {
+			ShortVector.fromArray(SHORTS, values, valuesOffset + i)
+					.add(ShortVector.fromArray(SHORTS, weights, weightsOffset + i))
+					.intoArray(values, valuesOffset + i);
+		}
+		for(; i < length; i++) {
+			values[valuesOffset + i] += weights[weightsOffset + i];
+		}
+	}
+
+	@Override
+	public void subtract(short[] values, int valuesOffset, short[] weights, int weightsOffset, int length) {
+		int i = 0;
+		for(; i <= length - LANES; i += LANES) {
+			ShortVector.fromArray(SHORTS, values, valuesOffset + i)
+					.sub(ShortVector.fromArray(SHORTS, weights, weightsOffset + i))
+					.intoArray(values, valuesOffset + i);
+		}
+		for(; i < length; i++) {
+			values[valuesOffset + i] -= weights[weightsOffset + i];
+		}
+	}
+
+	@Override
+	public void addSubtract(short[] values, int valuesOffset, short[] weights, int addOffset, int subtractOffset, int length) {
+		int i = 0;
+		for(; i <= length - LANES; i += LANES) {
+			ShortVector.fromArray(SHORTS, values, valuesOffset + i)
+					.add(ShortVector.fromArray(SHORTS, weights, addOffset + i))
+					.sub(ShortVector.fromArray(SHORTS, weights, subtractOffset + i))
+					.intoArray(values, valuesOffset + i);
+		}
+		for(; i < length; i++) {
+			values[valuesOffset + i] += weights[addOffset + i] - weights[subtractOffset + i];
+		}
+	}
+
+	@Override
+	public int clampedDot(short[] values, int valuesOffset, byte[] weights, int weightsOffset, int length, int max) {
+		IntVector sum = IntVector.zero(INTS);
+		ShortVector zero = ShortVector.zero(SHORTS);
+		ShortVector ceiling = ShortVector.broadcast(SHORTS, (short)max);
+		int i = 0;
+		for(; i <= length - LANES; i += LANES) {
+			ShortVector clamped = ShortVector.fromArray(SHORTS, values, valuesOffset + i).max(zero).min(ceiling);
+			ShortVector widened = (ShortVector)ByteVector.fromArray(BYTES, weights, weightsOffset + i).convertShape(VectorOperators.B2S, SHORTS, 0);
+			ShortVector products = clamped.mul(widened);
+			sum = sum.add(products.convertShape(VectorOperators.S2I, INTS, 0))
+					.add(products.convertShape(VectorOperators.S2I, INTS, 1));
+		}
+		int total = sum.reduceLanes(VectorOperators.ADD);
+		for(; i < length; i++) {
+			total += Math.max(0, Math.min(values[valuesOffset + i], max)) * weights[weightsOffset + i];
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,228 @@
+package chess.search;
+
+import chess.eval.Evaluator;
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class MovePicker {
+
+	/*
+	 * Hands out the moves of a position one at a time, best guesses first, and only does the work
+	 * for each group of moves once the groups before it have run out:
+	 *
+	 * 		1. the hash move, checked for legality but not generated at all
+	 * 		2. captures and promotions, generated together and picked by most valuable victim / least
+	 * 		   valuable attacker, plus the value of the piece a pawn promotes to
+	 * 		3. the two killer moves of this ply: quiet moves that caused a cutoff in a sibling position,
+	 * 		   also only checked for legality
+	 * 		4. every other quiet move, generated together and picked by the history table
+	 * 		5. the captures from stage 2 that lose material
+	 *
+	 * A capture only counts as losing if the static exchange evaluation (Board.see) says so, and that
+	 * only runs for captures that take a less valuable piece than the one capturing, once a capture
+	 * is picked. Without the quiet moves (the quiescence search) the losing captures aren't returned
+	 * at all: that's where they're pruned.
+	 *
+	 * Most cutoffs come from the hash move or a capture, and then the quiet moves are never generated
+	 * or scored at all. Within a stage the moves are picked with one step of a selection sort each
+	 * time, which is cheaper than sorting when only the first few get looked at.
+	 *
+	 * The search keeps one picker per ply, so a picker is set up again with init() for every node and
+	 * never allocates anything. It reads the history table straight out of the search that owns it.
+	 */
+
+	private static final int HASH_MOVE = 0;
+	private static final int GENERATE_CAPTURES = 1;
+	private static final int CAPTURES = 2;
+	private static final int FIRST_KILLER = 3;
+	private static final int SECOND_KILLER = 4;
+	private static final int GENERATE_QUIETS = 5;
+	private static final int QUIETS = 6;
+	private static final int BAD_CAPTURES = 7;
+	private static final int DONE = 8;
+
+	// capture scores by victim and attacker type (Constants.PAWN to Constants.KING): the victim's
+	// value counts for much more than the attacker's, so PxQ comes before QxQ which comes before QxR
+	static final int[][] MVV_LVA = new int[6][6];
+
+	static {
+		for(int victim = Constants.PAWN; victim <= Constants.KING; victim++) {
+			for(int attacker = Constants.PAWN; attacker <= Constants.KING; attacker++) {
+				MVV_LVA[victim][attacker] = Evaluator.PIECE_VALUES[victim] * 10 - Evaluator.PIECE_VALUES[attacker] / 10;
+			}
+		}
+	}
+
+	private final Board board;
+	private final int[] history;
+
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+	private int index;
+	private int end;
+
+	// the losing captures are set aside at the start of the moves array, in slots already handed out
+	private int badCaptures;
+
+	private int stage;
+	private int hashMove;
+	private int firstKiller;
+	private int secondKiller;
+	private boolean quiets;
+
+	/**
+	 * @param board the board the search plays its moves on
+	 * @param history the search's history table, indexed by piece * 64 + ending square
+	 */
+	MovePicker(Board board, int[] history) {
+		this.board = board;
+		this.history = history;
+	}
+
+	/**
+	 * Starts over for the position on the board.
+	 * @param hashMove the move from the transposition table, or Move.NONE. It doesn't have to be legal.
+	 * @param firstKiller a quiet move to try right after the captures, or Move.NONE
+	 * @param secondKiller another one, or Move.NONE
+	 * @param quiets false to stop after the captures, as the quiescence search does
+	 */
+	void init(int hashMove, int firstKiller, int secondKiller, boolean quiets) {
+		this.hashMove = hashMove;
+		this.firstKiller = firstKiller;
+		this.secondKiller = secondKiller;
+		this.quiets = quiets;
+		stage = HASH_MOVE;
+		index = 0;
+		end = 0;
+		badCaptures = 0;
+	}
+
+	/**
+	 * Returns the next legal move, or Move.NONE when there are no more.
+	 */
+	int next() {
+		while(true) {
+			switch(stage) {
+			case HASH_MOVE:
+				stage = GENERATE_CAPTURES;
+				if(hashMove != Move.NONE && (quiets || Move.isCapture(hashMove) || Move.isPromotion(hashMove)) && board.isLegal(hashMove)) return hashMove;
+				break;
+
+			case GENERATE_CAPTURES:
+				index = 0;
+				end = MoveGenerator.generateLegalCaptures(board, moves, 0);
+				scoreCaptures();
+				stage = CAPTURES;
+				break;
+
+			case CAPTURES:
+				while(index < end) {
+					int move = pickBest();
+					if(move == hashMove) continue;
+					if(isLosingCapture(move)) {
+						moves[badCaptures++] = move;
+						continue;
+					}
+					return move;
+				}
+				stage = quiets ? FIRST_KILLER : DONE;
+				break;
+
+			case FIRST_KILLER:
+				stage = SECOND_KILLER;
+				if(isUsableKiller(firstKiller)) return firstKiller;
+				break;
+
+			case SECOND_KILLER:
+				stage = GENERATE_QUIETS;
+				if(secondKiller != firstKiller && isUsableKiller(secondKiller)) return secondKiller;
+				break;
+
+			case GENERATE_QUIETS:
+				// after the losing captures, which stay where they are
+				index = badCaptures;
+				end = MoveGenerator.generateLegalQuiets(board, moves, badCaptures);
+				scoreQuiets();
+				stage = QUIETS;
+				break;
+
+			case QUIETS:
+				while(index < end) {
+					int move = pickBest();
+					if(move != hashMove && move != firstKiller && move != secondKiller) return move;
+				}
+				index = 0;
+				stage = BAD_CAPTURES;
+				break;
+
+			case BAD_CAPTURES:
+				// already in the order they were picked in
+				if(index < badCaptures) return moves[index++];
+				stage = DONE;
+				break;
+
+			default:
+				return Move.NONE;
+			}
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void scoreCaptures() {
+		for(int i = 0; i < end; i++) {
+			int move = moves[i];
+			int score = 0;
+			if(Move.isCapture(move)) {
+				int victim = Move.getFlag(move) == Move.EN_PASSANT ? Constants.PAWN : board.pieceAt(Move.getTo(move)) % Constants.BLACK_OFFSET;
+				score = MVV_LVA[victim][board.pieceAt(Move.getFrom(move)) % Constants.BLACK_OFFSET];
+			}
+			if(Move.isPromotion(move)) score += Evaluator.PIECE_VALUES[Move.getPromotionType(move)];
+			scores[i] = score;
+		}
+	}
+
+	private void scoreQuiets() {
+		for(int i = index; i < end; i++) {
+			int move = moves[i];
+			scores[i] = history[board.pieceAt(Move.getFrom(move)) * 64 + Move.getTo(move)];
+		}
+	}
+
+	// one step of a selection sort: swap the best remaining move into slot index and return it
+	private int pickBest() {
+		int bestIndex = index;
+		for(int j = index + 1; j < end; j++) {
+			if(scores[j] > scores[bestIndex]) bestIndex = j;
+		}
+		int move = moves[bestIndex];
+		moves[bestIndex] = moves[index];
+		scores[bestIndex] = scores[index];
+		index++;
+		return move;
+	}
+
+	// taking something at least as valuable as the capturing piece can't lose material, and a legal
+	// king capture can't be taken back at all, so the exchange only has to be worked out for the
+	// rest. Promotions always count as good captures, and pawns taking en passant win a pawn or trade.
+	private boolean isLosingCapture(int move) {
+		if(!Move.isCapture(move) || Move.getFlag(move) == Move.EN_PASSANT || Move.isPromotion(move)) return false;
+		int attacker = board.pieceAt(Move.getFrom(move)) % Constants.BLACK_OFFSET;
+		int victim = board.pieceAt(Move.getTo(move)) % Constants.BLACK_OFFSET;
+		if(attacker == Constants.KING || Evaluator.PIECE_VALUES[victim] >= Evaluator.PIECE_VALUES[attacker]) return false;
+		return board.see(move) < 0;
+	}
+
+	// killers come from other positions, so they may not even be possible here, and a square that was
+	// empty there can hold a piece here
+	private boolean isUsableKiller(int killer) {
+		return killer != Move.NONE && killer != hashMove && !Move.isCapture(killer) && !Move.isPromotion(killer) && board.isLegal(killer);
+	}
+
+}
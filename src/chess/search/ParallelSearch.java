@@ -0,0 +1,315 @@
+package chess.search;
+
+import chess.game.Board;
+import chess.nnue.Network;
+import chess.tablebase.Tablebases;
+import chess.util.Move;
+
+public class ParallelSearch {
+
+	/*
+	 * 	Lazy SMP
+	 * 	--------
+	 * 	The simplest way to put more cores to work on a chess search turns out to also be one of the
+	 * 	best: start several completely independent searches of the same position and let them share
+	 * 	one transposition table. The threads never talk to each other directly, but every entry one of
+	 * 	them stores can save the others from searching that position, and because they all reach
+	 * 	positions in a slightly different order (half of the helpers run one ply deeper), the main
+	 * 	thread ends up finding what it needs in the table far more often.
+	 *
+	 * 	Every thread has its own Search object with its own copy of the board and its own buffers.
+	 * 	Those, and the threads themselves, are created once in the constructor and then reused for
+	 * 	every search, so a long session doesn't generate any garbage. The calling thread acts as the
+	 * 	main thread, and the helpers just wait for the next search in between.
+	 */
+
+	private final TranspositionTable table;
+	private final Search[] workers;
+	private final Thread[] helpers;
+
+	// the position and limits of the current search, plus a counter the helpers use to notice that a
+	// new search has started. All of it is guarded by this object's monitor.
+	private Board position;
+	private SearchLimits limits;
+	private long generation;
+	private int runningHelpers;
+	private boolean closed;
+
+	private SearchListener listener;
+
+	public ParallelSearch(TranspositionTable table, int threads) {
+
+		this.table = table;
+		workers = new Search[Math.max(threads, 1)];
+		helpers = new Thread[workers.length - 1];
+
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Search(table);
+			workers[i].setHelperIndex(i);
+		}
+
+		// the main thread reports progress, and its speed to the metrics, with the node count of every
+		// thread added together
+		workers[0].setSearchNodes(this::getNodes);
+		workers[0].setListener((depth, score, nodes, millis, pv, pvLength) -> {
+			if(listener != null) listener.iterationComplete(depth, score, getNodes(), millis, pv, pvLength);
+		});
+
+		for(int i = 0; i < helpers.length; i++) {
+			Search worker = workers[i + 1];
+			helpers[i] = new Thread(() -> helperLoop(worker), "search-helper-" + (i + 1));
+			helpers[i].setDaemon(true);
+			helpers[i].start();
+		}
+	}
+
+	/**
+	 * Searches a position on every thread and returns the best move. The calling thread does the main
+	 * search and decides when to stop, and all the helpers have finished by the time this returns.
+	 */
+	public int search(Board position, SearchLimits limits) {
+		clearStop();
+		return run(position, limits);
+	}
+
+	/**
+	 * Does the same as search, but without clearing the stop flags first. A caller that needs a
+	 * stop() from another thread to count even if it arrives before the search has started can
+	 * call clearStop() itself ahead of time and then this.
+	 */
+	public int run(Board position, SearchLimits limits) {
+
+		synchronized(this) {
+			this.position = position;
+			this.limits = limits;
+			runningHelpers = helpers.length;
+			generation++;
+			notifyAll();
+		}
+
+		workers[0].run(position, limits);
+
+		// the main thread decides when the search is over
+		for(int i = 1; i < workers.length; i++) {
+			workers[i].stop();
+		}
+		synchronized(this) {
+			while(runningHelpers > 0) {
+				try {
+					wait();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		return workers[selectBestWorker()].getBestMove();
+	}
+
+	/**
+	 * Asks the running search to stop as soon as possible. Safe to call from any thread.
+	 */
+	public void stop() {
+		for(Search worker : workers) {
+			worker.stop();
+		}
+	}
+
+	/**
+	 * Resets the stop flags of every thread, which search() does on its own.
+	 */
+	public void clearStop() {
+		for(Search worker : workers) {
+			worker.clearStop();
+		}
+	}
+
+	/**
+	 * Passes a ponderhit on to every thread (see Search.ponderHit).
+	 */
+	public void ponderHit() {
+		for(Search worker : workers) {
+			worker.ponderHit();
+		}
+	}
+
+	/**
+	 * Stops the helper threads for good. The object can't be used after this.
+	 */
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void helperLoop(Search worker) {
+		long seen = 0;
+		while(true) {
+			Board searchPosition;
+			SearchLimits searchLimits;
+			synchronized(this) {
+				while(generation == seen && !closed) {
+					try {
+						wait();
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+				if(closed) return;
+				seen = generation;
+				searchPosition = position;
+				searchLimits = limits;
+			}
+
+			worker.run(searchPosition, searchLimits);
+
+			synchronized(this) {
+				runningHelpers--;
+				notifyAll();
+			}
+		}
+	}
+
+	// the main thread's move, unless a helper finished a deeper iteration
+	private int selectBestWorker() {
+		int best = 0;
+		for(int i = 1; i < workers.length; i++) {
+			if(workers[i].getBestMove() != Move.NONE && workers[i].getCompletedDepth() > workers[best].getCompletedDepth()) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the endgame tables every thread probes, or null for none. Must not be called while
+	 * searching.
+	 */
+	public void setTablebases(Tablebases tablebases) {
+		for(Search worker : workers) {
+			worker.setTablebases(tablebases);
+		}
+	}
+
+	/**
+	 * Sets the network every thread evaluates with, or null for the usual evaluation. The network is
+	 * shared and each thread gets its own accumulator. Must not be called while searching.
+	 */
+	public void setNetwork(Network network) {
+		for(Search worker : workers) {
+			worker.setNetwork(network);
+		}
+	}
+
+	/**
+	 * Returns the nodes searched by every thread together during the current or last search.
+	 */
+	public long getNodes() {
+		long nodes = 0;
+		for(Search worker : workers) {
+			nodes += worker.getNodes();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns every thread's own search, so that their counters (nodes, hash hits, cutoffs and so on)
+	 * can be looked at one by one.
+	 */
+	public Search getWorker(int index) {
+		return workers[index];
+	}
+
+	public long getTablebaseHits() {
+		long hits = 0;
+		for(Search worker : workers) {
+			hits += worker.getTablebaseHits();
+		}
+		return hits;
+	}
+
+	public int getThreads() {
+		return workers.length;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	public Search getMainSearch() {
+		return workers[0];
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							SPEEDUP BENCHMARK								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// middlegame positions for measuring time to depth
+	private static final String[] BENCH_FENS = {
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+			"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 8",
+			"2rq1rk1/pb1nbppp/1p2pn2/2pp4/3P4/1P1BPN2/PBPN1PPP/2RQ1RK1 w - - 0 11"
+	};
+
+	/**
+	 * Measures time to depth with one thread and with N threads on a few middlegame positions and
+	 * prints the speedup. Arguments: [threads] [depth] [hash MB]
+	 */
+	public static void main(String[] args) {
+
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		long hashMb = args.length > 2 ? Long.parseLong(args[2]) : 256;
+
+		// a shallower run first, so the JIT has compiled the search before anything is timed
+		timeToDepth(threads, Math.max(depth - 2, 1), hashMb, false);
+
+		long singleMillis = timeToDepth(1, depth, hashMb, true);
+		long parallelMillis = timeToDepth(threads, depth, hashMb, true);
+
+		System.out.printf("time to depth %d: 1 thread %,d ms, %d threads %,d ms, speedup %.2fx%n", depth,
+				singleMillis, threads, parallelMillis, (double)singleMillis / Math.max(parallelMillis, 1));
+	}
+
+	private static long timeToDepth(int threads, int depth, long hashMb, boolean print) {
+		TranspositionTable table = new TranspositionTable(hashMb);
+		ParallelSearch search = new ParallelSearch(table, threads);
+		SearchLimits limits = SearchLimits.depth(depth);
+
+		long total = 0;
+		long nodes = 0;
+		for(String fen : BENCH_FENS) {
+			table.clear();
+			Board board = new Board(fen);
+			long start = System.nanoTime();
+			search.search(board, limits);
+			total += System.nanoTime() - start;
+			nodes += search.getNodes();
+		}
+		search.close();
+
+		long millis = total / 1_000_000L;
+		if(print) System.out.printf("%d thread(s): %,d ms, %,d nodes, %,d nps%n", threads, millis, nodes, nodes * 1000 / Math.max(millis, 1));
+		return millis;
+	}
+
+}
@@ -0,0 +1,753 @@
+package chess.search;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import chess.eval.Evaluator;
+import chess.eval.PawnHashTable;
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.metrics.EngineMetrics;
+import chess.metrics.SearchIterationEvent;
+import chess.nnue.Accumulator;
+import chess.nnue.Network;
+import chess.tablebase.Material;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Tablebases;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class Search {
+
+	/*
+	 * 	This is the engine's search. It looks for the best move in a position with:
+	 *
+	 * 		- negamax alpha-beta: each side maximizes its own score, which is just the negation of the
+	 * 		  opponent's score, and any line that is already worse than an alternative is cut off
+	 * 		- iterative deepening: search depth 1, then 2, then 3... until the time runs out. It sounds
+	 * 		  wasteful, but the transposition table and the principal variation from the previous depth
+	 * 		  make the next depth much faster, and we always have a finished result to fall back on
+	 * 		- aspiration windows: once the score settles down, each iteration starts with a narrow
+	 * 		  window around the previous score, which cuts off more of the tree
+	 * 		- principal variation search: after the first move, every move is searched with a zero
+	 * 		  width window just to prove it's worse, and only re-searched if it isn't
+	 * 		- null move pruning: if we can pass the turn and still be above beta, the position is
+	 * 		  almost certainly good enough to cut off without searching it properly
+	 * 		- move ordering: the hash move, then captures, then killer moves, then the rest by their
+	 * 		  history, handed out in stages by a MovePicker so that most nodes never generate their quiet
+	 * 		  moves at all
+	 * 		- quiescence search: at the end of the main search we keep searching captures until the
+	 * 		  position is quiet, so the evaluation isn't fooled by a piece that is about to be taken
+	 * 		- draw detection: repetitions (of the game before the search too, since the board carries
+	 * 		  its history) and the fifty move rule
+	 * 		- endgame tablebases (optional): once few enough pieces are left, the exact result is
+	 * 		  looked up instead of searched
+	 *
+	 * 	A Search object owns its own copy of the board and every buffer it needs, all allocated in the
+	 * 	constructor, so calling search() over and over never creates any garbage. That also means
+	 * 	several of them can search at once on different threads, sharing only the transposition
+	 * 	table (see ParallelSearch).
+	 */
+
+	public static final int MAX_PLY = 128;
+	public static final int INFINITY = 32000;
+	public static final int MATE = 31000;
+
+	// any score at least this big is a forced mate
+	public static final int MATE_BOUND = MATE - MAX_PLY;
+
+	// how often (in nodes) the search looks at the clock, must be a power of two
+	private static final int CHECK_INTERVAL = 2048;
+
+	private static final int ASPIRATION_DEPTH = 5;
+	private static final int ASPIRATION_WINDOW = 25;
+
+	// history scores stay within plus or minus this much
+	private static final int MAX_HISTORY = 16384;
+
+	// prints UCI style "info" lines, which is handy for watching a search from the console
+	public static final SearchListener PRINT_INFO = (depth, score, nodes, millis, pv, pvLength) ->
+			System.out.println(formatInfo(depth, score, nodes, millis, pv, pvLength));
+
+	private final Board board = new Board();
+	private final TranspositionTable table;
+
+	// move ordering: a move picker per ply, two killer moves per ply, and the history table, which
+	// scores quiet moves by piece and ending square (piece * 64 + square) by how often they caused
+	// cutoffs. The quiet moves each ply has searched so far are kept for the history update.
+	private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+	private final int[] killers = new int[MAX_PLY * 2];
+	private final int[] history = new int[12 * 64];
+	private final int[] quietsSearched = new int[MAX_PLY * MoveGenerator.MAX_MOVES];
+
+	// the pawn structure terms of the evaluation, cached per thread
+	private final PawnHashTable pawnTable = new PawnHashTable(PawnHashTable.DEFAULT_KILOBYTES);
+
+	// a neural network that evaluates positions instead of the Evaluator, or null. Its accumulator
+	// rides along on the board (see Board.setAccumulator).
+	private Network network;
+
+	// triangular principal variation table: pv[ply] holds the best line found from that ply
+	private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final int[] pvLength = new int[MAX_PLY + 1];
+
+	// the principal variation of the last completed iteration
+	private final int[] rootPv = new int[MAX_PLY];
+	private int rootPvLength;
+
+	private SearchListener listener;
+
+	// endgame tables, or null, and the buffers for probing them
+	private Tablebases tablebases;
+	private final int[] tablebaseSquares = new int[Material.MAX_PIECES];
+	private final int[] tablebaseScratch = new int[Material.MAX_PIECES];
+	private long tablebaseHits;
+
+	// what this search is doing, counted in plain fields since only its own thread ever writes them
+	// (see chess.metrics.EngineMetrics). The marks are the counts when the current iteration began.
+	private EngineMetrics metrics = EngineMetrics.getGlobal();
+	private long qnodes;
+	private long hashProbes;
+	private long hashHits;
+	private long betaCutoffs;
+	private long firstMoveCutoffs;
+	private long markNodes, markQnodes, markHashProbes, markHashHits, markBetaCutoffs, markFirstMoveCutoffs, markTablebaseHits;
+	private long previousIterationNodes;
+
+	// never committed, only asked whether a flight recording wants iteration events, so that an
+	// iteration only allocates one when it does
+	private final SearchIterationEvent eventProbe = new SearchIterationEvent();
+
+	// 0 for a normal search, or the index of this helper thread in a ParallelSearch. Helpers don't
+	// manage the table's age or the soft time limit, and odd numbered helpers search one ply deeper
+	// than the main thread on every iteration so that the threads don't all do the same work.
+	private int helperIndex;
+
+	// for the main thread of a ParallelSearch, the nodes of every thread added together, so that the
+	// node limit and the speed it reports to the metrics are the whole search's. Null for a search on
+	// its own.
+	private LongSupplier searchNodes;
+
+	private volatile boolean stopped;
+	private long nodes;
+	private long startNanos;
+	private long nodeLimit;
+
+	// while pondering (thinking on the opponent's time) the clock doesn't apply yet. The deadlines
+	// are set again from the moment ponderHit() is called, which can happen on another thread.
+	private volatile boolean pondering;
+	private long softLimitNanos;
+	private long hardLimitNanos;
+	private volatile long softDeadline;
+	private volatile long hardDeadline;
+
+	private int bestMove;
+	private int bestScore;
+	private int completedDepth;
+
+	public Search(TranspositionTable table) {
+		this.table = table;
+		for(int ply = 0; ply < MAX_PLY; ply++) {
+			pickers[ply] = new MovePicker(board, history);
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							ITERATIVE DEEPENING								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Searches a position until one of the limits is hit (or stop() is called) and returns the best
+	 * move found. The position is copied, so the caller's board is never touched.
+	 * @return the best move, or Move.NONE if the side to move has no legal moves
+	 */
+	public int search(Board position, SearchLimits limits) {
+		stopped = false;
+		return run(position, limits);
+	}
+
+	// the search itself, without clearing the stop flag first, so that a ParallelSearch can stop a
+	// helper before it has even started
+	int run(Board position, SearchLimits limits) {
+
+		board.copyFrom(position);
+		nodes = 0;
+		qnodes = 0;
+		hashProbes = 0;
+		hashHits = 0;
+		betaCutoffs = 0;
+		firstMoveCutoffs = 0;
+		tablebaseHits = 0;
+		previousIterationNodes = 0;
+		bestMove = Move.NONE;
+		bestScore = 0;
+		completedDepth = 0;
+		rootPvLength = 0;
+
+		// killers only make sense near the positions they came from, but the history is still a
+		// decent guess in the next search, so it's only halved
+		Arrays.fill(killers, Move.NONE);
+		for(int i = 0; i < history.length; i++) {
+			history[i] /= 2;
+		}
+
+		startNanos = System.nanoTime();
+		int us = board.getSideToMove();
+		softLimitNanos = helperIndex == 0 ? limits.softTimeLimit(us) * 1_000_000L : 0;
+		hardLimitNanos = limits.hardTimeLimit(us) * 1_000_000L;
+		setDeadlines(startNanos);
+
+		// read the ponder flag twice, so that a ponderhit that lands in between can't get lost
+		pondering = limits.isPonder();
+		if(!limits.isPonder()) pondering = false;
+
+		// the node limit is for the whole search, so only the main thread checks it, against every
+		// thread's nodes, and stops the helpers when it's reached
+		nodeLimit = limits.getNodes() > 0 && helperIndex == 0 ? limits.getNodes() : Long.MAX_VALUE;
+		int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+		if(helperIndex == 0) {
+			table.newSearch();
+			metrics.searchStarted();
+		}
+
+		int score = 0;
+		for(int iteration = 1; iteration <= maxDepth; iteration++) {
+			int depth = Math.min(iteration + (helperIndex & 1), MAX_PLY - 1);
+			long iterationStart = System.nanoTime();
+			markIteration();
+			SearchIterationEvent event = null;
+			if(eventProbe.isEnabled()) {
+				event = new SearchIterationEvent();
+				event.begin();
+			}
+
+			score = aspirationSearch(depth, score);
+
+			// a search that was cut off part way through an iteration can't be trusted, so we keep the
+			// result of the last complete iteration. What it searched still counts in the totals.
+			if(stopped && completedDepth > 0) {
+				recordIteration(null, -1, 0, iterationStart);
+				break;
+			}
+			recordIteration(event, depth, score, iterationStart);
+
+			completedDepth = depth;
+			bestScore = score;
+			rootPvLength = pvLength[0];
+			System.arraycopy(pv[0], 0, rootPv, 0, rootPvLength);
+			if(rootPvLength > 0) bestMove = rootPv[0];
+
+			if(listener != null) {
+				listener.iterationComplete(depth, score, nodes, getElapsedMillis(), rootPv, rootPvLength);
+			}
+
+			// don't start an iteration that we probably can't finish
+			if((!pondering && System.nanoTime() >= softDeadline) || stopped) break;
+
+			// once the depth covers a forced mate, searching deeper can't find a shorter one
+			if(Math.abs(score) >= MATE_BOUND && depth >= MATE - Math.abs(score) && !limits.isInfinite() && !pondering) break;
+		}
+
+		return bestMove;
+	}
+
+	private int aspirationSearch(int depth, int previousScore) {
+
+		int delta = ASPIRATION_WINDOW;
+		int alpha = -INFINITY;
+		int beta = INFINITY;
+		if(depth >= ASPIRATION_DEPTH) {
+			alpha = Math.max(previousScore - delta, -INFINITY);
+			beta = Math.min(previousScore + delta, INFINITY);
+		}
+
+		// when the score falls outside of the window we only know a bound on it, so we widen the
+		// window on that side and search again
+		while(true) {
+			int score = negamax(depth, alpha, beta, 0, true);
+			if(stopped && completedDepth > 0) return score;
+
+			if(score <= alpha) {
+				beta = (alpha + beta) / 2;
+				alpha = Math.max(score - delta, -INFINITY);
+			} else if(score >= beta) {
+				beta = Math.min(score + delta, INFINITY);
+			} else {
+				return score;
+			}
+			delta += delta / 2;
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							ALPHA-BETA										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private int negamax(int depth, int alpha, int beta, int ply, boolean nullAllowed) {
+
+		pvLength[ply] = 0;
+		int us = board.getSideToMove();
+		boolean inCheck = board.isInCheck();
+		boolean pvNode = beta - alpha > 1;
+
+		// being in check is dangerous enough that we always look one move further
+		if(inCheck) depth++;
+
+		if(depth <= 0) return quiesce(alpha, beta, ply);
+
+		if((++nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+		if(stopped && completedDepth > 0) return 0;
+		if(ply >= MAX_PLY - 1) return evaluate();
+
+		if(ply > 0) {
+			// coming back to a position that was already on the board, or fifty moves without a
+			// capture or pawn move, is a draw no matter what the evaluation thinks
+			if(board.isRepetition() || board.isFiftyMoveDraw()) return 0;
+
+			// mate distance pruning: even mating right now can't beat a shorter mate found elsewhere
+			alpha = Math.max(alpha, -MATE + ply);
+			beta = Math.min(beta, MATE - ply - 1);
+			if(alpha >= beta) return alpha;
+
+			// with few enough pieces left the tables know the answer. Not at the root though, since
+			// they only know the result and we still need a move
+			if(tablebases != null && Long.bitCount(board.getBitBoard(Constants.ALL_PIECES)) <= tablebases.getMaxPieces()) {
+				int value = tablebases.probe(board, tablebaseSquares, tablebaseScratch);
+				if(value != Tablebase.UNKNOWN) {
+					tablebaseHits++;
+					return scoreFromTablebase(value, ply);
+				}
+			}
+		}
+
+		// transposition table lookup. Outside of the principal variation we can trust a deep
+		// enough entry and return right away
+		long key = board.getZobristKey();
+		long entry = table.probe(key);
+		hashProbes++;
+		int hashMove = Move.NONE;
+		if(entry != 0) {
+			hashHits++;
+			hashMove = TranspositionTable.getMove(entry);
+			if(!pvNode && TranspositionTable.getDepth(entry) >= depth) {
+				int hashScore = scoreFromTable(TranspositionTable.getScore(entry), ply);
+				int bound = TranspositionTable.getBound(entry);
+				if(bound == TranspositionTable.BOUND_EXACT
+						|| bound == TranspositionTable.BOUND_LOWER && hashScore >= beta
+						|| bound == TranspositionTable.BOUND_UPPER && hashScore <= alpha) {
+					return hashScore;
+				}
+			}
+		}
+
+		int staticEval = inCheck ? 0 : evaluate();
+
+		// null move pruning. We skip it in zugzwang-prone positions where the side to move only has
+		// pawns left, since passing would be better than any real move there
+		if(!pvNode && nullAllowed && !inCheck && depth >= 3 && staticEval >= beta && hasPieces(us)) {
+			int reduction = 2 + depth / 4;
+			board.makeNullMove();
+			int score = -negamax(depth - 1 - reduction, -beta, -beta + 1, ply + 1, false);
+			board.unmakeNullMove();
+			if(stopped && completedDepth > 0) return 0;
+			if(score >= beta) return score >= MATE_BOUND ? beta : score;
+		}
+
+		MovePicker picker = pickers[ply];
+		picker.init(hashMove, killers[ply * 2], killers[ply * 2 + 1], true);
+		int quietStart = ply * MoveGenerator.MAX_MOVES;
+		int quiets = 0;
+
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestMoveHere = Move.NONE;
+		int legalMoves = 0;
+
+		int move;
+		while((move = picker.next()) != Move.NONE) {
+			boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+			board.makeMove(move);
+			legalMoves++;
+
+			int score;
+			if(legalMoves == 1) {
+				score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+			} else {
+				score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1, true);
+				if(score > alpha && score < beta) {
+					score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+				}
+			}
+			board.unmakeMove(move);
+
+			if(stopped && completedDepth > 0) return 0;
+
+			if(score > best) {
+				best = score;
+				if(score > alpha) {
+					alpha = score;
+					bestMoveHere = move;
+					updatePv(ply, move);
+					if(score >= beta) {
+						betaCutoffs++;
+						if(legalMoves == 1) firstMoveCutoffs++;
+						if(quiet) updateQuietHistory(move, ply, depth, quietStart, quiets);
+						break;
+					}
+				}
+			}
+			if(quiet) quietsSearched[quietStart + quiets++] = move;
+		}
+
+		// no legal moves means checkmate or stalemate
+		if(legalMoves == 0) return inCheck ? -MATE + ply : 0;
+
+		int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+				: best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+		table.store(key, bestMoveHere, scoreToTable(best, ply), depth, bound, staticEval);
+
+		return best;
+	}
+
+	private int quiesce(int alpha, int beta, int ply) {
+
+		pvLength[ply] = 0;
+		qnodes++;
+		if((++nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+		if(stopped && completedDepth > 0) return 0;
+
+		if(ply >= MAX_PLY - 1) return evaluate();
+
+		// when we aren't in check we can "stand pat": the side to move isn't forced to capture, so the
+		// static evaluation is a lower bound on the score. In check every move has to be looked at.
+		boolean inCheck = board.isInCheck();
+		int best = -INFINITY;
+		if(!inCheck) {
+			best = evaluate();
+			if(best >= beta) return best;
+			if(best > alpha) alpha = best;
+		}
+
+		// in check we need every move (and one of them is probably a good one), otherwise only captures
+		MovePicker picker = pickers[ply];
+		picker.init(Move.NONE, Move.NONE, Move.NONE, inCheck);
+		int legalMoves = 0;
+
+		int move;
+		while((move = picker.next()) != Move.NONE) {
+			board.makeMove(move);
+			legalMoves++;
+
+			int score = -quiesce(-beta, -alpha, ply + 1);
+			board.unmakeMove(move);
+
+			if(stopped && completedDepth > 0) return 0;
+
+			if(score > best) {
+				best = score;
+				if(score > alpha) {
+					alpha = score;
+					if(score >= beta) break;
+				}
+			}
+		}
+
+		if(inCheck && legalMoves == 0) return -MATE + ply;
+		return best;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MOVE ORDERING									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * A quiet move caused a cutoff: it becomes the first killer of its ply and its history goes up,
+	 * while the history of the quiet moves searched before it (which didn't cut off) goes down.
+	 */
+	private void updateQuietHistory(int move, int ply, int depth, int quietStart, int quiets) {
+
+		if(killers[ply * 2] != move) {
+			killers[ply * 2 + 1] = killers[ply * 2];
+			killers[ply * 2] = move;
+		}
+
+		int bonus = Math.min(depth * depth, 400);
+		addHistory(move, bonus);
+		for(int i = quietStart; i < quietStart + quiets; i++) {
+			addHistory(quietsSearched[i], -bonus);
+		}
+	}
+
+	// the further a score already is from 0 the less it moves, so that scores never leave
+	// +-MAX_HISTORY and old successes fade as new ones come in
+	private void addHistory(int move, int bonus) {
+		int index = board.pieceAt(Move.getFrom(move)) * 64 + Move.getTo(move);
+		history[index] += bonus - history[index] * Math.abs(bonus) / MAX_HISTORY;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the static evaluation from the side to move's point of view. A network's output isn't bounded,
+	// so it's kept clear of the mate scores.
+	private int evaluate() {
+		if(network == null) return Evaluator.evaluate(board, pawnTable);
+		int score = network.evaluate(board.getAccumulator(), board.getSideToMove());
+		return Math.max(-MATE_BOUND + 1, Math.min(score, MATE_BOUND - 1));
+	}
+
+	private void updatePv(int ply, int move) {
+		pv[ply][0] = move;
+		System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+		pvLength[ply] = pvLength[ply + 1] + 1;
+	}
+
+	private void checkLimits() {
+		long searched = searchNodes != null && nodeLimit != Long.MAX_VALUE ? searchNodes.getAsLong() : nodes;
+		if(searched >= nodeLimit || (!pondering && System.nanoTime() >= hardDeadline)) {
+			stopped = true;
+		}
+	}
+
+	private void setDeadlines(long fromNanos) {
+		softDeadline = softLimitNanos > 0 ? fromNanos + softLimitNanos : Long.MAX_VALUE;
+		hardDeadline = hardLimitNanos > 0 ? fromNanos + hardLimitNanos : Long.MAX_VALUE;
+	}
+
+	private boolean hasPieces(int color) {
+		int offset = color * Constants.BLACK_OFFSET;
+		return (board.getBitBoard(Constants.WHITE_PIECES + color)
+				& ~board.getBitBoard(offset + Constants.PAWN) & ~board.getBitBoard(offset + Constants.KING)) != 0;
+	}
+
+	private void markIteration() {
+		markNodes = nodes;
+		markQnodes = qnodes;
+		markHashProbes = hashProbes;
+		markHashHits = hashHits;
+		markBetaCutoffs = betaCutoffs;
+		markFirstMoveCutoffs = firstMoveCutoffs;
+		markTablebaseHits = tablebaseHits;
+	}
+
+	// adds the iteration that just ended to the metrics, and to the flight recording if one wants it
+	// (event is null if none does). An iteration that was cut off has a depth of -1 and only adds to
+	// the counters.
+	private void recordIteration(SearchIterationEvent event, int depth, int score, long iterationStart) {
+		long now = System.nanoTime();
+		long iterationNodes = nodes - markNodes;
+		metrics.iterationComplete(depth, now - iterationStart, iterationNodes, qnodes - markQnodes, hashProbes - markHashProbes,
+				hashHits - markHashHits, betaCutoffs - markBetaCutoffs, firstMoveCutoffs - markFirstMoveCutoffs, tablebaseHits - markTablebaseHits);
+		if(depth < 0) return;
+
+		double branchingFactor = previousIterationNodes > 0 ? (double)iterationNodes / previousIterationNodes : 0;
+		previousIterationNodes = iterationNodes;
+		// in doubles, since nodes times a billion no longer fits in a long after a few billion nodes
+		double elapsedSeconds = Math.max(now - startNanos, 1) / 1e9;
+		long nodesPerSecond = (long)(nodes / elapsedSeconds);
+
+		// the last depth and speed are one value each, so only the main thread of a ParallelSearch
+		// writes them. Plain Searches (the game server's, the match runner's, the labeler's) run many
+		// at once and would only overwrite each other.
+		if(helperIndex == 0 && searchNodes != null) {
+			metrics.mainIterationComplete(depth, (long)(searchNodes.getAsLong() / elapsedSeconds), branchingFactor);
+		}
+
+		if(event == null) return;
+		event.end();
+		if(event.shouldCommit()) {
+			event.threadIndex = helperIndex;
+			event.depth = depth;
+			event.score = score;
+			event.nodes = iterationNodes;
+			event.qnodes = qnodes - markQnodes;
+			event.hashProbes = hashProbes - markHashProbes;
+			event.hashHits = hashHits - markHashHits;
+			event.betaCutoffs = betaCutoffs - markBetaCutoffs;
+			event.firstMoveCutoffs = firstMoveCutoffs - markFirstMoveCutoffs;
+			event.branchingFactor = branchingFactor;
+			event.nodesPerSecond = nodesPerSecond;
+			event.commit();
+		}
+	}
+
+	// mate scores are stored relative to the position instead of the root, so that the same entry
+	// gives the right mate distance no matter which ply it is found at
+	private static int scoreToTable(int score, int ply) {
+		if(score >= MATE_BOUND) return score + ply;
+		if(score <= -MATE_BOUND) return score - ply;
+		return score;
+	}
+
+	private static int scoreFromTable(int score, int ply) {
+		if(score >= MATE_BOUND) return score - ply;
+		if(score <= -MATE_BOUND) return score + ply;
+		return score;
+	}
+
+	// a tablebase mate becomes a normal mate score as long as it's short enough to be one. Longer
+	// ones still score above anything the evaluation can come up with, and shorter ones above longer
+	private static int scoreFromTablebase(int value, int ply) {
+		if(value == Tablebase.DRAW) return 0;
+		int plies = ply + Tablebase.getPlies(value);
+		int score = plies < MAX_PLY ? MATE - plies : MATE_BOUND - 1 - plies;
+		return Tablebase.isWin(value) ? score : -score;
+	}
+
+	/**
+	 * Formats the result of an iteration the way UCI "info" lines look, for example
+	 * "info depth 6 score cp 35 nodes 81244 nps 1523000 time 53 pv e2e4 e7e5".
+	 */
+	public static String formatInfo(int depth, int score, long nodes, long millis, int[] pv, int pvLength) {
+		StringBuilder builder = new StringBuilder(64 + 6 * pvLength);
+		builder.append("info depth ").append(depth).append(" score ");
+		if(score >= MATE_BOUND) {
+			builder.append("mate ").append((MATE - score + 1) / 2);
+		} else if(score <= -MATE_BOUND) {
+			builder.append("mate ").append(-(MATE + score) / 2);
+		} else {
+			builder.append("cp ").append(score);
+		}
+		builder.append(" nodes ").append(nodes)
+				.append(" nps ").append(nodes * 1000 / Math.max(millis, 1))
+				.append(" time ").append(millis)
+				.append(" pv");
+		for(int i = 0; i < pvLength; i++) {
+			builder.append(' ').append(Move.toString(pv[i]));
+		}
+		return builder.toString();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Asks a running search to stop as soon as possible. Safe to call from any thread.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Tells a search that was started with SearchLimits.setPonder(true) that the opponent played the
+	 * move we were pondering on. From now on the search runs on the clock, which starts now. Safe to
+	 * call from any thread, but the caller should clear the ponder flag in the limits first.
+	 */
+	public void ponderHit() {
+		setDeadlines(System.nanoTime());
+		pondering = false;
+	}
+
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the endgame tables to probe during the search, or null for none. Must not be called while
+	 * searching.
+	 */
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+
+	public long getTablebaseHits() {
+		return tablebaseHits;
+	}
+
+	/**
+	 * Sets where this search adds up what it did, which is EngineMetrics.getGlobal() to begin with.
+	 */
+	public void setMetrics(EngineMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets a network to evaluate positions with, or null to go back to the Evaluator. Must not be
+	 * called while searching.
+	 */
+	public void setNetwork(Network network) {
+		this.network = network;
+		board.setAccumulator(network == null ? null : new Accumulator(network));
+	}
+
+	/**
+	 * Returns this search's pawn hash table, whose hit rate counts every search since it was created.
+	 */
+	public PawnHashTable getPawnTable() {
+		return pawnTable;
+	}
+
+	public long getQuiescenceNodes() {
+		return qnodes;
+	}
+
+	public long getHashProbes() {
+		return hashProbes;
+	}
+
+	public long getHashHits() {
+		return hashHits;
+	}
+
+	public long getBetaCutoffs() {
+		return betaCutoffs;
+	}
+
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
+	}
+
+	void setHelperIndex(int helperIndex) {
+		this.helperIndex = helperIndex;
+	}
+
+	void setSearchNodes(LongSupplier searchNodes) {
+		this.searchNodes = searchNodes;
+	}
+
+	void clearStop() {
+		stopped = false;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getElapsedMillis() {
+		return (System.nanoTime() - startNanos) / 1_000_000L;
+	}
+
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	public int getBestScore() {
+		return bestScore;
+	}
+
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * Copies the principal variation of the last completed iteration into pv and returns its length.
+	 */
+	public int getPrincipalVariation(int[] pv) {
+		System.arraycopy(rootPv, 0, pv, 0, rootPvLength);
+		return rootPvLength;
+	}
+
+}
@@ -0,0 +1,166 @@
+package chess.search;
+
+public class SearchLimits {
+
+	/*
+	 * Everything that can stop a search: a maximum depth, a node budget, a fixed time per move, or a
+	 * clock (time left and increment per side) that the search turns into its own time budget.
+	 * A value of 0 means "no limit" for any of them. Times are in milliseconds.
+	 */
+
+	private int depth;
+	private long nodes;
+	private long moveTime;
+	private long[] time = new long[2];
+	private long[] increment = new long[2];
+	private int movesToGo;
+	private boolean infinite;
+
+	// thinking on the opponent's time: no time limit until the search is told about the ponderhit.
+	// Volatile because the ponderhit clears it from another thread.
+	private volatile boolean ponder;
+
+	public SearchLimits() {
+	}
+
+	public static SearchLimits depth(int depth) {
+		return new SearchLimits().setDepth(depth);
+	}
+
+	public static SearchLimits moveTime(long millis) {
+		return new SearchLimits().setMoveTime(millis);
+	}
+
+	public static SearchLimits nodes(long nodes) {
+		return new SearchLimits().setNodes(nodes);
+	}
+
+	/**
+	 * Sets every limit back to "no limit", so one object can be reused for every search.
+	 */
+	public SearchLimits reset() {
+		depth = 0;
+		nodes = 0;
+		moveTime = 0;
+		time[0] = time[1] = 0;
+		increment[0] = increment[1] = 0;
+		movesToGo = 0;
+		infinite = false;
+		ponder = false;
+		return this;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							TIME MANAGEMENT									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Returns how long the search should aim to take, in milliseconds, for the given side to move.
+	 * The search won't start a new iteration once this much time has passed. 0 means no limit.
+	 */
+	public long softTimeLimit(int color) {
+		if(infinite) return 0;
+		if(moveTime > 0) return moveTime;
+		if(time[color] <= 0) return 0;
+
+		// spread the remaining time over the moves left (or a guess of 30 if we don't know) and
+		// spend most of the increment, since we get it back after the move
+		long budget = time[color] / (movesToGo > 0 ? movesToGo + 1 : 30) + increment[color] * 3 / 4;
+		return Math.max(1, Math.min(budget, time[color] / 2));
+	}
+
+	/**
+	 * Returns the time after which the search must stop immediately, even in the middle of an
+	 * iteration. 0 means no limit.
+	 */
+	public long hardTimeLimit(int color) {
+		if(infinite) return 0;
+		if(moveTime > 0) return moveTime;
+		if(time[color] <= 0) return 0;
+
+		// never use more than a quarter of the clock on one move, and leave a little for overhead
+		long overhead = Math.min(50, time[color] / 10);
+		return Math.max(1, Math.min(softTimeLimit(color) * 4, time[color] / 4) - overhead);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public SearchLimits setDepth(int depth) {
+		this.depth = depth;
+		return this;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public SearchLimits setNodes(long nodes) {
+		this.nodes = nodes;
+		return this;
+	}
+
+	public long getMoveTime() {
+		return moveTime;
+	}
+
+	public SearchLimits setMoveTime(long moveTime) {
+		this.moveTime = moveTime;
+		return this;
+	}
+
+	public long getTime(int color) {
+		return time[color];
+	}
+
+	public SearchLimits setTime(int color, long time) {
+		this.time[color] = time;
+		return this;
+	}
+
+	public long getIncrement(int color) {
+		return increment[color];
+	}
+
+	public SearchLimits setIncrement(int color, long increment) {
+		this.increment[color] = increment;
+		return this;
+	}
+
+	public int getMovesToGo() {
+		return movesToGo;
+	}
+
+	public SearchLimits setMovesToGo(int movesToGo) {
+		this.movesToGo = movesToGo;
+		return this;
+	}
+
+	public boolean isInfinite() {
+		return infinite;
+	}
+
+	public SearchLimits setInfinite(boolean infinite) {
+		this.infinite = infinite;
+		return this;
+	}
+
+	public boolean isPonder() {
+		return ponder;
+	}
+
+	public SearchLimits setPonder(boolean ponder) {
+		this.ponder = ponder;
+		return this;
+	}
+
+}
@@ -0,0 +1,17 @@
+package chess.search;
+
+public interface SearchListener {
+
+	/**
+	 * Called every time the search finishes an iteration of iterative deepening.
+	 * @param depth the depth that was just completed
+	 * @param score the score of the best line in centipawns, from the side to move's point of view
+	 * @param nodes the number of nodes searched so far
+	 * @param millis the time spent so far
+	 * @param pv the principal variation; only the first pvLength entries are valid, and the array is
+	 * reused by the search so it must be copied if it is kept
+	 * @param pvLength the number of moves in the principal variation
+	 */
+	void iterationComplete(int depth, int score, long nodes, long millis, int[] pv, int pvLength);
+
+}
@@ -0,0 +1,239 @@
+package chess.search;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TranspositionTable {
+
+	/*
+	 * The transposition table remembers what a search found out about a position, keyed by the
+	 * position's Zobrist key, so the same position reached through a different move order doesn't
+	 * have to be searched again.
+	 *
+	 * Everything is stored in preallocated long arrays, two longs per entry:
+	 *
+	 * 		slot[0] = key ^ data
+	 * 		slot[1] = data
+	 *
+	 * 	and data is packed like this:
+	 *
+	 * 		bits  0..15	-> best move (chess.util.Move)
+	 * 		bits 16..31	-> score (signed)
+	 * 		bits 32..39	-> depth
+	 * 		bits 40..41	-> bound (BOUND_UPPER, BOUND_LOWER or BOUND_EXACT, 0 means empty)
+	 * 		bits 42..47	-> age, the search generation the entry was written in
+	 * 		bits 48..63	-> static evaluation (signed)
+	 *
+	 * Many threads can read and write the table at the same time without any locks. Two threads
+	 * writing the same slot at once can leave a key from one write next to the data from another,
+	 * but then (slot[0] ^ slot[1]) no longer equals the key, so the probe simply misses instead of
+	 * returning garbage. That is the "lockless hashing" trick.
+	 *
+	 * Entries are grouped into buckets of two: the first entry prefers deep searches and the second
+	 * is always replaced. A bucket is 4 longs (32 bytes), so it never straddles a cache line.
+	 * The buckets are split across segments of at most 1 GB each, which gets around the maximum
+	 * array length and lets the table grow to many gigabytes.
+	 */
+
+	public static final int BOUND_UPPER = 1;
+	public static final int BOUND_LOWER = 2;
+	public static final int BOUND_EXACT = 3;
+
+	private static final int BUCKET_LONGS = 4;
+	private static final int SEGMENT_BUCKET_BITS = 25;	// 2^25 buckets * 32 bytes = 1 GB
+	private static final long BYTES_PER_BUCKET = BUCKET_LONGS * 8;
+
+	private final long[][] segments;
+	private final long bucketMask;
+	private final int segmentMask;
+
+	private int age;
+
+	// hit rate statistics. LongAdder spreads increments over striped cells, so threads don't fight
+	// over a single counter
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Creates a table using at most the given number of megabytes, rounded down to a power of two.
+	 */
+	public TranspositionTable(long megabytes) {
+
+		long buckets = Long.highestOneBit(Math.max(megabytes * 1024 * 1024 / BYTES_PER_BUCKET, 1));
+		bucketMask = buckets - 1;
+
+		long bucketsPerSegment = Math.min(buckets, 1L << SEGMENT_BUCKET_BITS);
+		segmentMask = (int)bucketsPerSegment - 1;
+
+		segments = new long[(int)(buckets / bucketsPerSegment)][];
+		for(int i = 0; i < segments.length; i++) {
+			segments[i] = new long[(int)bucketsPerSegment * BUCKET_LONGS];
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							PROBE / STORE									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Looks up a position.
+	 * @return the packed data for the position, or 0 if it isn't in the table
+	 */
+	public long probe(long key) {
+		long[] segment = segments[(int)((key & bucketMask) >>> SEGMENT_BUCKET_BITS)];
+		int index = ((int)key & segmentMask) * BUCKET_LONGS;
+
+		probes.increment();
+		for(int i = index; i < index + BUCKET_LONGS; i += 2) {
+			long data = segment[i + 1];
+			if((segment[i] ^ data) == key && data != 0) {
+				hits.increment();
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	public void store(long key, int move, int score, int depth, int bound, int eval) {
+		long[] segment = segments[(int)((key & bucketMask) >>> SEGMENT_BUCKET_BITS)];
+		int index = ((int)key & segmentMask) * BUCKET_LONGS;
+
+		// use the first (depth preferred) entry if it holds this same position, if it is from an
+		// older search, or if the new search went at least as deep. Otherwise use the second entry.
+		long oldData = segment[index + 1];
+		boolean samePosition = (segment[index] ^ oldData) == key;
+		if(!samePosition && getAge(oldData) == age && getDepth(oldData) > depth) {
+			index += 2;
+			oldData = segment[index + 1];
+			samePosition = (segment[index] ^ oldData) == key;
+		}
+
+		// don't throw away a known best move just because this search didn't find one
+		if(move == 0 && samePosition) {
+			move = getMove(oldData);
+		}
+
+		long data = (move & 0xFFFFL)
+				| ((score & 0xFFFFL) << 16)
+				| ((long)(depth & 0xFF) << 32)
+				| ((long)bound << 40)
+				| ((long)age << 42)
+				| ((eval & 0xFFFFL) << 48);
+
+		segment[index] = key ^ data;
+		segment[index + 1] = data;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							DATA ACCESSORS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public static int getMove(long data) {
+		return (int)(data & 0xFFFF);
+	}
+
+	public static int getScore(long data) {
+		return (short)(data >>> 16);
+	}
+
+	public static int getDepth(long data) {
+		return (int)(data >>> 32) & 0xFF;
+	}
+
+	public static int getBound(long data) {
+		return (int)(data >>> 40) & 3;
+	}
+
+	public static int getEval(long data) {
+		return (short)(data >>> 48);
+	}
+
+	private static int getAge(long data) {
+		return (int)(data >>> 42) & 0x3F;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MAINTENANCE AND STATISTICS						 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Marks the start of a new search, so entries from earlier searches become the first to be replaced.
+	 */
+	public void newSearch() {
+		age = (age + 1) & 0x3F;
+	}
+
+	/**
+	 * Empties the table. Large tables are cleared one segment per thread.
+	 */
+	public void clear() {
+		Arrays.stream(segments).parallel().forEach(segment -> Arrays.fill(segment, 0L));
+		age = 0;
+		resetStatistics();
+	}
+
+	public void resetStatistics() {
+		probes.reset();
+		hits.reset();
+	}
+
+	public long getProbes() {
+		return probes.sum();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the fraction of probes that found their position, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long total = probes.sum();
+		return total == 0 ? 0 : (double)hits.sum() / total;
+	}
+
+	/**
+	 * Returns how full the table is in permille, counting only entries written by the current search.
+	 * Like the UCI "hashfull" number, it samples the first 1000 entries instead of scanning everything.
+	 */
+	public int hashfull() {
+		long[] segment = segments[0];
+		int sampled = Math.min(1000, segment.length / 2);
+		int used = 0;
+		for(int i = 0; i < sampled; i++) {
+			long data = segment[2 * i + 1];
+			if(data != 0 && getAge(data) == age) used++;
+		}
+		return used * 1000 / sampled;
+	}
+
+	/**
+	 * Returns the fraction of all entries that hold something, from any search. This scans the whole
+	 * table, so it is meant for sizing experiments rather than for calling during a search.
+	 */
+	public double getOccupancy() {
+		long used = 0;
+		for(long[] segment : segments) {
+			for(int i = 1; i < segment.length; i += 2) {
+				if(segment[i] != 0) used++;
+			}
+		}
+		return (double)used / getEntries();
+	}
+
+	public long getEntries() {
+		return (bucketMask + 1) * 2;
+	}
+
+	public long getSizeBytes() {
+		return (bucketMask + 1) * BYTES_PER_BUCKET;
+	}
+
+}
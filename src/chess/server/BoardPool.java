@@ -0,0 +1,59 @@
+package chess.server;
+
+import java.util.ArrayDeque;
+
+import chess.game.Board;
+
+public class BoardPool {
+
+	/*
+	 * Keeps the boards of finished games so that new games can reuse them. A Board is mostly its
+	 * move history (16 KB to begin with, see Board), and a server that starts and finishes games all
+	 * day would otherwise hand a steady stream of those to the garbage collector. Up to maxIdle boards
+	 * are kept; past that they are let go, so a burst of games doesn't pin its memory forever.
+	 *
+	 * A board that comes out of the pool still holds the position of its last game, so set it up
+	 * (setFen) before using it.
+	 */
+
+	private final ArrayDeque<Board> idle = new ArrayDeque<>();
+	private final int maxIdle;
+	private long created;
+
+	public BoardPool(int maxIdle) {
+		if(maxIdle < 0) throw new IllegalArgumentException("maxIdle can't be negative: " + maxIdle);
+		this.maxIdle = maxIdle;
+	}
+
+	/**
+	 * Returns an idle board, or a new one if there are none.
+	 */
+	public synchronized Board acquire() {
+		Board board = idle.poll();
+		if(board != null) return board;
+		created++;
+		return new Board();
+	}
+
+	/**
+	 * Gives a board back once nothing uses it anymore.
+	 */
+	public synchronized void release(Board board) {
+		if(idle.size() < maxIdle) idle.push(board);
+	}
+
+	/**
+	 * Returns the number of boards sitting in the pool.
+	 */
+	public synchronized int getIdle() {
+		return idle.size();
+	}
+
+	/**
+	 * Returns the number of boards the pool has ever had to create.
+	 */
+	public synchronized long getCreated() {
+		return created;
+	}
+
+}
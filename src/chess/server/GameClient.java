@@ -0,0 +1,276 @@
+package chess.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.util.Move;
+
+public class GameClient {
+
+	/*
+	 * A load test for GameServer, and an example of talking to it. Every connection runs on a thread
+	 * of its own and keeps a number of games going at once on its one socket: it plays random legal
+	 * moves as white against the engine, answers each reply as soon as it arrives, and starts a new
+	 * game whenever one ends, until it has played its share. It times every move from sending it to
+	 * the server's first reply and prints the percentiles at the end, next to the server's own.
+	 *
+	 * The client keeps a Board of its own for each game to pick its moves on, so it also checks that
+	 * every move the engine sends back is legal.
+	 */
+
+	private final int port;
+	private final int gamesPerConnection;
+	private final int concurrentGames;
+	private final int maxPlies;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final AtomicLong gamesPlayed = new AtomicLong();
+	private final AtomicLong movesSent = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+
+	/**
+	 * @param gamesPerConnection the games each connection plays in all
+	 * @param concurrentGames the games each connection has going at any time
+	 * @param maxPlies the plies after which a game is closed if it hasn't ended yet
+	 */
+	public GameClient(int port, int gamesPerConnection, int concurrentGames, int maxPlies) {
+		this.port = port;
+		this.gamesPerConnection = gamesPerConnection;
+		this.concurrentGames = concurrentGames;
+		this.maxPlies = maxPlies;
+	}
+
+	/**
+	 * Plays every game over one connection, on the calling thread.
+	 */
+	public void play(long seed) throws IOException {
+
+		Random random = new Random(seed);
+		Map<Long, ClientGame> games = new HashMap<>();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int started = 0;
+		int finished = 0;
+
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+
+			for(; started < Math.min(concurrentGames, gamesPerConnection); started++) {
+				out.write("new black\n");
+			}
+
+			while(finished < gamesPerConnection) {
+				// answer everything that has arrived before sending, so the moves go out in batches
+				if(!in.ready()) out.flush();
+				String line = in.readLine();
+				if(line == null) throw new IOException("The server closed the connection");
+				String[] tokens = line.split(" ");
+				if(tokens[0].equals("error") || tokens[0].equals("illegal") || tokens[0].equals("busy")) {
+					System.err.println(line);
+					errors.incrementAndGet();
+					if(tokens[1].equals("-")) continue;
+				}
+				long id = Long.parseLong(tokens[1]);
+				ClientGame game = games.get(id);
+				if(game == null) {
+					if(!tokens[0].equals("new")) continue;
+					game = new ClientGame();
+					games.put(id, game);
+				}
+				if(game.sentNanos != 0) {
+					latency.record(System.nanoTime() - game.sentNanos);
+					game.sentNanos = 0;
+				}
+
+				boolean over = false;
+				switch(tokens[0]) {
+				case "move":
+					int reply = parseMove(game.board, tokens[2], moves);
+					if(reply == Move.NONE) {
+						System.err.println("the engine played an illegal move: " + line);
+						errors.incrementAndGet();
+						over = true;
+					} else {
+						game.board.makeMove(reply);
+						game.plies++;
+					}
+					break;
+				case "over":
+					game.over = true;
+					continue;	// the "move" or "ok" before it has already been answered, with a close
+				case "closed":
+					continue;
+				case "new":
+				case "ok":
+					break;
+				default:
+					over = true;
+				}
+
+				int count = over || game.over || game.plies >= maxPlies ? 0 : MoveGenerator.generateLegalMoves(game.board, moves, 0);
+				if(count == 0 || game.board.isDraw()) {
+					// the server says "over" right after the move that ended the game, but it's just as easy to see here
+					out.write("close " + id + "\n");
+					games.remove(id);
+					finished++;
+					gamesPlayed.incrementAndGet();
+					if(started < gamesPerConnection) {
+						out.write("new black\n");
+						started++;
+					}
+				} else {
+					int move = moves[random.nextInt(count)];
+					game.board.makeMove(move);
+					game.plies++;
+					game.sentNanos = System.nanoTime();
+					movesSent.incrementAndGet();
+					out.write("move " + id + " " + Move.toString(move) + "\n");
+				}
+			}
+			out.write("quit\n");
+			out.flush();
+		}
+	}
+
+	/**
+	 * Asks the server for its stats line.
+	 */
+	public String requestStats() throws IOException {
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+			out.write("stats\n");
+			out.flush();
+			return in.readLine();
+		}
+	}
+
+	public long getGamesPlayed() {
+		return gamesPlayed.get();
+	}
+
+	public long getMovesSent() {
+		return movesSent.get();
+	}
+
+	/**
+	 * Returns the replies that were errors, busy or illegal, plus the illegal moves the engine played.
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private static int parseMove(Board board, String text, int[] moves) {
+		int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+		for(int i = 0; i < count; i++) {
+			if(Move.toString(moves[i]).equals(text)) return moves[i];
+		}
+		return Move.NONE;
+	}
+
+	private static class ClientGame {
+
+		private final Board board = new Board();
+		private int plies;
+		private boolean over;
+		private long sentNanos;
+
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MAIN											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Plays games against a server that's already running, or with -local against one started in
+	 * this process.
+	 * Arguments: [-port n] [-connections n] [-games n per connection] [-concurrent n per connection]
+	 * [-plies n] [-local] [-workers n] [-nodes n]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		int port = GameServer.DEFAULT_PORT;
+		int connections = 4;
+		int games = 250;
+		int concurrent = 250;
+		int plies = 40;
+		boolean local = false;
+		int workers = Runtime.getRuntime().availableProcessors();
+		long nodes = 2000;
+
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-port": port = Integer.parseInt(args[++i]); break;
+			case "-connections": connections = Integer.parseInt(args[++i]); break;
+			case "-games": games = Integer.parseInt(args[++i]); break;
+			case "-concurrent": concurrent = Integer.parseInt(args[++i]); break;
+			case "-plies": plies = Integer.parseInt(args[++i]); break;
+			case "-local": local = true; break;
+			case "-workers": workers = Integer.parseInt(args[++i]); break;
+			case "-nodes": nodes = Long.parseLong(args[++i]); break;
+			default:
+				System.out.println("usage: GameClient [-port n] [-connections n] [-games n] [-concurrent n] [-plies n]");
+				System.out.println("                  [-local] [-workers n] [-nodes n]");
+				return;
+			}
+		}
+
+		GameServer server = null;
+		if(local) {
+			server = new GameServer(0, workers, 4096, 64);
+			server.setEngineLimits(nodes, 0, 0);
+			server.start();
+			port = server.getPort();
+		}
+
+		GameClient client = new GameClient(port, games, concurrent, plies);
+		Thread[] threads = new Thread[connections];
+		long start = System.nanoTime();
+		for(int i = 0; i < connections; i++) {
+			long seed = i;
+			threads[i] = new Thread(() -> {
+				try {
+					client.play(seed);
+				} catch(IOException e) {
+					System.err.println("connection failed: " + e);
+				}
+			}, "game-client-" + i);
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d games, %d moves in %.1f s over %d connections (%d games at once): %.0f moves/s, %d errors%n",
+				client.gamesPlayed.get(), client.movesSent.get(), seconds, connections, connections * concurrent,
+				client.movesSent.get() / seconds, client.errors.get());
+		System.out.printf("round trip p50 %d us, p99 %d us, max %d us%n",
+				client.latency.getPercentile(0.5), client.latency.getPercentile(0.99), client.latency.getMax());
+		System.out.println("server " + client.requestStats());
+
+		if(server != null) server.close();
+	}
+
+}
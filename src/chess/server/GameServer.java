@@ -0,0 +1,741 @@
+package chess.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.game.Notation;
+import chess.match.MatchRunner;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.TranspositionTable;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class GameServer {
+
+	/*
+	 * Hosts any number of games at once for clients on the same machine, over a plain text protocol
+	 * on a TCP socket. One connection can play many games, and in each game the engine plays white,
+	 * black or neither side (then the server only checks the moves and keeps track of the game).
+	 *
+	 * 	Protocol
+	 * 	--------
+	 * 	One command per line, one or more reply lines per command. Every reply about a game starts
+	 * 	with its id, so a client can have many games going on one connection and match the replies up.
+	 *
+	 * 		new [white|black|none] [startpos | fen <fen>]
+	 * 									starts a game with the engine playing the given side (black
+	 * 									if none is given): "new <id>", then the engine's first move
+	 * 									if it's to move
+	 * 		move <id> <move>			plays a move (UCI or SAN): "move <id> <reply>" with the
+	 * 									engine's reply, "ok <id>" if the engine isn't playing the
+	 * 									other side, or "illegal <id> <move>"
+	 * 		fen <id>					"fen <id> <fen>"
+	 * 		close <id>					"closed <id>"
+	 * 		stats						"stats games .. moves .. p50 .. p99 .. max .." (see statsLine)
+	 * 		quit						closes the connection, and every game on it
+	 *
+	 * 	When a move ends a game the server follows up with "over <id> <result> <reason>". Mistakes
+	 * 	get "error <id or -> <message>", and "busy <id>" means the server is too loaded to take the
+	 * 	command right now, which the client can retry.
+	 *
+	 * 	Threads
+	 * 	-------
+	 * 	One thread runs a Selector over every connection. It reads and splits lines, answers stats,
+	 * 	and hands everything a game has to do to that game's queue, and it writes the replies. It
+	 * 	never touches a board, so a slow search can't hold up any other game's I/O.
+	 *
+	 * 	The boards live on a fixed pool of worker threads with a bounded queue in front of it. A game
+	 * 	with something in its queue is on the pool's queue exactly once, and a worker runs its
+	 * 	commands in order until the queue is empty, so every game is on at most one thread at a time
+	 * 	without any locks around the board. Each worker has its own Search with a hash table of its
+	 * 	own: a Search ages its table every time it starts, so workers sharing one would age it on every
+	 * 	move any of them plays and throw each other's entries out long before they're stale.
+	 * 	When the pool's queue is full, the command is turned away with "busy" instead of piling up.
+	 *
+	 * 	Boards come from a BoardPool and go back into it when a game closes, and the latency of every
+	 * 	move command, from the moment its line was read to the moment the reply was queued (including
+	 * 	the engine's search), goes into a LatencyHistogram. The engine is limited by nodes by default,
+	 * 	since a node limit costs the same no matter how busy the server is; the latency target only
+	 * 	counts the moves that went over it.
+	 */
+
+	public static final int DEFAULT_PORT = 7777;
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	// the longest line we take, which is plenty for any command. Anything longer closes the connection.
+	private static final int MAX_LINE = 512;
+
+	// commands that can be waiting on one game, and reply lines waiting on one connection, before
+	// the server turns commands away or gives up on a client that doesn't read
+	private static final int MAX_PENDING_COMMANDS = 64;
+	private static final int MAX_PENDING_REPLIES = 65536;
+
+	// the engine sides of a game
+	private static final int ENGINE_NONE = 0;
+	private static final int ENGINE_WHITE = 1;
+	private static final int ENGINE_BLACK = 2;
+
+	// what a game can be asked to do
+	private static final int SETUP = 0;
+	private static final int MOVE = 1;
+	private static final int FEN = 2;
+
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ThreadPoolExecutor workers;
+	private final BoardPool boards;
+	private final ThreadLocal<Search> searches;
+	private final ThreadLocal<int[]> moveBuffers = ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_MOVES]);
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	// connections with replies to write, handed from the workers to the selector thread
+	private final ConcurrentLinkedQueue<Connection> flushQueue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong nextGameId = new AtomicLong(1);
+	private final AtomicInteger openGames = new AtomicInteger();
+	private final AtomicLong gamesStarted = new AtomicLong();
+	private final AtomicLong movesPlayed = new AtomicLong();
+	private final AtomicLong busyReplies = new AtomicLong();
+
+	private long nodes = 2000;
+	private int depth;
+	private long moveTime;
+	private long latencyTargetMicros = 10_000;
+
+	private volatile boolean stopped;
+	private Thread selectorThread;
+
+	/**
+	 * Opens a server on a port of the loopback address (0 picks a free one, see getPort). Nothing
+	 * is accepted until start().
+	 * @param workerThreads the threads that run the games
+	 * @param queueCapacity the games that can be waiting for a worker before commands are turned away
+	 * @param hashMb the size of all the workers' hash tables together, split evenly between them
+	 */
+	public GameServer(int port, int workerThreads, int queueCapacity, int hashMb) throws IOException {
+		if(workerThreads < 1 || queueCapacity < 1) throw new IllegalArgumentException("Need at least one worker and room in the queue");
+
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+			Thread thread = new Thread(runnable, "game-worker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		boards = new BoardPool(4096);
+		long workerHashMb = Math.max(hashMb / workerThreads, 1);
+		searches = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(workerHashMb)));
+	}
+
+	/**
+	 * Starts accepting connections on a thread of its own.
+	 */
+	public void start() {
+		selectorThread = new Thread(this::selectLoop, "game-server");
+		selectorThread.start();
+	}
+
+	/**
+	 * Closes every connection and stops the threads. Games that are being played are dropped.
+	 */
+	public void close() throws InterruptedException {
+		stopped = true;
+		selector.wakeup();
+		if(selectorThread != null) selectorThread.join();
+		workers.shutdownNow();
+		workers.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							SELECTOR THREAD									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void selectLoop() {
+		try {
+			while(!stopped) {
+				selector.select();
+
+				Connection connection;
+				while((connection = flushQueue.poll()) != null) {
+					connection.flushQueued.set(false);
+					if(connection.key.isValid()) connection.flush();
+				}
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()) continue;
+					if(key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					connection = (Connection)key.attachment();
+					try {
+						if(key.isReadable()) connection.read();
+						if(key.isValid() && key.isWritable()) connection.flush();
+					} catch(IOException e) {
+						connection.close();
+					}
+				}
+			}
+		} catch(IOException e) {
+			System.err.println("game server stopped: " + e);
+		} finally {
+			for(SelectionKey key : selector.keys()) {
+				if(key.attachment() instanceof Connection) ((Connection)key.attachment()).close();
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			} catch(IOException e) {
+				// nothing left to do about it
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Connection connection = new Connection(channel);
+			connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+		}
+	}
+
+	// runs on the selector thread, for every line a client sends
+	private void handle(Connection connection, String line, long receivedNanos) {
+		String[] tokens = line.trim().split("\\s+", 3);
+		switch(tokens[0]) {
+		case "":
+			return;
+		case "new":
+			newGame(connection, line, receivedNanos);
+			return;
+		case "stats":
+			connection.send(statsLine());
+			return;
+		case "quit":
+			connection.close();
+			return;
+		case "move":
+		case "fen":
+		case "close":
+			break;
+		default:
+			connection.send("error - unknown command: " + tokens[0]);
+			return;
+		}
+
+		Game game = null;
+		try {
+			if(tokens.length > 1) game = connection.games.get(Long.parseLong(tokens[1]));
+		} catch(NumberFormatException e) {
+			// same as no game at all
+		}
+		if(game == null) {
+			connection.send("error - no such game: " + (tokens.length > 1 ? tokens[1] : ""));
+			return;
+		}
+
+		if(tokens[0].equals("close")) {
+			connection.games.remove(game.id);
+			game.close();
+			connection.send("closed " + game.id);
+		} else if(tokens[0].equals("fen")) {
+			game.submit(FEN, null, receivedNanos);
+		} else if(tokens.length < 3) {
+			connection.send("error " + game.id + " no move given");
+		} else {
+			game.submit(MOVE, tokens[2].trim(), receivedNanos);
+		}
+	}
+
+	// new [white|black|none] [startpos | fen <fen>]
+	private void newGame(Connection connection, String line, long receivedNanos) {
+		String[] tokens = line.trim().split("\\s+");
+		int engine = ENGINE_BLACK;
+		String fen = START_FEN;
+		for(int i = 1; i < tokens.length; i++) {
+			switch(tokens[i]) {
+			case "white": engine = ENGINE_WHITE; break;
+			case "black": engine = ENGINE_BLACK; break;
+			case "none": engine = ENGINE_NONE; break;
+			case "startpos": break;
+			case "fen":
+				// the FEN is checked by the worker that sets the board up, like everything to do with a board
+				fen = line.substring(line.indexOf("fen") + 3).trim();
+				i = tokens.length;
+				break;
+			default:
+				connection.send("error - bad argument to new: " + tokens[i]);
+				return;
+			}
+		}
+
+		Game game = new Game(nextGameId.getAndIncrement(), connection, engine, boards.acquire());
+		connection.games.put(game.id, game);
+		openGames.incrementAndGet();
+		gamesStarted.incrementAndGet();
+		game.submit(SETUP, fen, receivedNanos);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							WORKER THREADS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// runs on a worker, with the game to itself
+	private void execute(Game game, Command command) {
+		Board board = game.board;
+		switch(command.type) {
+		case SETUP:
+			try {
+				board.setFen(command.argument);
+			} catch(IllegalArgumentException e) {
+				board.setFen(START_FEN);
+				game.over = true;
+				game.send("error " + game.id + " bad fen, close the game: " + e.getMessage());
+				return;
+			}
+			game.send("new " + game.id);
+			String over = getGameOver(board);
+			if(over != null) endGame(game, over);
+			else if(game.isEngineToMove()) playEngineMove(game);
+			return;
+
+		case FEN:
+			game.send("fen " + game.id + " " + board.toFen());
+			return;
+
+		case MOVE:
+			playMove(game, command.argument);
+			latency.record(System.nanoTime() - command.receivedNanos);
+			return;
+
+		default:
+			throw new IllegalStateException("Unknown command " + command.type);
+		}
+	}
+
+	// plays the client's move, and the engine's reply if it's playing the other side
+	private void playMove(Game game, String text) {
+		if(game.over) {
+			game.send("error " + game.id + " the game is over");
+			return;
+		}
+		int move = Notation.parseMove(game.board, text);
+		if(move == Move.NONE) move = Notation.parseSan(game.board, text, moveBuffers.get());
+		if(move == Move.NONE || !game.board.move(move)) {
+			game.send("illegal " + game.id + " " + text);
+			return;
+		}
+		movesPlayed.incrementAndGet();
+		String over = getGameOver(game.board);
+		if(over == null && game.isEngineToMove()) {
+			playEngineMove(game);
+			return;
+		}
+		game.send("ok " + game.id);
+		if(over != null) endGame(game, over);
+	}
+
+	private void playEngineMove(Game game) {
+		SearchLimits limits = new SearchLimits();
+		if(nodes > 0) limits.setNodes(nodes);
+		if(depth > 0) limits.setDepth(depth);
+		if(moveTime > 0) limits.setMoveTime(moveTime);
+		int move = searches.get().search(game.board, limits);
+		game.board.makeMove(move);
+		movesPlayed.incrementAndGet();
+		game.send("move " + game.id + " " + Move.toString(move));
+		String over = getGameOver(game.board);
+		if(over != null) endGame(game, over);
+	}
+
+	private void endGame(Game game, String over) {
+		game.over = true;
+		game.send("over " + game.id + " " + over);
+	}
+
+	// the result and the reason if the game is over by the rules, or null
+	private static String getGameOver(Board board) {
+		if(board.isCheckmate()) return (board.getSideToMove() == Constants.WHITE ? "0-1" : "1-0") + " checkmate";
+		if(board.isStalemate()) return "1/2-1/2 stalemate";
+		if(board.isThreefoldRepetition()) return "1/2-1/2 repetition";
+		if(board.isFiftyMoveDraw()) return "1/2-1/2 fifty-move rule";
+		if(MatchRunner.isInsufficientMaterial(board)) return "1/2-1/2 insufficient material";
+		return null;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public int getOpenGames() {
+		return openGames.get();
+	}
+
+	/**
+	 * Sets how long the engine thinks: a node limit (the default is 2000), a depth, a time per move
+	 * in milliseconds, or any of them together. 0 turns a limit off. Must be set before start().
+	 */
+	public void setEngineLimits(long nodes, int depth, long moveTime) {
+		this.nodes = nodes;
+		this.depth = depth;
+		this.moveTime = moveTime;
+	}
+
+	/**
+	 * Sets the latency a move should be answered within, in microseconds, which the stats count
+	 * the moves over.
+	 */
+	public void setLatencyTarget(long micros) {
+		latencyTargetMicros = micros;
+	}
+
+	/**
+	 * Returns the stats reply: games open and started, moves played (by both sides), the latency of
+	 * the move commands in microseconds, how many went over the target, how many commands were
+	 * turned away, and the boards the pool has made.
+	 */
+	public String statsLine() {
+		return "stats games " + openGames.get() + " started " + gamesStarted.get() + " moves " + movesPlayed.get()
+				+ " p50 " + latency.getPercentile(0.5) + " p99 " + latency.getPercentile(0.99) + " max " + latency.getMax()
+				+ " over-target " + latency.countAbove(latencyTargetMicros) + " busy " + busyReplies.get()
+				+ " boards " + boards.getCreated();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							CONNECTIONS AND GAMES							 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private class Connection {
+
+		private final SocketChannel channel;
+		private SelectionKey key;
+
+		private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+		private final ByteBuffer out = ByteBuffer.allocate(16384);
+		private final ConcurrentLinkedQueue<String> replies = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger pendingReplies = new AtomicInteger();
+		private final AtomicBoolean flushQueued = new AtomicBoolean();
+		private volatile boolean dropped;
+		private String partialReply;
+
+		// only the selector thread touches this
+		private final Map<Long, Game> games = new HashMap<>();
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		// reads whatever has arrived and handles every complete line in it
+		private void read() throws IOException {
+			if(channel.read(in) < 0) {
+				close();
+				return;
+			}
+			long now = System.nanoTime();
+			in.flip();
+			int lineStart = 0;
+			for(int i = 0; i < in.limit(); i++) {
+				if(in.get(i) != '\n') continue;
+				int end = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+				handle(this, new String(in.array(), lineStart, end - lineStart, StandardCharsets.US_ASCII), now);
+				if(!key.isValid()) return;
+				lineStart = i + 1;
+			}
+			in.position(lineStart);
+			in.compact();
+			if(!in.hasRemaining()) {
+				send("error - line too long");
+				close();
+			}
+		}
+
+		// queues a reply line from any thread, and makes sure the selector thread gets around to it
+		private void send(String line) {
+			if(pendingReplies.incrementAndGet() > MAX_PENDING_REPLIES) {
+				// the client isn't reading its replies. We'd rather drop it than run out of memory,
+				// and the selector thread closes it the next time it comes by.
+				dropped = true;
+			} else {
+				replies.add(line);
+			}
+			if(Thread.currentThread() == selectorThread) {
+				if(key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			} else if(flushQueued.compareAndSet(false, true)) {
+				flushQueue.add(this);
+				selector.wakeup();
+			}
+		}
+
+		// writes as many queued replies as the socket takes, and waits for OP_WRITE if it didn't take all of them
+		private void flush() {
+			if(dropped) {
+				close();
+				return;
+			}
+			try {
+				while(true) {
+					while(out.hasRemaining()) {
+						String line = partialReply != null ? partialReply : replies.poll();
+						if(line == null) break;
+						partialReply = null;
+						if(line.length() + 1 > out.remaining()) {
+							if(out.position() == 0) line = line.substring(0, out.capacity() - 1);
+							else {
+								partialReply = line;
+								break;
+							}
+						}
+						for(int i = 0; i < line.length(); i++) {
+							out.put((byte)line.charAt(i));
+						}
+						out.put((byte)'\n');
+						pendingReplies.decrementAndGet();
+					}
+					out.flip();
+					channel.write(out);
+					boolean blocked = out.hasRemaining();
+					out.compact();
+					if(blocked) {
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+						return;
+					}
+					if(partialReply == null && replies.isEmpty()) {
+						key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+						return;
+					}
+				}
+			} catch(IOException e) {
+				close();
+			}
+		}
+
+		private void close() {
+			key.cancel();
+			try {
+				channel.close();
+			} catch(IOException e) {
+				// it's closed either way
+			}
+			for(Game game : games.values()) {
+				game.close();
+			}
+			games.clear();
+		}
+
+	}
+
+	private class Game implements Runnable {
+
+		private final long id;
+		private final Connection connection;
+		private final int engine;
+		private Board board;
+
+		// only the worker running the game touches this
+		private boolean over;
+
+		// the commands waiting for a worker, and whether the game is on the pool already, guarded by the game
+		private final ArrayDeque<Command> pending = new ArrayDeque<>();
+		private boolean scheduled;
+		private volatile boolean closed;
+
+		private Game(long id, Connection connection, int engine, Board board) {
+			this.id = id;
+			this.connection = connection;
+			this.engine = engine;
+			this.board = board;
+		}
+
+		// runs on the selector thread: queues a command, and the game too if no worker has it yet
+		private void submit(int command, String argument, long receivedNanos) {
+			synchronized(this) {
+				if(pending.size() >= MAX_PENDING_COMMANDS) {
+					busyReplies.incrementAndGet();
+					send("busy " + id);
+					return;
+				}
+				pending.add(new Command(command, argument, receivedNanos));
+				if(scheduled) return;
+				scheduled = true;
+			}
+			try {
+				workers.execute(this);
+			} catch(RejectedExecutionException e) {
+				synchronized(this) {
+					pending.clear();
+					scheduled = false;
+				}
+				busyReplies.incrementAndGet();
+				send(command == SETUP ? "error " + id + " the server is too busy to start a game" : "busy " + id);
+				if(command == SETUP) {
+					connection.games.remove(id);
+					close();
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while(true) {
+				Command command;
+				synchronized(this) {
+					command = pending.poll();
+					if(command == null || closed) {
+						pending.clear();
+						scheduled = false;
+						if(closed) releaseBoard();
+						return;
+					}
+				}
+				// a bug in the engine ends the game it happened in, not the worker. The board may be
+				// half way through a move, so nothing more is played on it.
+				try {
+					execute(this, command);
+				} catch(RuntimeException e) {
+					over = true;
+					send("error " + id + " internal error, close the game: " + e);
+				}
+			}
+		}
+
+		// runs on the selector thread. A game a worker has gives its board back when the worker is done.
+		private void close() {
+			synchronized(this) {
+				if(closed) return;
+				closed = true;
+				if(!scheduled) releaseBoard();
+			}
+			openGames.decrementAndGet();
+		}
+
+		private void releaseBoard() {
+			if(board == null) return;
+			boards.release(board);
+			board = null;
+		}
+
+		private boolean isEngineToMove() {
+			return (engine & (board.getSideToMove() == Constants.WHITE ? ENGINE_WHITE : ENGINE_BLACK)) != 0;
+		}
+
+		private void send(String line) {
+			connection.send(line);
+		}
+
+	}
+
+	private static class Command {
+
+		private final int type;
+		private final String argument;
+		private final long receivedNanos;	// when the selector thread read the line
+
+		private Command(int type, String argument, long receivedNanos) {
+			this.type = type;
+			this.argument = argument;
+			this.receivedNanos = receivedNanos;
+		}
+
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MAIN											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Runs a server until it's killed, printing the stats line every few seconds.
+	 * Arguments: [-port n] [-workers n] [-queue n] [-hash mb] [-nodes n] [-depth n] [-movetime ms]
+	 * [-target micros] [-report seconds]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		int port = DEFAULT_PORT;
+		int workerThreads = Runtime.getRuntime().availableProcessors();
+		int queue = 4096;
+		int hash = 64;
+		long nodes = 2000;
+		int depth = 0;
+		long moveTime = 0;
+		long target = 10_000;
+		int report = 10;
+
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-port": port = Integer.parseInt(args[++i]); break;
+			case "-workers": workerThreads = Integer.parseInt(args[++i]); break;
+			case "-queue": queue = Integer.parseInt(args[++i]); break;
+			case "-hash": hash = Integer.parseInt(args[++i]); break;
+			case "-nodes": nodes = Long.parseLong(args[++i]); break;
+			case "-depth": depth = Integer.parseInt(args[++i]); break;
+			case "-movetime": moveTime = Long.parseLong(args[++i]); break;
+			case "-target": target = Long.parseLong(args[++i]); break;
+			case "-report": report = Integer.parseInt(args[++i]); break;
+			default:
+				System.out.println("usage: GameServer [-port n] [-workers n] [-queue n] [-hash mb] [-nodes n] [-depth n]");
+				System.out.println("                  [-movetime ms] [-target micros] [-report seconds]");
+				return;
+			}
+		}
+
+		GameServer server = new GameServer(port, workerThreads, queue, hash);
+		server.setEngineLimits(nodes, depth, moveTime);
+		server.setLatencyTarget(target);
+		server.start();
+		System.out.printf("listening on localhost:%d with %d workers%n", server.getPort(), workerThreads);
+		while(true) {
+			Thread.sleep(report * 1000L);
+			System.out.println(server.statsLine());
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package chess.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+	/*
+	 * Counts latencies in microseconds into log-linear buckets, so that percentiles can be read off
+	 * at any time without keeping the samples: every value below 64 has a bucket of its own, and
+	 * above that every power of two is split into 32 buckets, so a percentile is never off by more
+	 * than about 3%. That's 2048 counters for everything up to the age of the universe.
+	 *
+	 * Any number of threads can record at once. A bucket is an element of an AtomicLongArray, and
+	 * with latencies spread over a few dozen buckets the threads rarely hit the same one.
+	 */
+
+	private static final int SUB_BUCKETS = 32;
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Records one latency, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(Math.max(nanos / 1000, 0)));
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 */
+	public long getCount() {
+		long count = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the latency in microseconds that the given fraction (0.5 for the median, 0.99 for the
+	 * 99th percentile) of the recorded latencies are at or below, or 0 if nothing was recorded. It's
+	 * the lower end of the bucket the percentile falls in.
+	 */
+	public long getPercentile(double fraction) {
+		if(fraction < 0 || fraction > 1) throw new IllegalArgumentException("Not a fraction: " + fraction);
+		long count = getCount();
+		if(count == 0) return 0;
+		long rank = Math.max((long)Math.ceil(fraction * count), 1);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if(seen >= rank) return lowestValue(i);
+		}
+		return lowestValue(BUCKETS - 1);
+	}
+
+	/**
+	 * Returns the highest latency recorded in microseconds (to the bucket), or 0.
+	 */
+	public long getMax() {
+		for(int i = BUCKETS - 1; i >= 0; i--) {
+			if(counts.get(i) != 0) return lowestValue(i);
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns how many of the recorded latencies were above a number of microseconds (to the bucket).
+	 */
+	public long countAbove(long micros) {
+		long above = 0;
+		for(int i = bucket(micros) + 1; i < BUCKETS; i++) {
+			above += counts.get(i);
+		}
+		return above;
+	}
+
+	public void clear() {
+		for(int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// values below 64 are their own bucket. Above that, shift is how far the value has to move right
+	// to land in 32..63, and each shift gets the next 32 buckets.
+	private static int bucket(long micros) {
+		if(micros < 2 * SUB_BUCKETS) return (int)micros;
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - 5;
+		return shift * SUB_BUCKETS + (int)(micros >>> shift);
+	}
+
+	private static long lowestValue(int bucket) {
+		if(bucket < 2 * SUB_BUCKETS) return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		return (long)(bucket - shift * SUB_BUCKETS) << shift;
+	}
+
+}
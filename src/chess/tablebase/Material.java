@@ -0,0 +1,439 @@
+package chess.tablebase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import chess.game.Board;
+import chess.util.Constants;
+
+public class Material {
+
+	/*
+	 * A material signature like "KQvKR" names one endgame: the pieces white has, a 'v', then the
+	 * pieces black has, each side starting with its king. Every endgame gets its own tablebase, and
+	 * this class knows how to number the positions of an endgame, which is the whole trick to a
+	 * compact table: with the index worked out from the piece squares there is nothing to store but
+	 * the result itself, one byte per position.
+	 *
+	 * 	Indexing
+	 * 	--------
+	 * 	The index is built from the side to move, the white king, the black king and then every other
+	 * 	piece in a fixed order, white's strongest piece first and black's after that:
+	 *
+	 * 		((side * kingSlots + whiteKingSlot) * 64 + blackKing) * 64 + piece 3 ...) * 64 + piece n
+	 *
+	 * 	Mirroring the board doesn't change the result of a position, so every position is turned
+	 * 	around until the white king sits in a small corner of the board. Without pawns all 8 ways of
+	 * 	turning and flipping the board are allowed and the king only needs the 10 squares of the
+	 * 	a1-d1-d4 triangle. Pawns only move one way, so with pawns the board can only be flipped from
+	 * 	left to right and the king needs the 32 squares of the a to d files. When more than one
+	 * 	mirror image lands the king in that corner, the one with the smallest index wins, and
+	 * 	identical pieces (two rooks, say) are put in order of their squares, so that every position
+	 * 	has exactly one index.
+	 *
+	 * 	Numbers that don't belong to a real position (two pieces on one square, pawns on the first or
+	 * 	last rank, the side that just moved still in check, or a mirror image of some other index)
+	 * 	are just left unused.
+	 *
+	 * Tablebases are only made for one of the two colorings of an endgame, the canonical one where
+	 * white has the stronger pieces. "KvKQ" is looked up in the table for "KQvK" with the colors
+	 * swapped and the board flipped upside down.
+	 */
+
+	// endgames with more pieces than this would need more than 2^31 indices
+	public static final int MAX_PIECES = 5;
+
+	// the order pieces appear in a signature and in the index, strongest first after the king
+	private static final int[] TYPE_ORDER = {Constants.KING, Constants.QUEEN, Constants.ROOK, Constants.BISHOP, Constants.KNIGHT, Constants.PAWN};
+	private static final String LETTERS = "PRNBQK";
+
+	// how strong a side is for picking the canonical coloring, by piece type
+	private static final int[] STRENGTH = {1, 5, 3, 3, 9, 0};
+
+	// every way of turning and flipping the board, as [transform][square]. Transforms 0 and 1 (do
+	// nothing, and flip left to right) are the only ones allowed when there are pawns
+	private static final int[][] TRANSFORMS = new int[8][64];
+
+	// the white king's slot by square, or -1 if it's outside the corner, and the other way around
+	private static final int[] TRIANGLE_SLOTS = new int[64];
+	private static final int[] HALF_SLOTS = new int[64];
+	private static final int[] TRIANGLE_SQUARES = new int[10];
+	private static final int[] HALF_SQUARES = new int[32];
+
+	static {
+		for(int transform = 0; transform < 8; transform++) {
+			for(int square = 0; square < 64; square++) {
+				int mapped = square;
+				if((transform & 4) != 0) mapped = (7 - (mapped & 7)) * 8 + 7 - (mapped >>> 3);	// a1-h8 diagonal
+				if((transform & 1) != 0) mapped ^= 7;		// left to right
+				if((transform & 2) != 0) mapped ^= 56;		// top to bottom
+				TRANSFORMS[transform][square] = mapped;
+			}
+		}
+
+		int triangle = 0;
+		int half = 0;
+		for(int square = 0; square < 64; square++) {
+			// counted from the a file and the first rank
+			int file = 7 - (square & 7);
+			int rank = square >>> 3;
+			TRIANGLE_SLOTS[square] = -1;
+			HALF_SLOTS[square] = -1;
+			if(file <= 3) {
+				HALF_SQUARES[half] = square;
+				HALF_SLOTS[square] = half++;
+			}
+			if(file <= 3 && rank <= file) {
+				TRIANGLE_SQUARES[triangle] = square;
+				TRIANGLE_SLOTS[square] = triangle++;
+			}
+		}
+	}
+
+	// the number of pieces of every piece index, Constants.WHITE_PAWNS..Constants.BLACK_KING
+	private final int[] counts;
+
+	// the piece index of every position in the index
+	private final int[] pieces;
+
+	private final String name;
+	private final long key;
+	private final boolean pawns;
+	private final int transforms;
+	private final int[] kingSlots;
+	private final int[] slotSquares;
+	private final long size;
+
+	private Material(int[] counts) {
+		this.counts = counts.clone();
+
+		int total = 0;
+		for(int count : counts) total += count;
+		pieces = new int[total];
+
+		// both kings first, then white's pieces and black's pieces, strongest first
+		int index = 0;
+		pieces[index++] = Constants.WHITE_KING;
+		pieces[index++] = Constants.BLACK_KING;
+		StringBuilder builder = new StringBuilder();
+		for(int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+			if(color == Constants.BLACK) builder.append('v');
+			for(int type : TYPE_ORDER) {
+				int piece = color * Constants.BLACK_OFFSET + type;
+				for(int i = 0; i < counts[piece]; i++) {
+					builder.append(LETTERS.charAt(type));
+					if(type != Constants.KING) pieces[index++] = piece;
+				}
+			}
+		}
+		name = builder.toString();
+
+		key = key(counts);
+		pawns = counts[Constants.WHITE_PAWNS] + counts[Constants.BLACK_PAWNS] > 0;
+		transforms = pawns ? 2 : 8;
+		kingSlots = pawns ? HALF_SLOTS : TRIANGLE_SLOTS;
+		slotSquares = pawns ? HALF_SQUARES : TRIANGLE_SQUARES;
+
+		long positions = 2L * slotSquares.length * 64;
+		for(int i = 2; i < total; i++) positions *= 64;
+		size = positions;
+	}
+
+	/**
+	 * Reads a signature like "KQvKR" or "KPvK".
+	 * @throws IllegalArgumentException if it isn't one king each and at most MAX_PIECES pieces
+	 */
+	public static Material parse(String signature) {
+		int separator = signature.indexOf('v');
+		if(separator < 0) throw new IllegalArgumentException("Bad material signature: " + signature);
+
+		int[] counts = new int[12];
+		for(int i = 0; i < signature.length(); i++) {
+			if(i == separator) continue;
+			int type = LETTERS.indexOf(Character.toUpperCase(signature.charAt(i)));
+			if(type < 0) throw new IllegalArgumentException("Bad material signature: " + signature);
+			counts[(i < separator ? 0 : Constants.BLACK_OFFSET) + type]++;
+		}
+		return of(counts, signature);
+	}
+
+	/**
+	 * Returns the material of the pieces on a board.
+	 */
+	public static Material of(Board board) {
+		int[] counts = new int[12];
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			counts[piece] = Long.bitCount(board.getBitBoard(piece));
+		}
+		return of(counts, "the board");
+	}
+
+	/**
+	 * Returns the material key of the pieces on a board, the same number getKey() returns for the
+	 * matching Material, without creating anything.
+	 */
+	public static long key(Board board) {
+		long key = 0;
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			key |= (long)Long.bitCount(board.getBitBoard(piece)) << (4 * piece);
+		}
+		return key;
+	}
+
+	/**
+	 * Works out the index of a position in this endgame.
+	 * @param squares the square of every piece, in the order of getPieces()
+	 * @param side the side to move
+	 * @param scratch a buffer at least getPieceCount() long
+	 * @return the index, or -1 if no mirror image puts the white king in its corner (which can
+	 * only happen if the squares aren't a real position)
+	 */
+	public long index(int[] squares, int side, int[] scratch) {
+		int n = pieces.length;
+		long best = -1;
+		for(int transform = 0; transform < transforms; transform++) {
+			int[] map = TRANSFORMS[transform];
+			int slot = kingSlots[map[squares[0]]];
+			if(slot < 0) continue;
+
+			for(int i = 1; i < n; i++) {
+				scratch[i] = map[squares[i]];
+			}
+
+			// identical pieces go in order of their squares (an insertion sort, the groups are tiny)
+			for(int i = 2; i < n; i++) {
+				int square = scratch[i];
+				int j = i - 1;
+				while(j >= 2 && pieces[j] == pieces[i] && scratch[j] > square) {
+					scratch[j + 1] = scratch[j];
+					j--;
+				}
+				scratch[j + 1] = square;
+			}
+
+			long index = (long)side * slotSquares.length + slot;
+			for(int i = 1; i < n; i++) {
+				index = index * 64 + scratch[i];
+			}
+			if(best < 0 || index < best) best = index;
+		}
+		return best;
+	}
+
+	/**
+	 * Turns an index back into the squares of the pieces, in the order of getPieces().
+	 * @return the side to move
+	 */
+	public int decode(long index, int[] squares) {
+		for(int i = pieces.length - 1; i >= 1; i--) {
+			squares[i] = (int)(index & 63);
+			index >>>= 6;
+		}
+		squares[0] = slotSquares[(int)(index % slotSquares.length)];
+		return (int)(index / slotSquares.length);
+	}
+
+	/**
+	 * Reads the squares of the pieces off a board in the order of getPieces(). When flipped is true
+	 * the board is read with the colors swapped and upside down, which is how a position with the
+	 * colors the other way around is looked up.
+	 */
+	public void getSquares(Board board, boolean flipped, int[] squares) {
+		long bitboard = 0;
+		for(int i = 0; i < pieces.length; i++) {
+			if(i == 0 || pieces[i] != pieces[i - 1]) {
+				int piece = pieces[i];
+				if(flipped) piece = (piece + Constants.BLACK_OFFSET) % 12;
+				bitboard = board.getBitBoard(piece);
+			}
+			int square = Long.numberOfTrailingZeros(bitboard);
+			bitboard &= bitboard - 1;
+			squares[i] = flipped ? square ^ 56 : square;
+		}
+	}
+
+	/**
+	 * Returns the same endgame with the colors swapped.
+	 */
+	public Material flipped() {
+		int[] swapped = new int[12];
+		for(int piece = 0; piece < 12; piece++) {
+			swapped[(piece + Constants.BLACK_OFFSET) % 12] = counts[piece];
+		}
+		return new Material(swapped);
+	}
+
+	/**
+	 * Returns the coloring of this endgame that tablebases are made for: the one where white has
+	 * the stronger pieces (or this one, if both sides have the same).
+	 */
+	public Material canonical() {
+		return isCanonical() ? this : flipped();
+	}
+
+	public boolean isCanonical() {
+		int white = 0;
+		int black = 0;
+		for(int type = Constants.PAWN; type < Constants.KING; type++) {
+			white += STRENGTH[type] * counts[type];
+			black += STRENGTH[type] * counts[type + Constants.BLACK_OFFSET];
+		}
+		if(white != black) return white > black;
+
+		// the same strength, so let's compare piece by piece the way the signature lists them
+		for(int type : TYPE_ORDER) {
+			if(counts[type] != counts[type + Constants.BLACK_OFFSET]) return counts[type] > counts[type + Constants.BLACK_OFFSET];
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the canonical endgames that one capture, promotion or capturing promotion leads to,
+	 * which are the tables that have to exist before this one can be generated. The endgame with
+	 * just the two kings isn't included, since it is always a draw.
+	 */
+	public List<Material> getSuccessors() {
+		Set<String> seen = new LinkedHashSet<>();
+		List<Material> successors = new ArrayList<>();
+		for(int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+			int us = color * Constants.BLACK_OFFSET;
+			int them = (color ^ 1) * Constants.BLACK_OFFSET;
+
+			// captures, with or without promoting at the same time (which can't take a pawn, since
+			// there are never pawns on the last rank)
+			for(int victim = Constants.PAWN; victim < Constants.KING; victim++) {
+				if(counts[them + victim] == 0) continue;
+				int[] captured = counts.clone();
+				captured[them + victim]--;
+				add(captured, seen, successors);
+
+				if(counts[us + Constants.PAWN] == 0 || victim == Constants.PAWN) continue;
+				for(int promotion = Constants.ROOK; promotion <= Constants.QUEEN; promotion++) {
+					int[] promoted = captured.clone();
+					promoted[us + Constants.PAWN]--;
+					promoted[us + promotion]++;
+					add(promoted, seen, successors);
+				}
+			}
+
+			if(counts[us + Constants.PAWN] == 0) continue;
+			for(int promotion = Constants.ROOK; promotion <= Constants.QUEEN; promotion++) {
+				int[] promoted = counts.clone();
+				promoted[us + Constants.PAWN]--;
+				promoted[us + promotion]++;
+				add(promoted, seen, successors);
+			}
+		}
+		return successors;
+	}
+
+	/**
+	 * Returns every canonical endgame with the given number of pieces (kings included).
+	 */
+	public static List<Material> all(int pieceCount) {
+		Set<String> seen = new LinkedHashSet<>();
+		List<Material> materials = new ArrayList<>();
+		int[] counts = new int[12];
+		counts[Constants.WHITE_KING] = 1;
+		counts[Constants.BLACK_KING] = 1;
+		addAll(counts, 0, pieceCount - 2, seen, materials);
+		return materials;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Material && ((Material)other).key == key;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(key);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// the number of pieces of each piece index, by Board's piece indices packed into 4 bits each
+	public long getKey() {
+		return key;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// the piece index of every position in the index (see getSquares)
+	public int[] getPieces() {
+		return pieces;
+	}
+
+	public int getPieceCount() {
+		return pieces.length;
+	}
+
+	public boolean hasPawns() {
+		return pawns;
+	}
+
+	// the number of indices, used or not
+	public long getSize() {
+		return size;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private static Material of(int[] counts, String source) {
+		if(counts[Constants.WHITE_KING] != 1 || counts[Constants.BLACK_KING] != 1) {
+			throw new IllegalArgumentException("Each side needs exactly one king: " + source);
+		}
+		int total = 0;
+		for(int count : counts) total += count;
+		if(total > MAX_PIECES) throw new IllegalArgumentException("More than " + MAX_PIECES + " pieces: " + source);
+		return new Material(counts);
+	}
+
+	private static long key(int[] counts) {
+		long key = 0;
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			key |= (long)counts[piece] << (4 * piece);
+		}
+		return key;
+	}
+
+	private static void add(int[] counts, Set<String> seen, List<Material> materials) {
+		int total = 0;
+		for(int count : counts) total += count;
+		if(total <= 2) return;
+		Material material = new Material(counts).canonical();
+		if(seen.add(material.name)) materials.add(material);
+	}
+
+	// hands out the remaining pieces over the piece indices from index on, in every possible way
+	private static void addAll(int[] counts, int index, int remaining, Set<String> seen, List<Material> materials) {
+		if(remaining == 0) {
+			add(counts, seen, materials);
+			return;
+		}
+		for(int piece = index; piece < 12; piece++) {
+			if(piece % Constants.BLACK_OFFSET == Constants.KING) continue;
+			counts[piece]++;
+			addAll(counts, piece, remaining - 1, seen, materials);
+			counts[piece]--;
+		}
+	}
+
+}
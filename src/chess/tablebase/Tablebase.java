@@ -0,0 +1,126 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class Tablebase {
+
+	/*
+	 * One endgame table, memory mapped straight from its file. The file is a 32 byte header followed
+	 * by one byte for every index of the endgame (see Material):
+	 *
+	 * 		magic		4 bytes		"BBTB"
+	 * 		version		4 bytes		1
+	 * 		size		8 bytes		the number of positions that follow
+	 * 		material	16 bytes	the signature in ASCII, like "KQvKR", padded with zeros
+	 *
+	 * Each position's byte is its result for the side to move:
+	 *
+	 * 		0			draw (and every unused index)
+	 * 		1..127		win, mating in that many moves
+	 * 		-1..-128	loss, getting mated in (-value - 1) moves, so -1 means checkmated right now
+	 *
+	 * Probing is a single read out of the mapping, so any number of threads can probe a table at once
+	 * and the operating system keeps the parts that get used in memory.
+	 */
+
+	public static final int MAGIC = 0x42425442;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+
+	public static final int DRAW = 0;
+
+	// returned by probes when there is no table for the position
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	private final Material material;
+	private final ByteBuffer values;
+
+	/**
+	 * Maps a table file.
+	 * @throws IllegalArgumentException if the file isn't a table
+	 */
+	public Tablebase(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_SIZE) throw new IllegalArgumentException(path + " isn't a tablebase");
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IllegalArgumentException(path + " isn't a tablebase");
+
+			byte[] name = new byte[16];
+			buffer.get(16, name);
+			material = Material.parse(new String(name, StandardCharsets.US_ASCII).trim());
+			long size = buffer.getLong(8);
+			if(size != material.getSize() || channel.size() != HEADER_SIZE + size) {
+				throw new IllegalArgumentException(path + " has the wrong size for " + material);
+			}
+			values = buffer;
+		}
+	}
+
+	/**
+	 * Writes a table file.
+	 */
+	public static void write(Path path, Material material, byte[] values) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(values.length);
+		header.put(material.getName().getBytes(StandardCharsets.US_ASCII));
+		header.clear();
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(header.hasRemaining()) channel.write(header);
+			ByteBuffer body = ByteBuffer.wrap(values);
+			while(body.hasRemaining()) channel.write(body);
+		}
+	}
+
+	/**
+	 * Returns the result stored at an index (see the class comment).
+	 */
+	public int get(long index) {
+		return values.get(HEADER_SIZE + (int)index);
+	}
+
+	public Material getMaterial() {
+		return material;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							RESULTS											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public static boolean isWin(int value) {
+		return value > 0 && value != UNKNOWN;
+	}
+
+	public static boolean isLoss(int value) {
+		return value < 0 && value != UNKNOWN;
+	}
+
+	/**
+	 * Returns the number of plies (half moves) until mate for a win or a loss.
+	 */
+	public static int getPlies(int value) {
+		return value > 0 ? 2 * value - 1 : 2 * (-value - 1);
+	}
+
+	/**
+	 * The result for mating in a number of plies, which has to be odd.
+	 */
+	public static int win(int plies) {
+		return (plies + 1) / 2;
+	}
+
+	/**
+	 * The result for getting mated in a number of plies, which has to be even.
+	 */
+	public static int loss(int plies) {
+		return -(plies / 2) - 1;
+	}
+
+}
@@ -0,0 +1,472 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.util.Attacks;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class TablebaseGenerator {
+
+	/*
+	 * 	Retrograde analysis
+	 * 	-------------------
+	 * 	Instead of searching forward from a position, a tablebase is built backwards from the end of
+	 * 	the game. Every position of the endgame is looked at once to find the checkmates, and from
+	 * 	there on the results spread backwards one ply at a time:
+	 *
+	 * 		- a position where the side to move is mated in n plies makes every position that can
+	 * 		  move into it a win in n + 1 plies
+	 * 		- a position where the side to move mates in n plies makes the positions that can move into
+	 * 		  it candidates for a loss, and a candidate really is lost once every one of its moves leads
+	 * 		  to a win for the opponent. It is then lost in one ply more than the slowest of those wins.
+	 *
+	 * 	"The positions that can move into it" are found by un-moving the pieces of the side that just
+	 * 	moved: un-moves are the same as moves for everything but pawns, which go backwards, and they
+	 * 	never capture or promote since those leave the endgame. Moves that capture or promote are
+	 * 	looked up in the smaller tables instead, which is why those get generated first. They are
+	 * 	resolved in the first pass over the endgame, and a result that comes out of one (say a capture
+	 * 	that mates in 9) waits as "pending" until the ply it belongs to comes around, unless a
+	 * 	quicker result turns up first.
+	 *
+	 * 	When a ply passes without anything new, whatever hasn't been decided is a draw.
+	 *
+	 * 	Every ply is two passes over the whole endgame, and both passes are split into chunks that
+	 * 	the worker threads take in parallel. The first pass makes the pending results of the ply
+	 * 	final, and the second one spreads the results of the ply backwards. Threads can reach the same
+	 * 	position at the same time in the second pass, but only ever to write the same result into it,
+	 * 	and a position's flag is always written after its value (and read before it) so nobody sees a
+	 * 	finished flag with a stale value.
+	 *
+	 * 	The en passant rule is left out, like in most tablebases: positions are stored without an en
+	 * 	passant square, and Tablebases won't answer for positions where en passant is possible.
+	 */
+
+	// what we know about each position while generating
+	private static final byte UNKNOWN = 0;
+	private static final byte UNUSED = 1;
+	private static final byte PENDING = 2;
+	private static final byte DONE = 3;
+
+	// the longest distance to mate a result can store (see Tablebase)
+	private static final int MAX_PLIES = 254;
+
+	private static final VarHandle FLAGS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+	private final Path directory;
+	private final int threads;
+	private final Tablebases tablebases;
+
+	// the endgame being generated, and its results and flags by index
+	private Material material;
+	private byte[] values;
+	private byte[] flags;
+	private final AtomicInteger maxPending = new AtomicInteger();
+	private final LongAdder resolved = new LongAdder();
+
+	public TablebaseGenerator(Path directory, int threads) throws IOException {
+		this.directory = directory;
+		this.threads = Math.max(threads, 1);
+		Files.createDirectories(directory);
+		tablebases = new Tablebases(directory);
+	}
+
+	/**
+	 * Generates the table for an endgame, and first every smaller table it needs, skipping tables
+	 * that are already in the directory.
+	 * @return the table, mapped from its file
+	 */
+	public Tablebase generate(Material endgame) throws IOException {
+		Material canonical = endgame.canonical();
+		Tablebase existing = tablebases.get(canonical);
+		if(existing != null) return existing;
+
+		for(Material successor : canonical.getSuccessors()) {
+			generate(successor);
+		}
+
+		long start = System.nanoTime();
+		byte[] result = build(canonical);
+		Path path = Tablebases.getPath(directory, canonical);
+		Tablebase.write(path, canonical, result);
+		Tablebase table = new Tablebase(path);
+		tablebases.add(table);
+
+		printSummary(canonical, result, System.nanoTime() - start);
+		return table;
+	}
+
+	public Tablebases getTablebases() {
+		return tablebases;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GENERATION										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private byte[] build(Material endgame) {
+		if(endgame.getSize() > Integer.MAX_VALUE - 8) throw new IllegalArgumentException(endgame + " is too big");
+
+		material = endgame;
+		int size = (int)endgame.getSize();
+		values = new byte[size];
+		flags = new byte[size];
+		maxPending.set(-1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "tablebase-generator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			parallel(executor, size, this::initialize);
+
+			for(int ply = 0; ; ply++) {
+				if(ply >= MAX_PLIES) throw new IllegalStateException(endgame + " has a mate longer than " + MAX_PLIES + " plies");
+				int current = ply;
+				parallel(executor, size, (worker, from, to) -> finishPending(from, to, current));
+				resolved.reset();
+				parallel(executor, size, (worker, from, to) -> propagate(worker, from, to, current));
+
+				// nothing new for the next ply and nothing pending after it means we're done
+				if(resolved.sum() == 0 && maxPending.get() <= ply) break;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// everything that is still undecided is a draw, and unused indices read as draws too
+		for(int i = 0; i < size; i++) {
+			if(flags[i] != DONE) values[i] = Tablebase.DRAW;
+		}
+
+		byte[] result = values;
+		values = null;
+		flags = null;
+		return result;
+	}
+
+	// the first pass: finds the unused indices, checkmates and stalemates, and looks up every
+	// capture and promotion in the smaller tables
+	private void initialize(Worker worker, int from, int to) {
+		for(int index = from; index < to; index++) {
+			if(!worker.load(index, true)) {
+				flags[index] = UNUSED;
+				continue;
+			}
+
+			Board board = worker.board;
+			int count = MoveGenerator.generateLegalMoves(board, worker.moves, 0);
+			int quiet = 0;
+			int bestWin = Integer.MAX_VALUE;
+			int slowestLoss = -1;
+			boolean draw = false;
+			for(int i = 0; i < count; i++) {
+				int move = worker.moves[i];
+				board.makeMove(move);
+				if(Move.isCapture(move) || Move.isPromotion(move)) {
+					int value = tablebases.probe(board, worker.probeSquares, worker.scratch);
+					if(value == Tablebase.UNKNOWN) throw new IllegalStateException("Missing the table for " + Material.of(board).canonical());
+					if(Tablebase.isLoss(value)) bestWin = Math.min(bestWin, Tablebase.getPlies(value) + 1);
+					else if(Tablebase.isWin(value)) slowestLoss = Math.max(slowestLoss, Tablebase.getPlies(value) + 1);
+					else draw = true;
+				} else {
+					quiet++;
+				}
+				board.unmakeMove(move);
+			}
+
+			if(count == 0) {
+				// checkmate or stalemate
+				values[index] = (byte)(board.isInCheck() ? Tablebase.loss(0) : Tablebase.DRAW);
+				flags[index] = DONE;
+			} else if(bestWin != Integer.MAX_VALUE) {
+				setPending(index, Tablebase.win(bestWin), bestWin);
+			} else if(quiet == 0) {
+				// every move leaves the endgame, so the smaller tables already decide this one
+				if(draw) {
+					values[index] = Tablebase.DRAW;
+					flags[index] = DONE;
+				} else {
+					setPending(index, Tablebase.loss(slowestLoss), slowestLoss);
+				}
+			}
+		}
+	}
+
+	// the first pass of a ply: pending results that belong to this ply become final
+	private void finishPending(int from, int to, int ply) {
+		for(int index = from; index < to; index++) {
+			if(flags[index] == PENDING && Tablebase.getPlies(values[index]) == ply) flags[index] = DONE;
+		}
+	}
+
+	// the second pass of a ply: spreads the results that became final at this ply to the positions
+	// that can move into them
+	private void propagate(Worker worker, int from, int to, int ply) {
+		long found = 0;
+		for(int index = from; index < to; index++) {
+			if(flags[index] != DONE || Tablebase.getPlies(values[index]) != ply) continue;
+			if(values[index] == Tablebase.DRAW) continue;
+			boolean lost = Tablebase.isLoss(values[index]);
+
+			int side = material.decode(index, worker.squares);
+			int mover = side ^ 1;
+			worker.setBitboards(worker.squares);
+			long occupied = worker.occupied;
+
+			int[] pieces = material.getPieces();
+			for(int p = 0; p < pieces.length; p++) {
+				int piece = pieces[p];
+				if(piece / Constants.BLACK_OFFSET != mover) continue;
+				int type = piece % Constants.BLACK_OFFSET;
+				int square = worker.squares[p];
+
+				long origins = type == Constants.PAWN ? pawnOrigins(mover, square, occupied)
+						: Attacks.attacks(type, mover, square, occupied) & ~occupied;
+				while(origins != 0) {
+					int origin = Long.numberOfTrailingZeros(origins);
+					origins &= origins - 1;
+
+					System.arraycopy(worker.squares, 0, worker.previous, 0, pieces.length);
+					worker.previous[p] = origin;
+
+					// in the position before the move, the side that is to move now can't be in check
+					worker.setBitboards(worker.previous);
+					int king = worker.previous[side == Constants.WHITE ? 0 : 1];
+					if(worker.isAttacked(king, mover)) continue;
+
+					int previous = (int)material.index(worker.previous, mover, worker.scratch);
+					if((byte)FLAGS.getAcquire(flags, previous) == DONE) continue;
+
+					if(lost) {
+						values[previous] = (byte)Tablebase.win(ply + 1);
+						FLAGS.setRelease(flags, previous, DONE);
+						found++;
+					} else if(flags[previous] != PENDING && checkLoss(worker, previous, mover, ply)) {
+						found++;
+					}
+				}
+			}
+		}
+		resolved.add(found);
+	}
+
+	// a position that can move into a win for the opponent is lost if all of its moves can. Returns
+	// true if it turned out to be lost right at the next ply. The board is set up from the worker's
+	// bitboards as they are (the position in whatever mirror image the un-move left it in), since
+	// decoding the index would overwrite the squares propagate is still un-moving from.
+	private boolean checkLoss(Worker worker, int index, int us, int ply) {
+		Board board = worker.board;
+		board.setPieces(worker.bitboards, us);
+		int count = MoveGenerator.generateLegalMoves(board, worker.moves, 0);
+		int slowest = -1;
+		boolean lost = true;
+		for(int i = 0; i < count && lost; i++) {
+			int move = worker.moves[i];
+			board.makeMove(move);
+
+			int value;
+			if(Move.isCapture(move) || Move.isPromotion(move)) {
+				value = tablebases.probe(board, worker.probeSquares, worker.scratch);
+			} else {
+				material.getSquares(board, false, worker.probeSquares);
+				int next = (int)material.index(worker.probeSquares, us ^ 1, worker.scratch);
+				value = (byte)FLAGS.getAcquire(flags, next) == DONE && Tablebase.getPlies(values[next]) <= ply ? values[next] : Tablebase.DRAW;
+			}
+			board.unmakeMove(move);
+
+			if(Tablebase.isWin(value)) slowest = Math.max(slowest, Tablebase.getPlies(value) + 1);
+			else lost = false;
+		}
+		if(!lost || slowest < 0) return false;
+
+		if(slowest <= ply + 1) {
+			values[index] = (byte)Tablebase.loss(slowest);
+			FLAGS.setRelease(flags, index, DONE);
+			return true;
+		}
+		// a capture that loses even more slowly decides it, a few plies from now
+		setPending(index, Tablebase.loss(slowest), slowest);
+		return false;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void setPending(int index, int value, int plies) {
+		if(plies > MAX_PLIES) throw new IllegalStateException(material + " has a mate longer than " + MAX_PLIES + " plies");
+		values[index] = (byte)value;
+		FLAGS.setRelease(flags, index, PENDING);
+		maxPending.accumulateAndGet(plies, Math::max);
+	}
+
+	// the squares a pawn of the given color on square could have come from without capturing
+	private static long pawnOrigins(int color, int square, long occupied) {
+		int step = color == Constants.WHITE ? -8 : 8;
+		int single = square + step;
+		if(single < 8 || single >= 56 || (occupied & (1L << single)) != 0) return 0;
+		long origins = 1L << single;
+
+		int rank = square >>> 3;
+		if(rank == (color == Constants.WHITE ? 3 : 4)) {
+			int twice = single + step;
+			if((occupied & (1L << twice)) == 0) origins |= 1L << twice;
+		}
+		return origins;
+	}
+
+	private interface RangeTask {
+		void run(Worker worker, int from, int to);
+	}
+
+	// runs a task over [0, size) in chunks on every thread, and returns once all of them are done
+	private void parallel(ExecutorService executor, int size, RangeTask task) {
+		int chunks = threads * 16;
+		List<Callable<Void>> tasks = new ArrayList<>(chunks);
+		for(int i = 0; i < chunks; i++) {
+			int from = (int)((long)size * i / chunks);
+			int to = (int)((long)size * (i + 1) / chunks);
+			tasks.add(() -> {
+				task.run(new Worker(), from, to);
+				return null;
+			});
+		}
+		try {
+			for(Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating " + material, e);
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void printSummary(Material endgame, byte[] result, long nanos) {
+		long wins = 0;
+		long losses = 0;
+		int longest = 0;
+		for(byte value : result) {
+			if(Tablebase.isWin(value)) wins++;
+			if(Tablebase.isLoss(value)) losses++;
+			longest = Math.max(longest, Tablebase.isWin(value) ? value : 0);
+		}
+		System.out.printf("%s: %,d positions, %,d wins, %,d losses, longest mate in %d, %.1f s%n",
+				endgame, result.length, wins, losses, longest, nanos / 1e9);
+	}
+
+	// everything one thread needs to look at positions, so that the passes don't allocate
+	private class Worker {
+
+		final Board board = new Board();
+		final int[] moves = new int[MoveGenerator.MAX_MOVES];
+		final int[] squares = new int[Material.MAX_PIECES];
+		final int[] previous = new int[Material.MAX_PIECES];
+		final int[] probeSquares = new int[Material.MAX_PIECES];
+		final int[] scratch = new int[Material.MAX_PIECES];
+		final long[] bitboards = new long[12];
+		long occupied;
+
+		// sets the board up for an index. With check set, returns false for unused indices.
+		boolean load(int index, boolean check) {
+			int side = material.decode(index, squares);
+			if(!setBitboards(squares) && check) return false;
+			if(check && material.index(squares, side, scratch) != index) return false;
+
+			board.setPieces(bitboards, side);
+			return !check || !board.isKingAttacked(side ^ 1);
+		}
+
+		// fills in the bitboards from the squares. Returns false if two pieces share a square or
+		// there is a pawn on the first or last rank.
+		boolean setBitboards(int[] pieceSquares) {
+			int[] pieces = material.getPieces();
+			for(int i = 0; i < 12; i++) bitboards[i] = 0;
+			occupied = 0;
+			boolean valid = true;
+			for(int i = 0; i < pieces.length; i++) {
+				long bit = 1L << pieceSquares[i];
+				if((occupied & bit) != 0) valid = false;
+				if(pieces[i] % Constants.BLACK_OFFSET == Constants.PAWN && (bit & (Attacks.RANK_1 | Attacks.RANK_8)) != 0) valid = false;
+				occupied |= bit;
+				bitboards[pieces[i]] |= bit;
+			}
+			return valid;
+		}
+
+		// the same as Board.isSquareAttacked, on the bitboards
+		boolean isAttacked(int square, int byColor) {
+			int offset = byColor * Constants.BLACK_OFFSET;
+			if((Attacks.PAWN_ATTACKS[byColor ^ 1][square] & bitboards[offset + Constants.PAWN]) != 0) return true;
+			if((Attacks.KNIGHT_ATTACKS[square] & bitboards[offset + Constants.KNIGHT]) != 0) return true;
+			if((Attacks.KING_ATTACKS[square] & bitboards[offset + Constants.KING]) != 0) return true;
+			long queens = bitboards[offset + Constants.QUEEN];
+			if((Attacks.bishopAttacks(square, occupied) & (bitboards[offset + Constants.BISHOP] | queens)) != 0) return true;
+			return (Attacks.rookAttacks(square, occupied) & (bitboards[offset + Constants.ROOK] | queens)) != 0;
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							COMMAND LINE									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Generates tables into a directory.
+	 * Arguments: directory endgame... [-threads n], where an endgame is a signature like KQvKR or a
+	 * number of pieces (3, 4 or 5) for every endgame with that many
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 2) {
+			System.out.println("usage: TablebaseGenerator <directory> <endgame | pieces>... [-threads n]");
+			return;
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Material> endgames = new ArrayList<>();
+		for(int i = 1; i < args.length; i++) {
+			if(args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if(args[i].chars().allMatch(Character::isDigit)) {
+				endgames.addAll(Material.all(Integer.parseInt(args[i])));
+			} else {
+				endgames.add(Material.parse(args[i]));
+			}
+		}
+
+		long start = System.nanoTime();
+		TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]), threads);
+		for(Material endgame : endgames) {
+			generator.generate(endgame);
+		}
+		System.out.printf("%d tables in %s after %.1f s on %d threads%n",
+				generator.getTablebases().getCount(), args[0], (System.nanoTime() - start) / 1e9, threads);
+	}
+
+}
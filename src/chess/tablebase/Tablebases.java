@@ -0,0 +1,178 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import chess.game.Board;
+import chess.util.Attacks;
+import chess.util.Constants;
+
+public class Tablebases {
+
+	/*
+	 * All the endgame tables we have, looked up by the material on the board. Probing works for both
+	 * colorings of an endgame: a table is filed under its own material key and under the key with the
+	 * colors swapped, and in the second case the board is read flipped (see Material.getSquares).
+	 *
+	 * The lookup from material to table is a small open addressing hash table of plain arrays, so a
+	 * probe from the search never allocates. Tables are added rarely (when a directory is opened, or
+	 * as the generator finishes them), so adding one just builds new arrays and swaps them in, and
+	 * probes on other threads always see either the old set of tables or the new one.
+	 */
+
+	private static final String EXTENSION = ".tb";
+
+	private volatile Slots slots = new Slots(16);
+	private volatile int maxPieces;
+	private volatile int count;
+
+	/**
+	 * Creates an empty set of tables.
+	 */
+	public Tablebases() {
+	}
+
+	/**
+	 * Maps every table file (*.tb) in a directory.
+	 */
+	public Tablebases(Path directory) throws IOException {
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+			for(Path file : files) {
+				add(new Tablebase(file));
+			}
+		}
+	}
+
+	/**
+	 * Returns the file name a table for an endgame is stored under in a directory.
+	 */
+	public static Path getPath(Path directory, Material material) {
+		return directory.resolve(material.getName() + EXTENSION);
+	}
+
+	public synchronized void add(Tablebase table) {
+		Slots current = slots;
+		Slots next = new Slots(Math.max(16, Integer.highestOneBit(current.count * 2 + 2) * 4));
+		for(int i = 0; i < current.keys.length; i++) {
+			if(current.tables[i] != null) next.put(current.keys[i], current.tables[i], current.flipped[i]);
+		}
+		Material material = table.getMaterial();
+		next.put(material.getKey(), table, false);
+		next.put(material.flipped().getKey(), table, true);
+		slots = next;
+		maxPieces = Math.max(maxPieces, material.getPieceCount());
+		count++;
+	}
+
+	/**
+	 * Looks a position up.
+	 * @return the result for the side to move (see Tablebase), or Tablebase.UNKNOWN if there is no
+	 * table for it
+	 */
+	public int probe(Board board) {
+		return probe(board, new int[Material.MAX_PIECES], new int[Material.MAX_PIECES]);
+	}
+
+	/**
+	 * The same as probe(board), with two buffers (at least Material.MAX_PIECES long) that the caller
+	 * owns, so that nothing is allocated.
+	 */
+	public int probe(Board board, int[] squares, int[] scratch) {
+
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+		int pieces = Long.bitCount(occupied);
+		if(pieces == 2) return Tablebase.DRAW;
+		if(pieces > maxPieces) return Tablebase.UNKNOWN;
+
+		// the tables know nothing about castling, and nothing about en passant either, so positions
+		// where an en passant capture could actually be played have to be searched
+		if(board.getCastlingRights() != 0) return Tablebase.UNKNOWN;
+		int us = board.getSideToMove();
+		int ep = board.getEnPassantSquare();
+		if(ep != Constants.NO_SQUARE && (Attacks.PAWN_ATTACKS[us ^ 1][ep] & board.getBitBoard(us * Constants.BLACK_OFFSET + Constants.PAWN)) != 0) {
+			return Tablebase.UNKNOWN;
+		}
+
+		Slots current = slots;
+		int slot = current.find(Material.key(board));
+		if(slot < 0) return Tablebase.UNKNOWN;
+		Tablebase table = current.tables[slot];
+		boolean flipped = current.flipped[slot];
+
+		Material material = table.getMaterial();
+		material.getSquares(board, flipped, squares);
+		int side = flipped ? us ^ 1 : us;
+		return table.get(material.index(squares, side, scratch));
+	}
+
+	/**
+	 * Returns the table for an endgame (in either coloring), or null.
+	 */
+	public Tablebase get(Material material) {
+		Slots current = slots;
+		int slot = current.find(material.getKey());
+		return slot < 0 ? null : current.tables[slot];
+	}
+
+	// the most pieces any of the tables has
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	// the number of tables
+	public int getCount() {
+		return count;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private static class Slots {
+
+		final long[] keys;
+		final Tablebase[] tables;
+		final boolean[] flipped;
+		int count;
+
+		Slots(int capacity) {
+			keys = new long[capacity];
+			tables = new Tablebase[capacity];
+			flipped = new boolean[capacity];
+		}
+
+		// symmetric endgames like KRvKR have the same key both ways, and only go in once
+		void put(long key, Tablebase table, boolean flip) {
+			int mask = keys.length - 1;
+			int i = (int)(mix(key) & mask);
+			while(tables[i] != null) {
+				if(keys[i] == key) return;
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			tables[i] = table;
+			flipped[i] = flip;
+			count++;
+		}
+
+		int find(long key) {
+			int mask = keys.length - 1;
+			int i = (int)(mix(key) & mask);
+			while(tables[i] != null) {
+				if(keys[i] == key) return i;
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		private static long mix(long key) {
+			key *= 0x9E3779B97F4A7C15L;
+			return key ^ (key >>> 32);
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+package chess.training;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.eval.Evaluator;
+import chess.game.Board;
+import chess.io.PositionFile;
+import chess.io.PositionReader;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.TranspositionTable;
+
+public class PositionLabeler {
+
+	/*
+	 * Labels a stream of positions with a score, for training an evaluation, and writes them out as
+	 * TrainingRecords. The score is either the static evaluation (depth 0) or a shallow search.
+	 *
+	 * The input file is split into one byte range per thread (see PositionFile), and every thread
+	 * owns everything it touches: its reader, its Board, its Search with a small hash table of its own,
+	 * and a batch of the output. The only thing the threads share is the output file, and they only
+	 * meet there once per batch, so this scales with the number of cores until the disk can't keep up.
+	 */
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int depth;
+	private long nodes;
+	private int hashMb = 16;
+
+	private final LongAdder positions = new LongAdder();
+
+	public PositionLabeler() {
+	}
+
+	/**
+	 * Labels every position of a FEN/EPD file and adds them to the output, which is left open. The
+	 * result of each position's game is taken from its line if it's there (see
+	 * TrainingRecord.parseResult).
+	 * @return the number of positions written
+	 */
+	public long label(PositionFile input, TrainingDataWriter output) {
+
+		PositionReader[] readers = input.split(threads);
+		Thread[] workers = new Thread[readers.length];
+		RuntimeException[] failure = new RuntimeException[1];
+		long before = positions.sum();
+
+		for(int i = 0; i < readers.length; i++) {
+			PositionReader reader = readers[i];
+			workers[i] = new Thread(() -> {
+				try {
+					label(reader, output.newBatch());
+				} catch(RuntimeException e) {
+					synchronized(failure) {
+						if(failure[0] == null) failure[0] = e;
+					}
+				}
+			}, "position-labeler-" + i);
+			workers[i].start();
+		}
+
+		for(Thread worker : workers) {
+			try {
+				worker.join();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while labeling positions", e);
+			}
+		}
+
+		if(failure[0] != null) throw failure[0];
+		return positions.sum() - before;
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							GETTERS AND SETTERS								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(threads, 1);
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Sets the depth of the search for each position. 0 (and no node limit) means the static
+	 * evaluation.
+	 */
+	public void setDepth(int depth) {
+		this.depth = Math.max(depth, 0);
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Sets a node limit for each position's search, on its own or together with a depth.
+	 */
+	public void setNodes(long nodes) {
+		this.nodes = Math.max(nodes, 0);
+	}
+
+	/**
+	 * Sets the size of each thread's hash table.
+	 */
+	public void setHashMb(int hashMb) {
+		this.hashMb = Math.max(hashMb, 1);
+	}
+
+	/**
+	 * Returns the number of positions labeled so far, which can be read while label is running.
+	 */
+	public long getPositions() {
+		return positions.sum();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	/**
+	 * One thread's share of the work.
+	 */
+	private void label(PositionReader reader, TrainingDataWriter.Batch batch) {
+
+		Board board = new Board();
+		boolean searching = depth > 0 || nodes > 0;
+		Search search = searching ? new Search(new TranspositionTable(hashMb)) : null;
+		SearchLimits limits = new SearchLimits().setDepth(depth).setNodes(nodes);
+
+		// add to the shared count every so often rather than for every position
+		long count = 0;
+		while(reader.next(board)) {
+			int score;
+			if(searching) {
+				search.search(board, limits);
+				score = search.getBestScore();
+			} else {
+				score = Evaluator.evaluate(board);
+			}
+			batch.add(board, score, TrainingRecord.parseResult(reader));
+			if(++count == 1024) {
+				positions.add(count);
+				count = 0;
+			}
+		}
+		positions.add(count);
+		batch.flush();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							MAIN											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 2) {
+			System.out.println("usage: PositionLabeler <positions> <output> [-depth n] [-nodes n] [-threads n] [-hash mb]");
+			return;
+		}
+
+		PositionLabeler labeler = new PositionLabeler();
+		for(int i = 2; i + 1 < args.length; i += 2) {
+			switch(args[i]) {
+			case "-depth": labeler.setDepth(Integer.parseInt(args[i + 1])); break;
+			case "-nodes": labeler.setNodes(Long.parseLong(args[i + 1])); break;
+			case "-threads": labeler.setThreads(Integer.parseInt(args[i + 1])); break;
+			case "-hash": labeler.setHashMb(Integer.parseInt(args[i + 1])); break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+
+		Path output = Paths.get(args[1]);
+		long start = System.nanoTime();
+		long count;
+		long inputBytes;
+		try(PositionFile input = new PositionFile(Paths.get(args[0])); TrainingDataWriter writer = new TrainingDataWriter(output)) {
+			inputBytes = input.getSize();
+			count = labeler.label(input, writer);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%,d positions in %.2f s on %d threads: %,.0f positions/s%n",
+				count, seconds, labeler.getThreads(), count / seconds);
+		System.out.printf("%,d bytes of input, %,d bytes of output (%d per position)%n",
+				inputBytes, Files.size(output), TrainingRecord.BYTES);
+	}
+
+}
@@ -0,0 +1,90 @@
+package chess.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.game.Board;
+
+public class TrainingDataReader implements Closeable {
+
+	/*
+	 * Reads a file of TrainingRecords by index, memory mapped. A single mapping can't be bigger than
+	 * 2 GB, so the file is mapped in segments of SEGMENT_BYTES, which is a whole number of records,
+	 * so no record is ever split between two segments. Reading doesn't change any state, so any
+	 * number of threads can read at once as long as each brings its own Board.
+	 */
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long count;
+
+	/**
+	 * Maps a file.
+	 * @throws IllegalArgumentException if its size isn't a whole number of records
+	 */
+	public TrainingDataReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		long size = channel.size();
+		if(size % TrainingRecord.BYTES != 0) throw new IllegalArgumentException("Not a training data file: " + path);
+		count = size / TrainingRecord.BYTES;
+
+		segments = new MappedByteBuffer[(int)((size + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT)];
+		for(int i = 0; i < segments.length; i++) {
+			long start = (long)i << SEGMENT_SHIFT;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+			segments[i].order(TrainingRecord.ORDER);
+		}
+	}
+
+	/**
+	 * Sets a board up from a record.
+	 * @param pieces scratch space of at least 12 longs
+	 */
+	public void read(long index, Board board, long[] pieces) {
+		TrainingRecord.read(segment(index), offset(index), board, pieces);
+	}
+
+	public int getScore(long index) {
+		return TrainingRecord.getScore(segment(index), offset(index));
+	}
+
+	public int getResult(long index) {
+		return TrainingRecord.getResult(segment(index), offset(index));
+	}
+
+	/**
+	 * Returns the number of records in the file.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private ByteBuffer segment(long index) {
+		if(index < 0 || index >= count) throw new IndexOutOfBoundsException("No record " + index + " in " + count);
+		return segments[(int)((index * TrainingRecord.BYTES) >>> SEGMENT_SHIFT)];
+	}
+
+	private static int offset(long index) {
+		return (int)((index * TrainingRecord.BYTES) & (SEGMENT_BYTES - 1));
+	}
+
+}
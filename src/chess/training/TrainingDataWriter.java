@@ -0,0 +1,105 @@
+package chess.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.game.Board;
+
+public class TrainingDataWriter implements Closeable {
+
+	/*
+	 * Writes TrainingRecords to a file through a FileChannel. Records are never written one at a
+	 * time: every thread that produces them fills a Batch of its own (a direct buffer, so the channel
+	 * can hand it to the operating system without another copy), and only a full batch takes the
+	 * writer's lock, for the one large write that empties it. The lock is taken once per few
+	 * thousand records, so any number of threads can write to the same file without waiting on
+	 * each other.
+	 *
+	 * Records are all the same size, so whole batches from different threads can be written one
+	 * after the other in any order and the file is still a plain array of records. The order of the
+	 * positions isn't kept, which training data doesn't need anyway (it gets shuffled).
+	 */
+
+	// 64 KB of records per batch
+	public static final int DEFAULT_BATCH_RECORDS = 2048;
+
+	private final FileChannel channel;
+	private long records;
+
+	/**
+	 * Creates the file, or empties it if it's already there.
+	 */
+	public TrainingDataWriter(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Returns a new batch for one thread to write through.
+	 */
+	public Batch newBatch() {
+		return new Batch(DEFAULT_BATCH_RECORDS);
+	}
+
+	/**
+	 * Writes out everything in the buffer between its position and its limit.
+	 */
+	public synchronized void write(ByteBuffer buffer) throws IOException {
+		records += buffer.remaining() / TrainingRecord.BYTES;
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	/**
+	 * A buffer of records that belongs to one thread and goes to the writer whenever it's full.
+	 * Remember to flush it when the thread is done.
+	 */
+	public class Batch {
+
+		private final ByteBuffer buffer;
+
+		private Batch(int records) {
+			buffer = ByteBuffer.allocateDirect(records * TrainingRecord.BYTES).order(TrainingRecord.ORDER);
+		}
+
+		/**
+		 * Adds a record, writing the batch out first if it's full.
+		 * @throws UncheckedIOException if the write fails
+		 */
+		public void add(Board board, int score, int result) {
+			if(buffer.remaining() < TrainingRecord.BYTES) flush();
+			TrainingRecord.write(buffer, board, score, result);
+		}
+
+		/**
+		 * Writes out the records added since the last flush.
+		 * @throws UncheckedIOException if the write fails
+		 */
+		public void flush() {
+			buffer.flip();
+			try {
+				write(buffer);
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				buffer.clear();
+			}
+		}
+
+	}
+
+}
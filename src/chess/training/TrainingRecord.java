@@ -0,0 +1,138 @@
+package chess.training;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import chess.game.Board;
+import chess.io.ReplayedGame;
+import chess.util.Constants;
+
+public class TrainingRecord {
+
+	/*
+	 * The binary format of one labeled position: 32 bytes, always little endian, so a file of them is
+	 * just an array of records that can be read by index (and loaded straight into numpy with a
+	 * structured dtype). That's about a fifth of a FEN line with a score and result on the end.
+	 *
+	 * 		offset	size	field
+	 * 		0		8		occupied squares, bit n is square n (h1 = 0 ... a8 = 63)
+	 * 		8		16		one 4 bit piece code (Constants.WHITE_PAWNS to Constants.BLACK_KING) per
+	 * 						occupied square, lowest square first, low nibble first. There are never
+	 * 						more than 32 pieces, and the unused nibbles are 0.
+	 * 		24		1		bit 0 the side to move, bits 1 to 4 the castling rights (Constants.WHITE_KINGSIDE
+	 * 						and so on)
+	 * 		25		1		the en passant square, or 255 for none
+	 * 		26		1		the halfmove clock, up to 255
+	 * 		27		1		the game result (ReplayedGame.RESULT_UNKNOWN and so on)
+	 * 		28		2		the score in centipawns from the side to move's point of view (signed)
+	 * 		30		2		the fullmove number, up to 65535
+	 */
+
+	public static final int BYTES = 32;
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private static final int NO_SQUARE = 0xFF;
+
+	private TrainingRecord() {
+	}
+
+	/**
+	 * Writes a record at the buffer's position and moves the position past it. The buffer has to be
+	 * in ORDER and have BYTES left.
+	 */
+	public static void write(ByteBuffer buffer, Board board, int score, int result) {
+
+		long occupied = board.getBitBoard(Constants.ALL_PIECES);
+		buffer.putLong(occupied);
+
+		// a piece's nibble goes at its square's place among the occupied squares, which is the number
+		// of occupied squares below it
+		long pieces = 0;
+		long morePieces = 0;
+		for(int piece = Constants.WHITE_PAWNS; piece <= Constants.BLACK_KING; piece++) {
+			for(long bitboard = board.getBitBoard(piece); bitboard != 0; bitboard &= bitboard - 1) {
+				int index = Long.bitCount(occupied & (Long.lowestOneBit(bitboard) - 1));
+				if(index < 16) {
+					pieces |= (long)piece << (index * 4);
+				} else {
+					morePieces |= (long)piece << ((index - 16) * 4);
+				}
+			}
+		}
+		buffer.putLong(pieces);
+		buffer.putLong(morePieces);
+
+		int ep = board.getEnPassantSquare();
+		buffer.put((byte)(board.getSideToMove() | board.getCastlingRights() << 1));
+		buffer.put((byte)(ep == Constants.NO_SQUARE ? NO_SQUARE : ep));
+		buffer.put((byte)Math.min(board.getHalfmoveClock(), 255));
+		buffer.put((byte)result);
+		buffer.putShort((short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+		buffer.putShort((short)Math.min(board.getMoveNum() / 2 + 1, 0xFFFF));
+	}
+
+	/**
+	 * Sets a board up from the record at an absolute offset. The pieces array (at least 12 long) is
+	 * scratch space, so that reading records by the million doesn't allocate anything.
+	 */
+	public static void read(ByteBuffer buffer, int offset, Board board, long[] pieces) {
+
+		for(int i = 0; i < 12; i++) {
+			pieces[i] = 0;
+		}
+		long occupied = buffer.getLong(offset);
+		long codes = buffer.getLong(offset + 8);
+		long moreCodes = buffer.getLong(offset + 16);
+		int index = 0;
+		for(long remaining = occupied; remaining != 0; remaining &= remaining - 1) {
+			long code = index < 16 ? codes >>> (index * 4) : moreCodes >>> ((index - 16) * 4);
+			pieces[(int)(code & 0xF)] |= Long.lowestOneBit(remaining);
+			index++;
+		}
+
+		int flags = buffer.get(offset + 24);
+		int ep = buffer.get(offset + 25) & 0xFF;
+		board.setPieces(pieces, flags & 1, (flags >>> 1) & Constants.ALL_CASTLING, ep == NO_SQUARE ? Constants.NO_SQUARE : ep,
+				buffer.get(offset + 26) & 0xFF, buffer.getShort(offset + 30) & 0xFFFF);
+	}
+
+	public static int getResult(ByteBuffer buffer, int offset) {
+		return buffer.get(offset + 27);
+	}
+
+	public static int getScore(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + 28);
+	}
+
+	/**
+	 * Turns a result written in a FEN or EPD file into one of the ReplayedGame results. The result
+	 * can be anywhere after the FEN fields, as "1-0", "0-1" or "1/2-1/2" (an EPD c9 or a PGN style
+	 * result) or as "[1.0]", "[0.0]" or "[0.5]", which is how a lot of training sets write it.
+	 */
+	public static int parseResult(CharSequence line) {
+
+		// skip the four FEN fields first, since "1/2" can turn up in the piece placement
+		int index = 0;
+		int length = line.length();
+		for(int field = 0; field < 4 && index < length; field++) {
+			while(index < length && line.charAt(index) == ' ') index++;
+			while(index < length && line.charAt(index) != ' ') index++;
+		}
+
+		for(; index < length; index++) {
+			if(startsWith(line, index, "1/2-1/2") || startsWith(line, index, "[0.5]")) return ReplayedGame.RESULT_DRAW;
+			if(startsWith(line, index, "1-0") || startsWith(line, index, "[1.0]")) return ReplayedGame.RESULT_WHITE_WINS;
+			if(startsWith(line, index, "0-1") || startsWith(line, index, "[0.0]")) return ReplayedGame.RESULT_BLACK_WINS;
+		}
+		return ReplayedGame.RESULT_UNKNOWN;
+	}
+
+	private static boolean startsWith(CharSequence line, int index, String text) {
+		if(index + text.length() > line.length()) return false;
+		for(int i = 0; i < text.length(); i++) {
+			if(line.charAt(index + i) != text.charAt(i)) return false;
+		}
+		return true;
+	}
+
+}
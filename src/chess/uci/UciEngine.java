@@ -0,0 +1,536 @@
+package chess.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import chess.book.PolyglotBook;
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.game.Notation;
+import chess.metrics.EngineMetrics;
+import chess.metrics.MetricsServer;
+import chess.nnue.Network;
+import chess.search.ParallelSearch;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.TranspositionTable;
+import chess.tablebase.Tablebases;
+import chess.util.Constants;
+import chess.util.Move;
+
+public class UciEngine {
+
+	/*
+	 * 	UCI
+	 * 	---
+	 * 	The Universal Chess Interface is the line based text protocol that chess GUIs and match runners
+	 * 	use to talk to engines over stdin/stdout. This class is the engine's side of it.
+	 *
+	 * 	Three threads are involved:
+	 * 		- the input thread does nothing but read stdin. "stop", "ponderhit" and "quit" are acted on
+	 * 		  right there, so they reach a running search within one node check of arriving, no matter
+	 * 		  what else is going on. Every other command is put on a queue.
+	 * 		- the command thread (the one that calls run) takes commands off the queue in order. Commands
+	 * 		  that change the position or the engine first wait for a running search to finish, which
+	 * 		  is what the protocol expects, and "isready" is answered as soon as everything before it
+	 * 		  has been handled, even during a search.
+	 * 		- the search thread runs one "go" at a time and prints "bestmove" at the end. It is created
+	 * 		  once and reused, and the search objects and their buffers are reused too.
+	 *
+	 * 	When the search is pondering or infinite, the protocol says bestmove must wait for "stop" or
+	 * 	"ponderhit" even if the search itself finished early, so the search thread waits for that.
+	 */
+
+	private static final String NAME = "bitboard-chess";
+
+	private static final int DEFAULT_HASH_MB = 64;
+	private static final int MAX_HASH_MB = 65536;
+	private static final int MAX_THREADS = 256;
+
+	private final BufferedReader in;
+	private final PrintStream out;
+	private final BlockingQueue<String> commands = new LinkedBlockingQueue<>();
+
+	private final Board position = new Board();
+	private final SearchLimits limits = new SearchLimits();
+	private final int[] pv = new int[Search.MAX_PLY];
+
+	private int hashMb = DEFAULT_HASH_MB;
+	private int threads = 1;
+	private volatile TranspositionTable table;
+	private volatile ParallelSearch search;
+
+	// the opening book, if one is set and OwnBook is on, answers "go" without searching
+	private volatile PolyglotBook book;
+	private volatile boolean ownBook;
+	private final int[] bookMoves = new int[PolyglotBook.MAX_ENTRIES];
+	private final int[] bookWeights = new int[PolyglotBook.MAX_ENTRIES];
+	private final int[] bookLegalMoves = new int[MoveGenerator.MAX_MOVES];
+
+	// endgame tables the search probes, if TablebasePath is set
+	private volatile Tablebases tablebases;
+
+	// a neural network to evaluate with instead of the usual evaluation, if EvalFile is set
+	private volatile Network network;
+
+	// serves the engine's metrics over HTTP while MetricsPort is set (see chess.metrics)
+	private MetricsServer metricsServer;
+
+	// state shared with the search thread, guarded by this object's monitor
+	private boolean searchRequested;
+	private boolean searching;
+	private boolean holdBestMove;	// pondering or infinite, and no stop/ponderhit has arrived yet
+	private boolean quit;
+
+	public UciEngine(BufferedReader in, PrintStream out) {
+		this.in = in;
+		this.out = out;
+	}
+
+	public static void main(String[] args) {
+		new UciEngine(new BufferedReader(new InputStreamReader(System.in)), System.out).run();
+	}
+
+	/**
+	 * Runs the protocol until "quit" or the end of the input.
+	 */
+	public void run() {
+		run(null);
+	}
+
+	/**
+	 * Runs the protocol, handling firstCommand (if it isn't null) before anything from the input.
+	 * This is for when someone else has already read the first line, like GameController does.
+	 */
+	public void run(String firstCommand) {
+
+		if(firstCommand != null) commands.add(firstCommand);
+
+		table = new TranspositionTable(hashMb);
+		search = new ParallelSearch(table, threads);
+		search.setListener(this::sendInfo);
+		EngineMetrics.getGlobal().setSearch(search);
+
+		Thread input = new Thread(this::readInput, "uci-input");
+		input.setDaemon(true);
+		input.start();
+
+		Thread searcher = new Thread(this::searchLoop, "uci-search");
+		searcher.setDaemon(true);
+		searcher.start();
+
+		try {
+			while(true) {
+				String command = commands.take();
+				if(command.equals("quit")) break;
+				handle(command);
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized(this) {
+			quit = true;
+			notifyAll();
+		}
+		search.stop();
+		search.close();
+		EngineMetrics.getGlobal().setSearch(null);
+		if(metricsServer != null) metricsServer.close();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							INPUT THREAD									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void readInput() {
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				line = line.trim();
+				switch(firstWord(line)) {
+				case "stop":
+					stopSearch();
+					break;
+				case "ponderhit":
+					ponderHit();
+					break;
+				case "quit":
+					stopSearch();
+					commands.add("quit");
+					return;
+				default:
+					if(!line.isEmpty()) commands.add(line);
+				}
+			}
+		} catch(IOException e) {
+			// nothing more can be read, so treat it like the end of the input
+		}
+		stopSearch();
+		commands.add("quit");
+	}
+
+	private synchronized void stopSearch() {
+		holdBestMove = false;
+		limits.setPonder(false);
+		if(searching) search.stop();
+		notifyAll();
+	}
+
+	private synchronized void ponderHit() {
+		if(!limits.isPonder()) return;
+		limits.setPonder(false);
+		holdBestMove = limits.isInfinite();
+		search.ponderHit();
+		notifyAll();
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							COMMANDS										 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void handle(String command) {
+		String[] tokens = command.split("\\s+");
+		switch(tokens[0]) {
+		case "uci":
+			send("id name " + NAME);
+			send("id author the " + NAME + " authors");
+			send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+			send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+			send("option name Ponder type check default false");
+			send("option name OwnBook type check default false");
+			send("option name BookFile type string default <empty>");
+			send("option name TablebasePath type string default <empty>");
+			send("option name MetricsPort type spin default 0 min 0 max 65535");
+			send("option name EvalFile type string default <empty>");
+			send("uciok");
+			break;
+		case "isready":
+			send("readyok");
+			break;
+		case "ucinewgame":
+			waitForSearch();
+			table.clear();
+			break;
+		case "setoption":
+			waitForSearch();
+			setOption(tokens);
+			break;
+		case "position":
+			waitForSearch();
+			setPosition(tokens);
+			break;
+		case "go":
+			waitForSearch();
+			go(tokens);
+			break;
+		case "d":
+			// not part of UCI, but most engines print the position for this
+			send(position.toFen());
+			break;
+		default:
+			send("info string unknown command: " + command);
+		}
+	}
+
+	// setoption name <id> value <x>
+	private void setOption(String[] tokens) {
+		String name = "";
+		String value = "";
+		for(int i = 1; i < tokens.length - 1; i++) {
+			if(tokens[i].equals("name")) name = tokens[i + 1];
+			if(tokens[i].equals("value")) {
+				// file names can have spaces in them, so the value is everything that's left
+				value = String.join(" ", Arrays.copyOfRange(tokens, i + 1, tokens.length));
+				break;
+			}
+		}
+
+		try {
+			if(name.equalsIgnoreCase("Hash")) {
+				hashMb = clamp(Integer.parseInt(value), 1, MAX_HASH_MB);
+				// let the old table go before allocating the new one, which might not fit otherwise
+				search.close();
+				EngineMetrics.getGlobal().setSearch(null);
+				table = null;
+				search = null;
+				table = new TranspositionTable(hashMb);
+				search = new ParallelSearch(table, threads);
+				search.setListener(this::sendInfo);
+				EngineMetrics.getGlobal().setSearch(search);
+				search.setTablebases(tablebases);
+				search.setNetwork(network);
+			} else if(name.equalsIgnoreCase("Threads")) {
+				threads = clamp(Integer.parseInt(value), 1, MAX_THREADS);
+				search.close();
+				search = new ParallelSearch(table, threads);
+				search.setListener(this::sendInfo);
+				EngineMetrics.getGlobal().setSearch(search);
+				search.setTablebases(tablebases);
+				search.setNetwork(network);
+			} else if(name.equalsIgnoreCase("OwnBook")) {
+				ownBook = Boolean.parseBoolean(value);
+			} else if(name.equalsIgnoreCase("BookFile")) {
+				setBook(value);
+			} else if(name.equalsIgnoreCase("TablebasePath")) {
+				setTablebases(value);
+			} else if(name.equalsIgnoreCase("EvalFile")) {
+				setNetwork(value);
+			} else if(name.equalsIgnoreCase("MetricsPort")) {
+				setMetricsPort(clamp(Integer.parseInt(value), 0, 65535));
+			} else if(!name.equalsIgnoreCase("Ponder")) {
+				send("info string unknown option: " + name);
+			}
+		} catch(NumberFormatException e) {
+			send("info string bad value for " + name + ": " + value);
+		}
+	}
+
+	private void setBook(String file) {
+		if(file.isEmpty() || file.equals("<empty>")) {
+			book = null;
+			return;
+		}
+		try {
+			book = PolyglotBook.open(Paths.get(file));
+			send("info string book " + file + " with " + book.getSize() + " entries");
+		} catch(IOException | RuntimeException e) {
+			book = null;
+			send("info string can't use book " + file + ": " + e.getMessage());
+		}
+	}
+
+	private void setTablebases(String directory) {
+		tablebases = null;
+		if(!directory.isEmpty() && !directory.equals("<empty>")) {
+			try {
+				tablebases = new Tablebases(Paths.get(directory));
+				send("info string " + tablebases.getCount() + " tablebases with up to " + tablebases.getMaxPieces() + " pieces in " + directory);
+			} catch(IOException | RuntimeException e) {
+				send("info string can't use tablebases in " + directory + ": " + e.getMessage());
+			}
+		}
+		search.setTablebases(tablebases);
+	}
+
+	private void setNetwork(String file) {
+		network = null;
+		if(!file.isEmpty() && !file.equals("<empty>")) {
+			try {
+				network = new Network(Paths.get(file));
+				send("info string network " + file + " with " + network.getHidden() + " hidden neurons"
+						+ (Network.isVectorized() ? "" : " (add --add-modules jdk.incubator.vector to run it on SIMD)"));
+			} catch(IOException | RuntimeException e) {
+				send("info string can't use network " + file + ": " + e.getMessage());
+			}
+		}
+		search.setNetwork(network);
+	}
+
+	// 0 turns the endpoint off
+	private void setMetricsPort(int port) {
+		if(metricsServer != null) {
+			metricsServer.close();
+			metricsServer = null;
+		}
+		if(port == 0) return;
+		try {
+			metricsServer = new MetricsServer(EngineMetrics.getGlobal(), port);
+			send("info string metrics on http://localhost:" + metricsServer.getPort() + "/metrics");
+		} catch(IOException e) {
+			send("info string can't serve metrics on port " + port + ": " + e.getMessage());
+		}
+	}
+
+	// position [startpos | fen <fen>] [moves <move1> ... <moveN>]
+	private void setPosition(String[] tokens) {
+		int index = 1;
+		if(index < tokens.length && tokens[index].equals("startpos")) {
+			position.setFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+			index++;
+		} else if(index < tokens.length && tokens[index].equals("fen")) {
+			StringBuilder fen = new StringBuilder();
+			for(index++; index < tokens.length && !tokens[index].equals("moves"); index++) {
+				fen.append(tokens[index]).append(' ');
+			}
+			try {
+				position.setFen(fen);
+			} catch(IllegalArgumentException e) {
+				send("info string " + e.getMessage());
+				position.setFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+				return;
+			}
+		}
+
+		if(index < tokens.length && tokens[index].equals("moves")) {
+			for(index++; index < tokens.length; index++) {
+				int move = Notation.parseMove(position, tokens[index]);
+				if(move == Move.NONE) {
+					send("info string illegal move: " + tokens[index]);
+					return;
+				}
+				position.makeMove(move);
+			}
+		}
+	}
+
+	// go [wtime x] [btime x] [winc x] [binc x] [movestogo x] [depth x] [nodes x] [movetime x] [infinite] [ponder]
+	private void go(String[] tokens) {
+		synchronized(this) {
+			limits.reset();
+			try {
+				for(int i = 1; i < tokens.length; i++) {
+					String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+					switch(tokens[i]) {
+					case "wtime": limits.setTime(Constants.WHITE, Long.parseLong(value)); i++; break;
+					case "btime": limits.setTime(Constants.BLACK, Long.parseLong(value)); i++; break;
+					case "winc": limits.setIncrement(Constants.WHITE, Long.parseLong(value)); i++; break;
+					case "binc": limits.setIncrement(Constants.BLACK, Long.parseLong(value)); i++; break;
+					case "movestogo": limits.setMovesToGo(Integer.parseInt(value)); i++; break;
+					case "depth": limits.setDepth(Integer.parseInt(value)); i++; break;
+					case "nodes": limits.setNodes(Long.parseLong(value)); i++; break;
+					case "movetime": limits.setMoveTime(Long.parseLong(value)); i++; break;
+					case "infinite": limits.setInfinite(true); break;
+					case "ponder": limits.setPonder(true); break;
+					default: break;
+					}
+				}
+			} catch(NumberFormatException e) {
+				send("info string bad go command");
+				return;
+			}
+
+			// clear the stop flags now rather than when the search thread gets going, so that a stop
+			// arriving in between still stops this search
+			search.clearStop();
+			holdBestMove = limits.isInfinite() || limits.isPonder();
+			searchRequested = true;
+			searching = true;
+			notifyAll();
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							SEARCH THREAD									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private void searchLoop() {
+		while(true) {
+			ParallelSearch current;
+			synchronized(this) {
+				while(!searchRequested && !quit) {
+					try {
+						wait();
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+				if(quit) return;
+				searchRequested = false;
+				current = search;
+			}
+
+			// a book move is played right away, but is still held back like any other bestmove
+			// while pondering or in an infinite search
+			int best = bookMove();
+			boolean fromBook = best != Move.NONE;
+			if(!fromBook) best = current.run(position, limits);
+
+			synchronized(this) {
+				while(holdBestMove && !quit) {
+					try {
+						wait();
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+			}
+
+			if(fromBook) {
+				send("bestmove " + Move.toString(best));
+			} else {
+				sendBestMove(current.getMainSearch(), best);
+			}
+
+			synchronized(this) {
+				searching = false;
+				notifyAll();
+			}
+		}
+	}
+
+	private synchronized void waitForSearch() {
+		while(searching) {
+			try {
+				wait();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private int bookMove() {
+		PolyglotBook current = book;
+		if(!ownBook || current == null) return Move.NONE;
+		int move = current.pickMove(position, ThreadLocalRandom.current(), bookMoves, bookWeights, bookLegalMoves);
+		if(move != Move.NONE) send("info string book move " + Move.toString(move));
+		return move;
+	}
+
+	private void sendBestMove(Search main, int best) {
+		if(best == Move.NONE) {
+			send("bestmove 0000");
+			return;
+		}
+		int length = main.getPrincipalVariation(pv);
+		if(length > 1 && pv[0] == best) {
+			send("bestmove " + Move.toString(best) + " ponder " + Move.toString(pv[1]));
+		} else {
+			send("bestmove " + Move.toString(best));
+		}
+	}
+
+	private void sendInfo(int depth, int score, long nodes, long millis, int[] pv, int pvLength) {
+		String info = Search.formatInfo(depth, score, nodes, millis, pv, pvLength) + " hashfull " + table.hashfull();
+		if(tablebases != null) info += " tbhits " + search.getTablebaseHits();
+		send(info);
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							HELPER METHODS									 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	// every thread writes through here, so that lines never get mixed up
+	private void send(String line) {
+		synchronized(out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	private static String firstWord(String line) {
+		int space = line.indexOf(' ');
+		return space < 0 ? line : line.substring(0, space);
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+}
@@ -0,0 +1,254 @@
+package chess.util;
+
+public class Attacks {
+
+	/*
+	 * This class holds every attack table used for generating moves. Everything is computed once
+	 * when the class is loaded, so looking up the squares that a piece attacks is just an array read
+	 * (plus a multiply and a shift for the sliding pieces).
+	 *
+	 * Remember that square indices count from h1 = 0 to a8 = 63 (see the figure at the top of Board),
+	 * so a square's file is 7 - (square & 7) where a = 0, and its rank is square >>> 3.
+	 */
+
+	public static final long FILE_A = 0x8080808080808080L;
+	public static final long FILE_H = 0x0101010101010101L;
+	public static final long RANK_1 = 0x00000000000000FFL;
+	public static final long RANK_2 = 0x000000000000FF00L;
+	public static final long RANK_3 = 0x0000000000FF0000L;
+	public static final long RANK_4 = 0x00000000FF000000L;
+	public static final long RANK_5 = 0x000000FF00000000L;
+	public static final long RANK_6 = 0x0000FF0000000000L;
+	public static final long RANK_7 = 0x00FF000000000000L;
+	public static final long RANK_8 = 0xFF00000000000000L;
+
+	public static final long[] KNIGHT_ATTACKS = new long[64];
+	public static final long[] KING_ATTACKS = new long[64];
+
+	// indexed by [color][square], the squares that a pawn of that color on that square attacks
+	public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+	// indexed by [square][square]. BETWEEN holds the squares strictly between two squares on the same
+	// rank, file or diagonal, and LINE the whole line through both of them, edge to edge. Both are 0
+	// for squares that don't share a line. These are what checks and pins are worked out with.
+	public static final long[][] BETWEEN = new long[64][64];
+	public static final long[][] LINE = new long[64][64];
+
+	/*
+	 * 	Magic bitboards
+	 * 	---------------
+	 * 	The squares a rook or bishop attacks depend on which squares along its rays are occupied.
+	 * 	Only the occupancy inside the "relevant mask" matters (the rays, not counting the edge of the
+	 * 	board since a piece on the edge can't block anything further). If we multiply the masked
+	 * 	occupancy by a carefully chosen "magic" number, the top bits of the product end up being a
+	 * 	perfect index into a table of precomputed attack sets. The magics below were found ahead of
+	 * 	time with a random search for sparse numbers, and the attack tables are filled in from them
+	 * 	when this class loads.
+	 */
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] ROOK_MAGICS = {
+			0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+			0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+			0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+			0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+			0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+			0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+			0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+			0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+			0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+			0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+			0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+			0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+			0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+			0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+			0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+			0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+	};
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] ROOK_OFFSETS = new int[64];
+	private static final long[] ROOK_TABLE = new long[0x19000];
+
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final long[] BISHOP_MAGICS = {
+			0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+			0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+			0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+			0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+			0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+			0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+			0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+			0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+			0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+			0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+			0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+			0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+			0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+			0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+			0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+			0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+	};
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	private static final long[] BISHOP_TABLE = new long[0x1480];
+
+	// rank and file steps for each direction
+	private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+	private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+	private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+	static {
+		for(int square = 0; square < 64; square++) {
+			KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+			KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+			PAWN_ATTACKS[Constants.WHITE][square] = stepAttacks(square, new int[][] {{1, 1}, {1, -1}});
+			PAWN_ATTACKS[Constants.BLACK][square] = stepAttacks(square, new int[][] {{-1, 1}, {-1, -1}});
+		}
+
+		int rookOffset = 0;
+		int bishopOffset = 0;
+		for(int square = 0; square < 64; square++) {
+			ROOK_OFFSETS[square] = rookOffset;
+			rookOffset += initMagic(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS[square], ROOK_SHIFTS, ROOK_TABLE, rookOffset);
+			BISHOP_OFFSETS[square] = bishopOffset;
+			bishopOffset += initMagic(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS[square], BISHOP_SHIFTS, BISHOP_TABLE, bishopOffset);
+		}
+
+		for(int a = 0; a < 64; a++) {
+			for(int b = 0; b < 64; b++) {
+				if(a == b) continue;
+				int[][] directions;
+				if((slidingAttacks(a, 0, ROOK_DIRECTIONS) & (1L << b)) != 0) {
+					directions = ROOK_DIRECTIONS;
+				} else if((slidingAttacks(a, 0, BISHOP_DIRECTIONS) & (1L << b)) != 0) {
+					directions = BISHOP_DIRECTIONS;
+				} else {
+					continue;
+				}
+				// each square's rays, stopped by the other square, only overlap in between them
+				BETWEEN[a][b] = slidingAttacks(a, 1L << b, directions) & slidingAttacks(b, 1L << a, directions);
+				LINE[a][b] = (slidingAttacks(a, 0, directions) & slidingAttacks(b, 0, directions)) | (1L << a) | (1L << b);
+			}
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							LOOKUPS											 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	public static long rookAttacks(int square, long occupied) {
+		return ROOK_TABLE[ROOK_OFFSETS[square] + (int)(((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	public static long bishopAttacks(int square, long occupied) {
+		return BISHOP_TABLE[BISHOP_OFFSETS[square] + (int)(((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	public static long queenAttacks(int square, long occupied) {
+		return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+	}
+
+	/**
+	 * Returns the squares attacked by a piece of the given type (Constants.PAWN..Constants.KING)
+	 * standing on a square, given the occupancy of the board.
+	 */
+	public static long attacks(int pieceType, int color, int square, long occupied) {
+		switch(pieceType) {
+		case Constants.PAWN: return PAWN_ATTACKS[color][square];
+		case Constants.ROOK: return rookAttacks(square, occupied);
+		case Constants.KNIGHT: return KNIGHT_ATTACKS[square];
+		case Constants.BISHOP: return bishopAttacks(square, occupied);
+		case Constants.QUEEN: return queenAttacks(square, occupied);
+		default: return KING_ATTACKS[square];
+		}
+	}
+
+	/*
+	 * -------------------------------------------------------------------------------
+	 * |							TABLE GENERATION								 |
+	 * -------------------------------------------------------------------------------
+	 */
+
+	private static int square(int rank, int file) {
+		return rank * 8 + 7 - file;
+	}
+
+	private static long stepAttacks(int square, int[][] steps) {
+		int rank = square >>> 3;
+		int file = 7 - (square & 7);
+		long attacks = 0;
+		for(int[] step : steps) {
+			int r = rank + step[0];
+			int f = file + step[1];
+			if(r >= 0 && r < 8 && f >= 0 && f < 8) {
+				attacks |= 1L << square(r, f);
+			}
+		}
+		return attacks;
+	}
+
+	// walks each ray until it leaves the board or hits an occupied square (which is included)
+	private static long slidingAttacks(int square, long occupied, int[][] directions) {
+		int rank = square >>> 3;
+		int file = 7 - (square & 7);
+		long attacks = 0;
+		for(int[] direction : directions) {
+			int r = rank + direction[0];
+			int f = file + direction[1];
+			while(r >= 0 && r < 8 && f >= 0 && f < 8) {
+				long bit = 1L << square(r, f);
+				attacks |= bit;
+				if((occupied & bit) != 0) break;
+				r += direction[0];
+				f += direction[1];
+			}
+		}
+		return attacks;
+	}
+
+	// the same rays as slidingAttacks on an empty board, minus the last square of every ray
+	private static long relevantMask(int square, int[][] directions) {
+		int rank = square >>> 3;
+		int file = 7 - (square & 7);
+		long mask = 0;
+		for(int[] direction : directions) {
+			int r = rank + direction[0];
+			int f = file + direction[1];
+			while(r + direction[0] >= 0 && r + direction[0] < 8 && f + direction[1] >= 0 && f + direction[1] < 8) {
+				mask |= 1L << square(r, f);
+				r += direction[0];
+				f += direction[1];
+			}
+		}
+		return mask;
+	}
+
+	// fills one square's slice of the table using its magic and returns the slice size
+	private static int initMagic(int square, int[][] directions, long[] masks, long magic, int[] shifts, long[] table, int offset) {
+
+		long mask = relevantMask(square, directions);
+		int bits = Long.bitCount(mask);
+		masks[square] = mask;
+		shifts[square] = 64 - bits;
+
+		// enumerate every subset of the mask with the carry-rippler trick and store its attacks. Two
+		// subsets may share a slot only if they attack the same squares, and since a slider always
+		// attacks something, an empty slot is one nothing has been stored in yet
+		long subset = 0;
+		do {
+			int index = offset + (int)((subset * magic) >>> (64 - bits));
+			long attacks = slidingAttacks(square, subset, directions);
+			if(table[index] != 0 && table[index] != attacks) {
+				throw new IllegalStateException("Magic " + Long.toHexString(magic) + " maps different attack sets of square " + square + " to the same slot");
+			}
+			table[index] = attacks;
+			subset = (subset - mask) & mask;
+		} while(subset != 0);
+
+		return 1 << bits;
+	}
+
+}
@@ -5,7 +5,7 @@ public class Constants {
 	/*
 	 * This class keeps track of Constant values that will be used across the project.
 	 */
-	
+
 	// each of these constants represents the index that they appear within the bitboards array
 	public static final int WHITE_PAWNS = 0;
 	public static final int WHITE_ROOKS = 1;
@@ -22,5 +22,35 @@ public class Constants {
 	public static final int WHITE_PIECES = 12;
 	public static final int BLACK_PIECES = 13;
 	public static final int ALL_PIECES = 14;
-	
+
+	// the number of bitboards in the bitboards array
+	public static final int NUM_BITBOARDS = 15;
+
+	// piece types, which line up with the white piece indices above. A black piece index is just
+	// its type + BLACK_OFFSET, so (piece % 6) is the type and (piece / 6) is the color
+	public static final int PAWN = 0;
+	public static final int ROOK = 1;
+	public static final int KNIGHT = 2;
+	public static final int BISHOP = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+	public static final int BLACK_OFFSET = 6;
+
+	// colors, which also line up with WHITE_PIECES/BLACK_PIECES when added to WHITE_PIECES
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	// mailbox value for a square with nothing on it
+	public static final int EMPTY = -1;
+
+	// value used for "no square", for example when there is no en passant square
+	public static final int NO_SQUARE = -1;
+
+	// castling rights bits
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+	public static final int ALL_CASTLING = 15;
+
 }
@@ -0,0 +1,88 @@
+package chess.util;
+
+public class Move {
+
+	/*
+	 * Moves are packed into the low 16 bits of an int so that they can be stored in primitive arrays
+	 * and passed around without ever creating an Object:
+	 *
+	 * 		bits  0..5	-> starting square (same indices as the bitboards, h1 = 0, a8 = 63)
+	 * 		bits  6..11	-> ending square
+	 * 		bits 12..15	-> flag, describing what kind of move it is
+	 *
+	 * The flag layout means that bit 2 (value 4) of the flag is set for every capture and bit 3
+	 * (value 8) is set for every promotion, with the low two bits picking the promotion piece.
+	 */
+
+	public static final int QUIET = 0;
+	public static final int DOUBLE_PAWN_PUSH = 1;
+	public static final int KING_CASTLE = 2;
+	public static final int QUEEN_CASTLE = 3;
+	public static final int CAPTURE = 4;
+	public static final int EN_PASSANT = 5;
+	public static final int KNIGHT_PROMOTION = 8;
+	public static final int BISHOP_PROMOTION = 9;
+	public static final int ROOK_PROMOTION = 10;
+	public static final int QUEEN_PROMOTION = 11;
+	public static final int KNIGHT_PROMOTION_CAPTURE = 12;
+	public static final int BISHOP_PROMOTION_CAPTURE = 13;
+	public static final int ROOK_PROMOTION_CAPTURE = 14;
+	public static final int QUEEN_PROMOTION_CAPTURE = 15;
+
+	// h1h1 is never a real move, so 0 can safely mean "no move"
+	public static final int NONE = 0;
+
+	// promotion piece types in the order of the low two flag bits
+	private static final int[] PROMOTION_TYPES = {Constants.KNIGHT, Constants.BISHOP, Constants.ROOK, Constants.QUEEN};
+	private static final String PROMOTION_CHARS = "nbrq";
+
+	public static int encode(int from, int to, int flag) {
+		return from | (to << 6) | (flag << 12);
+	}
+
+	public static int getFrom(int move) {
+		return move & 0x3F;
+	}
+
+	public static int getTo(int move) {
+		return (move >>> 6) & 0x3F;
+	}
+
+	public static int getFlag(int move) {
+		return (move >>> 12) & 0xF;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & (CAPTURE << 12)) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return (move & (KNIGHT_PROMOTION << 12)) != 0;
+	}
+
+	/**
+	 * Returns the piece type (Constants.KNIGHT..Constants.QUEEN) that a promotion move promotes to.
+	 * Only meaningful when isPromotion(move) is true.
+	 */
+	public static int getPromotionType(int move) {
+		return PROMOTION_TYPES[(move >>> 12) & 3];
+	}
+
+	/**
+	 * Formats a move in long algebraic notation, the way UCI expects it (for example "e2e4" or "e7e8q").
+	 */
+	public static String toString(int move) {
+		StringBuilder builder = new StringBuilder(5);
+		appendSquare(builder, getFrom(move));
+		appendSquare(builder, getTo(move));
+		if(isPromotion(move)) {
+			builder.append(PROMOTION_CHARS.charAt((move >>> 12) & 3));
+		}
+		return builder.toString();
+	}
+
+	private static void appendSquare(StringBuilder builder, int square) {
+		builder.append((char)('h' - (square & 7))).append((char)('1' + (square >>> 3)));
+	}
+
+}
@@ -0,0 +1,64 @@
+package chess.util;
+
+public class Zobrist {
+
+	/*
+	 * Zobrist hashing gives every (piece, square) pair, every castling rights combination, every en
+	 * passant file and the side to move its own random 64 bit number. A position's key is the XOR of
+	 * the numbers for everything that is true about it. Since XOR undoes itself, a move only has to XOR
+	 * out what changed and XOR in the new state, so Board can keep its key up to date in a few
+	 * instructions per move instead of rehashing the whole position.
+	 */
+
+	// indexed by [piece index][square]
+	public static final long[][] PIECE_SQUARE = new long[12][64];
+
+	// indexed by the 4 bit castling rights value
+	public static final long[] CASTLING = new long[16];
+
+	// indexed by the file of the en passant square (square & 7)
+	public static final long[] EN_PASSANT = new long[8];
+
+	// XORed in when it is black's turn
+	public static final long SIDE;
+
+	static {
+		// a fixed seed keeps keys identical between runs, which makes hash related bugs reproducible
+		long seed = 0x9E3779B97F4A7C15L;
+		for(int piece = 0; piece < 12; piece++) {
+			for(int square = 0; square < 64; square++) {
+				seed += 0x9E3779B97F4A7C15L;
+				PIECE_SQUARE[piece][square] = mix(seed);
+			}
+		}
+
+		// combinations of castling rights are built from the four single rights, so that
+		// losing one right is always the same XOR no matter what the other rights are
+		long[] rights = new long[4];
+		for(int i = 0; i < 4; i++) {
+			seed += 0x9E3779B97F4A7C15L;
+			rights[i] = mix(seed);
+		}
+		for(int i = 0; i < 16; i++) {
+			for(int bit = 0; bit < 4; bit++) {
+				if((i & (1 << bit)) != 0) CASTLING[i] ^= rights[bit];
+			}
+		}
+
+		for(int file = 0; file < 8; file++) {
+			seed += 0x9E3779B97F4A7C15L;
+			EN_PASSANT[file] = mix(seed);
+		}
+
+		seed += 0x9E3779B97F4A7C15L;
+		SIDE = mix(seed);
+	}
+
+	// the splitmix64 finalizer, which turns a counter into well distributed random bits
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
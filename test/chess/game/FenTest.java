@@ -0,0 +1,88 @@
+package chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import chess.util.Constants;
+import chess.util.Move;
+
+class FenTest {
+
+	private static final String[] ROUND_TRIPS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40"
+	};
+
+	@Test
+	void roundTrips() {
+		for(String fen : ROUND_TRIPS) {
+			assertEquals(fen, new Board(fen).toFen());
+		}
+	}
+
+	@Test
+	void rejectsMalformedFens() {
+		assertThrows(IllegalArgumentException.class, () -> new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1BNR w KQkq - 0 1"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1"));
+	}
+
+	// castling rights whose king or rook isn't at home used to generate a castle that moved an empty
+	// square and crashed in makeMove
+	@Test
+	void dropsCastlingRightsWithoutKingOrRook() {
+		assertEquals("4k3/p7/8/8/8/8/8/4K3 w - - 0 1", new Board("4k3/p7/8/8/8/8/8/4K3 w K - 0 1").toFen());
+		assertEquals("r3k3/8/8/8/8/8/8/R4K1R w q - 0 1", new Board("r3k3/8/8/8/8/8/8/R4K1R w KQkq - 0 1").toFen());
+		assertEquals("1r2k2r/8/8/8/8/8/8/R3K3 b Qk - 0 1", new Board("1r2k2r/8/8/8/8/8/8/R3K3 b KQkq - 0 1").toFen());
+
+		Board board = new Board("4k3/p7/8/8/8/8/8/4K3 w K - 0 1");
+		assertEquals(0, countMoves(board, Move.KING_CASTLE));
+		playEveryMove(board);
+	}
+
+	// setPieces doesn't check the rights it's given, so the move generator has to
+	@Test
+	void noCastlingWithoutKingOrRookFromSetPieces() {
+		long[] pieces = new long[12];
+		pieces[Constants.WHITE_KING] = 1L << 3;
+		pieces[Constants.BLACK_KING] = 1L << 59;
+		pieces[Constants.WHITE_ROOKS] = 1L << 7;
+		Board board = new Board();
+		board.setPieces(pieces, Constants.WHITE, Constants.ALL_CASTLING, Constants.NO_SQUARE, 0, 1);
+
+		assertEquals(0, countMoves(board, Move.KING_CASTLE));
+		assertEquals(1, countMoves(board, Move.QUEEN_CASTLE));
+		assertFalse(MoveGenerator.isPseudoLegal(board, Move.encode(3, 1, Move.KING_CASTLE)));
+		playEveryMove(board);
+	}
+
+	private static int countMoves(Board board, int flag) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+		int matching = 0;
+		for(int i = 0; i < count; i++) {
+			if(Move.getFlag(moves[i]) == flag) matching++;
+		}
+		return matching;
+	}
+
+	private static void playEveryMove(Board board) {
+		String fen = board.toFen();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+		for(int i = 0; i < count; i++) {
+			board.makeMove(moves[i]);
+			board.unmakeMove(moves[i]);
+		}
+		assertEquals(fen, board.toFen());
+	}
+
+}
@@ -0,0 +1,58 @@
+package chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class PerftTest {
+
+	/*
+	 * The perft reference suite: the node counts of a handful of well known positions, verified by
+	 * many other engines. Any bug in the move generator or in make/unmake almost always changes at
+	 * least one of them. Every position goes to depth MAX_DEPTH at most, about half a billion nodes in
+	 * all, which takes a few seconds on the fork-join pool.
+	 */
+
+	private static final int MAX_DEPTH = 5;
+
+	// the positions and their known node counts, starting from depth 1
+	static Stream<Arguments> suite() {
+		return Stream.of(
+				Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+						new long[] {20L, 400L, 8902L, 197281L, 4865609L, 119060324L}),
+				Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+						new long[] {48L, 2039L, 97862L, 4085603L, 193690690L}),
+				Arguments.of("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+						new long[] {14L, 191L, 2812L, 43238L, 674624L, 11030083L, 178633661L}),
+				Arguments.of("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+						new long[] {6L, 264L, 9467L, 422333L, 15833292L, 706045033L}),
+				Arguments.of("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+						new long[] {44L, 1486L, 62379L, 2103487L, 89941194L}),
+				Arguments.of("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+						new long[] {46L, 2079L, 89890L, 3894594L, 164075551L}));
+	}
+
+	@ParameterizedTest
+	@MethodSource("suite")
+	void matchesReferenceCounts(String fen, long[] counts) {
+		Board board = new Board(fen);
+		for(int depth = 1; depth <= Math.min(MAX_DEPTH, counts.length); depth++) {
+			assertEquals(counts[depth - 1], Perft.parallelPerft(board, depth, ForkJoinPool.commonPool()), "depth " + depth);
+		}
+		assertEquals(fen, board.toFen(), "perft changed the board");
+	}
+
+	@ParameterizedTest
+	@MethodSource("suite")
+	void sequentialMatchesParallel(String fen, long[] counts) {
+		Board board = new Board(fen);
+		assertEquals(counts[2], Perft.perft(board, 3));
+		assertEquals(fen, board.toFen(), "perft changed the board");
+	}
+
+}
@@ -0,0 +1,104 @@
+package chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import chess.util.Move;
+
+class RepetitionTest {
+
+	private static final String[] KNIGHT_SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+	@Test
+	void findsRepetitionsAndThreefold() {
+		Board board = new Board();
+		assertFalse(board.isRepetition());
+
+		play(board, KNIGHT_SHUFFLE);
+		assertTrue(board.isRepetition());
+		assertFalse(board.isThreefoldRepetition());
+		assertFalse(board.isDraw());
+
+		play(board, "g1f3", "g8f6", "f3g1");
+		int last = Notation.parseMove(board, "f6g8");
+		board.makeMove(last);
+		assertTrue(board.isThreefoldRepetition());
+		assertTrue(board.isDraw());
+
+		// taking a move back takes the repetition with it
+		board.unmakeMove(last);
+		assertFalse(board.isThreefoldRepetition());
+		board.makeMove(last);
+		assertTrue(board.isThreefoldRepetition());
+	}
+
+	// the same pieces with the other side to move aren't the same position
+	@Test
+	void needsTheSameSideToMove() {
+		Board board = new Board();
+		play(board, "g1f3", "g8f6", "f3g1", "f6g8", "b1c3", "b8c6", "c3b1");
+		assertFalse(board.isRepetition());
+		play(board, "c6b8");
+		assertTrue(board.isRepetition());
+	}
+
+	// nothing from before a capture or a pawn move can come back
+	@Test
+	void stopsAtIrreversibleMoves() {
+		Board board = new Board();
+		play(board, KNIGHT_SHUFFLE);
+		play(board, "e2e3", "e7e6");
+		assertFalse(board.isRepetition());
+		play(board, KNIGHT_SHUFFLE);
+		assertTrue(board.isRepetition());
+		assertEquals(4, board.getHalfmoveClock());
+	}
+
+	// a position reached by passing isn't a real repetition, so the search mustn't see one across a
+	// null move, but the history comes back when the null move is taken back
+	@Test
+	void doesntLookPastNullMoves() {
+		Board board = new Board();
+		long start = board.getZobristKey();
+		play(board, "g1f3");
+		board.makeNullMove();
+		play(board, "f3g1");
+		board.makeNullMove();
+		assertEquals(start, board.getZobristKey());
+		assertFalse(board.isRepetition());
+
+		// repetitions after the null move still count
+		play(board, KNIGHT_SHUFFLE);
+		assertTrue(board.isRepetition());
+
+		Board game = new Board();
+		play(game, KNIGHT_SHUFFLE);
+		game.makeNullMove();
+		assertFalse(game.isRepetition());
+		game.unmakeNullMove();
+		assertTrue(game.isRepetition());
+	}
+
+	// a copy carries the history along, a FEN starts a new one
+	@Test
+	void copiesKeepTheHistory() {
+		Board board = new Board();
+		play(board, KNIGHT_SHUFFLE);
+		play(board, KNIGHT_SHUFFLE);
+		assertTrue(new Board(board).isThreefoldRepetition());
+		assertFalse(new Board(board.toFen()).isRepetition());
+	}
+
+	private static void play(Board board, String... texts) {
+		for(String text : texts) {
+			int move = Notation.parseMove(board, text);
+			assertNotEquals(Move.NONE, move, text);
+			board.makeMove(move);
+		}
+	}
+
+}
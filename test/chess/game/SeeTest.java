@@ -0,0 +1,66 @@
+package chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import chess.util.Move;
+
+class SeeTest {
+
+	/*
+	 * Exchanges worked out by hand with the values see() uses: pawn 100, knight 320, bishop 330, rook
+	 * 500 and queen 900.
+	 */
+
+	@Test
+	void undefendedPiece() {
+		assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5"));
+	}
+
+	@Test
+	void defendedPawnCostsTheQueen() {
+		assertEquals(-800, see("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1", "d1d5"));
+	}
+
+	// NxP NxN RxN BxR QxB QxQ, with the rook, the queen behind it and the queen behind the bishop all
+	// joining in as the pieces in front of them go
+	@Test
+	void longExchangeWithXRays() {
+		assertEquals(-220, see("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5"));
+	}
+
+	// the second rook only joins from behind the first, and is what makes the capture win
+	@Test
+	void rookBehindRook() {
+		assertEquals(100, see("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5"));
+	}
+
+	@Test
+	void quietMoveToAnAttackedSquare() {
+		assertEquals(-900, see("4k3/8/8/3p4/8/8/8/4K2Q w - - 0 1", "h1e4"));
+		assertEquals(0, see("4k3/8/8/3p4/8/8/8/4K2Q w - - 0 1", "h1h4"));
+	}
+
+	@Test
+	void enPassantAndPromotion() {
+		assertEquals(100, see("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6"));
+		assertEquals(800, see("4k3/P7/8/8/8/8/8/4K3 w - - 0 1", "a7a8q"));
+	}
+
+	// the king takes back only when nothing else can recapture
+	@Test
+	void kingRecapturesOnlyUndefendedPieces() {
+		assertEquals(-400, see("4k3/4r3/8/8/8/8/8/4QK2 w - - 0 1", "e1e7"));
+		assertEquals(500, see("4k3/4r3/8/8/8/8/4R3/4QK2 w - - 0 1", "e2e7"));
+	}
+
+	private static int see(String fen, String text) {
+		Board board = new Board(fen);
+		int move = Notation.parseMove(board, text);
+		assertNotEquals(Move.NONE, move, text);
+		return board.see(move);
+	}
+
+}
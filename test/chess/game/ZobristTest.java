@@ -0,0 +1,92 @@
+package chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import chess.util.Move;
+
+class ZobristTest {
+
+	/*
+	 * The board keeps its Zobrist key up to date move by move, so the tests walk random games from
+	 * positions full of castling, en passant and promotions and compare it with the key computed
+	 * from scratch after every move, every take back and every null move.
+	 */
+
+	private static final String[] STARTS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+	};
+
+	private static final int PLIES = 2000;
+
+	@Test
+	void incrementalKeyMatchesComputedKey() {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		Random random = new Random(1);
+		for(String fen : STARTS) {
+			Board board = new Board(fen);
+			for(int ply = 0; ply < PLIES; ply++) {
+				int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+				if(count == 0 || board.getHalfmoveClock() >= 100) {
+					board.setFen(fen);
+					continue;
+				}
+				long key = board.getZobristKey();
+				assertEquals(board.computeZobristKey(), key, board::toFen);
+
+				// every move, and back
+				for(int i = 0; i < count; i++) {
+					board.makeMove(moves[i]);
+					assertEquals(board.computeZobristKey(), board.getZobristKey(), () -> "after a move from " + fen);
+					board.unmakeMove(moves[i]);
+					assertEquals(key, board.getZobristKey());
+				}
+
+				if(!board.isInCheck()) {
+					board.makeNullMove();
+					assertEquals(board.computeZobristKey(), board.getZobristKey(), board::toFen);
+					board.unmakeNullMove();
+					assertEquals(key, board.getZobristKey());
+				}
+
+				board.makeMove(moves[random.nextInt(count)]);
+			}
+		}
+	}
+
+	@Test
+	void transpositionsShareAKey() {
+		Board first = play("g1f3", "g8f6", "b1c3", "b8c6");
+		Board second = play("b1c3", "b8c6", "g1f3", "g8f6");
+		assertEquals(first.toFen(), second.toFen());
+		assertEquals(first.getZobristKey(), second.getZobristKey());
+	}
+
+	// the same pieces with a different side to move, castling rights or en passant square are
+	// different positions
+	@Test
+	void stateOutsideThePiecesChangesTheKey() {
+		long key = new Board("r3k2r/8/8/3pP3/8/8/8/R3K2R w KQkq - 0 1").getZobristKey();
+		assertNotEquals(key, new Board("r3k2r/8/8/3pP3/8/8/8/R3K2R b KQkq - 0 1").getZobristKey());
+		assertNotEquals(key, new Board("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kkq - 0 1").getZobristKey());
+		assertNotEquals(key, new Board("r3k2r/8/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1").getZobristKey());
+	}
+
+	private static Board play(String... texts) {
+		Board board = new Board();
+		for(String text : texts) {
+			int move = Notation.parseMove(board, text);
+			assertNotEquals(Move.NONE, move, text);
+			board.makeMove(move);
+		}
+		return board;
+	}
+
+}
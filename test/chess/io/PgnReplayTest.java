@@ -0,0 +1,70 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PgnReplayTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysEveryGame() throws IOException {
+		Map<Long, String> games = replay(
+				"[Event \"one\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0\n\n"
+				+ "[Event \"two\"]\n[Result \"*\"]\n\n1. d4 d5 (1... Nf6 2. c4) 2. c4 $1 e6 *\n");
+		assertEquals(2, games.size());
+		assertEquals("7 true " + ReplayedGame.RESULT_WHITE_WINS, games.get(1L));
+		assertEquals("4 true " + ReplayedGame.RESULT_UNKNOWN, games.get(2L));
+	}
+
+	@Test
+	void reportsIllegalMoves() throws IOException {
+		Map<Long, String> games = replay("[Event \"bad\"]\n\n1. e4 e5 2. Ke3 *\n");
+		assertEquals(1, games.size());
+		assertEquals("2 false " + ReplayedGame.RESULT_UNKNOWN, games.get(1L));
+	}
+
+	// a wrapped comment whose next line starts with '[' used to be taken for the next game's tags,
+	// which cut the game short and dropped the rest of it
+	@Test
+	void tagLikeLinesInCommentsDontSplitGames() throws IOException {
+		Map<Long, String> games = replay(
+				"[Event \"one\"]\n\n1. e4 { a long comment that wraps\n[%clk 0:03:00] } e5 2. Nf3 Nc6\n"
+				+ "3. Bb5 ; a { in a line comment opens nothing\na6 *\n\n"
+				+ "[Event \"semi;colon {brace\"]\n\n1. d4 d5 *\n");
+		assertEquals(2, games.size());
+		assertEquals("6 true " + ReplayedGame.RESULT_UNKNOWN, games.get(1L));
+		assertEquals("2 true " + ReplayedGame.RESULT_UNKNOWN, games.get(2L));
+	}
+
+	@Test
+	void escapedLinesAreSkipped() throws IOException {
+		Map<Long, String> games = replay("% generated by a test\n[Event \"one\"]\n\n1. e4 e5\n% [Event \"not a game\"]\n2. Nf3 *\n");
+		assertEquals(1, games.size());
+		assertEquals("3 true " + ReplayedGame.RESULT_UNKNOWN, games.get(1L));
+	}
+
+	private Map<Long, String> replay(String pgn) throws IOException {
+		Path file = directory.resolve("games.pgn");
+		Files.write(file, pgn.getBytes(StandardCharsets.US_ASCII));
+		Map<Long, String> games = new ConcurrentHashMap<>();
+		// the game objects belong to the workers, so only what the tests look at is kept
+		long count = new PgnReplay(2, 4).replay(file,
+				game -> games.put(game.getGameNumber(), game.getPlies() + " " + game.isValid() + " " + game.getResult()));
+		assertEquals(games.size(), count);
+		assertTrue(games.keySet().stream().allMatch(number -> number >= 1 && number <= count));
+		return games;
+	}
+
+}
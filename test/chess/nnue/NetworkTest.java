@@ -0,0 +1,114 @@
+package chess.nnue;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+
+class NetworkTest {
+
+	/*
+	 * The accumulator is only ever updated as the board moves pieces, never rebuilt during a search,
+	 * so the tests play long random games on a network of random weights and check after every move,
+	 * and every take back, that it still matches one built from scratch. The weights are big enough
+	 * that the int16 sums wrap around, which has to come out exact too.
+	 */
+
+	private static final int HIDDEN = 64;
+	private static final int PLIES = 10000;
+
+	@Test
+	void accumulatorMatchesRefreshAfterEveryMove() {
+		Network network = randomNetwork(new Random(1));
+		Board board = new Board();
+		Accumulator accumulator = new Accumulator(network);
+		board.setAccumulator(accumulator);
+		Accumulator check = new Accumulator(network);
+		Board fresh = new Board();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		Random random = new Random(2);
+
+		for(int ply = 0; ply < PLIES; ply++) {
+			int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+			if(count == 0 || board.isDraw()) {
+				board.setFen(new Board().toFen());
+				continue;
+			}
+			board.makeMove(moves[random.nextInt(count)]);
+			fresh.copyFrom(board);
+			check.refresh(fresh);
+			assertArrayEquals(check.getValues(), accumulator.getValues(), () -> "the accumulator drifted at " + board.toFen());
+		}
+	}
+
+	@Test
+	void accumulatorComesBackAfterUnmake() {
+		Network network = randomNetwork(new Random(3));
+		Board board = new Board();
+		Accumulator accumulator = new Accumulator(network);
+		board.setAccumulator(accumulator);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		Random random = new Random(4);
+
+		for(int ply = 0; ply < PLIES; ply++) {
+			int count = MoveGenerator.generateLegalMoves(board, moves, 0);
+			if(count == 0 || board.isDraw()) {
+				board.setFen(new Board().toFen());
+				continue;
+			}
+			short[] before = accumulator.getValues().clone();
+			int score = network.evaluate(accumulator, board.getSideToMove());
+			for(int i = 0; i < count; i++) {
+				board.makeMove(moves[i]);
+				board.unmakeMove(moves[i]);
+			}
+			assertArrayEquals(before, accumulator.getValues(), () -> "make/unmake changed the accumulator at " + board.toFen());
+			assertEquals(score, network.evaluate(accumulator, board.getSideToMove()));
+			board.makeMove(moves[random.nextInt(count)]);
+		}
+	}
+
+	@Test
+	void kernelsMatchPlainLoops() {
+		Kernels kernels = Network.getKernels();
+		Kernels loops = new ScalarKernels();
+		Random random = new Random(5);
+		short[] weights = new short[4 * HIDDEN];
+		byte[] outputWeights = new byte[HIDDEN];
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = (short)random.nextInt();
+		}
+		random.nextBytes(outputWeights);
+
+		short[] values = new short[HIDDEN];
+		short[] expected = new short[HIDDEN];
+		kernels.add(values, 0, weights, 0, HIDDEN);
+		loops.add(expected, 0, weights, 0, HIDDEN);
+		kernels.addSubtract(values, 0, weights, HIDDEN, 2 * HIDDEN, HIDDEN);
+		loops.addSubtract(expected, 0, weights, HIDDEN, 2 * HIDDEN, HIDDEN);
+		kernels.subtract(values, 0, weights, 3 * HIDDEN, HIDDEN);
+		loops.subtract(expected, 0, weights, 3 * HIDDEN, HIDDEN);
+		assertArrayEquals(expected, values);
+		assertEquals(loops.clampedDot(expected, 0, outputWeights, 0, HIDDEN, 127), kernels.clampedDot(values, 0, outputWeights, 0, HIDDEN, 127));
+	}
+
+	private static Network randomNetwork(Random random) {
+		short[] featureWeights = new short[Network.INPUTS * HIDDEN];
+		short[] featureBiases = new short[HIDDEN];
+		byte[] outputWeights = new byte[2 * HIDDEN];
+		for(int i = 0; i < featureWeights.length; i++) {
+			featureWeights[i] = (short)random.nextInt();
+		}
+		for(int i = 0; i < HIDDEN; i++) {
+			featureBiases[i] = (short)random.nextInt(256);
+		}
+		random.nextBytes(outputWeights);
+		return new Network(HIDDEN, 127, 64, 400, featureWeights, featureBiases, outputWeights, 0);
+	}
+
+}
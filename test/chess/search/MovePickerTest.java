@@ -0,0 +1,161 @@
+package chess.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import chess.game.Board;
+import chess.game.MoveGenerator;
+import chess.game.Notation;
+import chess.util.Move;
+
+class MovePickerTest {
+
+	/*
+	 * The picker hands out moves from several stages and skips the hash move and killers when they
+	 * come up again, so the main thing to check is that every legal move still comes out exactly
+	 * once, whatever hash move and killers it's given: legal ones, ones from other positions,
+	 * captures passed off as killers, or the same move twice.
+	 */
+
+	private static final String[] STARTS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+	};
+
+	private static final int PLIES = 1000;
+
+	@Test
+	void returnsEveryLegalMoveOnce() {
+		Random random = new Random(1);
+		int[] history = new int[12 * 64];
+		Board board = new Board();
+		MovePicker picker = new MovePicker(board, history);
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int[] picked = new int[MoveGenerator.MAX_MOVES];
+
+		// moves from the positions before, which may or may not be legal in this one
+		int[] previous = new int[MoveGenerator.MAX_MOVES];
+		int previousCount = 0;
+
+		for(String fen : STARTS) {
+			board.setFen(fen);
+			for(int ply = 0; ply < PLIES; ply++) {
+				int count = MoveGenerator.generateLegalMoves(board, legal, 0);
+				if(count == 0) {
+					board.setFen(fen);
+					continue;
+				}
+				for(int i = 0; i < history.length; i++) {
+					history[i] = random.nextInt(2001) - 1000;
+				}
+
+				int hashMove = pickAny(random, legal, count, previous, previousCount);
+				int firstKiller = pickAny(random, legal, count, previous, previousCount);
+				int secondKiller = random.nextInt(4) == 0 ? firstKiller : pickAny(random, legal, count, previous, previousCount);
+				picker.init(hashMove, firstKiller, secondKiller, true);
+
+				int pickedCount = 0;
+				for(int move = picker.next(); move != Move.NONE; move = picker.next()) {
+					assertTrue(pickedCount < count, board::toFen);
+					picked[pickedCount++] = move;
+				}
+				assertSameMoves(legal, count, picked, pickedCount, board);
+				if(MoveGenerator.isPseudoLegal(board, hashMove) && board.isLegal(hashMove)) assertEquals(hashMove, picked[0], board::toFen);
+
+				System.arraycopy(legal, 0, previous, 0, count);
+				previousCount = count;
+				board.makeMove(legal[random.nextInt(count)]);
+			}
+		}
+	}
+
+	// without the quiet moves, the picker returns the captures and promotions that don't lose material
+	@Test
+	void quiescenceGetsTheGoodCaptures() {
+		Random random = new Random(2);
+		Board board = new Board();
+		MovePicker picker = new MovePicker(board, new int[12 * 64]);
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int[] captures = new int[MoveGenerator.MAX_MOVES];
+		int[] picked = new int[MoveGenerator.MAX_MOVES];
+
+		for(String fen : STARTS) {
+			board.setFen(fen);
+			for(int ply = 0; ply < PLIES; ply++) {
+				int count = MoveGenerator.generateLegalMoves(board, legal, 0);
+				if(count == 0) {
+					board.setFen(fen);
+					continue;
+				}
+				int total = MoveGenerator.generateLegalCaptures(board, captures, 0);
+
+				picker.init(Move.NONE, Move.NONE, Move.NONE, false);
+				int pickedCount = 0;
+				for(int move = picker.next(); move != Move.NONE; move = picker.next()) {
+					assertTrue(contains(captures, total, move), board::toFen);
+					assertTrue(!contains(picked, pickedCount, move), board::toFen);
+					picked[pickedCount++] = move;
+				}
+				for(int i = 0; i < total; i++) {
+					int move = captures[i];
+					boolean good = board.see(move) >= 0 || Move.isPromotion(move) || Move.getFlag(move) == Move.EN_PASSANT;
+					if(good) assertTrue(contains(picked, pickedCount, move), board::toFen);
+				}
+
+				board.makeMove(legal[random.nextInt(count)]);
+			}
+		}
+	}
+
+	@Test
+	void picksInStageOrder() {
+		// the white queen can take a defended pawn on d5 (losing) or an undefended knight on h5, and
+		// the rook has quiet moves
+		Board board = new Board("4k3/8/2p5/3p3n/8/8/8/R2QK3 w - - 0 1");
+		MovePicker picker = new MovePicker(board, new int[12 * 64]);
+		int hashMove = Notation.parseMove(board, "a1a7");
+		int killer = Notation.parseMove(board, "a1b1");
+		picker.init(hashMove, killer, Move.NONE, true);
+
+		assertEquals("a1a7", Move.toString(picker.next()));
+		assertEquals("d1h5", Move.toString(picker.next()));
+		assertEquals("a1b1", Move.toString(picker.next()));
+		int last = Move.NONE;
+		for(int move = picker.next(); move != Move.NONE; move = picker.next()) {
+			last = move;
+		}
+		assertEquals("d1d5", Move.toString(last));
+	}
+
+	private static int pickAny(Random random, int[] legal, int count, int[] previous, int previousCount) {
+		switch(random.nextInt(3)) {
+		case 0: return Move.NONE;
+		case 1: return legal[random.nextInt(count)];
+		default: return previousCount > 0 ? previous[random.nextInt(previousCount)] : Move.NONE;
+		}
+	}
+
+	private static boolean contains(int[] moves, int count, int move) {
+		for(int i = 0; i < count; i++) {
+			if(moves[i] == move) return true;
+		}
+		return false;
+	}
+
+	private static void assertSameMoves(int[] expected, int expectedCount, int[] actual, int actualCount, Board board) {
+		int[] a = Arrays.copyOf(expected, expectedCount);
+		int[] b = Arrays.copyOf(actual, actualCount);
+		Arrays.sort(a);
+		Arrays.sort(b);
+		assertArrayEquals(a, b, board::toFen);
+	}
+
+}
@@ -0,0 +1,112 @@
+package chess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import chess.util.Move;
+
+class TranspositionTableTest {
+
+	// with a 1 MB table the bucket comes from the low 15 bits of the key, so keys that only differ
+	// above those share a bucket
+	private static final int MEGABYTES = 1;
+	private static final long KEY = 0x9E3779B97F4A7C15L;
+
+	@Test
+	void storesAndProbes() {
+		TranspositionTable table = new TranspositionTable(MEGABYTES);
+		int move = Move.encode(12, 28, Move.DOUBLE_PAWN_PUSH);
+		table.store(KEY, move, -1234, 17, TranspositionTable.BOUND_LOWER, -56);
+
+		long data = table.probe(KEY);
+		assertEquals(move, TranspositionTable.getMove(data));
+		assertEquals(-1234, TranspositionTable.getScore(data));
+		assertEquals(17, TranspositionTable.getDepth(data));
+		assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(data));
+		assertEquals(-56, TranspositionTable.getEval(data));
+
+		assertEquals(0, table.probe(KEY ^ 1L << 40));
+		assertEquals(0, table.probe(KEY + 1));
+		assertEquals(3, table.getProbes());
+		assertEquals(1, table.getHits());
+	}
+
+	@Test
+	void keepsTheBestMoveWhenStoringNone() {
+		TranspositionTable table = new TranspositionTable(MEGABYTES);
+		int move = Move.encode(6, 21, Move.QUIET);
+		table.store(KEY, move, 10, 5, TranspositionTable.BOUND_EXACT, 0);
+		table.store(KEY, Move.NONE, 20, 6, TranspositionTable.BOUND_UPPER, 0);
+
+		long data = table.probe(KEY);
+		assertEquals(move, TranspositionTable.getMove(data));
+		assertEquals(20, TranspositionTable.getScore(data));
+	}
+
+	// the first entry of a bucket keeps the deepest search of the current one, the second takes
+	// whatever comes, and a new search frees the first again
+	@Test
+	void replacesByDepthAndAge() {
+		TranspositionTable table = new TranspositionTable(MEGABYTES);
+		long deep = KEY;
+		long shallow = KEY ^ 1L << 40;
+		long other = KEY ^ 2L << 40;
+		long later = KEY ^ 3L << 40;
+
+		table.store(deep, Move.NONE, 1, 10, TranspositionTable.BOUND_EXACT, 0);
+		table.store(shallow, Move.NONE, 2, 5, TranspositionTable.BOUND_EXACT, 0);
+		table.store(other, Move.NONE, 3, 3, TranspositionTable.BOUND_EXACT, 0);
+		assertEquals(1, TranspositionTable.getScore(table.probe(deep)));
+		assertEquals(0, table.probe(shallow));
+		assertEquals(3, TranspositionTable.getScore(table.probe(other)));
+
+		table.newSearch();
+		table.store(later, Move.NONE, 4, 1, TranspositionTable.BOUND_EXACT, 0);
+		assertEquals(0, table.probe(deep));
+		assertEquals(4, TranspositionTable.getScore(table.probe(later)));
+		assertEquals(3, TranspositionTable.getScore(table.probe(other)));
+	}
+
+	// threads writing the same bucket at once can leave one write's key next to another's data.
+	// Every entry here holds a score that depends on its key, so a probe that returned a torn entry
+	// would show up as a wrong score.
+	@Test
+	void rejectsTornEntries() throws InterruptedException {
+		TranspositionTable table = new TranspositionTable(MEGABYTES);
+		int keys = 16;
+		AtomicLong hits = new AtomicLong();
+		AtomicLong wrong = new AtomicLong();
+
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++) {
+			boolean writer = t % 2 == 0;
+			int seed = t;
+			threads[t] = new Thread(() -> {
+				for(int i = 0; i < 2_000_000; i++) {
+					int n = (i * 7 + seed) % keys;
+					long key = KEY ^ (long)n << 40;
+					if(writer) {
+						table.store(key, Move.NONE, n * 100, i & 0x3F, TranspositionTable.BOUND_EXACT, -n);
+					} else {
+						long data = table.probe(key);
+						if(data == 0) continue;
+						hits.incrementAndGet();
+						if(TranspositionTable.getScore(data) != n * 100 || TranspositionTable.getEval(data) != -n) wrong.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue(hits.get() > 0, "the readers never found anything");
+		assertEquals(0, wrong.get());
+	}
+
+}
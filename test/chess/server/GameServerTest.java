@@ -0,0 +1,104 @@
+package chess.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import chess.game.Board;
+import chess.game.Notation;
+
+class GameServerTest {
+
+	@Test
+	void clientPlaysItsGames() throws Exception {
+		GameServer server = new GameServer(0, 2, 64, 8);
+		server.setEngineLimits(200, 0, 0);
+		server.start();
+		try {
+			GameClient client = new GameClient(server.getPort(), 20, 5, 30);
+			client.play(1);
+			assertEquals(0, client.getErrors());
+			assertEquals(20, client.getGamesPlayed());
+			assertTrue(client.getMovesSent() > 0);
+			assertTrue(client.requestStats().startsWith("stats games "));
+
+			// the client doesn't wait for its last closes to be answered before it quits
+			long deadline = System.currentTimeMillis() + 10_000;
+			while(server.getOpenGames() > 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, server.getOpenGames());
+		} finally {
+			server.close();
+		}
+	}
+
+	// one command at a time, waiting for each reply, since a game's commands run on a worker and a
+	// close sent right behind them could get answered first
+	@Test
+	void answersEachCommand() throws Exception {
+		GameServer server = new GameServer(0, 1, 16, 1);
+		server.setEngineLimits(200, 0, 0);
+		server.start();
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+
+			String[] reply = send(in, out, "new none");
+			assertEquals("new", reply[0]);
+			String id = reply[1];
+			assertEquals("ok " + id, String.join(" ", send(in, out, "move " + id + " e2e4")));
+			assertEquals("ok " + id, String.join(" ", send(in, out, "move " + id + " Nf6")));
+			assertEquals("illegal " + id + " e4e6", String.join(" ", send(in, out, "move " + id + " e4e6")));
+
+			Board board = new Board();
+			board.makeMove(Notation.parseMove(board, "e2e4"));
+			board.makeMove(Notation.parseMove(board, "g8f6"));
+			assertEquals("fen " + id + " " + board.toFen(), String.join(" ", send(in, out, "fen " + id)));
+
+			// the engine plays black here and answers every move
+			reply = send(in, out, "new black");
+			String engineGame = reply[1];
+			reply = send(in, out, "move " + engineGame + " d2d4");
+			assertEquals("move", reply[0]);
+			assertEquals(engineGame, reply[1]);
+
+			// a game that's already over
+			reply = send(in, out, "new none fen 7k/6Q1/6K1/8/8/8/8/8 b - - 0 1");
+			String mated = reply[1];
+			assertEquals("over " + mated + " 1-0 checkmate", in.readLine());
+			assertEquals("error " + mated + " the game is over", String.join(" ", send(in, out, "move " + mated + " h8g8")));
+
+			assertEquals("error - unknown command: bogus", String.join(" ", send(in, out, "bogus")));
+			assertEquals("error - no such game: 999", String.join(" ", send(in, out, "fen 999")));
+
+			assertEquals(3, server.getOpenGames());
+			assertEquals("closed " + id, String.join(" ", send(in, out, "close " + id)));
+			assertEquals("closed " + engineGame, String.join(" ", send(in, out, "close " + engineGame)));
+			assertEquals("closed " + mated, String.join(" ", send(in, out, "close " + mated)));
+			assertEquals(0, server.getOpenGames());
+			assertEquals("error - no such game: " + id, String.join(" ", send(in, out, "fen " + id)));
+		} finally {
+			server.close();
+		}
+	}
+
+	private static String[] send(BufferedReader in, Writer out, String command) throws IOException {
+		out.write(command + "\n");
+		out.flush();
+		String line = in.readLine();
+		if(line == null) throw new IOException("The server closed the connection");
+		return line.split(" ");
+	}
+
+}